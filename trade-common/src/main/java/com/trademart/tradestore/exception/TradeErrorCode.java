@@ -0,0 +1,35 @@
+package com.trademart.tradestore.exception;
+
+/** Machine-readable error codes returned to clients in the {@code errorCode} field. */
+public enum TradeErrorCode {
+  VERSION_TOO_LOW,
+  MATURITY_PAST,
+  TRADE_REJECTED,
+  INTERNAL_ERROR;
+
+  /**
+   * Classify a free-text message, for exceptions created without an explicit code. Matches
+   * "version" before "maturity", case-insensitively, without copying the message.
+   */
+  public static TradeErrorCode fromMessage(String message) {
+    if (message == null) {
+      return TRADE_REJECTED;
+    }
+    if (containsIgnoreCase(message, "version")) {
+      return VERSION_TOO_LOW;
+    }
+    if (containsIgnoreCase(message, "maturity")) {
+      return MATURITY_PAST;
+    }
+    return TRADE_REJECTED;
+  }
+
+  private static boolean containsIgnoreCase(String message, String word) {
+    for (int i = 0, last = message.length() - word.length(); i <= last; i++) {
+      if (message.regionMatches(true, i, word, 0, word.length())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
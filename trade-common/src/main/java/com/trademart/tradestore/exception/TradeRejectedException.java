@@ -5,11 +5,41 @@ public class TradeRejectedException extends RuntimeException {
 
   private static final long serialVersionUID = 1L;
 
+  private static final TradeRejectedException STALE_VERSION =
+      new TradeRejectedException(
+          TradeErrorCode.VERSION_TOO_LOW, "incoming version is lower than existing", false);
+
+  private final TradeErrorCode errorCode;
+
   public TradeRejectedException(String message) {
     super(message);
+    this.errorCode = TradeErrorCode.fromMessage(message);
   }
 
   public TradeRejectedException(String message, Throwable cause) {
     super(message, cause);
+    this.errorCode = TradeErrorCode.fromMessage(message);
+  }
+
+  public TradeRejectedException(TradeErrorCode errorCode, String message) {
+    super(message);
+    this.errorCode = errorCode;
+  }
+
+  private TradeRejectedException(TradeErrorCode errorCode, String message, boolean stackTrace) {
+    super(message, null, false, stackTrace);
+    this.errorCode = errorCode;
+  }
+
+  /**
+   * The rejection for a version lower than the stored one. This is the common outcome of replays,
+   * so a single instance without a stack trace is shared instead of filling one in per rejection.
+   */
+  public static TradeRejectedException staleVersion() {
+    return STALE_VERSION;
+  }
+
+  public TradeErrorCode getErrorCode() {
+    return errorCode;
   }
 }
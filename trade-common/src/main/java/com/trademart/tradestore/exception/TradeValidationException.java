@@ -5,11 +5,50 @@ public class TradeValidationException extends RuntimeException {
 
   private static final long serialVersionUID = 1L;
 
+  // Shared, stackless instances for the fixed-message rules checked on every ingest
+  private static final TradeValidationException TRADE_ID_REQUIRED =
+      new TradeValidationException(TradeErrorCode.TRADE_REJECTED, "tradeId is required", false);
+  private static final TradeValidationException NEGATIVE_VERSION =
+      new TradeValidationException(TradeErrorCode.VERSION_TOO_LOW, "version must be >= 0", false);
+  private static final TradeValidationException MATURITY_PAST =
+      new TradeValidationException(
+          TradeErrorCode.MATURITY_PAST, "maturity date is in the past", false);
+
+  private final TradeErrorCode errorCode;
+
   public TradeValidationException(String message) {
     super(message);
+    this.errorCode = TradeErrorCode.fromMessage(message);
   }
 
   public TradeValidationException(String message, Throwable cause) {
     super(message, cause);
+    this.errorCode = TradeErrorCode.fromMessage(message);
+  }
+
+  public TradeValidationException(TradeErrorCode errorCode, String message) {
+    super(message);
+    this.errorCode = errorCode;
+  }
+
+  private TradeValidationException(TradeErrorCode errorCode, String message, boolean stackTrace) {
+    super(message, null, false, stackTrace);
+    this.errorCode = errorCode;
+  }
+
+  public static TradeValidationException tradeIdRequired() {
+    return TRADE_ID_REQUIRED;
+  }
+
+  public static TradeValidationException negativeVersion() {
+    return NEGATIVE_VERSION;
+  }
+
+  public static TradeValidationException maturityPast() {
+    return MATURITY_PAST;
+  }
+
+  public TradeErrorCode getErrorCode() {
+    return errorCode;
   }
 }
@@ -1,10 +1,14 @@
 package com.trademart.tradeexpiry.expiry;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication(scanBasePackages = "com.trademart.tradestore")
+// Components live under com.trademart.tradeexpiry; ClockService comes from trade-clock. The
+// auto-configuration package makes JPA/Mongo pick up the entities and repositories as well.
+@SpringBootApplication(scanBasePackages = { "com.trademart.tradeexpiry", "com.trademart.tradestore.service" })
+@AutoConfigurationPackage(basePackages = "com.trademart.tradeexpiry")
 @EnableScheduling
 public class TradeExpiryApplication {
   public static void main(String[] args) {
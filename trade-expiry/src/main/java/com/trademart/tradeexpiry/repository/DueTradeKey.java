@@ -0,0 +1,6 @@
+package com.trademart.tradeexpiry.repository;
+
+import java.time.LocalDate;
+
+/** Keyset position of a due trade: expiry walks trades in (maturity_date, id) order. */
+public record DueTradeKey(long id, LocalDate maturityDate) {}
@@ -0,0 +1,68 @@
+package com.trademart.tradeexpiry.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Checkpoint of the expiry job per UTC run date ({@code trade_expiry_progress}). Every chunk
+ * advances the keyset cursor in the same transaction that expires its trades, so a job that dies
+ * mid-way resumes after the last committed chunk instead of rescanning from the start.
+ *
+ * <p>Replicas share the run date's row. They claim disjoint chunks with SKIP LOCKED and commit them
+ * out of order, so the cursor only ever moves forward; the row lock is taken by the last statement
+ * of a chunk and held only through its commit. Starting a pass deletes the rows of earlier dates.
+ */
+@Repository
+public class TradeExpiryProgressRepository {
+
+  /** Where the expiry pass for {@code runDate} stands; a null cursor means "from the start". */
+  public record Progress(LocalDate runDate, LocalDate lastMaturityDate, long lastId, long expiredCount, Instant completedAt) {}
+
+  static final String PRUNE_SQL = "DELETE FROM trade_expiry_progress WHERE run_date < ?";
+  // a finished pass is reset so the next run starts over; an unfinished one keeps its cursor
+  static final String START_SQL = "INSERT INTO trade_expiry_progress (run_date) VALUES (?) " +
+      "ON CONFLICT (run_date) DO UPDATE SET last_maturity_date = NULL, last_id = 0, completed_at = NULL, updated_at = now() " +
+      "WHERE trade_expiry_progress.completed_at IS NOT NULL";
+  static final String FIND_SQL = "SELECT run_date, last_maturity_date, last_id, expired_count, completed_at " +
+      "FROM trade_expiry_progress WHERE run_date = ?";
+  // SET expressions all see the old row, so both cursor columns move together or not at all
+  static final String ADVANCE_SQL = "UPDATE trade_expiry_progress SET " +
+      "last_maturity_date = CASE WHEN last_maturity_date IS NULL OR (last_maturity_date, last_id) < (?, ?) THEN ? ELSE last_maturity_date END, " +
+      "last_id = CASE WHEN last_maturity_date IS NULL OR (last_maturity_date, last_id) < (?, ?) THEN ? ELSE last_id END, " +
+      "expired_count = expired_count + ?, updated_at = now() WHERE run_date = ?";
+  static final String COMPLETE_SQL = "UPDATE trade_expiry_progress SET completed_at = now(), updated_at = now() WHERE run_date = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public TradeExpiryProgressRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /** Open (or resume) the pass for {@code runDate} and return its cursor. */
+  public Progress start(LocalDate runDate) {
+    jdbcTemplate.update(PRUNE_SQL, runDate);
+    jdbcTemplate.update(START_SQL, runDate);
+    return jdbcTemplate.queryForObject(FIND_SQL, (rs, n) -> {
+      Timestamp completed = rs.getTimestamp("completed_at");
+      return new Progress(
+          rs.getObject("run_date", LocalDate.class),
+          rs.getObject("last_maturity_date", LocalDate.class),
+          rs.getLong("last_id"),
+          rs.getLong("expired_count"),
+          completed == null ? null : completed.toInstant());
+    }, runDate);
+  }
+
+  public void advance(LocalDate runDate, DueTradeKey last, int expired) {
+    LocalDate maturity = last.maturityDate();
+    long id = last.id();
+    jdbcTemplate.update(ADVANCE_SQL, maturity, id, maturity, maturity, id, id, expired, runDate);
+  }
+
+  public void complete(LocalDate runDate) {
+    jdbcTemplate.update(COMPLETE_SQL, runDate);
+  }
+}
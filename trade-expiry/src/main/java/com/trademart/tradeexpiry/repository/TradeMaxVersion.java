@@ -0,0 +1,4 @@
+package com.trademart.tradeexpiry.repository;
+
+/** Highest stored version of one tradeId, as returned by the multi-id max-version lookup. */
+public record TradeMaxVersion(String tradeId, Integer version) {}
@@ -1,6 +1,7 @@
 package com.trademart.tradeexpiry.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -16,5 +17,9 @@ public interface TradeRepository extends JpaRepository<TradeEntity, Long>, Trade
   @Query("SELECT MAX(t.version) FROM TradeEntity t WHERE t.tradeId = :tradeId")
   Integer findMaxVersionByTradeId(@Param("tradeId") String tradeId);
 
+  /** Max version per tradeId in one query; tradeIds with no stored version are absent. */
+  @Query("SELECT new com.trademart.tradeexpiry.repository.TradeMaxVersion(t.tradeId, MAX(t.version)) FROM TradeEntity t WHERE t.tradeId IN :tradeIds GROUP BY t.tradeId")
+  List<TradeMaxVersion> findMaxVersionsByTradeIdIn(@Param("tradeIds") Collection<String> tradeIds);
+
   List<TradeEntity> findByStatusAndMaturityDateBefore(TradeStatus status, LocalDate date);
 }
@@ -2,6 +2,8 @@ package com.trademart.tradeexpiry.repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
 
 import com.trademart.tradeexpiry.model.TradeEntity;
 
@@ -14,4 +16,22 @@ public interface TradeRepositoryCustom {
       LocalDate maturityDate,
       Long ingestSequence,
       String status);
+
+  /**
+   * Next {@code limit} ACTIVE trades maturing before {@code before}, strictly after the keyset
+   * position ({@code afterMaturity}, {@code afterId}); a null {@code afterMaturity} starts from the
+   * beginning. The rows are locked for the caller's transaction; rows locked by another
+   * transaction are skipped, so concurrent callers claim disjoint chunks.
+   */
+  List<DueTradeKey> findDueTradeKeys(LocalDate before, LocalDate afterMaturity, long afterId, int limit);
+
+  /** Mark the given trades EXPIRED if they are still ACTIVE and return the rows that changed. */
+  List<TradeEntity> expireTrades(List<Long> ids);
+
+  /**
+   * Expire every ACTIVE trade maturing before {@code before} with one statement and hand each
+   * changed row to {@code sink} as it is read, {@code fetchSize} rows per round trip. Must run in a
+   * transaction for the driver to fetch incrementally. Returns the number of rows expired.
+   */
+  long expireAllDue(LocalDate before, int fetchSize, Consumer<TradeEntity> sink);
 }
@@ -3,16 +3,40 @@ package com.trademart.tradeexpiry.repository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 import com.trademart.tradeexpiry.model.TradeEntity;
+import com.trademart.tradeexpiry.model.TradeStatus;
 import com.trademart.tradeexpiry.service.TradeValidationService;
 
 @Repository
 public class TradeRepositoryImpl implements TradeRepositoryCustom {
 
+  // SKIP LOCKED: rows another replica has claimed for its chunk are left to it, so concurrent
+  // expiry jobs split the due trades instead of queueing on the same row locks.
+  static final String FIRST_DUE_KEYS_SQL = "SELECT id, maturity_date FROM trades " +
+      "WHERE status = 'ACTIVE' AND maturity_date < ? " +
+      "ORDER BY maturity_date, id LIMIT ? FOR UPDATE SKIP LOCKED";
+  static final String NEXT_DUE_KEYS_SQL = "SELECT id, maturity_date FROM trades " +
+      "WHERE status = 'ACTIVE' AND maturity_date < ? AND (maturity_date, id) > (?, ?) " +
+      "ORDER BY maturity_date, id LIMIT ? FOR UPDATE SKIP LOCKED";
+  // the status guard skips rows another writer changed since the keyset read
+  static final String EXPIRE_SQL = "UPDATE trades SET status = 'EXPIRED', updated_at = now(), " +
+      "opt_lock = COALESCE(opt_lock, 0) + 1 " +
+      "WHERE id = ANY(?) AND status = 'ACTIVE' " +
+      "RETURNING id, trade_id, version, price, quantity, maturity_date, status";
+  static final String EXPIRE_ALL_DUE_SQL = "UPDATE trades SET status = 'EXPIRED', updated_at = now(), " +
+      "opt_lock = COALESCE(opt_lock, 0) + 1 " +
+      "WHERE status = 'ACTIVE' AND maturity_date < ? " +
+      "RETURNING id, trade_id, version, price, quantity, maturity_date, status";
+
   private final JdbcTemplate jdbcTemplate;
   private final TradeValidationService validator;
 
@@ -53,4 +77,53 @@ public class TradeRepositoryImpl implements TradeRepositoryCustom {
     q.setParameter("tradeId", tradeId);
     return q.getSingleResult();
   }
+
+  @Override
+  public List<DueTradeKey> findDueTradeKeys(LocalDate before, LocalDate afterMaturity, long afterId, int limit) {
+    if (afterMaturity == null) {
+      return jdbcTemplate.query(FIRST_DUE_KEYS_SQL, TradeRepositoryImpl::toKey, before, limit);
+    }
+    return jdbcTemplate.query(NEXT_DUE_KEYS_SQL, TradeRepositoryImpl::toKey, before, afterMaturity, afterId, limit);
+  }
+
+  @Override
+  public List<TradeEntity> expireTrades(List<Long> ids) {
+    if (ids.isEmpty()) return List.of();
+    return jdbcTemplate.query(con -> {
+      var ps = con.prepareStatement(EXPIRE_SQL);
+      ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+      return ps;
+    }, (rs, n) -> toExpired(rs));
+  }
+
+  @Override
+  public long expireAllDue(LocalDate before, int fetchSize, Consumer<TradeEntity> sink) {
+    long[] count = new long[1];
+    jdbcTemplate.query(con -> {
+      var ps = con.prepareStatement(EXPIRE_ALL_DUE_SQL);
+      ps.setObject(1, before);
+      ps.setFetchSize(fetchSize);
+      return ps;
+    }, (RowCallbackHandler) rs -> {
+      sink.accept(toExpired(rs));
+      count[0]++;
+    });
+    return count[0];
+  }
+
+  private static TradeEntity toExpired(ResultSet rs) throws SQLException {
+    TradeEntity t = new TradeEntity(
+        rs.getString("trade_id"),
+        rs.getInt("version"),
+        rs.getBigDecimal("price"),
+        (Integer) rs.getObject("quantity"),
+        rs.getObject("maturity_date", LocalDate.class),
+        TradeStatus.valueOf(rs.getString("status")));
+    t.setId(rs.getLong("id"));
+    return t;
+  }
+
+  private static DueTradeKey toKey(ResultSet rs, int rowNum) throws SQLException {
+    return new DueTradeKey(rs.getLong("id"), rs.getObject("maturity_date", LocalDate.class));
+  }
 }
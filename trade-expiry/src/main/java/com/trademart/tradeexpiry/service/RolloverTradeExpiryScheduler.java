@@ -0,0 +1,122 @@
+package com.trademart.tradeexpiry.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.trademart.tradeexpiry.repository.TradeRepository;
+import com.trademart.tradeexpiry.repository.mongo.TradeHistoryRepository;
+import com.trademart.tradeexpiry.service.impl.SetBasedTradeExpiryStrategy;
+import com.trademart.tradestore.service.ClockService;
+
+/**
+ * Runs the expiry pass at each UTC day boundary ({@code trade.expiry.trigger=rollover}) instead of
+ * every {@code trade.expiry.fixedDelay} ms.
+ *
+ * <p>Maturity validation rejects dates before today, so a trade ingested today becomes due at the
+ * next rollover at the earliest: the set of due trades only grows when the UTC date changes. One
+ * pass right after each boundary ({@code trade.expiry.rolloverCron}) therefore expires every trade
+ * as soon as it is due, and nothing runs in between.
+ *
+ * <p>The configured strategy skips rows it finds locked (the {@code chunked} engine claims chunks
+ * with SKIP LOCKED), and rows another replica claimed stay ACTIVE if that replica then crashes or
+ * rolls back. So the date only counts as done after a sweep that waits for row locks instead:
+ * one {@code UPDATE ... WHERE status = 'ACTIVE' AND maturity_date < ?} that expires, with history,
+ * whatever the pass left behind. Right after a complete pass it matches no rows.
+ *
+ * <p>A follow-up check every {@code trade.expiry.rolloverRetryDelayMs} (and once at startup)
+ * catches up on a boundary missed while the service was down and retries a failed pass, up to
+ * {@code trade.expiry.rolloverMaxAttempts} times per date. It sends no query once the date is done.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.expiry.trigger", havingValue = "rollover")
+public class RolloverTradeExpiryScheduler {
+  private static final Logger log = LoggerFactory.getLogger(RolloverTradeExpiryScheduler.class);
+  private final TradeExpiryService expiryService;
+  private final TradeExpiryStrategy sweep;
+  private final ClockService clockService;
+  private final int maxAttempts;
+  private final Counter runCounter;
+  private LocalDate lastCompleted;
+  private LocalDate attemptsDate;
+  private int attempts;
+
+  @Autowired
+  public RolloverTradeExpiryScheduler(
+      TradeExpiryService expiryService,
+      TradeRepository tradeRepository,
+      TradeHistoryRepository tradeHistoryRepository,
+      TransactionOperations transactions,
+      ClockService clockService,
+      MeterRegistry registry,
+      @Value("${trade.expiry.batchSize:1000}") int batchSize,
+      @Value("${trade.expiry.rolloverMaxAttempts:10}") int maxAttempts) {
+    this(expiryService, new SetBasedTradeExpiryStrategy(tradeRepository, tradeHistoryRepository, transactions, batchSize),
+        clockService, registry, maxAttempts);
+  }
+
+  public RolloverTradeExpiryScheduler(
+      TradeExpiryService expiryService,
+      TradeExpiryStrategy sweep,
+      ClockService clockService,
+      MeterRegistry registry,
+      int maxAttempts) {
+    this.expiryService = expiryService;
+    this.sweep = sweep;
+    this.clockService = clockService;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.runCounter = Counter.builder("trade_expiry_jobs_run_total").description("Number of times the trade expiry job has run").register(registry);
+  }
+
+  @Scheduled(cron = "${trade.expiry.rolloverCron:0 0 0 * * *}", zone = "UTC")
+  public void onRollover() {
+    runIfDue();
+  }
+
+  @Scheduled(initialDelay = 0, fixedDelayString = "${trade.expiry.rolloverRetryDelayMs:60000}")
+  public void catchUp() {
+    runIfDue();
+  }
+
+  /**
+   * Run today's pass and sweep unless they already completed or today's attempts are used up;
+   * returns true when today is done. Public for tests.
+   */
+  public synchronized boolean runIfDue() {
+    LocalDate todayUtc = LocalDate.ofInstant(clockService.nowUtc(), ZoneOffset.UTC);
+    if (todayUtc.equals(lastCompleted)) return true;
+    if (!todayUtc.equals(attemptsDate)) {
+      attemptsDate = todayUtc;
+      attempts = 0;
+    }
+    if (attempts >= maxAttempts) return false;
+    attempts++;
+    try {
+      log.info("starting trade expiry job for {} (attempt {})", todayUtc, attempts);
+      runCounter.increment();
+      expiryService.expireDueTrades();
+      long swept = sweep.expire(todayUtc);
+      if (swept > 0) {
+        log.warn("trade expiry sweep for {} expired {} trades the pass had skipped", todayUtc, swept);
+      }
+      lastCompleted = todayUtc;
+      return true;
+    } catch (Exception e) {
+      if (attempts >= maxAttempts) {
+        log.error("trade expiry job for {} failed {} times, giving up until the next rollover", todayUtc, attempts, e);
+      } else {
+        log.error("trade expiry job for {} failed, will retry", todayUtc, e);
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.trademart.tradeexpiry.service;
+
+import java.time.Instant;
+import java.util.Map;
+
+import com.trademart.tradeexpiry.model.TradeEntity;
+import com.trademart.tradeexpiry.model.TradeStatus;
+import com.trademart.tradeexpiry.mongo.TradeHistory;
+
+/** Builds the EXPIRE history document shared by every {@link TradeExpiryStrategy}. */
+public final class TradeExpiryHistories {
+
+  private TradeExpiryHistories() {
+  }
+
+  /** History for a trade that moved from ACTIVE to {@code expired.getStatus()}. */
+  public static TradeHistory expired(TradeEntity expired, Instant now) {
+    TradeHistory h = new TradeHistory();
+    h.setTradeId(expired.getTradeId());
+    h.setVersion(expired.getVersion());
+    h.setChangeType("EXPIRE");
+    h.setBefore(Map.of("tradeId", expired.getTradeId(), "version", expired.getVersion(), "status", TradeStatus.ACTIVE));
+    h.setAfter(Map.of("tradeId", expired.getTradeId(), "version", expired.getVersion(), "status", expired.getStatus()));
+    h.setActor("system");
+    h.setTimestamp(now);
+    return h;
+  }
+}
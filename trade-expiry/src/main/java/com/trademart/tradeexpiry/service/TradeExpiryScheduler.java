@@ -4,10 +4,16 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+/**
+ * Runs the expiry pass every {@code trade.expiry.fixedDelay} ms ({@code trade.expiry.trigger=poll},
+ * the default). See {@link RolloverTradeExpiryScheduler} for the day-boundary trigger.
+ */
 @Component
+@ConditionalOnProperty(name = "trade.expiry.trigger", havingValue = "poll", matchIfMissing = true)
 public class TradeExpiryScheduler {
   private static final Logger log = LoggerFactory.getLogger(TradeExpiryScheduler.class);
   private final TradeExpiryService expiryService;
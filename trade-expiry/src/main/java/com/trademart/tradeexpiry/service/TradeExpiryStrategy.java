@@ -0,0 +1,21 @@
+package com.trademart.tradeexpiry.service;
+
+import java.time.LocalDate;
+
+/**
+ * How due trades are moved to EXPIRED, selected with {@code trade.expiry.strategy}:
+ *
+ * <ul>
+ *   <li>{@code chunked} (default): keyset-paginated chunks, one short transaction and checkpoint per
+ *       chunk, chunks claimed with SKIP LOCKED so replicas share the work.
+ *   <li>{@code set}: one {@code UPDATE ... WHERE status = 'ACTIVE' AND maturity_date < ? RETURNING}
+ *       whose rows are streamed into batched history writes.
+ *   <li>{@code jpa}: load every due entity, flip its status in Java and {@code saveAll}; the
+ *       original implementation, kept as a baseline for comparison.
+ * </ul>
+ */
+public interface TradeExpiryStrategy {
+
+  /** Expire ACTIVE trades maturing before {@code todayUtc}; returns how many were expired. */
+  long expire(LocalDate todayUtc);
+}
@@ -0,0 +1,103 @@
+package com.trademart.tradeexpiry.service.impl;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.trademart.tradeexpiry.model.TradeEntity;
+import com.trademart.tradeexpiry.mongo.TradeHistory;
+import com.trademart.tradeexpiry.repository.DueTradeKey;
+import com.trademart.tradeexpiry.repository.TradeExpiryProgressRepository;
+import com.trademart.tradeexpiry.repository.TradeRepository;
+import com.trademart.tradeexpiry.repository.mongo.TradeHistoryRepository;
+import com.trademart.tradeexpiry.service.TradeExpiryHistories;
+import com.trademart.tradeexpiry.service.TradeExpiryStrategy;
+
+/**
+ * Expires due trades in bounded chunks.
+ *
+ * <p>Due trades are walked in (maturity_date, id) keyset order, {@code trade.expiry.chunkSize}
+ * rows at a time. Each chunk is one short transaction: a set-based {@code UPDATE ... WHERE id =
+ * ANY(?) RETURNING} plus the checkpoint update, so memory and lock time stay constant however many
+ * trades mature on one day, and a run that dies mid-way resumes after its last committed chunk.
+ * History documents for a chunk are written to Mongo after it commits.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.expiry.strategy", havingValue = "chunked", matchIfMissing = true)
+public class ChunkedTradeExpiryStrategy implements TradeExpiryStrategy {
+  private static final Logger log = LoggerFactory.getLogger(ChunkedTradeExpiryStrategy.class);
+  private final TradeRepository tradeRepository;
+  private final TradeHistoryRepository tradeHistoryRepository;
+  private final TradeExpiryProgressRepository progressRepository;
+  private final TransactionOperations transactions;
+  private final int chunkSize;
+
+  private record Chunk(int scanned, DueTradeKey last, List<TradeEntity> expired) {}
+
+  public ChunkedTradeExpiryStrategy(
+      TradeRepository tradeRepository,
+      TradeHistoryRepository tradeHistoryRepository,
+      TradeExpiryProgressRepository progressRepository,
+      TransactionOperations transactions,
+      @Value("${trade.expiry.chunkSize:1000}") int chunkSize) {
+    this.tradeRepository = tradeRepository;
+    this.tradeHistoryRepository = tradeHistoryRepository;
+    this.progressRepository = progressRepository;
+    this.transactions = transactions;
+    this.chunkSize = Math.max(1, chunkSize);
+  }
+
+  @Override
+  public long expire(LocalDate todayUtc) {
+    TradeExpiryProgressRepository.Progress progress = transactions.execute(s -> progressRepository.start(todayUtc));
+    LocalDate afterMaturity = progress.lastMaturityDate();
+    long afterId = progress.lastId();
+    if (afterMaturity != null) {
+      log.info("expiry job: resuming after ({}, {})", afterMaturity, afterId);
+    }
+
+    long expired = 0;
+    int chunks = 0;
+    while (true) {
+      LocalDate fromMaturity = afterMaturity;
+      long fromId = afterId;
+      Chunk chunk = transactions.execute(s -> expireChunk(todayUtc, fromMaturity, fromId));
+      if (chunk.scanned() == 0) break;
+      chunks++;
+      expired += chunk.expired().size();
+      writeHistory(chunk.expired());
+      afterMaturity = chunk.last().maturityDate();
+      afterId = chunk.last().id();
+      if (chunk.scanned() < chunkSize) break;
+    }
+    transactions.executeWithoutResult(s -> progressRepository.complete(todayUtc));
+    log.info("expiry job: {} chunks", chunks);
+    return expired;
+  }
+
+  private Chunk expireChunk(LocalDate todayUtc, LocalDate afterMaturity, long afterId) {
+    List<DueTradeKey> keys = tradeRepository.findDueTradeKeys(todayUtc, afterMaturity, afterId, chunkSize);
+    if (keys.isEmpty()) return new Chunk(0, null, List.of());
+    List<Long> ids = new ArrayList<>(keys.size());
+    for (DueTradeKey k : keys) ids.add(k.id());
+    List<TradeEntity> expired = tradeRepository.expireTrades(ids);
+    DueTradeKey last = keys.get(keys.size() - 1);
+    progressRepository.advance(todayUtc, last, expired.size());
+    return new Chunk(keys.size(), last, expired);
+  }
+
+  private void writeHistory(List<TradeEntity> expired) {
+    if (expired.isEmpty()) return;
+    List<TradeHistory> histories = new ArrayList<>(expired.size());
+    Instant now = Instant.now();
+    for (TradeEntity t : expired) histories.add(TradeExpiryHistories.expired(t, now));
+    try { tradeHistoryRepository.saveAll(histories); } catch (Exception e) { log.warn("failed to persist trade history for expiry job: {}", e.getMessage()); }
+  }
+}
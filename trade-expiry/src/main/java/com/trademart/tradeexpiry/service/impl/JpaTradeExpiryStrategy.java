@@ -0,0 +1,59 @@
+package com.trademart.tradeexpiry.service.impl;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.trademart.tradeexpiry.model.TradeEntity;
+import com.trademart.tradeexpiry.model.TradeStatus;
+import com.trademart.tradeexpiry.mongo.TradeHistory;
+import com.trademart.tradeexpiry.repository.TradeRepository;
+import com.trademart.tradeexpiry.repository.mongo.TradeHistoryRepository;
+import com.trademart.tradeexpiry.service.TradeExpiryHistories;
+import com.trademart.tradeexpiry.service.TradeExpiryStrategy;
+
+/**
+ * Original expiry path ({@code trade.expiry.strategy=jpa}): loads every due entity, flips its
+ * status in Java and relies on {@code saveAll}, i.e. one optimistic-locked UPDATE per row in one
+ * transaction. Kept as the baseline the other strategies are measured against.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.expiry.strategy", havingValue = "jpa")
+public class JpaTradeExpiryStrategy implements TradeExpiryStrategy {
+  private static final Logger log = LoggerFactory.getLogger(JpaTradeExpiryStrategy.class);
+  private final TradeRepository tradeRepository;
+  private final TradeHistoryRepository tradeHistoryRepository;
+  private final TransactionOperations transactions;
+
+  public JpaTradeExpiryStrategy(TradeRepository tradeRepository, TradeHistoryRepository tradeHistoryRepository, TransactionOperations transactions) {
+    this.tradeRepository = tradeRepository;
+    this.tradeHistoryRepository = tradeHistoryRepository;
+    this.transactions = transactions;
+  }
+
+  @Override
+  public long expire(LocalDate todayUtc) {
+    Instant now = Instant.now();
+    List<TradeEntity> updated = transactions.execute(s -> {
+      List<TradeEntity> due = tradeRepository.findByStatusAndMaturityDateBefore(TradeStatus.ACTIVE, todayUtc);
+      if (due == null || due.isEmpty()) return List.<TradeEntity>of();
+      for (TradeEntity t : due) {
+        t.setStatus(TradeStatus.EXPIRED);
+        t.setUpdatedAt(now);
+      }
+      tradeRepository.saveAll(due);
+      return due;
+    });
+    if (updated == null || updated.isEmpty()) return 0;
+    List<TradeHistory> histories = new ArrayList<>(updated.size());
+    for (TradeEntity t : updated) histories.add(TradeExpiryHistories.expired(t, now));
+    try { tradeHistoryRepository.saveAll(histories); } catch (Exception e) { log.warn("failed to persist trade history for expiry job: {}", e.getMessage()); }
+    return updated.size();
+  }
+}
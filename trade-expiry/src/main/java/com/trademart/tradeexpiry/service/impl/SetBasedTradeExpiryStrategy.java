@@ -0,0 +1,71 @@
+package com.trademart.tradeexpiry.service.impl;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.trademart.tradeexpiry.mongo.TradeHistory;
+import com.trademart.tradeexpiry.repository.TradeRepository;
+import com.trademart.tradeexpiry.repository.mongo.TradeHistoryRepository;
+import com.trademart.tradeexpiry.service.TradeExpiryHistories;
+import com.trademart.tradeexpiry.service.TradeExpiryStrategy;
+
+/**
+ * Expires all due trades with a single {@code UPDATE ... RETURNING} executed inside Postgres
+ * ({@code trade.expiry.strategy=set}). No entity is loaded or dirty-checked: the returned rows are
+ * fetched {@code trade.expiry.batchSize} at a time and written to Mongo in batches of the same
+ * size while the statement's result is still being read.
+ *
+ * <p>Trade-offs against {@code chunked}: the statement locks every due row until it commits, and
+ * history batches are written before that commit. If the transaction then rolls back, Mongo holds
+ * EXPIRE documents for trades that are still ACTIVE; the next run expires them and writes the
+ * documents again.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.expiry.strategy", havingValue = "set")
+public class SetBasedTradeExpiryStrategy implements TradeExpiryStrategy {
+  private static final Logger log = LoggerFactory.getLogger(SetBasedTradeExpiryStrategy.class);
+  private final TradeRepository tradeRepository;
+  private final TradeHistoryRepository tradeHistoryRepository;
+  private final TransactionOperations transactions;
+  private final int batchSize;
+
+  public SetBasedTradeExpiryStrategy(
+      TradeRepository tradeRepository,
+      TradeHistoryRepository tradeHistoryRepository,
+      TransactionOperations transactions,
+      @Value("${trade.expiry.batchSize:1000}") int batchSize) {
+    this.tradeRepository = tradeRepository;
+    this.tradeHistoryRepository = tradeHistoryRepository;
+    this.transactions = transactions;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  @Override
+  public long expire(LocalDate todayUtc) {
+    Instant now = Instant.now();
+    List<TradeHistory> batch = new ArrayList<>(batchSize);
+    Long expired = transactions.execute(s -> {
+      long n = tradeRepository.expireAllDue(todayUtc, batchSize, t -> {
+        batch.add(TradeExpiryHistories.expired(t, now));
+        if (batch.size() >= batchSize) flush(batch);
+      });
+      flush(batch);
+      return n;
+    });
+    return expired == null ? 0 : expired;
+  }
+
+  private void flush(List<TradeHistory> batch) {
+    if (batch.isEmpty()) return;
+    try { tradeHistoryRepository.saveAll(batch); } catch (Exception e) { log.warn("failed to persist trade history for expiry job: {}", e.getMessage()); }
+    batch.clear();
+  }
+}
@@ -20,7 +20,7 @@ public class SimpleTradeMaturityValidator implements TradeMaturityValidator {
       return;
     LocalDate today = LocalDate.now(clockService.getClock());
     if (maturityDate.isBefore(today)) {
-      throw new TradeValidationException("maturity date is in the past");
+      throw TradeValidationException.maturityPast();
     }
   }
 }
@@ -0,0 +1,91 @@
+package com.trademart.tradestore.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.trademart.tradeexpiry.service.RolloverTradeExpiryScheduler;
+import com.trademart.tradeexpiry.service.TradeExpiryService;
+import com.trademart.tradeexpiry.service.TradeExpiryStrategy;
+
+public class RolloverTradeExpirySchedulerTest {
+
+  private final TradeExpiryService expiryService = Mockito.mock(TradeExpiryService.class);
+  private final TradeExpiryStrategy sweep = Mockito.mock(TradeExpiryStrategy.class);
+  private final MutableClock clock = new MutableClock(Instant.parse("2025-10-27T23:59:00Z"));
+  private final RolloverTradeExpiryScheduler scheduler =
+      new RolloverTradeExpiryScheduler(expiryService, sweep, new ClockService(clock), new SimpleMeterRegistry(), 3);
+
+  @Test
+  void runsOncePerUtcDate() {
+    assertThat(scheduler.runIfDue()).isTrue();
+    scheduler.catchUp();
+    verify(expiryService, times(1)).expireDueTrades();
+
+    clock.now = Instant.parse("2025-10-28T00:00:00.005Z");
+    scheduler.onRollover();
+    scheduler.catchUp();
+    verify(expiryService, times(2)).expireDueTrades();
+  }
+
+  @Test
+  void dateIsOnlyDoneAfterTheLockWaitingSweep() {
+    when(sweep.expire(any()))
+        .thenThrow(new IllegalStateException("db down"))
+        .thenReturn(4L);
+
+    assertThat(scheduler.runIfDue()).isFalse();
+    assertThat(scheduler.runIfDue()).isTrue();
+    assertThat(scheduler.runIfDue()).isTrue();
+
+    verify(expiryService, times(2)).expireDueTrades();
+    verify(sweep, times(2)).expire(LocalDate.parse("2025-10-27"));
+  }
+
+  @Test
+  void failedPassIsRetriedABoundedNumberOfTimesPerDate() {
+    when(expiryService.expireDueTrades()).thenThrow(new IllegalStateException("db down"));
+
+    for (int i = 0; i < 5; i++) scheduler.catchUp();
+    verify(expiryService, times(3)).expireDueTrades();
+
+    // the next date starts with a fresh budget
+    clock.now = Instant.parse("2025-10-28T00:00:00Z");
+    scheduler.onRollover();
+    verify(expiryService, times(4)).expireDueTrades();
+  }
+
+  private static final class MutableClock extends Clock {
+    private Instant now;
+
+    private MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
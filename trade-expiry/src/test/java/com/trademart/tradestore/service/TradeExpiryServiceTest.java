@@ -1,6 +1,12 @@
 package com.trademart.tradestore.service;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -13,47 +19,78 @@ import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionOperations;
 
 import com.trademart.tradeexpiry.model.TradeEntity;
 import com.trademart.tradeexpiry.model.TradeStatus;
+import com.trademart.tradeexpiry.mongo.TradeHistory;
+import com.trademart.tradeexpiry.repository.DueTradeKey;
+import com.trademart.tradeexpiry.repository.TradeExpiryProgressRepository;
 import com.trademart.tradeexpiry.repository.TradeRepository;
 import com.trademart.tradeexpiry.repository.mongo.TradeHistoryRepository;
 import com.trademart.tradeexpiry.service.TradeExpiryService;
+import com.trademart.tradeexpiry.service.impl.ChunkedTradeExpiryStrategy;
 
 public class TradeExpiryServiceTest {
 
+  private static final LocalDate TODAY = LocalDate.parse("2025-10-27");
+  private static final LocalDate YESTERDAY = LocalDate.parse("2025-10-26");
+
+  private final TradeRepository tradeRepo = Mockito.mock(TradeRepository.class);
+  private final TradeHistoryRepository histRepo = Mockito.mock(TradeHistoryRepository.class);
+  private final TradeExpiryProgressRepository progressRepo = Mockito.mock(TradeExpiryProgressRepository.class);
+  private final ClockService cs =
+      new ClockService(java.time.Clock.fixed(Instant.parse("2025-10-27T00:00:00Z"), ZoneOffset.UTC));
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void expireDueTrades_expiresInChunksAndWritesHistory() {
+    when(progressRepo.start(TODAY)).thenReturn(new TradeExpiryProgressRepository.Progress(TODAY, null, 0, 0, null));
+    when(tradeRepo.findDueTradeKeys(eq(TODAY), isNull(), eq(0L), eq(2)))
+        .thenReturn(List.of(new DueTradeKey(1, YESTERDAY), new DueTradeKey(2, YESTERDAY)));
+    when(tradeRepo.findDueTradeKeys(TODAY, YESTERDAY, 2L, 2))
+        .thenReturn(List.of(new DueTradeKey(5, YESTERDAY)));
+    when(tradeRepo.expireTrades(List.of(1L, 2L))).thenReturn(List.of(expired("T-1"), expired("T-2")));
+    when(tradeRepo.expireTrades(List.of(5L))).thenReturn(List.of(expired("T-5")));
+
+    TradeExpiryService svc = service(2);
+    long res = svc.expireDueTrades();
+
+    assertThat(res).isEqualTo(3);
+    verify(progressRepo).advance(TODAY, new DueTradeKey(2, YESTERDAY), 2);
+    verify(progressRepo).advance(TODAY, new DueTradeKey(5, YESTERDAY), 1);
+    verify(progressRepo).complete(TODAY);
+
+    // one history batch per committed chunk
+    ArgumentCaptor<Iterable<TradeHistory>> cap = ArgumentCaptor.forClass(Iterable.class);
+    verify(histRepo, times(2)).saveAll(cap.capture());
+    TradeHistory first = cap.getAllValues().get(0).iterator().next();
+    assertThat(first.getChangeType()).isEqualTo("EXPIRE");
+    assertThat(first.getBefore().get("status")).isEqualTo(TradeStatus.ACTIVE);
+    assertThat(first.getAfter().get("status")).isEqualTo(TradeStatus.EXPIRED);
+    // JPA dirty checking is no longer involved
+    verify(tradeRepo, never()).saveAll(anyIterable());
+  }
+
   @Test
-  void expireDueTrades_marksExpiredAndWritesHistory() {
-    TradeRepository tradeRepo = Mockito.mock(TradeRepository.class);
-    TradeHistoryRepository histRepo = Mockito.mock(TradeHistoryRepository.class);
-    ClockService cs =
-        new ClockService(
-            java.time.Clock.fixed(Instant.parse("2025-10-27T00:00:00Z"), ZoneOffset.UTC));
-
-    TradeEntity t =
-        new TradeEntity(
-            "T-X",
-            1,
-            new BigDecimal("10.00"),
-            1,
-            LocalDate.parse("2025-10-26"),
-            TradeStatus.ACTIVE);
-    when(tradeRepo.findByStatusAndMaturityDateBefore(
-            Mockito.eq(TradeStatus.ACTIVE), Mockito.any(LocalDate.class)))
-        .thenReturn(List.of(t));
-
-    TradeExpiryService svc = new TradeExpiryService(tradeRepo, histRepo, cs);
-    List<TradeEntity> res = svc.expireDueTrades();
-
-    // verify trade status changed and saved
-    ArgumentCaptor<Iterable<TradeEntity>> cap = ArgumentCaptor.forClass(Iterable.class);
-    verify(tradeRepo, times(1)).saveAll(cap.capture());
-
-    Iterable<TradeEntity> saved = cap.getValue();
-    TradeEntity savedFirst = saved.iterator().next();
-    assert (savedFirst.getStatus() == TradeStatus.EXPIRED);
-
-    // verify history saved
-    verify(histRepo, times(1)).saveAll(anyIterable());
+  void expireDueTrades_resumesAfterCheckpoint() {
+    when(progressRepo.start(TODAY))
+        .thenReturn(new TradeExpiryProgressRepository.Progress(TODAY, YESTERDAY, 42, 100, null));
+    when(tradeRepo.findDueTradeKeys(TODAY, YESTERDAY, 42L, 1000)).thenReturn(List.of());
+
+    long res = service(1000).expireDueTrades();
+
+    assertThat(res).isZero();
+    verify(tradeRepo, never()).findDueTradeKeys(eq(TODAY), isNull(), Mockito.anyLong(), anyInt());
+    verify(tradeRepo, never()).expireTrades(anyList());
+    verify(progressRepo).complete(TODAY);
+  }
+
+  private TradeExpiryService service(int chunkSize) {
+    return new TradeExpiryService(cs, new ChunkedTradeExpiryStrategy(tradeRepo, histRepo, progressRepo, TransactionOperations.withoutTransaction(), chunkSize));
+  }
+
+  private static TradeEntity expired(String tradeId) {
+    return new TradeEntity(tradeId, 1, new BigDecimal("10.00"), 1, YESTERDAY, TradeStatus.EXPIRED);
   }
 }
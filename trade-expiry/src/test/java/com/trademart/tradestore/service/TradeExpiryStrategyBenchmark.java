@@ -0,0 +1,113 @@
+package com.trademart.tradestore.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.trademart.tradeexpiry.expiry.TradeExpiryApplication;
+import com.trademart.tradeexpiry.repository.TradeExpiryProgressRepository;
+import com.trademart.tradeexpiry.repository.TradeRepository;
+import com.trademart.tradeexpiry.repository.mongo.TradeHistoryRepository;
+import com.trademart.tradeexpiry.service.TradeExpiryStrategy;
+import com.trademart.tradeexpiry.service.impl.ChunkedTradeExpiryStrategy;
+import com.trademart.tradeexpiry.service.impl.JpaTradeExpiryStrategy;
+import com.trademart.tradeexpiry.service.impl.SetBasedTradeExpiryStrategy;
+
+/**
+ * Times the expiry strategies against the same data set in a real Postgres. Opt-in, as it needs
+ * Docker and takes a while:
+ *
+ * <pre>
+ * ./gradlew :trade-expiry:test --tests '*TradeExpiryStrategyBenchmark' -Dbenchmark=true -Dbenchmark.rows=200000
+ * </pre>
+ *
+ * History writes go to a mock, so the numbers cover the Postgres side only. The schema comes from
+ * trade-store's Flyway migrations (the test task passes their directory as
+ * {@code trade.migrations.dir}), so the chunked strategy runs against the real partial index.
+ */
+@Testcontainers
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(classes = TradeExpiryApplication.class, properties = {
+    "spring.jpa.hibernate.ddl-auto=none",
+    "spring.flyway.enabled=false",
+    "trade.expiry.fixedDelay=86400000" })
+public class TradeExpiryStrategyBenchmark {
+
+  @Container
+  static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+  @DynamicPropertySource
+  static void props(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", postgres::getJdbcUrl);
+    registry.add("spring.datasource.username", postgres::getUsername);
+    registry.add("spring.datasource.password", postgres::getPassword);
+    registry.add("spring.datasource.driverClassName", () -> "org.postgresql.Driver");
+  }
+
+  @BeforeAll
+  static void migrate() {
+    Flyway.configure()
+        .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+        .locations("filesystem:" + System.getProperty("trade.migrations.dir", "../trade-store/src/main/resources/db/migration"))
+        .load()
+        .migrate();
+  }
+
+  private static final LocalDate TODAY = LocalDate.parse("2025-10-27");
+
+  @MockBean
+  TradeHistoryRepository tradeHistoryRepository;
+
+  @Autowired
+  TradeRepository tradeRepository;
+
+  @Autowired
+  TradeExpiryProgressRepository progressRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  TransactionTemplate transactions;
+
+  @Test
+  void compareStrategies() {
+    int rows = Integer.getInteger("benchmark.rows", 100_000);
+    int batchSize = Integer.getInteger("benchmark.batchSize", 1000);
+
+    List<TradeExpiryStrategy> strategies = List.of(
+        new JpaTradeExpiryStrategy(tradeRepository, tradeHistoryRepository, transactions),
+        new ChunkedTradeExpiryStrategy(tradeRepository, tradeHistoryRepository, progressRepository, transactions, batchSize),
+        new SetBasedTradeExpiryStrategy(tradeRepository, tradeHistoryRepository, transactions, batchSize));
+    for (TradeExpiryStrategy strategy : strategies) {
+      seed(rows);
+      long started = System.nanoTime();
+      long expired = strategy.expire(TODAY);
+      long ms = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+      System.out.printf("%-34s %8d rows %7d ms %10.0f rows/s%n", strategy.getClass().getSimpleName(), expired, ms, expired * 1000.0 / ms);
+      assertThat(expired).isEqualTo(rows);
+    }
+  }
+
+  private void seed(int rows) {
+    jdbcTemplate.execute("TRUNCATE trades, trade_expiry_progress");
+    jdbcTemplate.update("INSERT INTO trades (trade_id, version, price, quantity, maturity_date, status, created_at, updated_at, opt_lock) " +
+        "SELECT 'T-' || g, 1, 10.00, 1, DATE '2025-01-01' + (g % 200), 'ACTIVE', now(), now(), 0 FROM generate_series(1, ?) g", rows);
+    jdbcTemplate.execute("ANALYZE trades");
+  }
+}
@@ -0,0 +1,76 @@
+package com.trademart.tradeloadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+/**
+ * Reads {@code trade_consumer_lag_total} from trade-store's Prometheus endpoint to time how long
+ * the consumers take to work off what a Kafka run produced. The gauge only exists when the lag
+ * exporter is enabled ({@code kafka.lag.enabled=true}).
+ */
+final class ConsumerLagProbe {
+
+  private static final String METRIC = "trade_consumer_lag_total";
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final HttpRequest request;
+
+  ConsumerLagProbe(String baseUrl) {
+    this.request =
+        HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/prometheus"))
+            .timeout(Duration.ofSeconds(5))
+            .build();
+  }
+
+  /**
+   * Polls until two consecutive readings show no lag and returns the time from the call to the
+   * first of them, or empty when the gauge is not exported or the lag does not clear in time.
+   */
+  Optional<Duration> awaitDrained(Duration timeout, Duration pollInterval)
+      throws InterruptedException {
+    long start = System.nanoTime();
+    long deadline = start + timeout.toNanos();
+    long firstZero = -1;
+    while (System.nanoTime() < deadline) {
+      OptionalDouble lag = read();
+      if (lag.isEmpty()) {
+        return Optional.empty();
+      }
+      if (lag.getAsDouble() == 0) {
+        if (firstZero >= 0) {
+          return Optional.of(Duration.ofNanos(firstZero - start));
+        }
+        firstZero = System.nanoTime();
+      } else {
+        firstZero = -1;
+      }
+      Thread.sleep(pollInterval.toMillis());
+    }
+    return Optional.empty();
+  }
+
+  private OptionalDouble read() throws InterruptedException {
+    try {
+      HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+      return response.statusCode() == 200 ? parse(response.body()) : OptionalDouble.empty();
+    } catch (IOException e) {
+      return OptionalDouble.empty();
+    }
+  }
+
+  /** Extracts the gauge value from a Prometheus text exposition. */
+  static OptionalDouble parse(String exposition) {
+    for (String line : exposition.split("\n")) {
+      if (line.startsWith(METRIC + " ") || line.startsWith(METRIC + "{")) {
+        return OptionalDouble.of(Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1)));
+      }
+    }
+    return OptionalDouble.empty();
+  }
+}
@@ -0,0 +1,59 @@
+package com.trademart.tradeloadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Drives {@code POST /trades} with a bearer token. */
+final class HttpTradeDriver implements TradeDriver {
+
+  private final ExecutorService executor;
+  private final HttpClient client;
+  private final URI uri;
+  private final String authorization;
+
+  HttpTradeDriver(String baseUrl, String token) {
+    this.executor =
+        Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+    this.client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(executor)
+            .build();
+    this.uri = URI.create(baseUrl + "/trades");
+    this.authorization = "Bearer " + token;
+  }
+
+  @Override
+  public CompletableFuture<Outcome> send(TradeWorkload.TradeRequest request) {
+    HttpRequest http =
+        HttpRequest.newBuilder(uri)
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .header("Authorization", authorization)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(request.body()))
+            .build();
+    return client
+        .sendAsync(http, HttpResponse.BodyHandlers.discarding())
+        .handle(
+            (response, error) -> error != null ? Outcome.FAILED : outcome(response.statusCode()));
+  }
+
+  static Outcome outcome(int status) {
+    if (status >= 200 && status < 300) {
+      return Outcome.OK;
+    }
+    return status >= 500 ? Outcome.SERVER_ERROR : Outcome.REJECTED;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
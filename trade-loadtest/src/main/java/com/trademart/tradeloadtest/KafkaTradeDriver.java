@@ -0,0 +1,50 @@
+package com.trademart.tradeloadtest;
+
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+/**
+ * Publishes trades to the trades topic, keyed by tradeId so versions of one trade stay ordered.
+ * Latency is time to the broker's acknowledgement; consumption is measured separately as the time
+ * trade-store takes to drain the backlog.
+ */
+final class KafkaTradeDriver implements TradeDriver {
+
+  private final KafkaProducer<String, byte[]> producer;
+  private final String topic;
+
+  KafkaTradeDriver(String bootstrapServers, String topic) {
+    Properties props = new Properties();
+    props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    props.put(ProducerConfig.ACKS_CONFIG, "all");
+    props.put(ProducerConfig.LINGER_MS_CONFIG, 1);
+    props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+    props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+    this.producer = new KafkaProducer<>(props);
+    this.topic = topic;
+  }
+
+  @Override
+  public CompletableFuture<Outcome> send(TradeWorkload.TradeRequest request) {
+    CompletableFuture<Outcome> result = new CompletableFuture<>();
+    try {
+      producer.send(
+          new ProducerRecord<>(topic, request.tradeId(), request.body()),
+          (metadata, error) -> result.complete(error == null ? Outcome.OK : Outcome.FAILED));
+    } catch (RuntimeException e) {
+      result.complete(Outcome.FAILED);
+    }
+    return result;
+  }
+
+  @Override
+  public void close() {
+    producer.close(Duration.ofSeconds(10));
+  }
+}
@@ -0,0 +1,70 @@
+package com.trademart.tradeloadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records request latencies in microseconds. Two histograms are kept:
+ *
+ * <ul>
+ *   <li>{@code corrected}: from the time the open-loop schedule intended to send the request to its
+ *       response. A stall in trade-store (or in the generator) delays every request scheduled
+ *       behind it, and each of those waits is counted, which corrects for coordinated omission.
+ *   <li>{@code service}: from the actual send to the response, i.e. what a closed-loop client
+ *       would report. The gap between the two is the latency a stall hides.
+ * </ul>
+ *
+ * Corrected latencies are also written per interval to an HdrHistogram log for plotting over
+ * time.
+ */
+final class LatencyRecorder {
+
+  private final Histogram corrected = new ConcurrentHistogram(3);
+  private final Histogram service = new ConcurrentHistogram(3);
+  private final Recorder interval = new Recorder(3);
+  private final Map<TradeDriver.Outcome, LongAdder> outcomes =
+      new EnumMap<>(TradeDriver.Outcome.class);
+  private Histogram recycled;
+
+  LatencyRecorder() {
+    for (TradeDriver.Outcome outcome : TradeDriver.Outcome.values()) {
+      outcomes.put(outcome, new LongAdder());
+    }
+  }
+
+  void record(long intendedNanos, long sentNanos, long doneNanos, TradeDriver.Outcome outcome) {
+    long correctedMicros = TimeUnit.NANOSECONDS.toMicros(doneNanos - intendedNanos);
+    corrected.recordValue(correctedMicros);
+    interval.recordValue(correctedMicros);
+    service.recordValue(TimeUnit.NANOSECONDS.toMicros(doneNanos - sentNanos));
+    outcomes.get(outcome).increment();
+  }
+
+  /** Writes the corrected latencies recorded since the previous call as one log interval. */
+  synchronized void writeInterval(HistogramLogWriter log) {
+    recycled = interval.getIntervalHistogram(recycled);
+    log.outputIntervalHistogram(recycled);
+  }
+
+  Histogram corrected() {
+    return corrected;
+  }
+
+  Histogram service() {
+    return service;
+  }
+
+  long count(TradeDriver.Outcome outcome) {
+    return outcomes.get(outcome).sum();
+  }
+
+  long total() {
+    return corrected.getTotalCount();
+  }
+}
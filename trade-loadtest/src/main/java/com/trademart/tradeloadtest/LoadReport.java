@@ -0,0 +1,88 @@
+package com.trademart.tradeloadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Writes the run summary ({@code summary.json}) and the full percentile distributions of both
+ * histograms ({@code corrected.hgrm}, {@code service.hgrm}, in milliseconds, loadable by the
+ * HdrHistogram plotter). The interval log ({@code latency.hlog}) is written during the run.
+ */
+final class LoadReport {
+
+  private static final double[] PERCENTILES = {50, 90, 95, 99, 99.9};
+  private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p95", "p99", "p99_9"};
+
+  private final LoadTestConfig config;
+  private final LatencyRecorder recorder;
+  private final Optional<Duration> drain;
+
+  LoadReport(LoadTestConfig config, LatencyRecorder recorder, Optional<Duration> drain) {
+    this.config = config;
+    this.recorder = recorder;
+    this.drain = drain;
+  }
+
+  /** Corrected P95 in milliseconds. */
+  double p95Millis() {
+    return millis(recorder.corrected().getValueAtPercentile(95));
+  }
+
+  boolean meetsTarget() {
+    return recorder.total() > 0 && p95Millis() <= config.p95TargetMs;
+  }
+
+  void write(ObjectMapper mapper) throws IOException {
+    Files.createDirectories(config.reportDir);
+    writeDistribution(recorder.corrected(), config.reportDir.resolve("corrected.hgrm"));
+    writeDistribution(recorder.service(), config.reportDir.resolve("service.hgrm"));
+
+    ObjectNode summary = mapper.createObjectNode();
+    summary.put("target", config.target.name().toLowerCase());
+    summary.put("scheduledRatePerSecond", config.rate);
+    summary.put("achievedRatePerSecond", recorder.total() / (double) config.duration.toSeconds());
+    summary.put("durationSeconds", config.duration.toSeconds());
+    summary.put("trades", config.trades);
+    summary.put("skew", config.skew);
+    summary.put("staleRatio", config.staleRatio);
+    ObjectNode outcomes = summary.putObject("outcomes");
+    for (TradeDriver.Outcome outcome : TradeDriver.Outcome.values()) {
+      outcomes.put(outcome.name().toLowerCase(), recorder.count(outcome));
+    }
+    percentiles(summary.putObject("correctedLatencyMs"), recorder.corrected());
+    percentiles(summary.putObject("serviceLatencyMs"), recorder.service());
+    drain.ifPresent(d -> summary.put("consumerDrainSeconds", d.toMillis() / 1000d));
+    summary.put("p95TargetMs", config.p95TargetMs);
+    summary.put("p95TargetMet", meetsTarget());
+    mapper
+        .copy()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .writeValue(config.reportDir.resolve("summary.json").toFile(), summary);
+  }
+
+  private static void percentiles(ObjectNode node, Histogram histogram) {
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      node.put(PERCENTILE_NAMES[i], millis(histogram.getValueAtPercentile(PERCENTILES[i])));
+    }
+    node.put("max", millis(histogram.getMaxValue()));
+    node.put("mean", histogram.getMean() / 1000d);
+  }
+
+  private static void writeDistribution(Histogram histogram, Path file) throws IOException {
+    try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+      histogram.outputPercentileDistribution(out, 1000.0);
+    }
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000d;
+  }
+}
@@ -0,0 +1,132 @@
+package com.trademart.tradeloadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.HistogramLogWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Open-loop load test for trade-store. Drives {@code POST /trades} or the trades topic at a fixed
+ * rate, records coordinated-omission-corrected latencies and writes a report. With {@code
+ * --launch=true} it first starts Postgres, Mongo and Kafka in Testcontainers and trade-store from
+ * its boot jar; otherwise it targets {@code --base-url} / {@code --bootstrap-servers}.
+ *
+ * <p>Exits 0 when the corrected P95 is within {@code --p95-target-ms} (the ADR's 2 s), 1 when it
+ * is not, and 2 when the run could not be carried out.
+ */
+public final class LoadTestApplication {
+
+  private static final Logger log = LoggerFactory.getLogger(LoadTestApplication.class);
+
+  private static final Duration RESPONSE_DRAIN_TIMEOUT = Duration.ofSeconds(60);
+  private static final Duration CONSUMER_DRAIN_TIMEOUT = Duration.ofMinutes(10);
+
+  private LoadTestApplication() {}
+
+  public static void main(String[] args) {
+    int exit;
+    try {
+      exit = run(LoadTestConfig.parse(args)) ? 0 : 1;
+    } catch (Exception e) {
+      log.error("Load test failed: {}", e.getMessage(), e);
+      exit = 2;
+    }
+    System.exit(exit);
+  }
+
+  static boolean run(LoadTestConfig config) throws IOException, InterruptedException {
+    ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    TradeWorkload workload =
+        new TradeWorkload(
+            mapper,
+            TradeWorkload.readSeeds(mapper, config.seed),
+            config.trades,
+            config.skew,
+            config.staleRatio,
+            config.randomSeed,
+            LocalDate.now(ZoneOffset.UTC));
+    Files.createDirectories(config.reportDir);
+
+    TradeStoreEnvironment env =
+        config.launch
+            ? TradeStoreEnvironment.start(
+                config.jar, config.storeArgs, config.reportDir.resolve("trade-store.log"))
+            : null;
+    try {
+      String baseUrl = env != null ? env.baseUrl() : config.baseUrl;
+      String bootstrap = env != null ? env.bootstrapServers() : config.bootstrapServers;
+      LatencyRecorder recorder = new LatencyRecorder();
+      log.info("Running {}", config);
+      try (TradeDriver driver = driver(config, baseUrl, bootstrap)) {
+        runWithIntervalLog(config, workload, driver, recorder);
+      }
+      Optional<Duration> drain = Optional.empty();
+      if (config.target == LoadTestConfig.Target.KAFKA) {
+        ConsumerLagProbe lag = new ConsumerLagProbe(baseUrl);
+        drain = lag.awaitDrained(CONSUMER_DRAIN_TIMEOUT, Duration.ofSeconds(1));
+      }
+
+      LoadReport report = new LoadReport(config, recorder, drain);
+      report.write(mapper);
+      log.info(
+          "{} requests measured: ok={} rejected={} 5xx={} failed={}; corrected p95={}ms"
+              + " (target {}ms); service p95={}ms; consumer drain={}; report in {}",
+          recorder.total(),
+          recorder.count(TradeDriver.Outcome.OK),
+          recorder.count(TradeDriver.Outcome.REJECTED),
+          recorder.count(TradeDriver.Outcome.SERVER_ERROR),
+          recorder.count(TradeDriver.Outcome.FAILED),
+          report.p95Millis(),
+          config.p95TargetMs,
+          recorder.service().getValueAtPercentile(95) / 1000d,
+          drain.map(d -> d.toSeconds() + "s").orElse("n/a"),
+          config.reportDir.toAbsolutePath());
+      return report.meetsTarget();
+    } finally {
+      if (env != null) {
+        env.close();
+      }
+    }
+  }
+
+  private static TradeDriver driver(LoadTestConfig config, String baseUrl, String bootstrap) {
+    return config.target == LoadTestConfig.Target.KAFKA
+        ? new KafkaTradeDriver(bootstrap, config.topic)
+        : new HttpTradeDriver(baseUrl, config.token);
+  }
+
+  /** Runs the schedule while writing one corrected-latency histogram per second to latency.hlog. */
+  private static void runWithIntervalLog(
+      LoadTestConfig config, TradeWorkload workload, TradeDriver driver, LatencyRecorder recorder)
+      throws IOException, InterruptedException {
+    ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+    try (PrintStream out =
+        new PrintStream(Files.newOutputStream(config.reportDir.resolve("latency.hlog")))) {
+      HistogramLogWriter hlog = new HistogramLogWriter(out);
+      long startMillis = System.currentTimeMillis();
+      hlog.outputLogFormatVersion();
+      hlog.outputComment("trade-loadtest " + config + ", values in microseconds");
+      hlog.outputStartTime(startMillis);
+      hlog.setBaseTime(startMillis);
+      hlog.outputLegend();
+      ticker.scheduleAtFixedRate(() -> recorder.writeInterval(hlog), 1, 1, TimeUnit.SECONDS);
+      new OpenLoopRunner(config.intervalNanos(), config.warmup, config.duration, config.maxInFlight)
+          .run(workload, driver, recorder, RESPONSE_DRAIN_TIMEOUT);
+      ticker.shutdown();
+      ticker.awaitTermination(5, TimeUnit.SECONDS);
+      recorder.writeInterval(hlog);
+    } finally {
+      ticker.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.trademart.tradeloadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load-test settings, parsed from {@code --key=value} arguments. Every setting has a default so a
+ * bare {@code --launch=true} runs a complete test against a locally launched trade-store.
+ */
+public final class LoadTestConfig {
+
+  /** Where requests go: {@code POST /trades} or the trades topic. */
+  public enum Target {
+    HTTP,
+    KAFKA
+  }
+
+  final Target target;
+  final double rate;
+  final Duration duration;
+  final Duration warmup;
+  final int trades;
+  final double skew;
+  final double staleRatio;
+  final long randomSeed;
+  final Path seed;
+  final int maxInFlight;
+  final String baseUrl;
+  final String token;
+  final String bootstrapServers;
+  final String topic;
+  final boolean launch;
+  final Path jar;
+  final Path reportDir;
+  final double p95TargetMs;
+  final List<String> storeArgs;
+
+  private LoadTestConfig(Map<String, String> args, List<String> storeArgs) {
+    target = Target.valueOf(args.getOrDefault("target", "http").toUpperCase());
+    rate = Double.parseDouble(args.getOrDefault("rate", "500"));
+    duration = Duration.ofSeconds(Long.parseLong(args.getOrDefault("duration", "60")));
+    warmup = Duration.ofSeconds(Long.parseLong(args.getOrDefault("warmup", "10")));
+    trades = Integer.parseInt(args.getOrDefault("trades", "10000"));
+    skew = Double.parseDouble(args.getOrDefault("skew", "1.0"));
+    staleRatio = Double.parseDouble(args.getOrDefault("stale-ratio", "0.05"));
+    randomSeed = Long.parseLong(args.getOrDefault("random-seed", "42"));
+    seed = Path.of(args.getOrDefault("seed", "trade-sample.json"));
+    maxInFlight = Integer.parseInt(args.getOrDefault("max-in-flight", "2000"));
+    baseUrl = args.getOrDefault("base-url", "http://localhost:8080");
+    token = args.getOrDefault("token", "valid-token");
+    bootstrapServers = args.getOrDefault("bootstrap-servers", "localhost:9092");
+    topic = args.getOrDefault("topic", "trades");
+    launch = Boolean.parseBoolean(args.getOrDefault("launch", "false"));
+    jar = Path.of(args.getOrDefault("jar", "trade-store/build/libs/trade-store-0.1.0.jar"));
+    reportDir = Path.of(args.getOrDefault("report-dir", "trade-loadtest/build/reports/loadtest"));
+    p95TargetMs = Double.parseDouble(args.getOrDefault("p95-target-ms", "2000"));
+    this.storeArgs = List.copyOf(storeArgs);
+    if (rate <= 0 || trades <= 0 || maxInFlight <= 0) {
+      throw new IllegalArgumentException("rate, trades and max-in-flight must be positive");
+    }
+    if (staleRatio < 0 || staleRatio >= 1) {
+      throw new IllegalArgumentException("stale-ratio must be in [0, 1)");
+    }
+  }
+
+  /**
+   * Parses {@code --key=value} arguments. Arguments of the form {@code --store.<property>=value}
+   * are passed to a launched trade-store as {@code --<property>=value}, e.g. {@code
+   * --store.kafka.consumer.mode=batch}.
+   */
+  public static LoadTestConfig parse(String... args) {
+    Map<String, String> values = new HashMap<>();
+    List<String> storeArgs = new ArrayList<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+        throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+      }
+      if (arg.startsWith("--store.")) {
+        storeArgs.add("--" + arg.substring("--store.".length()));
+        continue;
+      }
+      int eq = arg.indexOf('=');
+      values.put(arg.substring(2, eq), arg.substring(eq + 1));
+    }
+    return new LoadTestConfig(values, storeArgs);
+  }
+
+  /** Nanoseconds between two scheduled sends. */
+  long intervalNanos() {
+    return Math.max(1L, Math.round(1_000_000_000d / rate));
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "target=%s rate=%.0f/s duration=%ss warmup=%ss trades=%d skew=%.2f stale-ratio=%.2f",
+        target,
+        rate,
+        duration.toSeconds(),
+        warmup.toSeconds(),
+        trades,
+        skew,
+        staleRatio);
+  }
+}
@@ -0,0 +1,87 @@
+package com.trademart.tradeloadtest;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends requests on a fixed schedule, independent of how fast responses come back (open loop).
+ * Request {@code i} is due at {@code start + i * interval}. When the runner falls behind, because
+ * {@code maxInFlight} requests are outstanding or the generator was slow, late requests are sent
+ * immediately and their latency is still measured from their due time.
+ *
+ * <p>Requests due during the warm-up are sent but not recorded.
+ */
+final class OpenLoopRunner {
+
+  private static final Logger log = LoggerFactory.getLogger(OpenLoopRunner.class);
+
+  /** Below this, spin instead of parking so sends stay close to their due time. */
+  private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final long intervalNanos;
+  private final Duration warmup;
+  private final Duration duration;
+  private final int maxInFlight;
+
+  OpenLoopRunner(long intervalNanos, Duration warmup, Duration duration, int maxInFlight) {
+    this.intervalNanos = intervalNanos;
+    this.warmup = warmup;
+    this.duration = duration;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Runs the schedule to the end and waits up to {@code drainTimeout} for outstanding responses.
+   *
+   * @return the number of requests sent, including warm-up
+   */
+  long run(
+      TradeWorkload workload, TradeDriver driver, LatencyRecorder recorder, Duration drainTimeout)
+      throws InterruptedException {
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    long start = System.nanoTime();
+    long measureFrom = start + warmup.toNanos();
+    long end = measureFrom + duration.toNanos();
+    long sent = 0;
+    for (long due = start; due < end; due = start + ++sent * intervalNanos) {
+      parkUntil(due);
+      TradeWorkload.TradeRequest request = workload.next();
+      inFlight.acquire();
+      long intended = due;
+      long sentAt = System.nanoTime();
+      driver
+          .send(request)
+          .whenComplete(
+              (outcome, error) -> {
+                long done = System.nanoTime();
+                inFlight.release();
+                if (intended >= measureFrom) {
+                  recorder.record(
+                      intended, sentAt, done, error != null ? TradeDriver.Outcome.FAILED : outcome);
+                }
+              });
+    }
+    if (!inFlight.tryAcquire(maxInFlight, drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+      log.warn(
+          "{} requests still outstanding after {}s; they are not in the report",
+          maxInFlight - inFlight.availablePermits(),
+          drainTimeout.toSeconds());
+    }
+    return sent;
+  }
+
+  private static void parkUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      if (remaining > SPIN_NANOS) {
+        LockSupport.parkNanos(remaining - SPIN_NANOS);
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+  }
+}
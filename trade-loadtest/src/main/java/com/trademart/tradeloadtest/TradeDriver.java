@@ -0,0 +1,24 @@
+package com.trademart.tradeloadtest;
+
+import java.util.concurrent.CompletableFuture;
+
+/** Sends one trade and completes when trade-store (or the broker) has answered. */
+interface TradeDriver extends AutoCloseable {
+
+  /** Outcome classes counted in the report. */
+  enum Outcome {
+    /** 2xx, or a broker acknowledgement. */
+    OK,
+    /** 4xx: validation or stale-version rejection. */
+    REJECTED,
+    /** 5xx. */
+    SERVER_ERROR,
+    /** Connection failure, timeout or broker error. */
+    FAILED
+  }
+
+  CompletableFuture<Outcome> send(TradeWorkload.TradeRequest request);
+
+  @Override
+  void close();
+}
@@ -0,0 +1,161 @@
+package com.trademart.tradeloadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Postgres, Mongo and Kafka in Testcontainers plus a trade-store started from its boot jar in a
+ * separate JVM, so the load generator and the service under test do not share a heap or GC.
+ * trade-store runs with the {@code dev} profile (which accepts any bearer token) and with the lag
+ * exporter enabled, so Kafka runs can measure how long consumption takes.
+ */
+final class TradeStoreEnvironment implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(TradeStoreEnvironment.class);
+
+  private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+
+  private final PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>("postgres:15-alpine")
+          .withDatabaseName("trades")
+          .withUsername("trades")
+          .withPassword("trades");
+
+  private final MongoDBContainer mongo =
+      new MongoDBContainer("mongo:6.0.8")
+          .waitingFor(Wait.forLogMessage(".*waiting for connections.*\\n", 1))
+          .withStartupTimeout(Duration.ofSeconds(120));
+
+  private final KafkaContainer kafka =
+      new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.5.0"));
+
+  private Process process;
+  private int port;
+
+  /** Starts the containers and trade-store; trade-store output goes to {@code logFile}. */
+  static TradeStoreEnvironment start(Path jar, List<String> storeArgs, Path logFile)
+      throws IOException, InterruptedException {
+    if (!Files.isRegularFile(jar)) {
+      throw new IllegalStateException(
+          "trade-store jar not found at " + jar + "; run ./gradlew :trade-store:bootJar");
+    }
+    TradeStoreEnvironment env = new TradeStoreEnvironment();
+    try {
+      env.startContainers();
+      env.startTradeStore(jar, storeArgs, logFile);
+      return env;
+    } catch (IOException | InterruptedException | RuntimeException e) {
+      env.close();
+      throw e;
+    }
+  }
+
+  private void startContainers() {
+    log.info("Starting Postgres, Mongo and Kafka containers");
+    postgres.start();
+    mongo.start();
+    kafka.start();
+  }
+
+  private void startTradeStore(Path jar, List<String> storeArgs, Path logFile)
+      throws IOException, InterruptedException {
+    port = freePort();
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-jar");
+    command.add(jar.toAbsolutePath().toString());
+    command.add("--server.port=" + port);
+    command.add("--spring.profiles.active=dev");
+    command.add("--spring.datasource.url=" + postgres.getJdbcUrl());
+    command.add("--spring.datasource.username=" + postgres.getUsername());
+    command.add("--spring.datasource.password=" + postgres.getPassword());
+    command.add("--spring.data.mongodb.uri=" + mongo.getReplicaSetUrl("trades"));
+    command.add("--spring.kafka.bootstrap-servers=" + kafka.getBootstrapServers());
+    command.add("--kafka.lag.enabled=true");
+    command.add("--kafka.lag.interval-ms=1000");
+    command.addAll(storeArgs);
+
+    Files.createDirectories(logFile.getParent());
+    log.info("Starting trade-store on port {} (output in {})", port, logFile);
+    process =
+        new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(logFile.toFile())
+            .start();
+    awaitHealthy();
+  }
+
+  private void awaitHealthy() throws InterruptedException {
+    HttpClient client = HttpClient.newHttpClient();
+    HttpRequest health =
+        HttpRequest.newBuilder(URI.create(baseUrl() + "/actuator/health"))
+            .timeout(Duration.ofSeconds(2))
+            .build();
+    long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+    while (System.nanoTime() < deadline) {
+      if (!process.isAlive()) {
+        throw new IllegalStateException(
+            "trade-store exited with code " + process.exitValue() + " during startup");
+      }
+      try {
+        if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+          log.info("trade-store is up at {}", baseUrl());
+          return;
+        }
+      } catch (IOException e) {
+        // not listening yet
+      }
+      Thread.sleep(1000);
+    }
+    throw new IllegalStateException("trade-store not healthy after " + STARTUP_TIMEOUT);
+  }
+
+  String baseUrl() {
+    return "http://localhost:" + port;
+  }
+
+  String bootstrapServers() {
+    return kafka.getBootstrapServers();
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (process != null) {
+      process.destroy();
+      try {
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        process.destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+    kafka.stop();
+    mongo.stop();
+    postgres.stop();
+  }
+}
@@ -0,0 +1,154 @@
+package com.trademart.tradeloadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates trade payloads. Trade ids are drawn from a Zipf distribution over {@code trades} ids,
+ * so a few ids receive most of the updates, as with actively amended trades. Each id's version
+ * increases by one per send, except that a {@code staleRatio} share of sends to an id that already
+ * has versions repeat an older version, which trade-store rejects. Prices, quantities and
+ * maturities come from the seed trades, with maturities moved into the future where needed.
+ *
+ * <p>Not thread-safe: the runner generates every request on its scheduling thread.
+ */
+final class TradeWorkload {
+
+  /** One request to send. */
+  record TradeRequest(String tradeId, int version, boolean stale, byte[] body) {}
+
+  private record Template(BigDecimal price, Integer quantity) {}
+
+  private final ObjectMapper mapper;
+  private final SplittableRandom random;
+  private final double staleRatio;
+  private final double[] cdf;
+  private final int[] versions;
+  private final LocalDate[] maturities;
+  private final List<Template> templates;
+  private final LocalDate today;
+
+  TradeWorkload(
+      ObjectMapper mapper,
+      List<JsonNode> seeds,
+      int trades,
+      double skew,
+      double staleRatio,
+      long randomSeed,
+      LocalDate today) {
+    this.mapper = mapper;
+    this.random = new SplittableRandom(randomSeed);
+    this.staleRatio = staleRatio;
+    this.cdf = zipfCdf(trades, skew);
+    this.versions = new int[trades];
+    this.maturities = new LocalDate[trades];
+    this.today = today;
+    this.templates = new ArrayList<>();
+    List<LocalDate> seedMaturities = new ArrayList<>();
+    for (JsonNode seed : seeds) {
+      if (!seed.hasNonNull("price")) {
+        continue;
+      }
+      Integer quantity = seed.hasNonNull("quantity") ? seed.get("quantity").asInt() : null;
+      templates.add(new Template(seed.get("price").decimalValue(), quantity));
+      if (seed.hasNonNull("maturityDate")) {
+        seedMaturities.add(LocalDate.parse(seed.get("maturityDate").asText()));
+      }
+    }
+    if (templates.isEmpty()) {
+      throw new IllegalArgumentException("No seed trade has a price");
+    }
+    for (int i = 0; i < trades; i++) {
+      maturities[i] = maturityFor(seedMaturities);
+    }
+  }
+
+  /**
+   * Reads seed trades from a JSON file holding one trade, an array of trades, or one trade per
+   * line (a request log).
+   */
+  static List<JsonNode> readSeeds(ObjectMapper mapper, Path file) throws IOException {
+    List<JsonNode> seeds = new ArrayList<>();
+    try (MappingIterator<JsonNode> it =
+        mapper.readerFor(JsonNode.class).readValues(file.toFile())) {
+      while (it.hasNext()) {
+        JsonNode node = it.next();
+        if (node.isArray()) {
+          node.forEach(seeds::add);
+        } else {
+          seeds.add(node);
+        }
+      }
+    }
+    return seeds;
+  }
+
+  TradeRequest next() {
+    int rank = sampleRank();
+    String tradeId = "LT-" + rank;
+    int current = versions[rank];
+    boolean stale = current > 1 && random.nextDouble() < staleRatio;
+    int version = stale ? 1 + random.nextInt(current - 1) : ++versions[rank];
+
+    Template template = templates.get(rank % templates.size());
+    ObjectNode json = mapper.createObjectNode();
+    json.put("tradeId", tradeId);
+    json.put("version", version);
+    json.put("price", jitter(template.price()));
+    if (template.quantity() != null) {
+      json.put("quantity", template.quantity());
+    }
+    json.put("maturityDate", maturities[rank].toString());
+    try {
+      return new TradeRequest(tradeId, version, stale, mapper.writeValueAsBytes(json));
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot serialise trade " + tradeId, e);
+    }
+  }
+
+  /** Rank of the next trade id; rank 0 is the most frequently updated. */
+  int sampleRank() {
+    int idx = Arrays.binarySearch(cdf, random.nextDouble());
+    return Math.min(idx >= 0 ? idx : -idx - 1, cdf.length - 1);
+  }
+
+  private LocalDate maturityFor(List<LocalDate> seedMaturities) {
+    if (!seedMaturities.isEmpty()) {
+      LocalDate seeded = seedMaturities.get(random.nextInt(seedMaturities.size()));
+      if (seeded.isAfter(today)) {
+        return seeded;
+      }
+    }
+    // seeds in the past would be rejected as matured; spread them over the next two years
+    return today.plusDays(1 + random.nextInt(730));
+  }
+
+  private BigDecimal jitter(BigDecimal price) {
+    double factor = 1 + (random.nextDouble() - 0.5) / 50;
+    return price.multiply(BigDecimal.valueOf(factor)).setScale(4, RoundingMode.HALF_UP);
+  }
+
+  private static double[] zipfCdf(int n, double skew) {
+    double[] cdf = new double[n];
+    double sum = 0;
+    for (int k = 0; k < n; k++) {
+      sum += 1 / Math.pow(k + 1, skew);
+      cdf[k] = sum;
+    }
+    for (int k = 0; k < n; k++) {
+      cdf[k] /= sum;
+    }
+    return cdf;
+  }
+}
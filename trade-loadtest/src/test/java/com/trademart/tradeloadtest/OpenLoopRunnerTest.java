@@ -0,0 +1,93 @@
+package com.trademart.tradeloadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class OpenLoopRunnerTest {
+
+  @Test
+  void stallIsChargedToEveryRequestScheduledBehindIt() throws Exception {
+    // 1000 req/s for 1s; request 300 blocks the sender for 300ms, the rest answer immediately
+    AtomicInteger calls = new AtomicInteger();
+    TradeDriver stalling =
+        new TradeDriver() {
+          @Override
+          public CompletableFuture<Outcome> send(TradeWorkload.TradeRequest request) {
+            if (calls.incrementAndGet() == 300) {
+              sleep(300);
+            }
+            return CompletableFuture.completedFuture(Outcome.OK);
+          }
+
+          @Override
+          public void close() {}
+        };
+    LatencyRecorder recorder = new LatencyRecorder();
+
+    OpenLoopRunner runner =
+        new OpenLoopRunner(
+            TimeUnit.MILLISECONDS.toNanos(1), Duration.ZERO, Duration.ofSeconds(1), 10);
+    long sent = runner.run(workload(), stalling, recorder, Duration.ofSeconds(5));
+
+    assertThat(sent).isEqualTo(1_000);
+    assertThat(recorder.total()).isEqualTo(1_000);
+    assertThat(recorder.count(TradeDriver.Outcome.OK)).isEqualTo(1_000);
+    // ~300 requests waited behind the stall, so the corrected P90 shows it ...
+    assertThat(recorder.corrected().getValueAtPercentile(90)).isGreaterThan(50_000);
+    // ... while per-request service time only sees the one slow send
+    assertThat(recorder.service().getValueAtPercentile(90)).isLessThan(10_000);
+  }
+
+  @Test
+  void warmupRequestsAreSentButNotRecorded() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    TradeDriver driver =
+        new TradeDriver() {
+          @Override
+          public CompletableFuture<Outcome> send(TradeWorkload.TradeRequest request) {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(Outcome.REJECTED);
+          }
+
+          @Override
+          public void close() {}
+        };
+    LatencyRecorder recorder = new LatencyRecorder();
+
+    new OpenLoopRunner(
+            TimeUnit.MILLISECONDS.toNanos(10), Duration.ofSeconds(1), Duration.ofSeconds(1), 10)
+        .run(workload(), driver, recorder, Duration.ofSeconds(5));
+
+    assertThat(calls.get()).isEqualTo(200);
+    assertThat(recorder.total()).isEqualTo(100);
+    assertThat(recorder.count(TradeDriver.Outcome.REJECTED)).isEqualTo(100);
+  }
+
+  private static TradeWorkload workload() {
+    ObjectMapper mapper = new ObjectMapper();
+    return new TradeWorkload(
+        mapper,
+        List.of(mapper.createObjectNode().put("price", 100.0)),
+        100,
+        1.0,
+        0,
+        1,
+        LocalDate.of(2026, 10, 18));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
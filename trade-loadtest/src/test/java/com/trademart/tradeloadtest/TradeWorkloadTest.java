@@ -0,0 +1,86 @@
+package com.trademart.tradeloadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TradeWorkloadTest {
+
+  private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  void readsSingleTradeArrayAndJsonLinesSeeds(@TempDir Path dir) throws Exception {
+    Path single = Files.writeString(dir.resolve("single.json"), "{\"price\": 1}");
+    Path array = Files.writeString(dir.resolve("array.json"), "[{\"price\": 1}, {\"price\": 2}]");
+    Path lines = Files.writeString(dir.resolve("log.jsonl"), "{\"price\": 1}\n{\"price\": 2}\n");
+
+    assertThat(TradeWorkload.readSeeds(mapper, single)).hasSize(1);
+    assertThat(TradeWorkload.readSeeds(mapper, array)).hasSize(2);
+    assertThat(TradeWorkload.readSeeds(mapper, lines)).hasSize(2);
+  }
+
+  @Test
+  void versionsIncreasePerTradeExceptForStaleSends() throws Exception {
+    TradeWorkload workload = workload(100, 0.2);
+    Map<String, Integer> highest = new HashMap<>();
+    int stale = 0;
+    for (int i = 0; i < 10_000; i++) {
+      TradeWorkload.TradeRequest request = workload.next();
+      int previous = highest.getOrDefault(request.tradeId(), 0);
+      if (request.stale()) {
+        stale++;
+        assertThat(request.version()).isBetween(1, previous - 1);
+      } else {
+        assertThat(request.version()).isEqualTo(previous + 1);
+        highest.put(request.tradeId(), request.version());
+      }
+      JsonNode body = mapper.readTree(request.body());
+      assertThat(body.get("tradeId").asText()).isEqualTo(request.tradeId());
+      assertThat(body.get("version").asInt()).isEqualTo(request.version());
+    }
+    assertThat(stale).isBetween(1_500, 2_500);
+  }
+
+  @Test
+  void tradeIdsAreSkewedTowardsLowRanks() {
+    TradeWorkload workload = workload(1_000, 0);
+    int[] counts = new int[1_000];
+    for (int i = 0; i < 100_000; i++) {
+      counts[workload.sampleRank()]++;
+    }
+    // Zipf(1) over 1000 ids: rank 0 gets ~13%, rank 999 ~0.013%
+    assertThat(counts[0]).isBetween(11_000, 16_000);
+    assertThat(counts[0]).isGreaterThan(counts[9] * 5);
+    assertThat(counts[999]).isLessThan(100);
+  }
+
+  @Test
+  void pastSeedMaturitiesAreMovedIntoTheFuture() throws Exception {
+    TradeWorkload workload = workload(50, 0);
+    for (int i = 0; i < 500; i++) {
+      JsonNode body = mapper.readTree(workload.next().body());
+      assertThat(LocalDate.parse(body.get("maturityDate").asText())).isAfter(TODAY);
+    }
+  }
+
+  private TradeWorkload workload(int trades, double staleRatio) {
+    JsonNode seed =
+        mapper
+            .createObjectNode()
+            .put("price", 100.0)
+            .put("quantity", 10)
+            .put("maturityDate", "2025-12-31");
+    return new TradeWorkload(mapper, List.of(seed), trades, 1.0, staleRatio, 7, TODAY);
+  }
+}
@@ -1,14 +1,49 @@
 package com.trademart.tradestore.repair.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class TradeRepairConfig {
 
+    /**
+     * RestTemplate over a pooled, keep-alive Apache client. Every request goes to the same
+     * trade-store host, so the per-route limit equals the total; size it at or above
+     * trade.repair.bulk.concurrency so bulk workers never wait for a connection.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient tradeStoreHttpClient(
+            @Value("${trade.repair.http.max-connections:32}") int maxConnections,
+            @Value("${trade.repair.http.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${trade.repair.http.read-timeout-ms:10000}") long readTimeoutMs) {
+        PoolingHttpClientConnectionManager connections = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connections)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient tradeStoreHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(tradeStoreHttpClient));
     }
 }
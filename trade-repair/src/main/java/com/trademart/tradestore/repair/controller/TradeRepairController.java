@@ -1,10 +1,13 @@
 package com.trademart.tradestore.repair.controller;
 
+import com.trademart.tradestore.repair.dto.BulkRepairStatus;
 import com.trademart.tradestore.repair.dto.FailedTrade;
+import com.trademart.tradestore.repair.service.BulkTradeRepairService;
 import com.trademart.tradestore.repair.service.TradeRepairService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -12,9 +15,11 @@ import java.util.List;
 public class TradeRepairController {
 
     private final TradeRepairService service;
+    private final BulkTradeRepairService bulkService;
 
-    public TradeRepairController(TradeRepairService service) {
+    public TradeRepairController(TradeRepairService service, BulkTradeRepairService bulkService) {
         this.service = service;
+        this.bulkService = bulkService;
     }
 
     @GetMapping("/failed")
@@ -36,6 +41,23 @@ public class TradeRepairController {
         return ResponseEntity.status(502).body("Resubmit failed or trade not found");
     }
 
+    // starts draining the failed store (or the first `limit` trades) in the background; 202 with
+    // the run id, whose progress and summary are at GET /repair/resubmit-all/{runId}
+    @PostMapping("/resubmit-all")
+    public ResponseEntity<?> resubmitAll(@RequestParam(defaultValue = "0") long limit) {
+        try {
+            BulkRepairStatus run = bulkService.start(limit);
+            return ResponseEntity.accepted().location(URI.create("/repair/resubmit-all/" + run.runId())).body(run);
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(409).body(ex.getMessage());
+        }
+    }
+
+    @GetMapping("/resubmit-all/{runId}")
+    public ResponseEntity<BulkRepairStatus> resubmitAllStatus(@PathVariable String runId) {
+        return bulkService.status(runId).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @PostMapping("/repair")
     public ResponseEntity<?> saveRepaired(@RequestBody FailedTrade repaired) {
         service.saveRepaired(repaired);
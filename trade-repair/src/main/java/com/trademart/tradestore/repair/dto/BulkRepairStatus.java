@@ -0,0 +1,18 @@
+package com.trademart.tradestore.repair.dto;
+
+import java.time.Instant;
+
+/**
+ * State of one asynchronous bulk repair run, as returned by {@code POST /repair/resubmit-all} and
+ * {@code GET /repair/resubmit-all/{runId}}. The counts grow while the run is RUNNING; summary is
+ * set once it is FINISHED, error once it FAILED.
+ */
+public record BulkRepairStatus(String runId, State state, Instant startedAt, long scanned, long resubmitted,
+                               long rejected, long failed, long invalid, BulkRepairSummary summary, String error) {
+
+    public enum State {
+        RUNNING,
+        FINISHED,
+        FAILED
+    }
+}
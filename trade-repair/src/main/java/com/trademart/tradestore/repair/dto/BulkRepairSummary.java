@@ -0,0 +1,10 @@
+package com.trademart.tradestore.repair.dto;
+
+/**
+ * Outcome of one bulk repair run. Rejected trades got a 4xx from trade-store, failed ones a 5xx or
+ * an I/O error, invalid ones have a payload that is not a JSON object; all three stay in the
+ * failed store.
+ */
+public record BulkRepairSummary(long scanned, long resubmitted, long rejected, long failed, long invalid,
+                                long elapsedMs, double perSecond) {
+}
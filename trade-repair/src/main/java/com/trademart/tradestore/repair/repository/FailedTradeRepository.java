@@ -1,10 +1,15 @@
 package com.trademart.tradestore.repair.repository;
 
 import com.trademart.tradestore.repair.dto.FailedTrade;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface FailedTradeRepository extends MongoRepository<FailedTrade, String> {
-    // Additional query methods can be added here as needed
+
+    // keyset page for bulk repair: pass the last id of the previous page and sort by id
+    List<FailedTrade> findByIdGreaterThan(String id, Pageable pageable);
 }
@@ -0,0 +1,358 @@
+package com.trademart.tradestore.repair.service;
+
+import com.trademart.tradestore.repair.dto.BulkRepairStatus;
+import com.trademart.tradestore.repair.dto.BulkRepairSummary;
+import com.trademart.tradestore.repair.dto.FailedTrade;
+import com.trademart.tradestore.repair.repository.FailedTradeRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the failed-trade store in one run: failed trades are read a page at a time in id order,
+ * their max versions are resolved with {@code POST {resubmitUrl}/max-versions} in chunks, and the
+ * trades are resubmitted by a fixed pool of workers under a shared rate limit. Versions follow
+ * {@link TradeRepairService#resubmit(String)}: max + 1 when trade-store knows the tradeId,
+ * otherwise the payload version or 1. Resubmitted trades are deleted per page; everything else
+ * stays for the next run.
+ *
+ * <p>{@link #start(long)} runs the drain on a background thread and returns a run id at once, so an
+ * HTTP caller is not held for the minutes a large store takes at the configured rate. Progress and
+ * the final summary of the last {@value #KEPT_RUNS} runs are available from {@link #status(String)}.
+ */
+@Service
+public class BulkTradeRepairService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkTradeRepairService.class);
+    static final int KEPT_RUNS = 20;
+
+    private final FailedTradeRepository repository;
+    private final RestTemplate rest;
+    private final String resubmitUrl;
+    private final String maxVersionsUrl;
+    private final int pageSize;
+    private final int lookupBatchSize;
+    private final int concurrency;
+    private final int ratePerSecond;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "trade-repair-bulk-run");
+        t.setDaemon(true);
+        return t;
+    });
+    // most recent runs by id, oldest evicted first
+    private final Map<String, Run> runs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Run> eldest) {
+            return size() > KEPT_RUNS;
+        }
+    });
+    private volatile Run current;
+
+    public BulkTradeRepairService(FailedTradeRepository repository, RestTemplate rest,
+                                  @Value("${trade.store.resubmit.url:http://trade-store:8080/api/trades/resubmit}") String resubmitUrl,
+                                  @Value("${trade.repair.bulk.page-size:1000}") int pageSize,
+                                  @Value("${trade.repair.bulk.lookup-batch-size:500}") int lookupBatchSize,
+                                  @Value("${trade.repair.bulk.concurrency:16}") int concurrency,
+                                  @Value("${trade.repair.bulk.rate-per-second:500}") int ratePerSecond) {
+        this.repository = repository;
+        this.rest = rest;
+        this.resubmitUrl = resubmitUrl;
+        this.maxVersionsUrl = resubmitUrl.endsWith("/") ? resubmitUrl + "max-versions" : resubmitUrl + "/max-versions";
+        this.pageSize = Math.max(1, pageSize);
+        this.lookupBatchSize = Math.max(1, lookupBatchSize);
+        this.concurrency = Math.max(1, concurrency);
+        this.ratePerSecond = Math.max(0, ratePerSecond);
+    }
+
+    /**
+     * Start resubmitting up to {@code limit} failed trades (all of them when {@code limit <= 0}) in
+     * the background and return the new run's status.
+     *
+     * @throws IllegalStateException when another bulk run is in progress
+     */
+    public BulkRepairStatus start(long limit) {
+        acquire();
+        Run run = new Run(UUID.randomUUID().toString());
+        runs.put(run.id, run);
+        current = run;
+        try {
+            runner.execute(() -> {
+                try {
+                    run.summary = drain(limit, run.counts);
+                    run.state = BulkRepairStatus.State.FINISHED;
+                } catch (RuntimeException ex) {
+                    log.error("bulk repair run {} failed", run.id, ex);
+                    run.error = ex.getMessage();
+                    run.state = BulkRepairStatus.State.FAILED;
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            run.error = "shutting down";
+            run.state = BulkRepairStatus.State.FAILED;
+            running.set(false);
+            throw new IllegalStateException("bulk repair is shutting down", ex);
+        }
+        return run.status();
+    }
+
+    /** Progress or outcome of a run started with {@link #start(long)}; empty for unknown or evicted ids. */
+    public Optional<BulkRepairStatus> status(String runId) {
+        return Optional.ofNullable(runs.get(runId)).map(Run::status);
+    }
+
+    /**
+     * Resubmit up to {@code limit} failed trades (all of them when {@code limit <= 0}) on the
+     * calling thread and return the summary.
+     *
+     * @throws IllegalStateException when another bulk run is in progress
+     */
+    public BulkRepairSummary resubmitAll(long limit) {
+        acquire();
+        try {
+            return drain(limit, new Counts());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        // interrupts a running drain, which keeps what it already resubmitted out of the store
+        runner.shutdownNow();
+    }
+
+    private void acquire() {
+        if (!running.compareAndSet(false, true)) {
+            Run active = current;
+            throw new IllegalStateException(active != null && active.state == BulkRepairStatus.State.RUNNING
+                    ? "bulk repair already running: " + active.id
+                    : "bulk repair already running");
+        }
+    }
+
+    private BulkRepairSummary drain(long limit, Counts counts) {
+        long started = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "trade-repair-bulk");
+            t.setDaemon(true);
+            return t;
+        });
+        RateLimiter limiter = new RateLimiter(ratePerSecond);
+        try {
+            String lastId = null;
+            while (limit <= 0 || counts.scanned < limit) {
+                int size = limit <= 0 ? pageSize : (int) Math.min(pageSize, limit - counts.scanned);
+                PageRequest page = PageRequest.of(0, size, Sort.by("id"));
+                // the first page cannot use id > x: generated ids are ObjectIds, not strings
+                List<FailedTrade> trades = lastId == null
+                        ? repository.findAll(page).getContent()
+                        : repository.findByIdGreaterThan(lastId, page);
+                if (trades.isEmpty()) break;
+                counts.scanned += trades.size();
+                lastId = trades.get(trades.size() - 1).getId();
+                List<String> resubmitted = resubmitPage(trades, workers, limiter, counts);
+                if (!resubmitted.isEmpty()) repository.deleteAllById(resubmitted);
+                if (trades.size() < size) break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("bulk repair interrupted after {} trades", counts.scanned);
+        } finally {
+            workers.shutdownNow();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        double perSecond = elapsedMs == 0 ? counts.resubmitted.get() : counts.resubmitted.get() * 1000.0 / elapsedMs;
+        BulkRepairSummary summary = new BulkRepairSummary(counts.scanned, counts.resubmitted.get(), counts.rejected.get(),
+                counts.failed.get(), counts.invalid, elapsedMs, perSecond);
+        log.info("bulk repair finished: {}", summary);
+        return summary;
+    }
+
+    private List<String> resubmitPage(List<FailedTrade> trades, ExecutorService workers, RateLimiter limiter, Counts counts)
+            throws InterruptedException {
+        // group by tradeId so repeated trades are posted in version order by one worker
+        Map<String, List<Resubmission>> byTradeId = new LinkedHashMap<>();
+        List<Resubmission> withoutTradeId = new ArrayList<>();
+        for (FailedTrade ft : trades) {
+            Map<String, Object> tradeMap;
+            try {
+                tradeMap = mapper.readValue(ft.getPayload(), new TypeReference<>() {});
+            } catch (Exception ex) {
+                counts.invalid++;
+                continue;
+            }
+            Object tradeId = tradeMap.get("tradeId");
+            Resubmission r = new Resubmission(ft.getId(), tradeMap);
+            if (tradeId != null && !tradeId.toString().isBlank()) {
+                byTradeId.computeIfAbsent(tradeId.toString(), k -> new ArrayList<>()).add(r);
+            } else {
+                withoutTradeId.add(r);
+            }
+        }
+
+        Map<String, Integer> maxVersions = lookupMaxVersions(new ArrayList<>(byTradeId.keySet()));
+        List<Future<?>> pending = new ArrayList<>();
+        List<String> resubmitted = Collections.synchronizedList(new ArrayList<>());
+        for (Map.Entry<String, List<Resubmission>> e : byTradeId.entrySet()) {
+            Integer max = maxVersions.get(e.getKey());
+            for (Resubmission r : e.getValue()) {
+                if (max != null) {
+                    max = max + 1;
+                    r.trade.put("version", max);
+                } else {
+                    defaultVersion(r.trade);
+                }
+            }
+            pending.add(workers.submit(() -> post(e.getValue(), limiter, counts, resubmitted)));
+        }
+        for (Resubmission r : withoutTradeId) {
+            defaultVersion(r.trade);
+            pending.add(workers.submit(() -> post(List.of(r), limiter, counts, resubmitted)));
+        }
+        try {
+            for (Future<?> f : pending) {
+                f.get();
+            }
+        } catch (ExecutionException e) {
+            // post() catches per trade; anything else is a bug, but the page still gets cleaned up
+            log.error("bulk repair worker failed", e.getCause());
+        } catch (InterruptedException e) {
+            pending.forEach(f -> f.cancel(true));
+            // keep what already went through out of the failed store
+            if (!resubmitted.isEmpty()) repository.deleteAllById(new ArrayList<>(resubmitted));
+            throw e;
+        }
+        return resubmitted;
+    }
+
+    private Map<String, Integer> lookupMaxVersions(List<String> tradeIds) {
+        Map<String, Integer> versions = new HashMap<>();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        for (int from = 0; from < tradeIds.size(); from += lookupBatchSize) {
+            List<String> chunk = tradeIds.subList(from, Math.min(from + lookupBatchSize, tradeIds.size()));
+            try {
+                var resp = rest.postForEntity(maxVersionsUrl, new HttpEntity<>(mapper.writeValueAsString(chunk), headers), String.class);
+                if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
+                    versions.putAll(mapper.readValue(resp.getBody(), new TypeReference<Map<String, Integer>>() {}));
+                }
+            } catch (Exception ex) {
+                // same fallback as the single-trade path: payload version or 1
+                log.warn("max-version lookup failed for {} tradeIds: {}", chunk.size(), ex.getMessage());
+            }
+        }
+        return versions;
+    }
+
+    private void post(List<Resubmission> group, RateLimiter limiter, Counts counts, List<String> resubmitted) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        for (Resubmission r : group) {
+            try {
+                limiter.acquire();
+                rest.postForEntity(resubmitUrl, new HttpEntity<>(mapper.writeValueAsString(r.trade), headers), String.class);
+                resubmitted.add(r.id);
+                counts.resubmitted.incrementAndGet();
+            } catch (HttpClientErrorException ex) {
+                counts.rejected.incrementAndGet();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                counts.failed.incrementAndGet();
+                log.debug("resubmit failed for id={}: {}", r.id, ex.getMessage());
+            }
+        }
+    }
+
+    private static void defaultVersion(Map<String, Object> trade) {
+        if (!trade.containsKey("version") || trade.get("version") == null) {
+            trade.put("version", 1);
+        }
+    }
+
+    private record Resubmission(String id, Map<String, Object> trade) {
+    }
+
+    private static final class Counts {
+        // scanned and invalid are only written by the run thread; volatile for status readers
+        volatile long scanned;
+        volatile long invalid;
+        final AtomicLong resubmitted = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+    }
+
+    private static final class Run {
+        final String id;
+        final Instant startedAt = Instant.now();
+        final Counts counts = new Counts();
+        volatile BulkRepairStatus.State state = BulkRepairStatus.State.RUNNING;
+        volatile BulkRepairSummary summary;
+        volatile String error;
+
+        Run(String id) {
+            this.id = id;
+        }
+
+        BulkRepairStatus status() {
+            return new BulkRepairStatus(id, state, startedAt, counts.scanned, counts.resubmitted.get(),
+                    counts.rejected.get(), counts.failed.get(), counts.invalid, summary, error);
+        }
+    }
+
+    /** Spaces permits evenly at {@code perSecond}; 0 means unlimited. Shared by all workers. */
+    static final class RateLimiter {
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        RateLimiter(int perSecond) {
+            this.intervalNanos = perSecond <= 0 ? 0 : 1_000_000_000L / perSecond;
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) return;
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (next - now < 0) next = now;
+                wait = next - now;
+                next += intervalNanos;
+            }
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
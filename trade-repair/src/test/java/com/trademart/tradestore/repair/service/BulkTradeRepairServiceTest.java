@@ -0,0 +1,235 @@
+package com.trademart.tradestore.repair.service;
+
+import com.trademart.tradestore.repair.dto.BulkRepairStatus;
+import com.trademart.tradestore.repair.dto.BulkRepairSummary;
+import com.trademart.tradestore.repair.dto.FailedTrade;
+import com.trademart.tradestore.repair.repository.FailedTradeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BulkTradeRepairServiceTest {
+
+    private static final String URL = "http://trade-store:8080/trades";
+    private static final String MAX_VERSIONS_URL = URL + "/max-versions";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private FailedTradeRepository repository;
+    private RestTemplate rest;
+    // payloads posted to the resubmit URL, in order
+    private final List<Map<?, ?>> posted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(FailedTradeRepository.class);
+        rest = mock(RestTemplate.class);
+        when(rest.postForEntity(eq(URL), any(), eq(String.class))).thenAnswer(inv -> {
+            HttpEntity<?> entity = inv.getArgument(1);
+            synchronized (posted) {
+                posted.add(mapper.readValue((String) entity.getBody(), Map.class));
+            }
+            return new ResponseEntity<>("ok", HttpStatus.CREATED);
+        });
+    }
+
+    private BulkTradeRepairService service(int pageSize, int concurrency) {
+        return new BulkTradeRepairService(repository, rest, URL, pageSize, 500, concurrency, 0);
+    }
+
+    @Test
+    void resolves_versions_in_one_lookup_and_numbers_repeated_trade_ids() throws Exception {
+        givenPages(List.of(
+                failed("a", "{\"tradeId\":\"T-1\"}"),
+                failed("b", "{\"tradeId\":\"T-2\", \"version\":3}"),
+                failed("c", "{\"tradeId\":\"T-1\", \"version\":1}"),
+                failed("d", "{\"tradeId\":\"T-3\"}")));
+        doReturn(new ResponseEntity<>("{\"T-1\":5}", HttpStatus.OK))
+                .when(rest).postForEntity(eq(MAX_VERSIONS_URL), any(), eq(String.class));
+
+        BulkRepairSummary summary = service(10, 4).resubmitAll(0);
+
+        assertThat(summary.scanned()).isEqualTo(4);
+        assertThat(summary.resubmitted()).isEqualTo(4);
+        ArgumentCaptor<HttpEntity> lookup = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(rest, times(1)).postForEntity(eq(MAX_VERSIONS_URL), lookup.capture(), eq(String.class));
+        assertThat(mapper.readValue((String) lookup.getValue().getBody(), List.class))
+                .containsExactly("T-1", "T-2", "T-3");
+
+        // T-1 is known at 5 and appears twice: 6 then 7, posted in that order
+        List<Object> t1Versions = posted.stream().filter(m -> "T-1".equals(m.get("tradeId")))
+                .map(m -> m.get("version")).toList();
+        assertThat(t1Versions).containsExactly(6, 7);
+        assertThat(versionOf("T-2")).isEqualTo(3);
+        assertThat(versionOf("T-3")).isEqualTo(1);
+        verify(repository).deleteAllById(argThat(ids -> containsExactly(ids, "a", "b", "c", "d")));
+    }
+
+    @Test
+    void counts_outcomes_and_keeps_unsuccessful_trades() {
+        givenPages(List.of(
+                failed("a", "{\"tradeId\":\"OK\"}"),
+                failed("b", "{\"tradeId\":\"STALE\"}"),
+                failed("c", "{\"tradeId\":\"DOWN\"}"),
+                failed("d", "not json")));
+        doReturn(new ResponseEntity<>("{}", HttpStatus.OK))
+                .when(rest).postForEntity(eq(MAX_VERSIONS_URL), any(), eq(String.class));
+        doThrow(HttpClientErrorException.create(HttpStatus.CONFLICT, "stale", null, null, null))
+                .when(rest).postForEntity(eq(URL), argThat(body(b -> b.contains("STALE"))), eq(String.class));
+        doThrow(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "down", null, null, null))
+                .when(rest).postForEntity(eq(URL), argThat(body(b -> b.contains("DOWN"))), eq(String.class));
+
+        BulkRepairSummary summary = service(10, 2).resubmitAll(0);
+
+        assertThat(summary.scanned()).isEqualTo(4);
+        assertThat(summary.resubmitted()).isEqualTo(1);
+        assertThat(summary.rejected()).isEqualTo(1);
+        assertThat(summary.failed()).isEqualTo(1);
+        assertThat(summary.invalid()).isEqualTo(1);
+        verify(repository).deleteAllById(argThat(ids -> containsExactly(ids, "a")));
+    }
+
+    @Test
+    void lookup_failure_falls_back_to_payload_version_or_one() {
+        givenPages(List.of(
+                failed("a", "{\"tradeId\":\"T-1\", \"version\":2}"),
+                failed("b", "{\"tradeId\":\"T-2\"}")));
+        doThrow(new RuntimeException("down"))
+                .when(rest).postForEntity(eq(MAX_VERSIONS_URL), any(), eq(String.class));
+
+        BulkRepairSummary summary = service(10, 2).resubmitAll(0);
+
+        assertThat(summary.resubmitted()).isEqualTo(2);
+        assertThat(versionOf("T-1")).isEqualTo(2);
+        assertThat(versionOf("T-2")).isEqualTo(1);
+    }
+
+    @Test
+    void pages_by_id_and_stops_at_the_limit() {
+        when(repository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(
+                failed("a", "{\"tradeId\":\"T-1\"}"), failed("b", "{\"tradeId\":\"T-2\"}"))));
+        when(repository.findByIdGreaterThan(eq("b"), any(Pageable.class))).thenReturn(List.of(
+                failed("c", "{\"tradeId\":\"T-3\"}")));
+        doReturn(new ResponseEntity<>("{}", HttpStatus.OK))
+                .when(rest).postForEntity(eq(MAX_VERSIONS_URL), any(), eq(String.class));
+
+        BulkRepairSummary summary = service(2, 2).resubmitAll(3);
+
+        assertThat(summary.scanned()).isEqualTo(3);
+        assertThat(summary.resubmitted()).isEqualTo(3);
+        ArgumentCaptor<Pageable> secondPage = ArgumentCaptor.forClass(Pageable.class);
+        verify(repository).findByIdGreaterThan(eq("b"), secondPage.capture());
+        assertThat(secondPage.getValue().getPageSize()).isEqualTo(1);
+        verify(repository, times(2)).deleteAllById(any());
+    }
+
+    @Test
+    void a_second_run_is_refused_while_one_is_in_progress() throws Exception {
+        givenPages(List.of(failed("a", "{\"tradeId\":\"T-1\"}")));
+        doReturn(new ResponseEntity<>("{}", HttpStatus.OK))
+                .when(rest).postForEntity(eq(MAX_VERSIONS_URL), any(), eq(String.class));
+        BulkTradeRepairService service = service(10, 1);
+        CountDownLatch inLookup = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findAll(any(Pageable.class))).thenAnswer(inv -> {
+            inLookup.countDown();
+            release.await();
+            return new PageImpl<>(List.of());
+        });
+
+        Thread first = new Thread(() -> service.resubmitAll(0));
+        first.start();
+        inLookup.await();
+        assertThatThrownBy(() -> service.resubmitAll(0)).isInstanceOf(IllegalStateException.class);
+        release.countDown();
+        first.join(5_000);
+
+        assertThat(service.resubmitAll(0).scanned()).isZero();
+    }
+
+    @Test
+    void started_run_returns_at_once_and_reports_progress_then_the_summary() throws Exception {
+        givenPages(List.of(failed("a", "{\"tradeId\":\"T-1\"}"), failed("b", "{\"tradeId\":\"T-2\"}")));
+        doReturn(new ResponseEntity<>("{}", HttpStatus.OK))
+                .when(rest).postForEntity(eq(MAX_VERSIONS_URL), any(), eq(String.class));
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await();
+            return new ResponseEntity<>("ok", HttpStatus.CREATED);
+        }).when(rest).postForEntity(eq(URL), any(), eq(String.class));
+        BulkTradeRepairService service = service(10, 1);
+
+        BulkRepairStatus started = service.start(0);
+        assertThat(started.state()).isEqualTo(BulkRepairStatus.State.RUNNING);
+        assertThatThrownBy(() -> service.start(0))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(started.runId());
+        assertThat(service.status(started.runId()).orElseThrow().scanned()).isLessThanOrEqualTo(2);
+
+        release.countDown();
+        BulkRepairStatus done = awaitDone(service, started.runId());
+        assertThat(done.state()).isEqualTo(BulkRepairStatus.State.FINISHED);
+        assertThat(done.summary().resubmitted()).isEqualTo(2);
+        assertThat(done.resubmitted()).isEqualTo(2);
+        assertThat(service.status("unknown")).isEmpty();
+        // the finished run no longer blocks a new one
+        assertThat(service.start(0).runId()).isNotEqualTo(started.runId());
+    }
+
+    private static BulkRepairStatus awaitDone(BulkTradeRepairService service, String runId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            BulkRepairStatus status = service.status(runId).orElseThrow();
+            if (status.state() != BulkRepairStatus.State.RUNNING) return status;
+            assertThat(System.nanoTime()).as("timed out waiting for run %s", runId).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private void givenPages(List<FailedTrade> firstPage) {
+        when(repository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(firstPage));
+        when(repository.findByIdGreaterThan(anyString(), any(Pageable.class))).thenReturn(List.of());
+    }
+
+    private Object versionOf(String tradeId) {
+        return posted.stream().filter(m -> tradeId.equals(m.get("tradeId"))).findFirst().orElseThrow().get("version");
+    }
+
+    private static boolean containsExactly(Iterable<? extends String> ids, String... expected) {
+        List<String> actual = new ArrayList<>();
+        ids.forEach(actual::add);
+        return actual.size() == expected.length && actual.containsAll(List.of(expected));
+    }
+
+    private static ArgumentMatcher<HttpEntity<?>> body(Predicate<String> test) {
+        return e -> e != null && e.getBody() instanceof String s && test.test(s);
+    }
+
+    private static FailedTrade failed(String id, String payload) {
+        return new FailedTrade(id, null, "test", payload);
+    }
+}
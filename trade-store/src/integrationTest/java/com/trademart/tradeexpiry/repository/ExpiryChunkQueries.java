@@ -0,0 +1,13 @@
+package com.trademart.tradeexpiry.repository;
+
+/**
+ * Test fixture exposing trade-expiry's keyset chunk statements, which stay package-private in
+ * {@link TradeRepositoryImpl}, so plan tests EXPLAIN the exact SQL the expiry job runs.
+ */
+public final class ExpiryChunkQueries {
+
+  public static final String FIRST_DUE_KEYS = TradeRepositoryImpl.FIRST_DUE_KEYS_SQL;
+  public static final String NEXT_DUE_KEYS = TradeRepositoryImpl.NEXT_DUE_KEYS_SQL;
+
+  private ExpiryChunkQueries() {}
+}
@@ -0,0 +1,156 @@
+package com.trademart.tradestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.trademart.tradeexpiry.mongo.TradeHistory;
+import com.trademart.tradeexpiry.repository.TradeRepository;
+import com.trademart.tradeexpiry.repository.TradeRepositoryImpl;
+import com.trademart.tradeexpiry.repository.mongo.TradeHistoryRepository;
+import com.trademart.tradeexpiry.service.impl.SetBasedTradeExpiryStrategy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * The set-based expiry strategy against the Flyway schema: one UPDATE ... RETURNING expires exactly
+ * the due ACTIVE trades, history goes out in batch-size chunks, and rows locked by another
+ * transaction are waited for rather than skipped (the rollover sweep depends on that).
+ */
+@Testcontainers
+@Tag("integration")
+public class SetBasedTradeExpiryStrategyIT {
+
+  private static final LocalDate TODAY = LocalDate.parse("2025-10-27");
+
+  @Container
+  static PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>("postgres:15-alpine")
+          .withDatabaseName("test")
+          .withUsername("test")
+          .withPassword("test");
+
+  private static DriverManagerDataSource dataSource;
+  private static JdbcTemplate jdbc;
+  private final List<List<String>> historyBatches = new ArrayList<>();
+  private SetBasedTradeExpiryStrategy strategy;
+
+  @BeforeAll
+  static void migrate() {
+    Flyway.configure()
+        .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+        .load()
+        .migrate();
+    dataSource =
+        new DriverManagerDataSource(
+            postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    jdbc = new JdbcTemplate(dataSource);
+  }
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    jdbc.execute("TRUNCATE trades");
+    TradeRepositoryImpl sql = new TradeRepositoryImpl(jdbc, null);
+    TradeRepository trades = mock(TradeRepository.class);
+    when(trades.expireAllDue(any(), anyInt(), any()))
+        .thenAnswer(
+            inv ->
+                sql.expireAllDue(
+                    inv.getArgument(0), inv.getArgument(1), (Consumer) inv.getArgument(2)));
+    TradeHistoryRepository history = mock(TradeHistoryRepository.class);
+    when(history.saveAll(any()))
+        .thenAnswer(
+            inv -> {
+              List<String> ids = new ArrayList<>();
+              for (TradeHistory h : (Iterable<TradeHistory>) inv.getArgument(0)) {
+                assertThat(h.getChangeType()).isEqualTo("EXPIRE");
+                ids.add(h.getTradeId());
+              }
+              historyBatches.add(ids);
+              return List.of();
+            });
+    TransactionTemplate transactions =
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    strategy = new SetBasedTradeExpiryStrategy(trades, history, transactions, 2);
+  }
+
+  @Test
+  void expiresOnlyDueActiveTradesAndWritesHistoryInBatches() {
+    insert("DUE-1", "2025-10-01", "ACTIVE");
+    insert("DUE-2", "2025-10-26", "ACTIVE");
+    insert("DUE-3", "2024-01-01", "ACTIVE");
+    insert("TODAY", "2025-10-27", "ACTIVE");
+    insert("LATER", "2026-01-01", "ACTIVE");
+    insert("GONE", "2025-01-01", "EXPIRED");
+
+    assertThat(strategy.expire(TODAY)).isEqualTo(3);
+
+    assertThat(statusOf("DUE-1")).isEqualTo("EXPIRED");
+    assertThat(statusOf("DUE-2")).isEqualTo("EXPIRED");
+    assertThat(statusOf("DUE-3")).isEqualTo("EXPIRED");
+    assertThat(statusOf("TODAY")).isEqualTo("ACTIVE");
+    assertThat(statusOf("LATER")).isEqualTo("ACTIVE");
+    assertThat(historyBatches).extracting(List::size).containsExactly(2, 1);
+    assertThat(historyBatches.stream().flatMap(List::stream))
+        .containsExactlyInAnyOrder("DUE-1", "DUE-2", "DUE-3");
+
+    historyBatches.clear();
+    assertThat(strategy.expire(TODAY)).isZero();
+    assertThat(historyBatches).isEmpty();
+  }
+
+  @Test
+  void waitsForRowsLockedByAnotherTransaction() throws Exception {
+    insert("LOCKED", "2025-10-01", "ACTIVE");
+    insert("FREE", "2025-10-02", "ACTIVE");
+
+    try (Connection other = dataSource.getConnection()) {
+      other.setAutoCommit(false);
+      try (Statement st = other.createStatement()) {
+        st.execute("SELECT id FROM trades WHERE trade_id = 'LOCKED' FOR UPDATE");
+      }
+      CompletableFuture<Long> run = CompletableFuture.supplyAsync(() -> strategy.expire(TODAY));
+      Thread.sleep(300);
+      assertThat(run).isNotDone();
+
+      other.commit();
+      assertThat(run.get(10, TimeUnit.SECONDS)).isEqualTo(2);
+    }
+    assertThat(statusOf("LOCKED")).isEqualTo("EXPIRED");
+  }
+
+  private static void insert(String tradeId, String maturity, String status) {
+    jdbc.update(
+        "INSERT INTO trades (trade_id, version, price, quantity, maturity_date, status)"
+            + " VALUES (?, 1, 10.00, 1, ?, ?)",
+        tradeId,
+        LocalDate.parse(maturity),
+        status);
+  }
+
+  private static String statusOf(String tradeId) {
+    return jdbc.queryForObject(
+        "SELECT status FROM trades WHERE trade_id = ?", String.class, tradeId);
+  }
+}
@@ -0,0 +1,116 @@
+package com.trademart.tradestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.trademart.tradeexpiry.repository.DueTradeKey;
+import com.trademart.tradeexpiry.repository.TradeExpiryProgressRepository;
+import com.trademart.tradeexpiry.repository.TradeExpiryProgressRepository.Progress;
+import java.time.LocalDate;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * The expiry checkpoint SQL against the Flyway schema: the cursor only moves forward, an unfinished
+ * pass resumes where it stopped, a finished one starts over, and older run dates are pruned.
+ */
+@Testcontainers
+@Tag("integration")
+public class TradeExpiryProgressRepositoryIT {
+
+  private static final LocalDate TODAY = LocalDate.parse("2025-10-27");
+
+  @Container
+  static PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>("postgres:15-alpine")
+          .withDatabaseName("test")
+          .withUsername("test")
+          .withPassword("test");
+
+  private static JdbcTemplate jdbc;
+  private TradeExpiryProgressRepository progress;
+
+  @BeforeAll
+  static void migrate() {
+    Flyway.configure()
+        .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+        .load()
+        .migrate();
+    jdbc =
+        new JdbcTemplate(
+            new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+  }
+
+  @BeforeEach
+  void clean() {
+    jdbc.execute("TRUNCATE trade_expiry_progress");
+    progress = new TradeExpiryProgressRepository(jdbc);
+  }
+
+  @Test
+  void firstStartBeginsFromTheStart() {
+    Progress p = progress.start(TODAY);
+
+    assertThat(p.runDate()).isEqualTo(TODAY);
+    assertThat(p.lastMaturityDate()).isNull();
+    assertThat(p.lastId()).isZero();
+    assertThat(p.completedAt()).isNull();
+  }
+
+  @Test
+  void cursorOnlyMovesForwardButEveryChunkIsCounted() {
+    progress.start(TODAY);
+    progress.advance(TODAY, key(LocalDate.parse("2025-01-02"), 50), 10);
+    // a replica committing an earlier chunk after a later one
+    progress.advance(TODAY, key(LocalDate.parse("2025-01-01"), 900), 7);
+    // same maturity date, lower id
+    progress.advance(TODAY, key(LocalDate.parse("2025-01-02"), 20), 3);
+
+    Progress p = progress.start(TODAY);
+    assertThat(p.lastMaturityDate()).isEqualTo(LocalDate.parse("2025-01-02"));
+    assertThat(p.lastId()).isEqualTo(50);
+    assertThat(p.expiredCount()).isEqualTo(20);
+
+    progress.advance(TODAY, key(LocalDate.parse("2025-01-02"), 51), 1);
+    assertThat(progress.start(TODAY).lastId()).isEqualTo(51);
+  }
+
+  @Test
+  void unfinishedPassResumesAndFinishedPassStartsOver() {
+    progress.start(TODAY);
+    progress.advance(TODAY, key(LocalDate.parse("2025-03-01"), 42), 5);
+
+    Progress resumed = progress.start(TODAY);
+    assertThat(resumed.lastMaturityDate()).isEqualTo(LocalDate.parse("2025-03-01"));
+    assertThat(resumed.lastId()).isEqualTo(42);
+
+    progress.complete(TODAY);
+    Progress restarted = progress.start(TODAY);
+    assertThat(restarted.lastMaturityDate()).isNull();
+    assertThat(restarted.lastId()).isZero();
+    assertThat(restarted.completedAt()).isNull();
+  }
+
+  @Test
+  void startPrunesEarlierRunDates() {
+    progress.start(TODAY.minusDays(2));
+    progress.start(TODAY.minusDays(1));
+
+    progress.start(TODAY);
+
+    assertThat(jdbc.queryForList("SELECT run_date FROM trade_expiry_progress", LocalDate.class))
+        .containsExactly(TODAY);
+  }
+
+  private static DueTradeKey key(LocalDate maturity, long id) {
+    return new DueTradeKey(id, maturity);
+  }
+}
@@ -0,0 +1,111 @@
+package com.trademart.tradestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.trademart.tradeexpiry.repository.ExpiryChunkQueries;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Checks that the hot read paths are served by the V8/V9 indexes: migrates an empty database with
+ * Flyway, seeds 1M trades (10% ACTIVE) and asserts on the EXPLAIN output.
+ */
+@Testcontainers
+@Tag("integration")
+public class TradeIndexPlanIT {
+
+  private static final int ROWS = 1_000_000;
+
+  @Container
+  static PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>("postgres:15-alpine")
+          .withDatabaseName("test")
+          .withUsername("test")
+          .withPassword("test");
+
+  @BeforeAll
+  static void migrateAndSeed() throws Exception {
+    Flyway.configure()
+        .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+        .load()
+        .migrate();
+    try (Connection c = connect();
+        Statement st = c.createStatement()) {
+      st.execute(
+          "INSERT INTO trades (trade_id, version, price, quantity, maturity_date, status)"
+              + " SELECT 'T-' || g, 1 + g % 5, 10.00, 1, DATE '2024-01-01' + (g % 1000),"
+              + " CASE WHEN g % 10 = 0 THEN 'ACTIVE' ELSE 'EXPIRED' END"
+              + " FROM generate_series(1, "
+              + ROWS
+              + ") g");
+      // sets the visibility map, which index-only scans depend on, and refreshes statistics
+      st.execute("VACUUM ANALYZE trades");
+    }
+  }
+
+  @Test
+  void expiryScanUsesPartialMaturityIndex() throws Exception {
+    String plan =
+        explain(
+            "SELECT * FROM trades WHERE status = 'ACTIVE' AND maturity_date < DATE '2024-02-01'");
+    assertThat(plan).contains("idx_trades_active_maturity").doesNotContain("Seq Scan");
+  }
+
+  @Test
+  void expiryChunkQueriesLockRowsFoundThroughThePartialIndex() throws Exception {
+    // the production statements, with their FOR UPDATE SKIP LOCKED: locking needs the heap tuple,
+    // so the best plan is an Index Scan (not index-only) under LockRows
+    Date dueBefore = Date.valueOf(LocalDate.parse("2026-01-01"));
+    String first = explain(ExpiryChunkQueries.FIRST_DUE_KEYS, dueBefore, 1000);
+    String next =
+        explain(
+            ExpiryChunkQueries.NEXT_DUE_KEYS,
+            dueBefore,
+            Date.valueOf(LocalDate.parse("2024-06-01")),
+            0L,
+            1000);
+    for (String plan : List.of(first, next)) {
+      assertThat(plan)
+          .contains("LockRows")
+          .contains("Index Scan using idx_trades_active_maturity")
+          .doesNotContain("Seq Scan")
+          .doesNotContain("Sort");
+    }
+  }
+
+  @Test
+  void maxVersionLookupIsIndexOnly() throws Exception {
+    String plan = explain("SELECT max(version) FROM trades WHERE trade_id = 'T-4242'");
+    assertThat(plan).contains("Index Only Scan").contains("idx_trades_trade_id_version");
+  }
+
+  private static String explain(String sql, Object... params) throws Exception {
+    StringBuilder plan = new StringBuilder();
+    try (Connection c = connect();
+        PreparedStatement ps = c.prepareStatement("EXPLAIN " + sql)) {
+      for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) plan.append(rs.getString(1)).append('\n');
+      }
+    }
+    return plan.toString();
+  }
+
+  private static Connection connect() throws Exception {
+    return DriverManager.getConnection(
+        postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+  }
+}
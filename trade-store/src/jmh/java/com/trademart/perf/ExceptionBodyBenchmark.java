@@ -0,0 +1,48 @@
+package com.trademart.perf;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.trademart.tradestore.config.ExceptionConfig;
+import com.trademart.tradestore.exception.TradeRejectedException;
+import com.trademart.tradestore.exception.TradeValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Error-body building in {@link ExceptionConfig} for the common 400 and 500 responses. The handler's
+ * logger is switched off so the numbers cover the body, not console output.
+ */
+@State(Scope.Benchmark)
+public class ExceptionBodyBenchmark {
+
+  private final ExceptionConfig config = new ExceptionConfig();
+  private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/trades");
+  private final TradeValidationException validation =
+      new TradeValidationException("maturity date is in the past");
+  private final IllegalStateException internal = new IllegalStateException("boom");
+
+  @Setup
+  public void silenceHandlerLogging() {
+    ((Logger) LoggerFactory.getLogger(ExceptionConfig.class)).setLevel(Level.OFF);
+  }
+
+  @Benchmark
+  public ResponseEntity<Object> validationError() {
+    return config.handleValidation(validation, request);
+  }
+
+  @Benchmark
+  public ResponseEntity<Object> staleVersionRejection() {
+    return config.handleRejected(TradeRejectedException.staleVersion(), request);
+  }
+
+  @Benchmark
+  public ResponseEntity<Object> internalError() {
+    return config.handleGeneric(internal, request);
+  }
+}
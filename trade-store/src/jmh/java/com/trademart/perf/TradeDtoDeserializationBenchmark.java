@@ -0,0 +1,34 @@
+package com.trademart.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.trademart.tradestore.model.TradeDto;
+import java.nio.charset.StandardCharsets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Jackson {@link TradeDto} parsing as done by the Kafka listeners: from the String payload with a
+ * shared mapper, and from raw bytes with a pre-resolved reader for comparison.
+ */
+@State(Scope.Benchmark)
+public class TradeDtoDeserializationBenchmark {
+
+  private static final String JSON =
+      "{\"tradeId\":\"T-123456\",\"version\":7,\"price\":101.2500,\"maturityDate\":\"2099-12-31\"}";
+
+  private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+  private final ObjectReader reader = mapper.readerFor(TradeDto.class);
+  private final byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+
+  @Benchmark
+  public TradeDto readValueFromString() throws Exception {
+    return mapper.readValue(JSON, TradeDto.class);
+  }
+
+  @Benchmark
+  public TradeDto readerFromBytes() throws Exception {
+    return reader.readValue(bytes);
+  }
+}
@@ -0,0 +1,186 @@
+package com.trademart.perf;
+
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.model.TradeStatus;
+import com.trademart.tradestore.mongo.TradeHistory;
+import com.trademart.tradestore.repository.TradeRepository;
+import com.trademart.tradestore.repository.TradeUpsertResult;
+import com.trademart.tradestore.service.TradeHistoryWriter;
+import com.trademart.tradestore.service.TradeVersionCache;
+import com.trademart.tradestore.service.impl.ClockTradeVersionCache;
+import com.trademart.tradestore.service.impl.SimpleTradeVersionValidator;
+import com.trademart.tradestore.service.impl.TradeServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * End-to-end {@link TradeServiceImpl#createOrUpdateTrade} with in-memory stand-ins for Postgres
+ * (highest-version-wins upsert on a map), the sequence and Mongo, so the numbers isolate the
+ * application work per trade: cache check, lookup, validation, history construction and result
+ * handling. {@code trades} distinct trade ids are cycled with increasing versions.
+ */
+@State(Scope.Benchmark)
+public class TradeIngestBenchmark {
+
+  @Param({"1000", "100000"})
+  public int trades;
+
+  @Param({"true", "false"})
+  public boolean versionCache;
+
+  @Param("100")
+  public int batchSize;
+
+  private TradeServiceImpl service;
+  private TradeDto[] dtos;
+  private List<TradeDto> batch;
+  private int next;
+  private int round;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Map<String, TradeEntity> rows = new ConcurrentHashMap<>();
+    AtomicLong ids = new AtomicLong();
+    AtomicLong sequence = new AtomicLong();
+    TradeRepository repository = inMemoryRepository(rows, ids);
+    TradeHistoryWriter discard =
+        new TradeHistoryWriter() {
+          @Override
+          public void write(TradeHistory history) {}
+
+          @Override
+          public void writeAll(List<TradeHistory> histories) {}
+        };
+    service =
+        new TradeServiceImpl(
+            repository,
+            sequence::incrementAndGet,
+            new SimpleTradeVersionValidator(),
+            maturityDate -> {},
+            discard,
+            TransactionOperations.withoutTransaction(),
+            versionCache
+                ? new ClockTradeVersionCache(new SimpleMeterRegistry(), 32L << 20)
+                : TradeVersionCache.disabled());
+    dtos = new TradeDto[trades];
+    for (int i = 0; i < trades; i++) {
+      TradeDto dto = new TradeDto();
+      dto.setTradeId("T-" + i);
+      dto.setPrice(new BigDecimal("101.25"));
+      dto.setMaturityDate(LocalDate.parse("2099-12-31"));
+      dtos[i] = dto;
+    }
+    batch = new ArrayList<>(batchSize);
+  }
+
+  @Benchmark
+  public TradeEntity createOrUpdateTrade() {
+    TradeDto dto = dtos[next];
+    dto.setVersion(round);
+    if (++next == dtos.length) {
+      next = 0;
+      round++;
+    }
+    return service.createOrUpdateTrade(dto);
+  }
+
+  /** One {@code batchSize} batch per invocation; divide the score by batchSize for per-trade. */
+  @Benchmark
+  public List<TradeIngestResult> createOrUpdateTrades() {
+    batch.clear();
+    for (int i = 0; i < batchSize; i++) {
+      TradeDto dto = dtos[next];
+      dto.setVersion(round);
+      batch.add(dto);
+      if (++next == dtos.length) {
+        next = 0;
+        round++;
+        break;
+      }
+    }
+    return service.createOrUpdateTrades(batch);
+  }
+
+  /** The subset of {@link TradeRepository} the ingest paths use, backed by a map. */
+  @SuppressWarnings("unchecked")
+  private static TradeRepository inMemoryRepository(
+      Map<String, TradeEntity> rows, AtomicLong ids) {
+    return (TradeRepository)
+        Proxy.newProxyInstance(
+            TradeRepository.class.getClassLoader(),
+            new Class<?>[] {TradeRepository.class},
+            (proxy, method, args) -> {
+              switch (method.getName()) {
+                case "findByTradeId":
+                  return Optional.ofNullable(rows.get((String) args[0]));
+                case "findByTradeIdIn":
+                  return ((Collection<?>) args[0])
+                      .stream().map(rows::get).filter(e -> e != null).toList();
+                case "upsertTrade":
+                  return upsert(rows, ids, row(args));
+                case "upsertTrades":
+                  return ((List<TradeEntity>) args[0])
+                      .stream().map(e -> upsert(rows, ids, e)).toList();
+                case "hashCode":
+                  return System.identityHashCode(proxy);
+                case "equals":
+                  return proxy == args[0];
+                case "toString":
+                  return "InMemoryTradeRepository";
+                default:
+                  throw new UnsupportedOperationException(method.getName());
+              }
+            });
+  }
+
+  private static TradeUpsertResult upsert(
+      Map<String, TradeEntity> rows, AtomicLong ids, TradeEntity incoming) {
+    TradeEntity current = rows.get(incoming.getTradeId());
+    if (current != null && incoming.getVersion() < current.getVersion()) {
+      return new TradeUpsertResult(current, false, false);
+    }
+    TradeEntity row =
+        new TradeEntity(
+            incoming.getTradeId(),
+            incoming.getVersion(),
+            incoming.getPrice(),
+            incoming.getQuantity(),
+            incoming.getMaturityDate(),
+            incoming.getStatus() == null ? TradeStatus.ACTIVE : incoming.getStatus());
+    row.setId(current == null ? ids.incrementAndGet() : current.getId());
+    row.setIngestSequence(incoming.getIngestSequence());
+    rows.put(row.getTradeId(), row);
+    return new TradeUpsertResult(row, true, current == null);
+  }
+
+  private static TradeEntity row(Object[] args) {
+    TradeEntity row =
+        new TradeEntity(
+            (String) args[0],
+            (Integer) args[1],
+            (BigDecimal) args[2],
+            (Integer) args[3],
+            (LocalDate) args[4],
+            args[6] == null ? null : TradeStatus.valueOf((String) args[6]));
+    row.setIngestSequence((Long) args[5]);
+    return row;
+  }
+}
@@ -0,0 +1,84 @@
+package com.trademart.perf;
+
+import com.trademart.tradestore.exception.TradeRejectedException;
+import com.trademart.tradestore.exception.TradeValidationException;
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.service.ClockService;
+import com.trademart.tradestore.service.TradeValidationService;
+import com.trademart.tradestore.service.impl.SimpleTradeVersionValidator;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-trade validation on the ingest path. The reject benchmarks include the cost of creating and
+ * throwing the exception, which is what a stale or expired trade costs the caller.
+ */
+@State(Scope.Benchmark)
+public class TradeValidationBenchmark {
+
+  private final SimpleTradeVersionValidator versionValidator = new SimpleTradeVersionValidator();
+  private final TradeValidationService validationService =
+      new TradeValidationService(
+          new ClockService(Clock.fixed(Instant.parse("2025-10-27T10:00:00Z"), ZoneOffset.UTC)));
+
+  private final TradeDto incoming = dto(5);
+  private final TradeDto stale = dto(2);
+  private final TradeEntity existing = entity(3);
+  private final LocalDate future = LocalDate.parse("2099-12-31");
+  private final LocalDate past = LocalDate.parse("2020-01-01");
+
+  @Benchmark
+  public TradeDto versionAccepted() {
+    versionValidator.validate(incoming, existing);
+    return incoming;
+  }
+
+  @Benchmark
+  public Object versionRejected() {
+    try {
+      versionValidator.validate(stale, existing);
+      return stale;
+    } catch (TradeRejectedException ex) {
+      return ex;
+    }
+  }
+
+  @Benchmark
+  public LocalDate validateForIngestAccepted() {
+    validationService.validateForIngest("T-1", 5, future);
+    return future;
+  }
+
+  @Benchmark
+  public Object validateForIngestMaturityPast() {
+    try {
+      validationService.validateForIngest("T-1", 5, past);
+      return past;
+    } catch (TradeValidationException ex) {
+      return ex;
+    }
+  }
+
+  private static TradeDto dto(int version) {
+    TradeDto dto = new TradeDto();
+    dto.setTradeId("T-1");
+    dto.setVersion(version);
+    dto.setPrice(new BigDecimal("10.00"));
+    dto.setMaturityDate(LocalDate.parse("2099-12-31"));
+    return dto;
+  }
+
+  private static TradeEntity entity(int version) {
+    TradeEntity e = new TradeEntity();
+    e.setTradeId("T-1");
+    e.setVersion(version);
+    return e;
+  }
+}
@@ -0,0 +1,41 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeStatus;
+import com.trademart.tradestore.mongo.TradeHistory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * History document construction in {@link TradeServiceImpl} (before/after maps). Lives in the
+ * service package because {@code buildHistory} is package-private.
+ */
+@State(Scope.Benchmark)
+public class TradeHistoryBenchmark {
+
+  private final TradeEntity before = entity(3);
+  private final TradeEntity saved = entity(4);
+
+  @Benchmark
+  public TradeHistory create() {
+    return TradeServiceImpl.buildHistory(null, saved, 42L);
+  }
+
+  @Benchmark
+  public TradeHistory update() {
+    return TradeServiceImpl.buildHistory(before, saved, 42L);
+  }
+
+  private static TradeEntity entity(int version) {
+    TradeEntity e = new TradeEntity();
+    e.setTradeId("T-1");
+    e.setVersion(version);
+    e.setPrice(new BigDecimal("101.25"));
+    e.setMaturityDate(LocalDate.parse("2099-12-31"));
+    e.setStatus(TradeStatus.ACTIVE);
+    return e;
+  }
+}
@@ -1,117 +1,76 @@
 package com.trademart.tradestore.config;
 
+import com.trademart.tradestore.exception.TradeErrorCode;
+import com.trademart.tradestore.exception.TradeRejectedException;
 import com.trademart.tradestore.exception.TradeValidationException;
+import com.trademart.tradestore.model.TradeErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.LinkedHashMap;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+/**
+ * Maps exceptions to {@link TradeErrorResponse} bodies. Rejections are the common case during
+ * replays, so the error code comes from the exception rather than from matching its message, the
+ * timestamp string is reused within a millisecond and generated trace ids avoid SecureRandom.
+ */
 @RestControllerAdvice
 public class ExceptionConfig {
 
   private static final Logger log = LoggerFactory.getLogger(ExceptionConfig.class);
 
+  // always exactly 3 fractional digits
+  private static final DateTimeFormatter TIMESTAMP =
+      DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSX").withZone(ZoneOffset.UTC);
+
+  private record Timestamp(long epochMilli, String text) {}
+
+  private static volatile Timestamp lastTimestamp = new Timestamp(Long.MIN_VALUE, null);
+
   @ExceptionHandler(Exception.class)
   public ResponseEntity<Object> handleGeneric(Exception ex, HttpServletRequest request) {
     log.error("Unhandled exception caught:", ex);
-
-    Map<String, Object> body = new LinkedHashMap<>();
-    String timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
-    body.put("timestamp", timestamp);
-    body.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
-    body.put("path", request == null ? null : request.getRequestURI());
-    body.put("error", HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase());
     // do not expose internal exception messages to clients
-    body.put("message", "Internal server error");
-    String traceId = MDC.get("traceId");
-    if (traceId == null || traceId.isBlank()) {
-      traceId = UUID.randomUUID().toString();
-    }
-    body.put("traceId", traceId);
-
-    // machine-readable error code for internal errors
-    body.put("errorCode", "INTERNAL_ERROR");
-
-    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(body);
+    return error(
+        HttpStatus.INTERNAL_SERVER_ERROR,
+        request,
+        "Internal server error",
+        TradeErrorCode.INTERNAL_ERROR,
+        null);
   }
 
   @ExceptionHandler(TradeValidationException.class)
   public ResponseEntity<Object> handleValidation(
       TradeValidationException ex, HttpServletRequest request) {
     log.debug("Trade validation failed: {}", ex.getMessage());
-
-    Map<String, Object> body = new LinkedHashMap<>();
-    String timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
-    body.put("timestamp", timestamp);
-    body.put("status", HttpStatus.BAD_REQUEST.value());
-    body.put("path", request.getRequestURI());
-    body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
-    body.put("message", ex.getMessage());
-    String traceId = MDC.get("traceId");
-    if (traceId == null || traceId.isBlank()) {
-      traceId = UUID.randomUUID().toString();
-    }
-    body.put("traceId", traceId);
-
-    // provide a machine-readable error code for clients
-    String msg = ex.getMessage() == null ? "" : ex.getMessage().toLowerCase();
-    String errorCode = "TRADE_REJECTED";
-    if (msg.contains("version")) {
-      errorCode = "VERSION_TOO_LOW";
-    } else if (msg.contains("maturity")) {
-      errorCode = "MATURITY_PAST";
-    }
-    body.put("errorCode", errorCode);
-
-    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+    return error(HttpStatus.BAD_REQUEST, request, ex.getMessage(), ex.getErrorCode(), null);
   }
 
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<Object> handleMethodArgNotValid(
       MethodArgumentNotValidException ex, HttpServletRequest request) {
-    var errors =
-        ex.getBindingResult().getFieldErrors().stream()
-            .map(f -> java.util.Map.of("field", f.getField(), "message", f.getDefaultMessage()))
+    List<FieldError> fieldErrors = ex.getBindingResult().getFieldErrors();
+    List<Map<String, String>> errors =
+        fieldErrors.stream()
+            .map(f -> Map.of("field", f.getField(), "message", f.getDefaultMessage()))
             .collect(Collectors.toList());
-
-    // Build response map allowing nulls for optional fields (traceId)
-    Map<String, Object> body = new LinkedHashMap<>();
-    // truncate to milliseconds so we always have exactly 3 fractional digits
-    String timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
-    body.put("timestamp", timestamp);
-    body.put("status", HttpStatus.BAD_REQUEST.value());
-    body.put("path", request.getRequestURI());
-    body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
-    body.put("message", "Validation failed");
-    String traceId = MDC.get("traceId");
-    if (traceId == null || traceId.isBlank()) {
-      traceId = UUID.randomUUID().toString();
-    }
-    body.put("traceId", traceId);
-    // provide a machine-readable error code for clients
-    String msg = ex.getMessage() == null ? "" : ex.getMessage().toLowerCase();
-    String errorCode = "TRADE_REJECTED";
-    if (msg.contains("version")) {
-      errorCode = "VERSION_TOO_LOW";
-    } else if (msg.contains("maturity")) {
-      errorCode = "MATURITY_PAST";
-    }
-    body.put("errorCode", errorCode);
-    body.put("errors", errors);
-
     log.debug("Request body validation failed: {}", errors);
-    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+    return error(
+        HttpStatus.BAD_REQUEST, request, "Validation failed", fieldErrorCode(fieldErrors), errors);
   }
 
   @ExceptionHandler(IllegalArgumentException.class)
@@ -120,61 +79,74 @@ public class ExceptionConfig {
     // treat IllegalArgumentException thrown by validators as a bad request with
     // structured body to preserve existing integration test expectations
     log.debug("Illegal argument (validation) failed: {}", ex.getMessage());
-
-    Map<String, Object> body = new LinkedHashMap<>();
-    String timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
-    body.put("timestamp", timestamp);
-    body.put("status", HttpStatus.BAD_REQUEST.value());
-    body.put("path", request == null ? null : request.getRequestURI());
-    body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
-    body.put("message", ex.getMessage());
-    String traceId = MDC.get("traceId");
-    if (traceId == null || traceId.isBlank()) {
-      traceId = UUID.randomUUID().toString();
-    }
-    body.put("traceId", traceId);
-
-    String msg = ex.getMessage() == null ? "" : ex.getMessage().toLowerCase();
-    String errorCode = "TRADE_REJECTED";
-    if (msg.contains("version")) {
-      errorCode = "VERSION_TOO_LOW";
-    } else if (msg.contains("maturity")) {
-      errorCode = "MATURITY_PAST";
-    }
-    body.put("errorCode", errorCode);
-
-    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+    return error(
+        HttpStatus.BAD_REQUEST,
+        request,
+        ex.getMessage(),
+        TradeErrorCode.fromMessage(ex.getMessage()),
+        null);
   }
 
-  @ExceptionHandler(com.trademart.tradestore.exception.TradeRejectedException.class)
+  @ExceptionHandler(TradeRejectedException.class)
   public ResponseEntity<Object> handleRejected(
-      com.trademart.tradestore.exception.TradeRejectedException ex, HttpServletRequest request) {
+      TradeRejectedException ex, HttpServletRequest request) {
     log.debug("Trade rejected: {}", ex.getMessage());
+    return error(HttpStatus.BAD_REQUEST, request, ex.getMessage(), ex.getErrorCode(), null);
+  }
 
-    Map<String, Object> body = new LinkedHashMap<>();
-    String timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
-    body.put("timestamp", timestamp);
-    body.put("status", HttpStatus.BAD_REQUEST.value());
-    body.put("path", request.getRequestURI());
-    body.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
-    body.put("message", ex.getMessage());
-    String traceId = MDC.get("traceId");
-    if (traceId == null || traceId.isBlank()) {
-      traceId = UUID.randomUUID().toString();
+  private static ResponseEntity<Object> error(
+      HttpStatus status,
+      HttpServletRequest request,
+      String message,
+      TradeErrorCode errorCode,
+      List<Map<String, String>> errors) {
+    TradeErrorResponse body =
+        new TradeErrorResponse(
+            timestamp(),
+            status.value(),
+            request == null ? null : request.getRequestURI(),
+            status.getReasonPhrase(),
+            message,
+            traceId(),
+            errorCode,
+            errors);
+    return ResponseEntity.status(status).body(body);
+  }
+
+  /** Same mapping as for messages: a version field error wins over a maturity one. */
+  private static TradeErrorCode fieldErrorCode(List<FieldError> fieldErrors) {
+    TradeErrorCode code = TradeErrorCode.TRADE_REJECTED;
+    for (FieldError f : fieldErrors) {
+      if ("version".equals(f.getField())) {
+        return TradeErrorCode.VERSION_TOO_LOW;
+      }
+      if ("maturityDate".equals(f.getField())) {
+        code = TradeErrorCode.MATURITY_PAST;
+      }
     }
-    body.put("traceId", traceId);
+    return code;
+  }
 
-    // provide a machine-readable error code for clients (same mapping as validation
-    // handler)
-    String msg = ex.getMessage() == null ? "" : ex.getMessage().toLowerCase();
-    String errorCode = "TRADE_REJECTED";
-    if (msg.contains("version")) {
-      errorCode = "VERSION_TOO_LOW";
-    } else if (msg.contains("maturity")) {
-      errorCode = "MATURITY_PAST";
+  /** Current UTC time to the millisecond, formatted once per millisecond. */
+  static String timestamp() {
+    long now = System.currentTimeMillis();
+    Timestamp last = lastTimestamp;
+    if (last.epochMilli() != now) {
+      last = new Timestamp(now, TIMESTAMP.format(Instant.ofEpochMilli(now)));
+      lastTimestamp = last;
     }
-    body.put("errorCode", errorCode);
+    return last.text();
+  }
 
-    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+  /** The request's trace id, or a random version-4 UUID drawn from ThreadLocalRandom. */
+  static String traceId() {
+    String traceId = MDC.get("traceId");
+    if (traceId != null && !traceId.isBlank()) {
+      return traceId;
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long msb = (random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L;
+    long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    return new UUID(msb, lsb).toString();
   }
 }
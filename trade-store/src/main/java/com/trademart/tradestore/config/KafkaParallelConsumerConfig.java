@@ -0,0 +1,39 @@
+package com.trademart.tradestore.config;
+
+import com.trademart.tradestore.streaming.KafkaParallelTradeConsumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
+
+/**
+ * Container factory for {@link KafkaParallelTradeConsumer}: batch delivery, no container-managed
+ * commits (the consumer commits completed offsets itself), periodic idle events so progress is
+ * committed while the topic is quiet, and the consumer as rebalance listener so revoked partitions
+ * are drained before they are handed over.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "parallel")
+public class KafkaParallelConsumerConfig {
+
+  @Bean
+  public ConcurrentKafkaListenerContainerFactory<Object, Object>
+      parallelTradeListenerContainerFactory(
+          ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+          ConsumerFactory<Object, Object> consumerFactory,
+          KafkaParallelTradeConsumer consumer,
+          @Value("${kafka.consumer.parallel.idle-commit-ms:1000}") long idleCommitMs) {
+    ConcurrentKafkaListenerContainerFactory<Object, Object> factory =
+        new ConcurrentKafkaListenerContainerFactory<>();
+    configurer.configure(factory, consumerFactory);
+    factory.setBatchListener(true);
+    factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+    factory.getContainerProperties().setIdleEventInterval(idleCommitMs);
+    factory.getContainerProperties().setConsumerRebalanceListener(consumer);
+    return factory;
+  }
+}
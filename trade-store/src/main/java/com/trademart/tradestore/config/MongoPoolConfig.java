@@ -0,0 +1,28 @@
+package com.trademart.tradestore.config;
+
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caps the Mongo driver connection pool when {@code trade.mongo.max-pool-size} is set (the {@code
+ * virtual} profile does). With virtual threads the pool, not the request thread count, bounds how
+ * many history writes hit Mongo at once; a caller that waits longer than {@code
+ * trade.mongo.max-wait-ms} fails instead of queueing indefinitely.
+ */
+@Configuration
+@ConditionalOnProperty(name = "trade.mongo.max-pool-size")
+public class MongoPoolConfig {
+
+  @Bean
+  public MongoClientSettingsBuilderCustomizer tradeMongoPoolCustomizer(
+      @Value("${trade.mongo.max-pool-size}") int maxPoolSize,
+      @Value("${trade.mongo.max-wait-ms:2000}") long maxWaitMs) {
+    return settings ->
+        settings.applyToConnectionPoolSettings(
+            pool -> pool.maxSize(maxPoolSize).maxWaitTime(maxWaitMs, TimeUnit.MILLISECONDS));
+  }
+}
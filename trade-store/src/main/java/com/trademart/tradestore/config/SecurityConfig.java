@@ -21,10 +21,10 @@ public class SecurityConfig {
     http.csrf().disable();
 
     // Basic resource-server config: require JWT auth and scope 'trade.ingest' for
-    // POST /trades
+    // POST /trades and POST /trades/batch
     http.authorizeHttpRequests(
         auth ->
-            auth.requestMatchers("/trades")
+            auth.requestMatchers("/trades", "/trades/batch")
                 .hasAuthority("SCOPE_trade.ingest")
                 .anyRequest()
                 .permitAll());
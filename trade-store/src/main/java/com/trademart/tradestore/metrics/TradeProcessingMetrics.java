@@ -3,18 +3,28 @@ package com.trademart.tradestore.metrics;
 import com.trademart.tradestore.streaming.TradeProcessingState;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.stereotype.Component;
 
 /**
  * Binds an application-level gauge exposing the number of in-flight/pending trade messages. This
  * metric can be consumed by an autoscaler (KEDA or a Custom Metrics HPA) to scale replicas up when
  * there is backlog and down when backlog is 0.
+ *
+ * <p>When the lag monitor is enabled ({@code kafka.lag.enabled}), the consumer group's real
+ * backlog is exported as well: lag per partition and in total, the processing rate and the
+ * estimated time to drain. Every replica reports the same group-wide values, so aggregate them
+ * with {@code max}, not {@code sum}.
  */
 @Component
 public class TradeProcessingMetrics implements MeterBinder {
 
   private final TradeProcessingState state;
+  private volatile MultiGauge partitionLag;
 
   public TradeProcessingMetrics(TradeProcessingState state) {
     this.state = state;
@@ -25,5 +35,37 @@ public class TradeProcessingMetrics implements MeterBinder {
     Gauge.builder("trade_processor_pending_messages", state, TradeProcessingState::getPending)
         .description("Number of trade messages currently pending processing in this instance")
         .register(registry);
+    Gauge.builder("trade_consumer_lag_total", state, TradeProcessingState::getTotalLag)
+        .description("Messages on the trades topic not yet committed by the consumer group")
+        .register(registry);
+    Gauge.builder(
+            "trade_consumer_processing_rate", state, TradeProcessingState::getProcessingRate)
+        .description("Smoothed rate at which the consumer group commits messages, per second")
+        .register(registry);
+    Gauge.builder(
+            "trade_consumer_time_to_drain_seconds",
+            state,
+            TradeProcessingState::getTimeToDrainSeconds)
+        .description("Current lag divided by the smoothed processing rate")
+        .register(registry);
+    partitionLag =
+        MultiGauge.builder("trade_consumer_lag")
+            .description("Consumer group lag per partition of the trades topic")
+            .register(registry);
+  }
+
+  /** Re-register the per-partition lag gauges after the partition set may have changed. */
+  public void refreshPartitionLag() {
+    MultiGauge gauge = partitionLag;
+    if (gauge == null) return;
+    List<MultiGauge.Row<?>> rows = new ArrayList<>();
+    for (Integer partition : state.getPartitionLags().keySet()) {
+      rows.add(
+          MultiGauge.Row.of(
+              Tags.of("partition", String.valueOf(partition)),
+              state,
+              s -> s.getPartitionLag(partition)));
+    }
+    gauge.register(rows, true);
   }
 }
@@ -0,0 +1,83 @@
+package com.trademart.tradestore.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response body of {@code POST /trades/batch}: counts for the whole request plus the individual
+ * results of trades that were not accepted (capped so the response stays bounded).
+ */
+public class TradeBatchSummary {
+
+  private long received;
+  private long accepted;
+  private long duplicates;
+  private long rejected;
+  private long failed;
+  private boolean itemsTruncated;
+  private String error;
+  private final List<TradeIngestResult> items = new ArrayList<>();
+  private final int maxItems;
+
+  public TradeBatchSummary(int maxItems) {
+    this.maxItems = maxItems;
+  }
+
+  public void record(TradeIngestResult result) {
+    received++;
+    switch (result.getStatus()) {
+      case ACCEPTED -> {
+        accepted++;
+        if (result.isDuplicate()) duplicates++;
+      }
+      case REJECTED -> rejected++;
+      case FAILED -> failed++;
+    }
+    if (!result.isAccepted()) {
+      if (items.size() < maxItems) {
+        items.add(result);
+      } else {
+        itemsTruncated = true;
+      }
+    }
+  }
+
+  public long getReceived() {
+    return received;
+  }
+
+  public long getAccepted() {
+    return accepted;
+  }
+
+  /** Accepted trades that were replays of already applied requests; included in accepted. */
+  public long getDuplicates() {
+    return duplicates;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  public long getFailed() {
+    return failed;
+  }
+
+  /** True when more trades were rejected/failed than are listed in {@link #getItems()}. */
+  public boolean isItemsTruncated() {
+    return itemsTruncated;
+  }
+
+  /** Set when the body could not be read to the end; counts cover what was read before that. */
+  public String getError() {
+    return error;
+  }
+
+  public void setError(String error) {
+    this.error = error;
+  }
+
+  public List<TradeIngestResult> getItems() {
+    return items;
+  }
+}
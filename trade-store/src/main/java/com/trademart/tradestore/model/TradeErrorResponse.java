@@ -0,0 +1,20 @@
+package com.trademart.tradestore.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.trademart.tradestore.exception.TradeErrorCode;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Error body returned by {@code ExceptionConfig}. Serialized directly by Jackson in component
+ * order; {@code errors} is only present for request-body validation failures.
+ */
+public record TradeErrorResponse(
+    String timestamp,
+    int status,
+    String path,
+    String error,
+    String message,
+    String traceId,
+    TradeErrorCode errorCode,
+    @JsonInclude(JsonInclude.Include.NON_NULL) List<Map<String, String>> errors) {}
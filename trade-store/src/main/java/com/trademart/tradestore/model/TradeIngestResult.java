@@ -0,0 +1,154 @@
+package com.trademart.tradestore.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.trademart.tradestore.exception.TradeRejectedException;
+import com.trademart.tradestore.exception.TradeValidationException;
+
+/**
+ * Outcome of ingesting one trade as part of a batch. Batch callers (Kafka batch listener, bulk
+ * REST endpoint) get one result per submitted trade so a single bad trade can be reported without
+ * failing the rest of the batch.
+ */
+public class TradeIngestResult {
+
+  public enum Status {
+    ACCEPTED,
+    REJECTED,
+    FAILED
+  }
+
+  private final int index;
+  private final String tradeId;
+  private final Integer version;
+  private final Status status;
+  private final String message;
+  private final Long ingestSequence;
+  private final TradeEntity trade;
+  private final RuntimeException error;
+  private final boolean duplicate;
+
+  private TradeIngestResult(
+      int index,
+      String tradeId,
+      Integer version,
+      Status status,
+      String message,
+      Long ingestSequence,
+      TradeEntity trade,
+      RuntimeException error,
+      boolean duplicate) {
+    this.index = index;
+    this.tradeId = tradeId;
+    this.version = version;
+    this.status = status;
+    this.message = message;
+    this.ingestSequence = ingestSequence;
+    this.trade = trade;
+    this.error = error;
+    this.duplicate = duplicate;
+  }
+
+  public static TradeIngestResult accepted(int index, TradeEntity saved) {
+    return new TradeIngestResult(
+        index,
+        saved.getTradeId(),
+        saved.getVersion(),
+        Status.ACCEPTED,
+        null,
+        saved.getIngestSequence(),
+        saved,
+        null,
+        false);
+  }
+
+  /**
+   * Acknowledgement of an exact replay of a request that was already applied: accepted, with
+   * nothing written again.
+   */
+  public static TradeIngestResult duplicate(int index, TradeEntity trade) {
+    return new TradeIngestResult(
+        index,
+        trade.getTradeId(),
+        trade.getVersion(),
+        Status.ACCEPTED,
+        "duplicate",
+        null,
+        trade,
+        null,
+        true);
+  }
+
+  /**
+   * Classify a failure: business/validation rejections become {@link Status#REJECTED}, anything
+   * else (DB down, Mongo down, ...) is {@link Status#FAILED} and may be retried.
+   */
+  public static TradeIngestResult fromException(int index, TradeDto dto, RuntimeException ex) {
+    boolean rejected =
+        ex instanceof TradeRejectedException
+            || ex instanceof TradeValidationException
+            || ex instanceof IllegalArgumentException;
+    return new TradeIngestResult(
+        index,
+        dto == null ? null : dto.getTradeId(),
+        dto == null ? null : dto.getVersion(),
+        rejected ? Status.REJECTED : Status.FAILED,
+        ex.getMessage(),
+        null,
+        null,
+        ex,
+        false);
+  }
+
+  /** Copy of this result re-addressed to {@code newIndex}, e.g. its position in a whole request. */
+  public TradeIngestResult withIndex(int newIndex) {
+    return new TradeIngestResult(
+        newIndex, tradeId, version, status, message, ingestSequence, trade, error, duplicate);
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public String getTradeId() {
+    return tradeId;
+  }
+
+  public Integer getVersion() {
+    return version;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public Long getIngestSequence() {
+    return ingestSequence;
+  }
+
+  @JsonIgnore
+  public boolean isAccepted() {
+    return status == Status.ACCEPTED;
+  }
+
+  /** True when the trade was acknowledged as a replay of an already applied request. */
+  @JsonIgnore
+  public boolean isDuplicate() {
+    return duplicate;
+  }
+
+  /** Persisted row for accepted trades (the submitted trade for duplicates), null otherwise. */
+  @JsonIgnore
+  public TradeEntity getTrade() {
+    return trade;
+  }
+
+  /** Original exception for rejected/failed trades so callers can rethrow it unchanged. */
+  @JsonIgnore
+  public RuntimeException getError() {
+    return error;
+  }
+}
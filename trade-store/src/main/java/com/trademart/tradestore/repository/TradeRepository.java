@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 public interface TradeRepository extends JpaRepository<TradeEntity, Long>, TradeRepositoryCustom {
   Optional<TradeEntity> findByTradeId(String tradeId);
 
+  java.util.List<TradeEntity> findByTradeIdIn(java.util.Collection<String> tradeIds);
+
   @org.springframework.data.jpa.repository.Query(
       "SELECT MAX(t.version) FROM TradeEntity t WHERE t.tradeId = :tradeId")
   Integer findMaxVersionByTradeId(
@@ -3,13 +3,22 @@ package com.trademart.tradestore.repository;
 import com.trademart.tradestore.model.TradeEntity;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 public interface TradeRepositoryCustom {
+
+  /**
+   * Rows per multi-row upsert statement; 7 binds per row keeps us far below the driver's bind
+   * limit. Callers that need all-or-nothing semantics should not pass more rows than this.
+   */
+  int MAX_ROWS_PER_STATEMENT = 500;
+
   /**
    * Perform an atomic upsert of a trade row using Postgres ON CONFLICT DO UPDATE. Returns the
-   * persisted TradeEntity after the operation.
+   * persisted row after the operation and whether the incoming version won. The ingest sequence
+   * identifies the incoming write, so it must be set.
    */
-  TradeEntity upsertTrade(
+  TradeUpsertResult upsertTrade(
       String tradeId,
       Integer version,
       BigDecimal price,
@@ -17,4 +26,12 @@ public interface TradeRepositoryCustom {
       LocalDate maturityDate,
       Long ingestSequence,
       String status);
+
+  /**
+   * Multi-row variant of {@link #upsertTrade}: upserts all rows with the same highest-version-wins
+   * semantics using as few statements as possible and returns the persisted state of every row.
+   * The tradeIds within one call must be distinct (Postgres cannot update the same row twice in a
+   * single ON CONFLICT statement). Each row must carry its ingest sequence.
+   */
+  List<TradeUpsertResult> upsertTrades(List<TradeEntity> trades);
 }
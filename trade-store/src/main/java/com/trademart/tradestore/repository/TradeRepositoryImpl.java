@@ -1,31 +1,119 @@
 package com.trademart.tradestore.repository;
 
 import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeStatus;
 import com.trademart.tradestore.service.TradeValidationService;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionOperations;
 
 @Repository
 public class TradeRepositoryImpl implements TradeRepositoryCustom {
 
+  private static final String INSERT_PREFIX =
+      "INSERT INTO trades (trade_id, version, price, quantity, maturity_date, "
+          + "status, ingest_sequence, created_at, updated_at) VALUES ";
+
+  private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, now(), now())";
+
+  private static final String ON_CONFLICT_HIGHEST_VERSION_WINS =
+      "ON CONFLICT (trade_id) DO UPDATE SET "
+          + "version = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.version "
+          + "ELSE trades.version END, "
+          + "price = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.price "
+          + "ELSE trades.price END, "
+          + "quantity = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.quantity "
+          + "ELSE trades.quantity END, "
+          + "maturity_date = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.maturity_date "
+          + "ELSE trades.maturity_date END, "
+          + "status = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.status "
+          + "ELSE trades.status END, "
+          + "ingest_sequence = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.ingest_sequence "
+          + "ELSE trades.ingest_sequence END, "
+          + "updated_at = CASE WHEN EXCLUDED.version >= trades.version THEN now() "
+          + "ELSE trades.updated_at END";
+
+  private static final String RETURNED_COLUMNS =
+      " RETURNING id, trade_id, version, price, quantity, maturity_date, status, created_at, "
+          + "updated_at, opt_lock, ingest_sequence";
+
+  // xmax is 0 only for a freshly inserted tuple, an updated one carries the updating transaction
+  private static final String RETURNING_COLUMNS = RETURNED_COLUMNS + ", (xmax = 0) AS inserted";
+
+  // Partitioned layout (db/partitioned): trade_id is only unique per maturity month, so ON CONFLICT
+  // (trade_id) is unavailable. Writers of one trade are serialized with a transaction-scoped
+  // advisory lock on its id, then read, update or insert under that lock. A version that moves the
+  // maturity date moves the row to the other partition within the same UPDATE.
+  static final String LOCK_TRADE_SQL = "SELECT pg_advisory_xact_lock(hashtext(?))";
+
+  // batches take their locks in one fixed order so two batches cannot deadlock each other
+  static final String LOCK_TRADES_SQL =
+      "SELECT pg_advisory_xact_lock(k) FROM "
+          + "(SELECT DISTINCT hashtext(t) AS k FROM unnest(?::text[]) t ORDER BY k) keys";
+
+  static final String FIND_FOR_UPSERT_SQL =
+      "SELECT id, trade_id, version, price, quantity, maturity_date, status, created_at, "
+          + "updated_at, opt_lock, ingest_sequence FROM trades WHERE trade_id = ?";
+
+  static final String UPDATE_PARTITIONED_SQL =
+      "UPDATE trades SET version = ?, price = ?, quantity = ?, maturity_date = ?, status = ?, "
+          + "ingest_sequence = ?, updated_at = now() WHERE id = ? AND maturity_date = ?"
+          + RETURNED_COLUMNS;
+
+  static final String INSERT_PARTITIONED_SQL =
+      INSERT_PREFIX + ROW_PLACEHOLDERS + RETURNED_COLUMNS;
+
+  static final RowMapper<TradeEntity> TRADE_ROW_MAPPER =
+      (rs, rowNum) -> {
+        TradeEntity t = new TradeEntity();
+        t.setId(rs.getLong("id"));
+        t.setTradeId(rs.getString("trade_id"));
+        t.setVersion(rs.getInt("version"));
+        t.setPrice(rs.getBigDecimal("price"));
+        t.setQuantity(rs.getObject("quantity", Integer.class));
+        t.setMaturityDate(rs.getObject("maturity_date", LocalDate.class));
+        String status = rs.getString("status");
+        t.setStatus(status == null ? null : TradeStatus.valueOf(status));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        t.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        t.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
+        t.setOptLock(rs.getObject("opt_lock", Integer.class));
+        t.setIngestSequence(rs.getObject("ingest_sequence", Long.class));
+        return t;
+      };
+
   private final JdbcTemplate jdbcTemplate;
   private final TradeValidationService validator;
+  private final TransactionOperations transactions;
+  private final boolean partitioned;
 
-  @PersistenceContext private EntityManager em;
-
+  @Autowired
   public TradeRepositoryImpl(
-      @Autowired JdbcTemplate jdbcTemplate, @Autowired TradeValidationService validator) {
+      JdbcTemplate jdbcTemplate,
+      TradeValidationService validator,
+      TransactionOperations transactions,
+      @Value("${trade.storage.layout:flat}") String layout) {
     this.jdbcTemplate = jdbcTemplate;
     this.validator = validator;
+    this.transactions = transactions;
+    this.partitioned = "partitioned".equalsIgnoreCase(layout);
   }
 
   @Override
-  public TradeEntity upsertTrade(
+  public TradeUpsertResult upsertTrade(
       String tradeId,
       Integer version,
       BigDecimal price,
@@ -35,38 +123,154 @@ public class TradeRepositoryImpl implements TradeRepositoryCustom {
       String status) {
     // Validate incoming payload before touching the DB
     validator.validateForIngest(tradeId, version, maturityDate);
+    if (partitioned) {
+      TradeEntity t = new TradeEntity();
+      t.setTradeId(tradeId);
+      t.setVersion(version);
+      t.setPrice(price);
+      t.setQuantity(quantity);
+      t.setMaturityDate(maturityDate);
+      t.setStatus(status == null ? null : TradeStatus.valueOf(status));
+      t.setIngestSequence(ingestSequence);
+      return transactions.execute(
+          s -> {
+            jdbcTemplate.query(LOCK_TRADE_SQL, (RowCallbackHandler) rs -> {}, tradeId);
+            return upsertLocked(t);
+          });
+    }
 
     // Use a conditional update so that only an incoming row with a version >=
     // existing.version
     // overwrites the stored values. This guarantees the highest version wins under
     // concurrency.
     final String sql =
-        "INSERT INTO trades (trade_id, version, price, quantity, maturity_date, "
-            + "status, ingest_sequence, created_at, updated_at) "
-            + "VALUES (?, ?, ?, ?, ?, ?, ?, now(), now()) "
-            + "ON CONFLICT (trade_id) DO UPDATE SET "
-            + "version = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.version "
-            + "ELSE trades.version END, "
-            + "price = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.price "
-            + "ELSE trades.price END, "
-            + "quantity = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.quantity "
-            + "ELSE trades.quantity END, "
-            + "maturity_date = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.maturity_date "
-            + "ELSE trades.maturity_date END, "
-            + "status = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.status "
-            + "ELSE trades.status END, "
-            + "ingest_sequence = CASE WHEN EXCLUDED.version >= trades.version THEN EXCLUDED.ingest_sequence "
-            + "ELSE trades.ingest_sequence END, "
-            + "updated_at = CASE WHEN EXCLUDED.version >= trades.version THEN now() "
-            + "ELSE trades.updated_at END;";
-
-    jdbcTemplate.update(
-        sql, tradeId, version, price, quantity, maturityDate, status, ingestSequence);
-
-    // Fetch the managed entity from EntityManager to return a TradeEntity
-    var q =
-        em.createQuery("SELECT t FROM TradeEntity t WHERE t.tradeId = :tradeId", TradeEntity.class);
-    q.setParameter("tradeId", tradeId);
-    return q.getSingleResult();
+        INSERT_PREFIX
+            + ROW_PLACEHOLDERS
+            + " "
+            + ON_CONFLICT_HIGHEST_VERSION_WINS
+            + RETURNING_COLUMNS;
+
+    // RETURNING gives the post-upsert row in the same round trip: the stored row wins a
+    // conflict with a lower version, so the incoming write applied iff its sequence is on the row
+    return jdbcTemplate.queryForObject(
+        sql,
+        (rs, rowNum) -> {
+          TradeEntity t = TRADE_ROW_MAPPER.mapRow(rs, rowNum);
+          boolean applied = Objects.equals(t.getIngestSequence(), ingestSequence);
+          return new TradeUpsertResult(t, applied, rs.getBoolean("inserted"));
+        },
+        tradeId,
+        version,
+        price,
+        quantity,
+        maturityDate,
+        status,
+        ingestSequence);
+  }
+
+  @Override
+  public List<TradeUpsertResult> upsertTrades(List<TradeEntity> trades) {
+    if (trades == null || trades.isEmpty()) {
+      return List.of();
+    }
+    // Validate the whole batch before touching the DB so a bad row never leaves a partial write
+    for (TradeEntity t : trades) {
+      validator.validateForIngest(t.getTradeId(), t.getVersion(), t.getMaturityDate());
+    }
+
+    if (partitioned) {
+      return transactions.execute(
+          s -> {
+            String[] ids = trades.stream().map(TradeEntity::getTradeId).toArray(String[]::new);
+            jdbcTemplate.query(
+                con -> {
+                  var ps = con.prepareStatement(LOCK_TRADES_SQL);
+                  ps.setArray(1, con.createArrayOf("text", ids));
+                  return ps;
+                },
+                (RowCallbackHandler) rs -> {});
+            List<TradeUpsertResult> persisted = new ArrayList<>(trades.size());
+            for (TradeEntity t : trades) persisted.add(upsertLocked(t));
+            return persisted;
+          });
+    }
+
+    Map<String, Long> incomingSequence = new HashMap<>();
+    for (TradeEntity t : trades) {
+      incomingSequence.put(t.getTradeId(), t.getIngestSequence());
+    }
+    RowMapper<TradeUpsertResult> mapper =
+        (rs, rowNum) -> {
+          TradeEntity t = TRADE_ROW_MAPPER.mapRow(rs, rowNum);
+          boolean applied =
+              Objects.equals(t.getIngestSequence(), incomingSequence.get(t.getTradeId()));
+          return new TradeUpsertResult(t, applied, rs.getBoolean("inserted"));
+        };
+
+    List<TradeUpsertResult> persisted = new ArrayList<>(trades.size());
+    for (int from = 0; from < trades.size(); from += MAX_ROWS_PER_STATEMENT) {
+      List<TradeEntity> chunk =
+          trades.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, trades.size()));
+      StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+      Object[] args = new Object[chunk.size() * 7];
+      int a = 0;
+      for (int i = 0; i < chunk.size(); i++) {
+        TradeEntity t = chunk.get(i);
+        if (i > 0) sql.append(", ");
+        sql.append(ROW_PLACEHOLDERS);
+        args[a++] = t.getTradeId();
+        args[a++] = t.getVersion();
+        args[a++] = t.getPrice();
+        args[a++] = t.getQuantity();
+        args[a++] = t.getMaturityDate();
+        args[a++] = t.getStatus() == null ? null : t.getStatus().name();
+        args[a++] = t.getIngestSequence();
+      }
+      sql.append(' ').append(ON_CONFLICT_HIGHEST_VERSION_WINS).append(RETURNING_COLUMNS);
+      // RETURNING yields one row per input row (inserted or conflicting) with the post-upsert state
+      persisted.addAll(jdbcTemplate.query(sql.toString(), mapper, args));
+    }
+    return persisted;
+  }
+
+  /**
+   * Highest-version-wins upsert of one trade in the partitioned layout. The caller holds the
+   * trade's advisory lock, so the row cannot change between the read and the write.
+   */
+  private TradeUpsertResult upsertLocked(TradeEntity in) {
+    String status = in.getStatus() == null ? null : in.getStatus().name();
+    List<TradeEntity> existing =
+        jdbcTemplate.query(FIND_FOR_UPSERT_SQL, TRADE_ROW_MAPPER, in.getTradeId());
+    if (existing.isEmpty()) {
+      TradeEntity inserted =
+          jdbcTemplate.queryForObject(
+              INSERT_PARTITIONED_SQL,
+              TRADE_ROW_MAPPER,
+              in.getTradeId(),
+              in.getVersion(),
+              in.getPrice(),
+              in.getQuantity(),
+              in.getMaturityDate(),
+              status,
+              in.getIngestSequence());
+      return new TradeUpsertResult(inserted, true, true);
+    }
+    TradeEntity current = existing.get(0);
+    if (in.getVersion() < current.getVersion()) {
+      return new TradeUpsertResult(current, false, false);
+    }
+    TradeEntity updated =
+        jdbcTemplate.queryForObject(
+            UPDATE_PARTITIONED_SQL,
+            TRADE_ROW_MAPPER,
+            in.getVersion(),
+            in.getPrice(),
+            in.getQuantity(),
+            in.getMaturityDate(),
+            status,
+            in.getIngestSequence(),
+            current.getId(),
+            current.getMaturityDate());
+    return new TradeUpsertResult(updated, true, false);
   }
 }
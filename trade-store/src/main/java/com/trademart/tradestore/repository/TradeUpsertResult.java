@@ -0,0 +1,35 @@
+package com.trademart.tradestore.repository;
+
+import com.trademart.tradestore.model.TradeEntity;
+
+/**
+ * Row state returned by an upsert together with what the upsert did to it. {@code applied} is
+ * false when a stored higher version won and the incoming trade was discarded; {@code trade} then
+ * holds the winning row.
+ */
+public class TradeUpsertResult {
+
+  private final TradeEntity trade;
+  private final boolean applied;
+  private final boolean inserted;
+
+  public TradeUpsertResult(TradeEntity trade, boolean applied, boolean inserted) {
+    this.trade = trade;
+    this.applied = applied;
+    this.inserted = inserted;
+  }
+
+  public TradeEntity getTrade() {
+    return trade;
+  }
+
+  /** True when the incoming version won (inserted, or >= the stored version). */
+  public boolean isApplied() {
+    return applied;
+  }
+
+  /** True when the row did not exist before this upsert. */
+  public boolean isInserted() {
+    return inserted;
+  }
+}
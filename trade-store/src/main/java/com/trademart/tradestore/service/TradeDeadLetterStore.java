@@ -0,0 +1,17 @@
+package com.trademart.tradestore.service;
+
+import com.trademart.tradestore.model.TradeDto;
+
+/**
+ * Parking place for acknowledged trades that can never be applied, so whatever queued them can
+ * move on. Entries land in trade-repair's {@code failed_trades} collection, where they can be
+ * inspected, fixed and resubmitted.
+ */
+public interface TradeDeadLetterStore {
+
+  /** Park a trade that the database refuses (or keeps failing on) with the reason it failed. */
+  void deadLetter(TradeDto trade, String reason);
+
+  /** Park a stored record that could not even be decoded; the payload is kept as Base64. */
+  void deadLetterUnreadable(byte[] record, String reason);
+}
@@ -0,0 +1,65 @@
+package com.trademart.tradestore.service;
+
+import com.trademart.tradestore.model.TradeDto;
+import java.math.BigDecimal;
+
+/**
+ * Idempotency key of one ingest request: the tradeId, the version and a 64-bit hash of the rest of
+ * the payload. Two requests with the same key carry the same trade, so the second one is a replay.
+ * A different price or maturity under the same version yields a different key and goes through the
+ * normal (rejecting) version check instead.
+ */
+public record TradeDedupKey(String tradeId, int version, long payloadHash) {
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /** Key of {@code dto}, or null when it has no tradeId or version to key on. */
+  public static TradeDedupKey of(TradeDto dto) {
+    if (dto == null || dto.getTradeId() == null || dto.getVersion() == null) {
+      return null;
+    }
+    return new TradeDedupKey(dto.getTradeId(), dto.getVersion(), payloadHash(dto));
+  }
+
+  /**
+   * Hash of the price and maturity date. The price is hashed in its canonical form, so {@code
+   * 100.5} and {@code 100.50} are the same payload.
+   */
+  static long payloadHash(TradeDto dto) {
+    long h = FNV_OFFSET;
+    BigDecimal price = dto.getPrice();
+    if (price != null) {
+      BigDecimal canonical = price.stripTrailingZeros();
+      h = mix(h, canonical.unscaledValue().hashCode());
+      h = mix(h, canonical.scale());
+    }
+    h = mix(h, dto.getMaturityDate() == null ? Long.MIN_VALUE : dto.getMaturityDate().toEpochDay());
+    return fmix64(h);
+  }
+
+  /** Hash of the whole key, for probabilistic filters. */
+  public long hash64() {
+    long h = FNV_OFFSET;
+    for (int i = 0; i < tradeId.length(); i++) {
+      h = mix(h, tradeId.charAt(i));
+    }
+    h = mix(h, version);
+    h = mix(h, payloadHash);
+    return fmix64(h);
+  }
+
+  private static long mix(long h, long value) {
+    return (h ^ value) * FNV_PRIME;
+  }
+
+  // MurmurHash3 finaliser: spreads FNV's weak high bits over the whole word
+  private static long fmix64(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9a34f3b2b9bL;
+    h ^= h >>> 33;
+    return h;
+  }
+}
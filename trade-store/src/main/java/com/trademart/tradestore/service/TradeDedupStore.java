@@ -0,0 +1,98 @@
+package com.trademart.tradestore.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Idempotency keys of applied ingest requests, kept for a bounded window.
+ *
+ * <p>The authoritative record is a row per key written by {@link #claim} in the same transaction as
+ * the trades upsert, so a key exists exactly when its write committed. {@link #isKnownDuplicate}
+ * first asks an in-process probabilistic filter and only queries the table when the filter says
+ * the key may have been seen; the filter never answers "duplicate" on its own.
+ */
+public interface TradeDedupStore {
+
+  /** False for the {@link #disabled()} store; callers then skip key handling altogether. */
+  default boolean isEnabled() {
+    return true;
+  }
+
+  /**
+   * True when {@code key} is recorded. Keys the in-process filter has never seen are reported as
+   * not recorded without a query; a replay of a key written by another replica is then caught by
+   * {@link #claim} instead.
+   */
+  boolean isKnownDuplicate(TradeDedupKey key);
+
+  /** The subset of {@code keys} reported by {@link #isKnownDuplicate}, in one query. */
+  Set<TradeDedupKey> knownDuplicates(Collection<TradeDedupKey> keys);
+
+  /** True when {@code key} is recorded, always asking the table. */
+  boolean isRecorded(TradeDedupKey key);
+
+  /** The subset of {@code keys} that is recorded, always asking the table, in one query. */
+  Set<TradeDedupKey> recorded(Collection<TradeDedupKey> keys);
+
+  /**
+   * Record {@code key}; false when it was already recorded. Must run in the transaction of the
+   * write it stands for, so a rollback releases it again.
+   */
+  boolean claim(TradeDedupKey key);
+
+  /** Record every key in one statement and return the ones that were not recorded yet. */
+  Set<TradeDedupKey> claimAll(Collection<TradeDedupKey> keys);
+
+  /** Forget claimed keys whose write did not take effect, so a retry is not taken for a replay. */
+  void release(Collection<TradeDedupKey> keys);
+
+  /** Store that records nothing; every request is processed in full. */
+  static TradeDedupStore disabled() {
+    return DisabledTradeDedupStore.INSTANCE;
+  }
+
+  /** Shared no-op instance behind {@link #disabled()}. */
+  final class DisabledTradeDedupStore implements TradeDedupStore {
+    private static final DisabledTradeDedupStore INSTANCE = new DisabledTradeDedupStore();
+
+    private DisabledTradeDedupStore() {}
+
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public boolean isKnownDuplicate(TradeDedupKey key) {
+      return false;
+    }
+
+    @Override
+    public Set<TradeDedupKey> knownDuplicates(Collection<TradeDedupKey> keys) {
+      return Set.of();
+    }
+
+    @Override
+    public boolean isRecorded(TradeDedupKey key) {
+      return false;
+    }
+
+    @Override
+    public Set<TradeDedupKey> recorded(Collection<TradeDedupKey> keys) {
+      return Set.of();
+    }
+
+    @Override
+    public boolean claim(TradeDedupKey key) {
+      return true;
+    }
+
+    @Override
+    public Set<TradeDedupKey> claimAll(Collection<TradeDedupKey> keys) {
+      return Set.copyOf(keys);
+    }
+
+    @Override
+    public void release(Collection<TradeDedupKey> keys) {}
+  }
+}
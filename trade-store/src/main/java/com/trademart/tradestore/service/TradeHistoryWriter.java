@@ -0,0 +1,24 @@
+package com.trademart.tradestore.service;
+
+import com.trademart.tradestore.mongo.TradeHistory;
+import java.util.List;
+
+/**
+ * Sink for trade history documents. The implementation is chosen with {@code trade.history.mode}:
+ * {@code sync} (default) writes to Mongo on the caller thread, {@code async} hands documents to a
+ * journaled background writer and {@code outbox} stores them in the {@code trade_outbox} table.
+ */
+public interface TradeHistoryWriter {
+
+  void write(TradeHistory history);
+
+  void writeAll(List<TradeHistory> histories);
+
+  /**
+   * True when writes go to Postgres and must run in the same transaction as the trade upsert so
+   * that both commit or neither does.
+   */
+  default boolean participatesInTransaction() {
+    return false;
+  }
+}
@@ -0,0 +1,18 @@
+package com.trademart.tradestore.service;
+
+import com.trademart.tradestore.model.TradeDto;
+
+/**
+ * Local write-ahead journal for {@code POST /trades} in {@code trade.ingest.mode=journal}: a trade
+ * is acknowledged once it is in the journal, and a background flusher applies it to Postgres and
+ * Mongo afterwards.
+ */
+public interface TradeIngestJournal {
+
+  /**
+   * Run the checks that need no database, then journal {@code dto}. Returns false when the trade
+   * could not be journaled (backlog full, disk error, shutting down) and the caller must ingest it
+   * directly instead.
+   */
+  boolean append(TradeDto dto);
+}
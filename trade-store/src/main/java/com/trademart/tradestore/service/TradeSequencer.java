@@ -7,4 +7,16 @@ public interface TradeSequencer {
    * events.
    */
   long nextSequence();
+
+  /**
+   * Return {@code count} ingest sequence numbers in increasing order. Implementations should
+   * override this to fetch the whole range in a single round trip.
+   */
+  default long[] nextSequences(int count) {
+    long[] seqs = new long[count];
+    for (int i = 0; i < count; i++) {
+      seqs[i] = nextSequence();
+    }
+    return seqs;
+  }
 }
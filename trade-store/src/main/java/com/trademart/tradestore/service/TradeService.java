@@ -2,7 +2,16 @@ package com.trademart.tradestore.service;
 
 import com.trademart.tradestore.model.TradeDto;
 import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
+import java.util.List;
 
 public interface TradeService {
   TradeEntity createOrUpdateTrade(TradeDto dto);
+
+  /**
+   * Ingest a batch of trades with set-based persistence (one lookup, one sequence fetch, one
+   * multi-row upsert and one history bulk insert per batch). Returns one result per input trade,
+   * in input order; a rejected or failed trade never fails the rest of the batch.
+   */
+  List<TradeIngestResult> createOrUpdateTrades(List<TradeDto> dtos);
 }
@@ -0,0 +1,27 @@
+package com.trademart.tradestore.service;
+
+import com.trademart.tradestore.model.TradeStatus;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Local copy of the current row of each trade ({@code trade.state-store.enabled=true}), for reads
+ * that would otherwise be a Postgres round trip per request.
+ *
+ * <p>The copy is kept current by this process's writes and rebuilt from Postgres at startup, so it
+ * can lag writes made through other replicas. A trade it does not hold is not proof that the trade
+ * does not exist: callers fall back to the database on null.
+ */
+public interface TradeStateStore {
+
+  /** Current state of one trade. {@code price} has the column's scale of 4. */
+  record TradeState(
+      int version,
+      long ingestSequence,
+      TradeStatus status,
+      LocalDate maturityDate,
+      BigDecimal price) {}
+
+  /** Current state of {@code tradeId}, or null when the store does not hold it. */
+  TradeState get(String tradeId);
+}
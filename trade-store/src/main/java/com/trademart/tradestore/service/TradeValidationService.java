@@ -20,17 +20,17 @@ public class TradeValidationService {
 
   public void validateForIngest(String tradeId, Integer version, java.time.LocalDate maturityDate) {
     if (tradeId == null || tradeId.isBlank()) {
-      throw new TradeValidationException("tradeId is required");
+      throw TradeValidationException.tradeIdRequired();
     }
     if (version == null || version < 0) {
-      throw new TradeValidationException("version must be >= 0");
+      throw TradeValidationException.negativeVersion();
     }
     if (maturityDate != null) {
       ZonedDateTime nowUtc = ZonedDateTime.ofInstant(clockService.nowUtc(), ZoneId.of("UTC"));
       java.time.LocalDate todayUtc = nowUtc.toLocalDate();
       if (maturityDate.isBefore(todayUtc)) {
         // Message intentionally matches integration test and expiry module wording
-        throw new TradeValidationException("maturity date is in the past");
+        throw TradeValidationException.maturityPast();
       }
     }
   }
@@ -0,0 +1,46 @@
+package com.trademart.tradestore.service;
+
+import com.trademart.tradestore.model.TradeEntity;
+
+/**
+ * In-process memory of the highest trade version known to be committed per tradeId, used to
+ * reject stale versions without a database lookup.
+ *
+ * <p>Versions in the {@code trades} table only ever grow (highest version wins), so a version seen
+ * committed once is a lower bound for the stored version on every replica. The cache may
+ * therefore only say "provably stale" when the incoming version is below that bound; a miss or a
+ * version at or above it must fall through to the database.
+ */
+public interface TradeVersionCache {
+
+  /** True only when a higher version of {@code tradeId} is known to be committed. */
+  boolean isKnownStale(String tradeId, Integer version);
+
+  /** Remember that {@code version} of {@code tradeId} is committed (read from or written to DB). */
+  void recordCommitted(String tradeId, Integer version);
+
+  /** Remember a committed row; caches that track more than the version override this. */
+  default void recordCommitted(TradeEntity trade) {
+    recordCommitted(trade.getTradeId(), trade.getVersion());
+  }
+
+  /** Cache that knows nothing; every lookup falls through to the database. */
+  static TradeVersionCache disabled() {
+    return DisabledTradeVersionCache.INSTANCE;
+  }
+
+  /** Shared no-op instance behind {@link #disabled()}. */
+  final class DisabledTradeVersionCache implements TradeVersionCache {
+    private static final DisabledTradeVersionCache INSTANCE = new DisabledTradeVersionCache();
+
+    private DisabledTradeVersionCache() {}
+
+    @Override
+    public boolean isKnownStale(String tradeId, Integer version) {
+      return false;
+    }
+
+    @Override
+    public void recordCommitted(String tradeId, Integer version) {}
+  }
+}
@@ -0,0 +1,244 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.mongo.TradeHistory;
+import com.trademart.tradestore.service.TradeHistoryWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * History writer that takes Mongo off the ingest path ({@code trade.history.mode=async}).
+ *
+ * <p>Callers append the documents to a local {@link TradeHistoryJournal} and put them on a bounded
+ * queue. A single background thread drains the queue into unordered Mongo bulk inserts of up to
+ * {@code batch-size} documents, waiting at most {@code linger-ms} to fill a batch. When the queue
+ * is full a caller waits up to {@code offer-timeout-ms} (backpressure) and then inserts its
+ * documents itself. Documents are acknowledged in the journal once Mongo has them; whatever is
+ * left in the journal after a crash is replayed on the next start. Every document gets its id
+ * before it is journaled, so a replay of an already-written document is ignored as a duplicate.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.history.mode", havingValue = "async")
+public class AsyncTradeHistoryWriter implements TradeHistoryWriter {
+
+  private static final Log LOG = LogFactory.getLog(AsyncTradeHistoryWriter.class);
+  private static final long MAX_RETRY_BACKOFF_MS = 5_000;
+
+  private final MongoTemplate mongoTemplate;
+  private final BlockingQueue<Pending> queue;
+  private final int batchSize;
+  private final long lingerMs;
+  private final long offerTimeoutMs;
+  private final long shutdownTimeoutMs;
+  private final Path journalDir;
+  private final int segmentEntries;
+  private final boolean fsync;
+  private final Counter written;
+  private final Counter failures;
+  private final Counter callerInserts;
+
+  private TradeHistoryJournal journal;
+  private Thread drainer;
+  private volatile boolean running;
+
+  private record Pending(TradeHistory history, TradeHistoryJournal.Segment segment) {}
+
+  @Autowired
+  public AsyncTradeHistoryWriter(
+      MongoTemplate mongoTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${trade.history.async.queue-capacity:10000}") int queueCapacity,
+      @Value("${trade.history.async.batch-size:500}") int batchSize,
+      @Value("${trade.history.async.linger-ms:20}") long lingerMs,
+      @Value("${trade.history.async.offer-timeout-ms:100}") long offerTimeoutMs,
+      @Value("${trade.history.async.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+      @Value("${trade.history.async.journal-dir:./data/history-journal}") String journalDir,
+      @Value("${trade.history.async.segment-entries:10000}") int segmentEntries,
+      @Value("${trade.history.async.fsync:false}") boolean fsync) {
+    this.mongoTemplate = mongoTemplate;
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    this.batchSize = Math.max(1, batchSize);
+    this.lingerMs = Math.max(0, lingerMs);
+    this.offerTimeoutMs = Math.max(0, offerTimeoutMs);
+    this.shutdownTimeoutMs = shutdownTimeoutMs;
+    this.journalDir = Paths.get(journalDir);
+    this.segmentEntries = segmentEntries;
+    this.fsync = fsync;
+    Gauge.builder("trade_history_queue_depth", queue, BlockingQueue::size)
+        .description("History documents waiting for the async Mongo writer")
+        .register(meterRegistry);
+    this.written = meterRegistry.counter("trade_history_written_total");
+    this.failures = meterRegistry.counter("trade_history_write_failures_total");
+    this.callerInserts = meterRegistry.counter("trade_history_caller_inserts_total");
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    journal = new TradeHistoryJournal(journalDir, segmentEntries, fsync);
+    running = true;
+    drainer = new Thread(this::run, "trade-history-writer");
+    drainer.setDaemon(true);
+    drainer.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException, IOException {
+    running = false;
+    if (drainer != null) {
+      drainer.join(shutdownTimeoutMs);
+    }
+    // anything not drained by now stays in the journal and is replayed on the next start
+    journal.close();
+  }
+
+  @Override
+  public void write(TradeHistory history) {
+    writeAll(List.of(history));
+  }
+
+  @Override
+  public void writeAll(List<TradeHistory> histories) {
+    if (histories.isEmpty()) {
+      return;
+    }
+    for (TradeHistory h : histories) {
+      if (h.getId() == null) h.setId(new ObjectId().toHexString());
+    }
+    TradeHistoryJournal.Segment segment;
+    try {
+      segment = journal.append(histories);
+    } catch (IOException ex) {
+      // cannot make the documents durable locally; fall back to the synchronous path
+      LOG.warn("History journal append failed, writing to Mongo directly: " + ex.getMessage());
+      callerInserts.increment(histories.size());
+      insertIgnoringDuplicates(histories);
+      written.increment(histories.size());
+      return;
+    }
+
+    List<TradeHistory> overflow = new ArrayList<>();
+    for (TradeHistory h : histories) {
+      if (!running || !offer(new Pending(h, segment))) {
+        overflow.add(h);
+      }
+    }
+    if (overflow.isEmpty()) {
+      return;
+    }
+    callerInserts.increment(overflow.size());
+    try {
+      insertIgnoringDuplicates(overflow);
+      written.increment(overflow.size());
+      journal.ack(segment, overflow.size());
+    } catch (RuntimeException ex) {
+      failures.increment(overflow.size());
+      LOG.warn(
+          overflow.size()
+              + " history documents could not be written and remain in the journal for replay: "
+              + ex.getMessage());
+    }
+  }
+
+  private boolean offer(Pending pending) {
+    try {
+      return queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private void run() {
+    replayRecovered();
+    List<Pending> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) continue;
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (batch.size() < batchSize) {
+          queue.drainTo(batch, batchSize - batch.size());
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= batchSize || remaining <= 0) break;
+          Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) break;
+          batch.add(next);
+        }
+        flush(batch);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /** Write one batch, retrying with backoff while the application is running. */
+  private void flush(List<Pending> batch) throws InterruptedException {
+    List<TradeHistory> docs = new ArrayList<>(batch.size());
+    for (Pending p : batch) docs.add(p.history());
+    long backoff = 50;
+    while (true) {
+      try {
+        insertIgnoringDuplicates(docs);
+        written.increment(docs.size());
+        break;
+      } catch (RuntimeException ex) {
+        failures.increment(docs.size());
+        if (!running) {
+          LOG.warn("Leaving " + docs.size() + " history documents in the journal at shutdown");
+          return;
+        }
+        LOG.warn("History bulk insert failed, retrying in " + backoff + "ms: " + ex.getMessage());
+        Thread.sleep(backoff);
+        backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+      }
+    }
+    Map<TradeHistoryJournal.Segment, Integer> perSegment = new IdentityHashMap<>();
+    for (Pending p : batch) perSegment.merge(p.segment(), 1, Integer::sum);
+    perSegment.forEach(journal::ack);
+  }
+
+  /** Replay segments left over from a previous run before draining new documents. */
+  private void replayRecovered() {
+    for (Path segment : journal.recoveredSegments()) {
+      try {
+        List<TradeHistory> docs = journal.read(segment);
+        for (int from = 0; from < docs.size(); from += batchSize) {
+          insertIgnoringDuplicates(docs.subList(from, Math.min(from + batchSize, docs.size())));
+        }
+        journal.delete(segment);
+        LOG.info("Replayed " + docs.size() + " history documents from " + segment);
+      } catch (IOException | RuntimeException ex) {
+        // keep the segment; it is retried on the next start
+        LOG.warn("Could not replay history journal " + segment + ": " + ex.getMessage());
+      }
+    }
+  }
+
+  private void insertIgnoringDuplicates(List<TradeHistory> docs) {
+    TradeHistoryBulkInsert.insertIgnoringDuplicates(mongoTemplate, docs);
+  }
+}
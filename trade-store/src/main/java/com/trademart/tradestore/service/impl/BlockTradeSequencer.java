@@ -0,0 +1,102 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.service.TradeSequencer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sequencer that reserves {@code trade.sequence.block-size} ids from {@code trade_ingest_seq} per
+ * DB round trip and hands them out from memory. Enabled with {@code
+ * trade.sequence.strategy=block}.
+ *
+ * <p>Every id still comes from the shared Postgres sequence, so ids are unique across replicas.
+ * A block is only replaced once it is used up and each new block is fetched after the previous one,
+ * so ids handed out by one instance are strictly increasing. Across replicas the order reflects
+ * which block an instance drew from rather than global arrival order, and ids left in a block at
+ * shutdown are never used (gaps are harmless: the sequence only orders writes).
+ */
+@Service
+@ConditionalOnProperty(name = "trade.sequence.strategy", havingValue = "block")
+public class BlockTradeSequencer implements TradeSequencer {
+
+  static final String RESERVE_SQL =
+      "SELECT nextval('trade_ingest_seq') FROM generate_series(1, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int blockSize;
+  private final Counter refills;
+  private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+  private final ReentrantLock refillLock = new ReentrantLock();
+
+  public BlockTradeSequencer(
+      JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${trade.sequence.block-size:100}") int blockSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.blockSize = Math.max(1, blockSize);
+    this.refills =
+        Counter.builder("trade_sequence_block_refills_total")
+            .description("Number of ingest sequence blocks reserved from the database")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public long nextSequence() {
+    while (true) {
+      Block block = current.get();
+      int i = block.cursor.getAndIncrement();
+      if (i < block.values.length) {
+        return block.values[i];
+      }
+      refill(block);
+    }
+  }
+
+  /** Replace {@code exhausted} with a fresh block unless another thread already did. */
+  private void refill(Block exhausted) {
+    refillLock.lock();
+    try {
+      if (current.get() == exhausted) {
+        current.set(reserve());
+        refills.increment();
+      }
+    } finally {
+      refillLock.unlock();
+    }
+  }
+
+  private Block reserve() {
+    List<Long> ids = jdbcTemplate.queryForList(RESERVE_SQL, Long.class, blockSize);
+    if (ids.isEmpty()) {
+      throw new IllegalStateException("trade_ingest_seq returned no values");
+    }
+    long[] values = new long[ids.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = ids.get(i);
+    }
+    // values of one call are not contiguous when replicas reserve concurrently, but they are all
+    // above anything this instance reserved before; sort so they are handed out in order
+    Arrays.sort(values);
+    return new Block(values);
+  }
+
+  private static final class Block {
+    static final Block EMPTY = new Block(new long[0]);
+
+    final long[] values;
+    final AtomicInteger cursor = new AtomicInteger();
+
+    Block(long[] values) {
+      this.values = values;
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.service.TradeVersionCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded {@link TradeVersionCache} built from primitive arrays.
+ *
+ * <p>Entries live in 16 independently locked segments. Each segment is an open-addressing table
+ * keyed by a 64-bit hash of the tradeId, with linear probing. The tradeId itself is kept next to
+ * its hash and compared on lookup, so a hash collision can never turn into a wrong rejection.
+ * Eviction uses CLOCK (second chance), which approximates LRU with one reference bit per slot
+ * instead of a linked list. Memory is capped by {@code trade.version-cache.max-bytes}: the
+ * primitive arrays are sized up front and key string bytes are tracked as entries come and go.
+ * {@code max-bytes=0} disables the cache. With {@code trade.state-store.enabled=true} the
+ * off-heap {@link OffHeapTradeStateStore} answers version checks instead.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "trade.state-store.enabled",
+    havingValue = "false",
+    matchIfMissing = true)
+public class ClockTradeVersionCache implements TradeVersionCache {
+
+  private static final int SEGMENTS = 16;
+  private static final double LOAD_FACTOR = 0.75;
+  // long hash + int version + byte ref bit + String reference, per slot
+  private static final int SLOT_BYTES = 8 + 4 + 1 + 4;
+  // String header + backing byte[] header (compact strings), excluding the characters
+  private static final int STRING_OVERHEAD_BYTES = 24 + 16;
+  private static final int ESTIMATED_KEY_CHARS = 16;
+
+  private final Segment[] segments;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter staleRejections;
+
+  @Autowired
+  public ClockTradeVersionCache(
+      MeterRegistry meterRegistry,
+      @Value("${trade.version-cache.max-bytes:33554432}") long maxBytes) {
+    long perSegment = Math.max(0, maxBytes) / SEGMENTS;
+    long perEntry = (long) Math.ceil(SLOT_BYTES / LOAD_FACTOR) + STRING_OVERHEAD_BYTES;
+    int entriesPerSegment =
+        (int) Math.min(1 << 24, perSegment / (perEntry + ESTIMATED_KEY_CHARS));
+    this.segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(entriesPerSegment, perSegment);
+    }
+    this.hits = meterRegistry.counter("trade_version_cache_hits_total");
+    this.misses = meterRegistry.counter("trade_version_cache_misses_total");
+    this.staleRejections = meterRegistry.counter("trade_version_cache_stale_rejections_total");
+    Gauge.builder("trade_version_cache_entries", this, ClockTradeVersionCache::size)
+        .description("Trade versions held by the in-process version cache")
+        .register(meterRegistry);
+    Gauge.builder("trade_version_cache_bytes", this, ClockTradeVersionCache::estimatedBytes)
+        .description("Estimated heap used by the in-process version cache")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public boolean isKnownStale(String tradeId, Integer version) {
+    if (tradeId == null || version == null) {
+      return false;
+    }
+    long h = hash(tradeId);
+    int known = segmentFor(h).get(h, tradeId);
+    if (known == Segment.ABSENT) {
+      misses.increment();
+      return false;
+    }
+    hits.increment();
+    if (version < known) {
+      staleRejections.increment();
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void recordCommitted(String tradeId, Integer version) {
+    if (tradeId == null || version == null || version < 0) {
+      return;
+    }
+    long h = hash(tradeId);
+    segmentFor(h).put(h, tradeId, version);
+  }
+
+  long size() {
+    long n = 0;
+    for (Segment s : segments) n += s.size();
+    return n;
+  }
+
+  long estimatedBytes() {
+    long n = 0;
+    for (Segment s : segments) n += s.bytes();
+    return n;
+  }
+
+  private Segment segmentFor(long h) {
+    return segments[(int) (h >>> 60)];
+  }
+
+  /** 64-bit FNV-1a over the UTF-16 chars, finalised with a murmur3 mix; never 0 (empty slot). */
+  static long hash(String s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h == 0 ? 1 : h;
+  }
+
+  /** One lock-protected open-addressing table with CLOCK eviction. */
+  static final class Segment {
+    static final int ABSENT = -1;
+
+    private final long[] keys;
+    private final String[] ids;
+    private final int[] versions;
+    private final boolean[] referenced;
+    private final int mask;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long slotBytes;
+    private int size;
+    private long keyBytes;
+    private int hand;
+
+    Segment(int maxEntries, long maxBytes) {
+      this.maxEntries = maxEntries;
+      this.maxBytes = maxBytes;
+      int capacity = maxEntries == 0 ? 1 : Integer.highestOneBit((int) (maxEntries / LOAD_FACTOR));
+      while (capacity * LOAD_FACTOR < maxEntries) capacity <<= 1;
+      this.keys = new long[capacity];
+      this.ids = new String[capacity];
+      this.versions = new int[capacity];
+      this.referenced = new boolean[capacity];
+      this.mask = capacity - 1;
+      this.slotBytes = (long) capacity * SLOT_BYTES;
+    }
+
+    synchronized int get(long h, String id) {
+      for (int i = (int) h & mask; keys[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == h && ids[i].equals(id)) {
+          referenced[i] = true;
+          return versions[i];
+        }
+      }
+      return ABSENT;
+    }
+
+    synchronized void put(long h, String id, int version) {
+      if (maxEntries == 0) {
+        return;
+      }
+      int i = (int) h & mask;
+      for (; keys[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == h && ids[i].equals(id)) {
+          versions[i] = Math.max(versions[i], version);
+          referenced[i] = true;
+          return;
+        }
+      }
+      long entryBytes = keyBytes(id);
+      if (entryBytes > maxBytes - slotBytes) {
+        return; // a single absurd key must not flush the whole segment
+      }
+      boolean evicted = false;
+      while (size > 0 && (size >= maxEntries || slotBytes + keyBytes + entryBytes > maxBytes)) {
+        evictOne();
+        evicted = true;
+      }
+      if (evicted) {
+        // eviction shifts entries around; find the first free slot of the probe sequence again
+        for (i = (int) h & mask; keys[i] != 0; i = (i + 1) & mask) {}
+      }
+      keys[i] = h;
+      ids[i] = id;
+      versions[i] = version;
+      referenced[i] = false;
+      size++;
+      keyBytes += entryBytes;
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    synchronized long bytes() {
+      return slotBytes + keyBytes;
+    }
+
+    /** Advance the clock hand, clearing reference bits, and drop the first unreferenced entry. */
+    private void evictOne() {
+      while (true) {
+        int i = hand;
+        hand = (hand + 1) & mask;
+        if (keys[i] == 0) continue;
+        if (referenced[i]) {
+          referenced[i] = false;
+          continue;
+        }
+        removeAt(i);
+        return;
+      }
+    }
+
+    /** Linear-probing delete: shift later entries of the cluster back so probes stay unbroken. */
+    private void removeAt(int i) {
+      size--;
+      keyBytes -= keyBytes(ids[i]);
+      int j = i;
+      while (true) {
+        j = (j + 1) & mask;
+        if (keys[j] == 0) break;
+        int home = (int) keys[j] & mask;
+        boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+        if (stays) continue;
+        keys[i] = keys[j];
+        ids[i] = ids[j];
+        versions[i] = versions[j];
+        referenced[i] = referenced[j];
+        i = j;
+      }
+      keys[i] = 0;
+      ids[i] = null;
+      versions[i] = 0;
+      referenced[i] = false;
+    }
+
+    private static long keyBytes(String id) {
+      return STRING_OVERHEAD_BYTES + id.length();
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.service.TradeService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Group commit for single-trade ingest ({@code trade.ingest.group-commit.enabled=true}).
+ *
+ * <p>Concurrent {@link #createOrUpdateTrade} callers put their trade on a bounded queue and wait.
+ * {@code committers} background threads each take the first waiting trade, collect whatever else
+ * arrives within {@code window-micros} (up to {@code max-batch} trades) and hand the lot to {@link
+ * TradeServiceImpl#createOrUpdateTrades}: one lookup, one sequence fetch, one multi-row upsert and
+ * one history bulk write for the whole group. Each caller then gets its own trade back or its own
+ * exception, unchanged, so a rejection in the group does not affect the others. A trade that lost a
+ * race with a concurrent writer of a higher version is reported as stale, as on the batch path.
+ * When the group write fails as a whole (the call throws, or reports trades FAILED with the
+ * group's error), each of those trades is re-run on its own, so one caller's bad row cannot turn
+ * into every grouped caller's 500.
+ *
+ * <p>The window bounds the added latency, and is only waited out while other callers are in flight,
+ * so a lone caller (such as a single-threaded Kafka listener) is committed at once. When the queue
+ * is full, or the service is shutting down, the caller ingests its trade directly instead of
+ * waiting. Batch calls pass straight through.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "trade.ingest.group-commit.enabled", havingValue = "true")
+public class GroupCommitTradeService implements TradeService {
+
+  private static final Log LOG = LogFactory.getLog(GroupCommitTradeService.class);
+
+  private final TradeServiceImpl delegate;
+  private final BlockingQueue<Pending> queue;
+  private final long windowNanos;
+  private final int maxBatch;
+  private final int committerCount;
+  private final long shutdownTimeoutMs;
+  private final DistributionSummary batchSizes;
+  private final Counter directIngests;
+
+  private final List<Thread> committers = new ArrayList<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile boolean running;
+
+  private record Pending(TradeDto dto, CompletableFuture<TradeEntity> result) {}
+
+  @Autowired
+  public GroupCommitTradeService(
+      TradeServiceImpl delegate,
+      MeterRegistry meterRegistry,
+      @Value("${trade.ingest.group-commit.window-micros:1000}") long windowMicros,
+      @Value("${trade.ingest.group-commit.max-batch:256}") int maxBatch,
+      @Value("${trade.ingest.group-commit.committers:2}") int committers,
+      @Value("${trade.ingest.group-commit.queue-capacity:4096}") int queueCapacity,
+      @Value("${trade.ingest.group-commit.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+    this.delegate = delegate;
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, windowMicros));
+    this.maxBatch = Math.max(1, maxBatch);
+    this.committerCount = Math.max(1, committers);
+    this.shutdownTimeoutMs = shutdownTimeoutMs;
+    this.batchSizes =
+        DistributionSummary.builder("trade_group_commit_batch_size")
+            .description("Trades ingested per group commit")
+            .register(meterRegistry);
+    this.directIngests = meterRegistry.counter("trade_group_commit_direct_total");
+    Gauge.builder("trade_group_commit_queue_depth", queue, BlockingQueue::size)
+        .description("Trades waiting for the next group commit")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() {
+    running = true;
+    for (int i = 0; i < committerCount; i++) {
+      Thread committer = new Thread(this::run, "trade-group-commit-" + i);
+      committer.setDaemon(true);
+      committer.start();
+      committers.add(committer);
+    }
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+    for (Thread committer : committers) {
+      committer.join(Math.max(1, deadline - System.currentTimeMillis()));
+    }
+    // committers drain the queue before exiting; commit whatever they left behind here
+    List<Pending> left = new ArrayList<>();
+    queue.drainTo(left);
+    if (!left.isEmpty()) {
+      commit(left);
+    }
+  }
+
+  @Override
+  public TradeEntity createOrUpdateTrade(TradeDto dto) {
+    Pending pending = new Pending(dto, new CompletableFuture<>());
+    inFlight.incrementAndGet();
+    try {
+      if (!running || !queue.offer(pending)) {
+        directIngests.increment();
+        return delegate.createOrUpdateTrade(dto);
+      }
+      return pending.result().get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for group commit", ex);
+    } catch (ExecutionException ex) {
+      // rethrow the trade's own exception so the HTTP mapping is the same as without grouping
+      if (ex.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("group commit failed", ex.getCause());
+    } finally {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  @Override
+  public List<TradeIngestResult> createOrUpdateTrades(List<TradeDto> dtos) {
+    return delegate.createOrUpdateTrades(dtos);
+  }
+
+  private void run() {
+    List<Pending> batch = new ArrayList<>(maxBatch);
+    while (running || !queue.isEmpty()) {
+      try {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) continue;
+        batch.add(first);
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatch) {
+          queue.drainTo(batch, maxBatch - batch.size());
+          long remaining = deadline - System.nanoTime();
+          // nobody else is ingesting, so there is nothing to wait for
+          if (batch.size() >= maxBatch || remaining <= 0 || inFlight.get() <= batch.size()) break;
+          Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) break;
+          batch.add(next);
+        }
+        commit(batch);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /** Ingest one group and complete every caller's future with its own outcome. */
+  private void commit(List<Pending> batch) {
+    batchSizes.record(batch.size());
+    List<TradeDto> dtos = new ArrayList<>(batch.size());
+    for (Pending pending : batch) dtos.add(pending.dto());
+    List<TradeIngestResult> results;
+    try {
+      results = delegate.createOrUpdateTrades(dtos);
+    } catch (RuntimeException ex) {
+      LOG.warn("Group commit of " + batch.size() + " trades failed: " + ex.getMessage());
+      for (Pending pending : batch) {
+        if (batch.size() == 1) {
+          pending.result().completeExceptionally(ex);
+        } else {
+          ingestAlone(pending);
+        }
+      }
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      TradeIngestResult result = results.get(i);
+      if (result.isAccepted()) {
+        batch.get(i).result().complete(result.getTrade());
+      } else if (result.getStatus() == TradeIngestResult.Status.FAILED && batch.size() > 1) {
+        ingestAlone(batch.get(i));
+      } else {
+        batch.get(i).result().completeExceptionally(result.getError());
+      }
+    }
+  }
+
+  /** Ingest one trade of a failed group by itself, so its caller gets its own outcome. */
+  private void ingestAlone(Pending pending) {
+    try {
+      pending.result().complete(delegate.createOrUpdateTrade(pending.dto()));
+    } catch (RuntimeException ex) {
+      pending.result().completeExceptionally(ex);
+    }
+  }
+}
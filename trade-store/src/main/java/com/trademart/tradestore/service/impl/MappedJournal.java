@@ -0,0 +1,301 @@
+package com.trademart.tradestore.service.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Segmented, memory-mapped record journal backing {@link MappedTradeIngestJournal}.
+ *
+ * <p>Each segment is a file of {@code segmentBytes}, mapped once and filled with records of
+ * {@code [int length][int crc32c][payload]}. A record that does not fit rolls to a new segment.
+ * Zeroed space ends a segment, and on recovery the first record whose CRC does not match (a write
+ * torn by a crash) ends it too. Appends are memory copies; {@link #sync} forces them to disk.
+ *
+ * <p>Positions are {@code segmentId << 32 | offset} and grow monotonically. A single reader walks
+ * the records with {@link #read} and reports progress with {@link #consumed}, which persists the
+ * position in a {@code checkpoint} file and deletes segments it has left behind. Records after the
+ * checkpoint are read again after a restart.
+ */
+final class MappedJournal implements Closeable {
+
+  private static final String PREFIX = "ingest-";
+  private static final String SUFFIX = ".journal";
+  private static final String CHECKPOINT = "checkpoint";
+  private static final int HEADER_BYTES = 8;
+
+  /** One record and the position just after it. */
+  record Entry(byte[] payload, long end) {}
+
+  private static final class Segment {
+    private final long id;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Path path;
+    // written by the appender only; the reader sees records up to it
+    private volatile int limit;
+    // set once limit is final
+    private volatile boolean sealed;
+
+    private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+      this.id = id;
+      this.path = path;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+  }
+
+  private final Path dir;
+  private final int segmentBytes;
+  private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+  private final FileChannel checkpoint;
+  private final ByteBuffer checkpointBuffer = ByteBuffer.allocate(Long.BYTES);
+  private final Object syncLock = new Object();
+
+  private Segment active;
+  private long synced;
+  private volatile long readPosition;
+
+  MappedJournal(Path dir, int segmentBytes) throws IOException {
+    this.dir = dir;
+    this.segmentBytes = Math.max(HEADER_BYTES + 1, segmentBytes);
+    Files.createDirectories(dir);
+    this.checkpoint =
+        FileChannel.open(
+            dir.resolve(CHECKPOINT),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    long checkpointed = readCheckpoint();
+
+    List<Path> files;
+    try (Stream<Path> list = Files.list(dir)) {
+      files = list.filter(MappedJournal::isSegment).sorted().toList();
+    }
+    // new segments must sort after the checkpoint even when every older file is gone
+    long maxId = segmentOf(checkpointed);
+    for (Path path : files) {
+      long id = segmentId(path);
+      maxId = Math.max(maxId, id);
+      if (id < segmentOf(checkpointed)) {
+        Files.deleteIfExists(path);
+        continue;
+      }
+      FileChannel channel =
+          FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      Segment recovered = new Segment(id, path, channel, buffer);
+      recovered.limit = scan(recovered.buffer);
+      recovered.sealed = true;
+      segments.put(id, recovered);
+    }
+    this.readPosition =
+        segments.isEmpty() || segmentOf(checkpointed) >= segments.firstKey()
+            ? checkpointed
+            : position(segments.firstKey(), 0);
+    this.active = newSegment(maxId + 1);
+    this.synced = position(active.id, 0);
+  }
+
+  /**
+   * Append one record and return the position after it. The record is visible to {@link #read} on
+   * return and survives a JVM crash; it survives a host crash once {@link #sync} covered it.
+   */
+  synchronized long append(byte[] payload) throws IOException {
+    int needed = HEADER_BYTES + payload.length;
+    if (payload.length == 0 || needed > segmentBytes) {
+      throw new IllegalArgumentException("journal record of " + payload.length + " bytes");
+    }
+    if (active.limit + needed > segmentBytes) {
+      active.sealed = true;
+      active = newSegment(active.id + 1);
+    }
+    int offset = active.limit;
+    ByteBuffer out = active.buffer.duplicate();
+    out.position(offset);
+    out.putInt(payload.length);
+    out.putInt(crc(ByteBuffer.wrap(payload)));
+    out.put(payload);
+    active.limit = offset + needed;
+    return position(active.id, active.limit);
+  }
+
+  /**
+   * Force everything appended so far to disk, unless an earlier call already covered {@code
+   * upTo}. Concurrent callers share one force: whoever holds the lock flushes for all of them.
+   */
+  void sync(long upTo) {
+    synchronized (syncLock) {
+      if (upTo <= synced) {
+        return;
+      }
+      long target;
+      synchronized (this) {
+        target = position(active.id, active.limit);
+      }
+      for (Segment s : segments.subMap(segmentOf(synced), true, segmentOf(target), true).values()) {
+        int from = s.id == segmentOf(synced) ? offsetOf(synced) : 0;
+        int to = s.id == segmentOf(target) ? offsetOf(target) : s.limit;
+        if (to > from) {
+          s.buffer.force(from, to - from);
+        }
+      }
+      synced = target;
+    }
+  }
+
+  /** Up to {@code max} records after the read position, oldest first. Single reader only. */
+  List<Entry> read(int max) {
+    List<Entry> entries = new ArrayList<>(Math.min(max, 1024));
+    long pos = readPosition;
+    while (entries.size() < max) {
+      Segment s = segments.get(segmentOf(pos));
+      int offset = offsetOf(pos);
+      if (s != null) {
+        // sealed before limit: a sealed segment's limit is final
+        boolean sealed = s.sealed;
+        int limit = s.limit;
+        if (offset < limit) {
+          ByteBuffer in = s.buffer.duplicate();
+          in.position(offset);
+          int length = in.getInt();
+          in.getInt();
+          byte[] payload = new byte[length];
+          in.get(payload);
+          pos = position(s.id, offset + HEADER_BYTES + length);
+          entries.add(new Entry(payload, pos));
+          continue;
+        }
+        if (!sealed) {
+          break;
+        }
+      }
+      Map.Entry<Long, Segment> next = segments.higherEntry(segmentOf(pos));
+      if (next == null) {
+        break;
+      }
+      pos = position(next.getKey(), 0);
+    }
+    return entries;
+  }
+
+  /** Records up to {@code position} are applied; persist that and drop segments left behind. */
+  void consumed(long position) throws IOException {
+    readPosition = position;
+    checkpointBuffer.clear();
+    checkpointBuffer.putLong(position).flip();
+    checkpoint.write(checkpointBuffer, 0);
+    // a lost checkpoint only means more records are read again
+    for (Segment s : segments.headMap(segmentOf(position)).values()) {
+      if (s.sealed) {
+        segments.remove(s.id);
+        s.channel.close();
+        Files.deleteIfExists(s.path);
+      }
+    }
+  }
+
+  /** Bytes appended but not yet consumed. */
+  long backlogBytes() {
+    long pos = readPosition;
+    long bytes = 0;
+    for (Segment s : segments.tailMap(segmentOf(pos), true).values()) {
+      bytes += s.limit - (s.id == segmentOf(pos) ? offsetOf(pos) : 0);
+    }
+    return Math.max(0, bytes);
+  }
+
+  @Override
+  public void close() throws IOException {
+    sync(Long.MAX_VALUE);
+    synchronized (this) {
+      active.sealed = true;
+      for (Segment s : segments.values()) {
+        s.channel.close();
+      }
+      checkpoint.close();
+    }
+  }
+
+  private Segment newSegment(long id) throws IOException {
+    Path path = dir.resolve(String.format("%s%020d%s", PREFIX, id, SUFFIX));
+    FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    // mapping past the end grows the (sparse) file to the full segment size
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    Segment s = new Segment(id, path, channel, buffer);
+    segments.put(id, s);
+    return s;
+  }
+
+  private long readCheckpoint() throws IOException {
+    if (checkpoint.size() < Long.BYTES) {
+      return 0;
+    }
+    ByteBuffer in = ByteBuffer.allocate(Long.BYTES);
+    while (in.hasRemaining() && checkpoint.read(in, in.position()) > 0) {}
+    return in.flip().getLong();
+  }
+
+  /** Length of the valid record prefix of a recovered segment. */
+  private static int scan(MappedByteBuffer buffer) {
+    int offset = 0;
+    int capacity = buffer.capacity();
+    while (offset + HEADER_BYTES <= capacity) {
+      int length = buffer.getInt(offset);
+      if (length <= 0 || length > capacity - offset - HEADER_BYTES) {
+        break;
+      }
+      ByteBuffer payload = buffer.slice(offset + HEADER_BYTES, length);
+      if (crc(payload) != buffer.getInt(offset + Integer.BYTES)) {
+        break;
+      }
+      offset += HEADER_BYTES + length;
+    }
+    return offset;
+  }
+
+  private static int crc(ByteBuffer bytes) {
+    CRC32C crc = new CRC32C();
+    crc.update(bytes);
+    return (int) crc.getValue();
+  }
+
+  static long position(long segmentId, int offset) {
+    return segmentId << 32 | offset;
+  }
+
+  private static long segmentOf(long position) {
+    return position >>> 32;
+  }
+
+  private static int offsetOf(long position) {
+    return (int) position;
+  }
+
+  private static boolean isSegment(Path p) {
+    String name = p.getFileName().toString();
+    return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+  }
+
+  private static long segmentId(Path p) {
+    String name = p.getFileName().toString();
+    try {
+      return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    } catch (NumberFormatException ex) {
+      return 0;
+    }
+  }
+}
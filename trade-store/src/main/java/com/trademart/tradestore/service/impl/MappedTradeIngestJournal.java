@@ -0,0 +1,398 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradeexpiry.service.TradeMaturityValidator;
+import com.trademart.tradestore.exception.TradeRejectedException;
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.service.TradeDeadLetterStore;
+import com.trademart.tradestore.service.TradeIngestJournal;
+import com.trademart.tradestore.service.TradeService;
+import com.trademart.tradestore.service.TradeVersionCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+/**
+ * {@link TradeIngestJournal} on a {@link MappedJournal} ({@code trade.ingest.mode=journal}).
+ *
+ * <p>{@link #append} rejects what can be rejected without a database (a version the version cache
+ * knows is stale, a maturity date in the past), appends the trade to the journal and applies the
+ * {@code fsync} policy before returning:
+ *
+ * <ul>
+ *   <li>{@code always} (default): the record is forced to disk before the acknowledgement.
+ *       Concurrent appenders share one force.
+ *   <li>{@code interval}: a background thread forces the journal every {@code fsync-interval-ms};
+ *       a host crash can lose the last interval, a JVM crash loses nothing.
+ *   <li>{@code never}: the OS writes the pages back when it likes.
+ * </ul>
+ *
+ * <p>A flusher thread reads the journal in batches of up to {@code flush.batch-size} and applies
+ * them through {@link TradeService#createOrUpdateTrades}, with the usual version semantics. Failed
+ * trades are retried with backoff; rejected ones (a stale version the cache did not know about)
+ * are counted and logged, since their client already had its acknowledgement. Progress is
+ * checkpointed after each batch, so a restart replays only what was not yet applied, plus at most
+ * the batch in flight. When the unapplied backlog exceeds {@code max-backlog-bytes}, callers are
+ * told to ingest directly, so a database outage cannot fill the disk.
+ *
+ * <p>A trade that can never be applied must not hold up the ones behind it. It is moved to the
+ * {@link TradeDeadLetterStore} (trade-repair's failed trades) right away when the database refuses
+ * the row itself (a constraint, length or range violation), and after {@code flush.max-attempts}
+ * failures for any other per-trade error. A record that cannot be decoded is moved there too.
+ * Failures that mean the database is unavailable never count as attempts.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.ingest.mode", havingValue = "journal")
+public class MappedTradeIngestJournal implements TradeIngestJournal {
+
+  private static final Log LOG = LogFactory.getLog(MappedTradeIngestJournal.class);
+  private static final long MAX_RETRY_BACKOFF_MS = 5_000;
+  private static final byte FORMAT = 1;
+
+  enum FsyncPolicy {
+    ALWAYS,
+    INTERVAL,
+    NEVER
+  }
+
+  private final TradeService tradeService;
+  private final TradeVersionCache versionCache;
+  private final TradeMaturityValidator maturityValidator;
+  private final TradeDeadLetterStore deadLetters;
+  private final Path dir;
+  private final int segmentBytes;
+  private final long maxBacklogBytes;
+  private final FsyncPolicy fsync;
+  private final long fsyncIntervalMs;
+  private final int batchSize;
+  private final long idleMs;
+  private final int maxAttempts;
+  private final long shutdownTimeoutMs;
+  private final Counter appended;
+  private final Counter applied;
+  private final Counter lateRejections;
+  private final Counter directIngests;
+  private final Counter deadLettered;
+
+  private MappedJournal journal;
+  private Thread flusher;
+  private Thread syncer;
+  private volatile boolean running;
+  private volatile long stopDeadline;
+
+  @Autowired
+  public MappedTradeIngestJournal(
+      TradeService tradeService,
+      TradeVersionCache versionCache,
+      TradeMaturityValidator maturityValidator,
+      TradeDeadLetterStore deadLetters,
+      MeterRegistry meterRegistry,
+      @Value("${trade.ingest.journal.dir:./data/ingest-journal}") String dir,
+      @Value("${trade.ingest.journal.segment-bytes:67108864}") int segmentBytes,
+      @Value("${trade.ingest.journal.max-backlog-bytes:1073741824}") long maxBacklogBytes,
+      @Value("${trade.ingest.journal.fsync:always}") String fsync,
+      @Value("${trade.ingest.journal.fsync-interval-ms:10}") long fsyncIntervalMs,
+      @Value("${trade.ingest.journal.flush.batch-size:500}") int batchSize,
+      @Value("${trade.ingest.journal.flush.idle-ms:2}") long idleMs,
+      @Value("${trade.ingest.journal.flush.max-attempts:10}") int maxAttempts,
+      @Value("${trade.ingest.journal.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+    this.tradeService = tradeService;
+    this.versionCache = versionCache;
+    this.maturityValidator = maturityValidator;
+    this.deadLetters = deadLetters;
+    this.dir = Paths.get(dir);
+    this.segmentBytes = segmentBytes;
+    this.maxBacklogBytes = maxBacklogBytes;
+    this.fsync = FsyncPolicy.valueOf(fsync.trim().toUpperCase(Locale.ROOT));
+    this.fsyncIntervalMs = Math.max(1, fsyncIntervalMs);
+    this.batchSize = Math.max(1, batchSize);
+    this.idleMs = Math.max(1, idleMs);
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.shutdownTimeoutMs = shutdownTimeoutMs;
+    this.appended = meterRegistry.counter("trade_ingest_journal_appended_total");
+    this.applied = meterRegistry.counter("trade_ingest_journal_applied_total");
+    this.lateRejections = meterRegistry.counter("trade_ingest_journal_late_rejections_total");
+    this.directIngests = meterRegistry.counter("trade_ingest_journal_direct_total");
+    this.deadLettered = meterRegistry.counter("trade_ingest_journal_dead_lettered_total");
+    Gauge.builder(
+            "trade_ingest_journal_backlog_bytes", this, MappedTradeIngestJournal::backlogBytes)
+        .description("Journaled trade bytes not yet applied to the database")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    journal = new MappedJournal(dir, segmentBytes);
+    running = true;
+    flusher = new Thread(this::runFlusher, "trade-ingest-journal-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+    if (fsync == FsyncPolicy.INTERVAL) {
+      syncer = new Thread(this::runSyncer, "trade-ingest-journal-sync");
+      syncer.setDaemon(true);
+      syncer.start();
+    }
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException, IOException {
+    stopDeadline = System.currentTimeMillis() + shutdownTimeoutMs;
+    running = false;
+    if (syncer != null) {
+      syncer.interrupt();
+      syncer.join(shutdownTimeoutMs);
+    }
+    if (flusher != null) {
+      flusher.join(shutdownTimeoutMs + MAX_RETRY_BACKOFF_MS);
+    }
+    // whatever was not applied by now is replayed on the next start
+    journal.close();
+  }
+
+  @Override
+  public boolean append(TradeDto dto) {
+    if (versionCache.isKnownStale(dto.getTradeId(), dto.getVersion())) {
+      throw TradeRejectedException.staleVersion();
+    }
+    maturityValidator.validate(dto.getMaturityDate());
+    if (!running || journal.backlogBytes() >= maxBacklogBytes) {
+      directIngests.increment();
+      return false;
+    }
+    long position;
+    try {
+      position = journal.append(encode(dto));
+      if (fsync == FsyncPolicy.ALWAYS) {
+        journal.sync(position);
+      }
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("Ingest journal append failed, ingesting directly: " + ex.getMessage());
+      directIngests.increment();
+      return false;
+    }
+    appended.increment();
+    return true;
+  }
+
+  long backlogBytes() {
+    MappedJournal j = journal;
+    return j == null ? 0 : j.backlogBytes();
+  }
+
+  private void runFlusher() {
+    while (running || System.currentTimeMillis() < stopDeadline) {
+      try {
+        if (!flushBatch()) {
+          if (!running) return;
+          Thread.sleep(idleMs);
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (IOException | RuntimeException ex) {
+        LOG.warn("Ingest journal flush failed, will retry: " + ex.getMessage());
+      }
+    }
+  }
+
+  private void runSyncer() {
+    while (running) {
+      try {
+        Thread.sleep(fsyncIntervalMs);
+        journal.sync(Long.MAX_VALUE);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException ex) {
+        LOG.warn("Ingest journal sync failed: " + ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Apply the next batch and move the checkpoint past it; false when the journal had nothing
+   * left or the batch could not be applied before shutdown.
+   */
+  boolean flushBatch() throws IOException, InterruptedException {
+    List<MappedJournal.Entry> entries = journal.read(batchSize);
+    if (entries.isEmpty()) {
+      return false;
+    }
+    List<TradeDto> pending = new ArrayList<>(entries.size());
+    for (MappedJournal.Entry entry : entries) {
+      TradeDto dto;
+      try {
+        dto = decode(entry.payload());
+      } catch (IOException | RuntimeException ex) {
+        // a record this version cannot read will not become readable by retrying
+        deadLetters.deadLetterUnreadable(entry.payload(), "unreadable journal record: " + ex);
+        deadLettered.increment();
+        LOG.error("Moved an unreadable ingest journal record to the dead-letter store", ex);
+        continue;
+      }
+      pending.add(dto);
+    }
+    int[] attempts = new int[pending.size()];
+    long backoff = 50;
+    while (!pending.isEmpty()) {
+      List<TradeDto> retry = new ArrayList<>();
+      List<Integer> retryAttempts = new ArrayList<>();
+      List<Integer> doomed = new ArrayList<>();
+      List<TradeIngestResult> results = List.of();
+      try {
+        results = tradeService.createOrUpdateTrades(pending);
+        for (int i = 0; i < results.size(); i++) {
+          TradeIngestResult result = results.get(i);
+          switch (result.getStatus()) {
+            case ACCEPTED -> applied.increment();
+            case REJECTED -> {
+              lateRejections.increment();
+              LOG.warn(
+                  "Journaled trade "
+                      + result.getTradeId()
+                      + " v"
+                      + result.getVersion()
+                      + " was rejected when applied: "
+                      + result.getMessage());
+            }
+            case FAILED -> {
+              RuntimeException error = result.getError();
+              if (!isUnavailable(error)) attempts[i]++;
+              if (TradeServiceImpl.isRowSpecific(error) || attempts[i] >= maxAttempts) {
+                doomed.add(i);
+              } else {
+                retry.add(pending.get(i));
+                retryAttempts.add(attempts[i]);
+              }
+            }
+          }
+        }
+      } catch (RuntimeException ex) {
+        // the whole call failed, so no single trade is to blame: retry all without counting
+        LOG.warn("Applying " + pending.size() + " journaled trades failed: " + ex.getMessage());
+        retry = pending;
+        retryAttempts = null;
+        doomed.clear();
+      }
+      for (int i : doomed) {
+        try {
+          deadLetter(pending.get(i), results.get(i).getError(), attempts[i]);
+        } catch (RuntimeException ex) {
+          LOG.warn("Dead-lettering journaled trade failed, will retry: " + ex.getMessage());
+          retry.add(pending.get(i));
+          retryAttempts.add(attempts[i]);
+        }
+      }
+      if (retry.isEmpty()) {
+        break;
+      }
+      if (!running && System.currentTimeMillis() >= stopDeadline) {
+        LOG.warn("Leaving " + retry.size() + " journaled trades for replay at shutdown");
+        return false;
+      }
+      TimeUnit.MILLISECONDS.sleep(backoff);
+      backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+      if (retryAttempts != null) {
+        attempts = retryAttempts.stream().mapToInt(Integer::intValue).toArray();
+      }
+      pending = retry;
+    }
+    journal.consumed(entries.get(entries.size() - 1).end());
+    return true;
+  }
+
+  private void deadLetter(TradeDto dto, RuntimeException error, int attempts) {
+    String reason =
+        error == null ? "failed" : error.getClass().getSimpleName() + ": " + error.getMessage();
+    deadLetters.deadLetter(dto, reason);
+    deadLettered.increment();
+    LOG.error(
+        "Journaled trade "
+            + dto.getTradeId()
+            + " v"
+            + dto.getVersion()
+            + " could not be applied after "
+            + attempts
+            + " attempt(s) and was moved to the dead-letter store: "
+            + reason);
+  }
+
+  /** The database (or the way to it) is down; says nothing about the trade itself. */
+  private static boolean isUnavailable(RuntimeException error) {
+    return error instanceof TransientDataAccessException
+        || error instanceof RecoverableDataAccessException
+        || error instanceof DataAccessResourceFailureException
+        || error instanceof NonTransientDataAccessResourceException
+        || error instanceof CannotCreateTransactionException;
+  }
+
+  /** Compact binary form: tradeId, version, price (unscaled, scale), maturity epoch day. */
+  static byte[] encode(TradeDto dto) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(FORMAT);
+    byte[] tradeId = dto.getTradeId().getBytes(StandardCharsets.UTF_8);
+    out.writeInt(tradeId.length);
+    out.write(tradeId);
+    out.writeBoolean(dto.getVersion() != null);
+    if (dto.getVersion() != null) out.writeInt(dto.getVersion());
+    out.writeBoolean(dto.getPrice() != null);
+    if (dto.getPrice() != null) {
+      byte[] unscaled = dto.getPrice().unscaledValue().toByteArray();
+      out.writeInt(unscaled.length);
+      out.write(unscaled);
+      out.writeInt(dto.getPrice().scale());
+    }
+    out.writeBoolean(dto.getMaturityDate() != null);
+    if (dto.getMaturityDate() != null) out.writeLong(dto.getMaturityDate().toEpochDay());
+    return bytes.toByteArray();
+  }
+
+  static TradeDto decode(byte[] payload) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    byte format = in.readByte();
+    if (format != FORMAT) {
+      throw new IOException("unknown ingest journal record format " + format);
+    }
+    TradeDto dto = new TradeDto();
+    byte[] tradeId = new byte[in.readInt()];
+    in.readFully(tradeId);
+    dto.setTradeId(new String(tradeId, StandardCharsets.UTF_8));
+    if (in.readBoolean()) dto.setVersion(in.readInt());
+    if (in.readBoolean()) {
+      byte[] unscaled = new byte[in.readInt()];
+      in.readFully(unscaled);
+      dto.setPrice(new BigDecimal(new BigInteger(unscaled), in.readInt()));
+    }
+    if (in.readBoolean()) dto.setMaturityDate(LocalDate.ofEpochDay(in.readLong()));
+    return dto;
+  }
+}
@@ -0,0 +1,53 @@
+package com.trademart.tradestore.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.service.TradeDeadLetterStore;
+import java.util.Base64;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link TradeDeadLetterStore} writing to the {@code failed_trades} collection read by
+ * trade-repair. The payload is the trade as it would be POSTed to {@code /trades}, so
+ * {@code POST /repair/resubmit/{id}} can send it again once the cause is fixed.
+ */
+@Component
+public class MongoTradeDeadLetterStore implements TradeDeadLetterStore {
+
+  static final String COLLECTION = "failed_trades";
+
+  private final MongoTemplate mongoTemplate;
+  private final ObjectMapper mapper;
+
+  public MongoTradeDeadLetterStore(MongoTemplate mongoTemplate, ObjectMapper mapper) {
+    this.mongoTemplate = mongoTemplate;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public void deadLetter(TradeDto trade, String reason) {
+    String payload;
+    try {
+      payload = mapper.writeValueAsString(trade);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("cannot serialize trade " + trade.getTradeId(), ex);
+    }
+    insert(trade.getTradeId(), reason, payload);
+  }
+
+  @Override
+  public void deadLetterUnreadable(byte[] record, String reason) {
+    insert(null, reason, Base64.getEncoder().encodeToString(record));
+  }
+
+  private void insert(String tradeId, String reason, String payload) {
+    Document doc = new Document();
+    doc.put("tradeId", tradeId);
+    doc.put("reason", reason);
+    doc.put("payload", payload);
+    mongoTemplate.insert(doc, COLLECTION);
+  }
+}
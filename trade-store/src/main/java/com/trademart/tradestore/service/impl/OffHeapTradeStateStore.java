@@ -0,0 +1,455 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeStatus;
+import com.trademart.tradestore.service.ClockService;
+import com.trademart.tradestore.service.TradeStateStore;
+import com.trademart.tradestore.service.TradeVersionCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.locks.StampedLock;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * {@link TradeStateStore} and {@link TradeVersionCache} backed by an open-addressing hash table in
+ * a memory-mapped file ({@code trade.state-store.enabled=true}). Nothing per trade lives on the
+ * Java heap, so millions of trades add no GC work.
+ *
+ * <p>Each slot is {@value #SLOT_BYTES} bytes: the 64-bit tradeId hash (0 marks an empty slot),
+ * ingest sequence, price as a long scaled by 10^4, version, maturity epoch day, status and the
+ * UTF-8 tradeId itself (up to {@value #KEY_BYTES} bytes), which is compared on lookup so a hash
+ * collision can never return another trade's row. Probing is linear and nothing is removed.
+ * Writers hold a {@link StampedLock} exclusively; readers run optimistically and take the read
+ * lock only when a write overlapped them.
+ *
+ * <p>The file is recreated at startup and filled by a streaming scan of {@code trades} on a
+ * background thread while ingest keeps recording what it commits. A row replaces the stored one
+ * only when its (version, ingest sequence) is newer, so the scan and ingests can interleave in
+ * any order. Trades the table cannot hold ({@code capacity} reached, tradeId too long) are not
+ * stored, and lookups for them fall back to Postgres.
+ *
+ * <p>Expiry runs in the trade-expiry service, so EXPIRED is derived when reading: an ACTIVE trade
+ * whose maturity date is before today (UTC) is the trade the expiry job moves to EXPIRED.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.state-store.enabled", havingValue = "true")
+public class OffHeapTradeStateStore implements TradeStateStore, TradeVersionCache {
+
+  private static final Log LOG = LogFactory.getLog(OffHeapTradeStateStore.class);
+
+  static final int SLOT_BYTES = 96;
+  static final int KEY_BYTES = 56;
+  // slot layout
+  private static final int HASH = 0;
+  private static final int SEQUENCE = 8;
+  private static final int PRICE = 16;
+  private static final int VERSION = 24;
+  private static final int MATURITY = 28;
+  private static final int STATUS = 32;
+  private static final int FLAGS = 33;
+  private static final int KEY_LENGTH = 34;
+  private static final int KEY = 40;
+
+  private static final long NO_PRICE = Long.MIN_VALUE;
+  private static final int NO_DATE = Integer.MIN_VALUE;
+  // the price does not fit a long at scale 4; reads of this trade go to the database
+  private static final byte PRICE_OVERFLOW = 1;
+  private static final int PRICE_SCALE = 4;
+  private static final int ABSENT = -1;
+  private static final double LOAD_FACTOR = 0.75;
+  private static final int MAX_SLOTS = 1 << 24;
+  private static final long MAX_RETRY_BACKOFF_MS = 5_000;
+  private static final TradeStatus[] STATUSES = TradeStatus.values();
+
+  static final String SCAN_SQL =
+      "SELECT trade_id, version, ingest_sequence, status, maturity_date, price FROM trades";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionOperations transactions;
+  private final ClockService clockService;
+  private final Path file;
+  private final int slots;
+  private final int mask;
+  private final int maxEntries;
+  private final int fetchSize;
+  private final StampedLock lock = new StampedLock();
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter dropped;
+
+  private FileChannel channel;
+  private MappedByteBuffer table;
+  private volatile int size;
+  private volatile boolean ready;
+  private volatile boolean running;
+  private Thread rebuilder;
+
+  @Autowired
+  public OffHeapTradeStateStore(
+      JdbcTemplate jdbcTemplate,
+      TransactionOperations transactions,
+      ClockService clockService,
+      MeterRegistry meterRegistry,
+      @Value("${trade.state-store.file:./data/trade-state.bin}") String file,
+      @Value("${trade.state-store.capacity:1048576}") int capacity,
+      @Value("${trade.state-store.rebuild.fetch-size:10000}") int fetchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactions = transactions;
+    this.clockService = clockService;
+    this.file = Paths.get(file);
+    int wanted = Math.max(1, capacity);
+    int n = 2;
+    while (n < MAX_SLOTS && n * LOAD_FACTOR < wanted) n <<= 1;
+    this.slots = n;
+    this.mask = n - 1;
+    this.maxEntries = (int) Math.min(wanted, (long) (n * LOAD_FACTOR));
+    this.fetchSize = Math.max(1, fetchSize);
+    this.hits = meterRegistry.counter("trade_state_store_hits_total");
+    this.misses = meterRegistry.counter("trade_state_store_misses_total");
+    this.dropped = meterRegistry.counter("trade_state_store_dropped_total");
+    Gauge.builder("trade_state_store_entries", this, s -> s.size)
+        .description("Trades held by the off-heap trade state store")
+        .register(meterRegistry);
+    Gauge.builder("trade_state_store_ready", this, s -> s.ready ? 1 : 0)
+        .description("1 once the trade state store has been rebuilt from Postgres")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() throws IOException {
+    open();
+    running = true;
+    rebuilder = new Thread(this::runRebuild, "trade-state-store-rebuild");
+    rebuilder.setDaemon(true);
+    rebuilder.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException, IOException {
+    running = false;
+    if (rebuilder != null) {
+      rebuilder.interrupt();
+      rebuilder.join(1_000);
+    }
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  /** Recreate the backing file with every slot empty. */
+  void open() throws IOException {
+    Path dir = file.toAbsolutePath().getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+    channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    // the file is sparse: only slots that have been written take disk and page cache
+    table = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slots * SLOT_BYTES);
+  }
+
+  @Override
+  public TradeState get(String tradeId) {
+    byte[] key = keyOf(tradeId);
+    if (key == null) {
+      return null;
+    }
+    long h = ClockTradeVersionCache.hash(tradeId);
+    long stamp = lock.tryOptimisticRead();
+    boolean locked = false;
+    try {
+      while (true) {
+        int slot = find(h, key);
+        long seq = 0;
+        long price = 0;
+        int version = 0;
+        int day = 0;
+        int status = 0;
+        int flags = 0;
+        if (slot != ABSENT) {
+          int base = slot * SLOT_BYTES;
+          seq = table.getLong(base + SEQUENCE);
+          price = table.getLong(base + PRICE);
+          version = table.getInt(base + VERSION);
+          day = table.getInt(base + MATURITY);
+          status = table.get(base + STATUS);
+          flags = table.get(base + FLAGS);
+        }
+        // values read under an optimistic stamp are only used once the stamp proved them whole
+        if (locked || lock.validate(stamp)) {
+          if (slot == ABSENT || (flags & PRICE_OVERFLOW) != 0) {
+            misses.increment();
+            return null;
+          }
+          hits.increment();
+          return state(version, seq, status, day, price);
+        }
+        stamp = lock.readLock();
+        locked = true;
+      }
+    } finally {
+      if (locked) {
+        lock.unlockRead(stamp);
+      }
+    }
+  }
+
+  @Override
+  public boolean isKnownStale(String tradeId, Integer version) {
+    if (version == null) {
+      return false;
+    }
+    byte[] key = keyOf(tradeId);
+    if (key == null) {
+      return false;
+    }
+    long h = ClockTradeVersionCache.hash(tradeId);
+    long stamp = lock.tryOptimisticRead();
+    int slot = find(h, key);
+    int known = slot == ABSENT ? ABSENT : table.getInt(slot * SLOT_BYTES + VERSION);
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        slot = find(h, key);
+        known = slot == ABSENT ? ABSENT : table.getInt(slot * SLOT_BYTES + VERSION);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    if (known == ABSENT) {
+      misses.increment();
+      return false;
+    }
+    hits.increment();
+    return version < known;
+  }
+
+  /** A version without the rest of its row cannot be stored; only full rows are recorded. */
+  @Override
+  public void recordCommitted(String tradeId, Integer version) {}
+
+  @Override
+  public void recordCommitted(TradeEntity trade) {
+    if (trade == null || trade.getTradeId() == null || trade.getVersion() == null) {
+      return;
+    }
+    put(
+        trade.getTradeId(),
+        trade.getVersion(),
+        trade.getIngestSequence() == null ? 0 : trade.getIngestSequence(),
+        trade.getStatus(),
+        trade.getMaturityDate(),
+        trade.getPrice());
+  }
+
+  /** Store a committed row unless a newer (version, ingest sequence) is already held. */
+  void put(
+      String tradeId,
+      int version,
+      long ingestSequence,
+      TradeStatus status,
+      LocalDate maturityDate,
+      BigDecimal price) {
+    byte[] key = keyOf(tradeId);
+    if (key == null) {
+      dropped.increment();
+      return;
+    }
+    long h = ClockTradeVersionCache.hash(tradeId);
+    long scaled = NO_PRICE;
+    byte flags = 0;
+    if (price != null) {
+      try {
+        scaled = price.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+      } catch (ArithmeticException ex) {
+        flags = PRICE_OVERFLOW;
+      }
+    }
+    int day = maturityDate == null ? NO_DATE : (int) maturityDate.toEpochDay();
+
+    long stamp = lock.writeLock();
+    try {
+      int i = (int) h & mask;
+      while (table.getLong(i * SLOT_BYTES + HASH) != 0 && !matches(i, h, key)) {
+        i = (i + 1) & mask;
+      }
+      int base = i * SLOT_BYTES;
+      if (table.getLong(base + HASH) == 0) {
+        if (size >= maxEntries) {
+          dropped.increment();
+          return;
+        }
+        table.put(base + KEY_LENGTH, (byte) key.length);
+        table.put(base + KEY, key);
+        table.putLong(base + HASH, h);
+        size++;
+      } else {
+        int storedVersion = table.getInt(base + VERSION);
+        long storedSeq = table.getLong(base + SEQUENCE);
+        if (version < storedVersion || (version == storedVersion && ingestSequence <= storedSeq)) {
+          return;
+        }
+      }
+      table.putLong(base + SEQUENCE, ingestSequence);
+      table.putLong(base + PRICE, scaled);
+      table.putInt(base + VERSION, version);
+      table.putInt(base + MATURITY, day);
+      table.put(base + STATUS, (byte) (status == null ? 0 : status.ordinal() + 1));
+      table.put(base + FLAGS, flags);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Load every row of {@code trades}. Postgres only streams a result set through a cursor inside a
+   * transaction, so the scan runs in one (read-only in effect) to keep memory flat.
+   */
+  void rebuild() {
+    long started = System.nanoTime();
+    long[] rows = {0};
+    RowCallbackHandler load =
+        rs -> {
+          String status = rs.getString(4);
+          put(
+              rs.getString(1),
+              rs.getInt(2),
+              rs.getLong(3),
+              status == null ? null : TradeStatus.valueOf(status),
+              rs.getObject(5, LocalDate.class),
+              rs.getBigDecimal(6));
+          rows[0]++;
+        };
+    transactions.executeWithoutResult(
+        s ->
+            jdbcTemplate.query(
+                con -> {
+                  PreparedStatement ps =
+                      con.prepareStatement(
+                          SCAN_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                  ps.setFetchSize(fetchSize);
+                  return ps;
+                },
+                load));
+    ready = true;
+    LOG.info(
+        "Trade state store rebuilt from "
+            + rows[0]
+            + " trades in "
+            + (System.nanoTime() - started) / 1_000_000
+            + " ms ("
+            + size
+            + " held)");
+  }
+
+  boolean isReady() {
+    return ready;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void runRebuild() {
+    long backoff = 100;
+    while (running) {
+      try {
+        rebuild();
+        return;
+      } catch (RuntimeException ex) {
+        LOG.warn("Rebuilding the trade state store failed, will retry: " + ex.getMessage());
+      }
+      try {
+        Thread.sleep(backoff);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+    }
+  }
+
+  /**
+   * Slot holding {@code key}, or {@link #ABSENT}. Safe on a table that is being written: every
+   * read is in bounds and the probe visits each slot at most once.
+   */
+  private int find(long h, byte[] key) {
+    int i = (int) h & mask;
+    for (int probes = 0; probes < slots; probes++) {
+      long stored = table.getLong(i * SLOT_BYTES + HASH);
+      if (stored == 0) {
+        return ABSENT;
+      }
+      if (stored == h && matches(i, h, key)) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return ABSENT;
+  }
+
+  private boolean matches(int slot, long h, byte[] key) {
+    int base = slot * SLOT_BYTES;
+    if (table.getLong(base + HASH) != h || (table.get(base + KEY_LENGTH) & 0xff) != key.length) {
+      return false;
+    }
+    for (int k = 0; k < key.length; k++) {
+      if (table.get(base + KEY + k) != key[k]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private TradeState state(int version, long seq, int status, int day, long price) {
+    TradeStatus s = status <= 0 || status > STATUSES.length ? null : STATUSES[status - 1];
+    LocalDate maturity = day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    if (s == TradeStatus.ACTIVE && maturity != null) {
+      LocalDate todayUtc = LocalDate.ofInstant(clockService.nowUtc(), ZoneOffset.UTC);
+      if (maturity.isBefore(todayUtc)) {
+        s = TradeStatus.EXPIRED;
+      }
+    }
+    BigDecimal p = price == NO_PRICE ? null : BigDecimal.valueOf(price, PRICE_SCALE);
+    return new TradeState(version, seq, s, maturity, p);
+  }
+
+  /** UTF-8 bytes of {@code tradeId}, or null when it is absent or too long to store. */
+  private static byte[] keyOf(String tradeId) {
+    if (tradeId == null) {
+      return null;
+    }
+    byte[] key = tradeId.getBytes(StandardCharsets.UTF_8);
+    return key.length == 0 || key.length > KEY_BYTES ? null : key;
+  }
+}
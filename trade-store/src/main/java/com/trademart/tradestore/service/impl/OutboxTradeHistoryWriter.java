@@ -0,0 +1,60 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.mongo.TradeHistory;
+import com.trademart.tradestore.service.TradeHistoryWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores history documents in the {@code trade_outbox} table ({@code trade.history.mode=outbox}).
+ * The write joins the transaction of the trade upsert, so a trade row and its history commit
+ * together; {@link TradeOutboxRelay} later moves the rows to Mongo and Kafka. The history id is
+ * assigned here so a relay retry cannot create a second document.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.history.mode", havingValue = "outbox")
+public class OutboxTradeHistoryWriter implements TradeHistoryWriter {
+
+  static final String INSERT_SQL =
+      "INSERT INTO trade_outbox (trade_id, version, ingest_sequence, event_type, payload) "
+          + "VALUES (?, ?, ?, ?, ?::jsonb)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public OutboxTradeHistoryWriter(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public void write(TradeHistory history) {
+    jdbcTemplate.update(INSERT_SQL, row(history));
+  }
+
+  @Override
+  public void writeAll(List<TradeHistory> histories) {
+    if (histories.isEmpty()) {
+      return;
+    }
+    List<Object[]> rows = new ArrayList<>(histories.size());
+    for (TradeHistory h : histories) {
+      rows.add(row(h));
+    }
+    jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+  }
+
+  @Override
+  public boolean participatesInTransaction() {
+    return true;
+  }
+
+  private static Object[] row(TradeHistory h) {
+    if (h.getId() == null) h.setId(new ObjectId().toHexString());
+    return new Object[] {
+      h.getTradeId(), h.getVersion(), h.getSequence(), h.getChangeType(), TradeHistoryJson.write(h)
+    };
+  }
+}
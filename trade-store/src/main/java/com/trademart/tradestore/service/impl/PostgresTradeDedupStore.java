@@ -0,0 +1,233 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.service.TradeDedupKey;
+import com.trademart.tradestore.service.TradeDedupStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link TradeDedupStore} backed by the {@code trade_ingest_dedup} table, with a {@link
+ * RotatingBloomFilter} in front of it.
+ *
+ * <p>Every key this replica claims or finds recorded goes into the filter, so a replay of a
+ * request this replica applied costs one filter probe plus one primary-key lookup, and a new
+ * request costs only the probe. The filter rotates once per {@code trade.dedup.window-hours}, which
+ * keeps every key of the window visible. It starts empty and does not see other replicas' keys;
+ * those replays are caught by {@link #claim} (a conflicting insert) instead.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.dedup.enabled", havingValue = "true")
+public class PostgresTradeDedupStore implements TradeDedupStore {
+
+  private static final Log LOG = LogFactory.getLog(PostgresTradeDedupStore.class);
+
+  private static final String KEYS = "unnest(?::text[], ?::int[], ?::bigint[])";
+
+  static final String EXISTS_SQL =
+      "SELECT EXISTS (SELECT 1 FROM trade_ingest_dedup "
+          + "WHERE trade_id = ? AND version = ? AND payload_hash = ?)";
+  static final String RECORDED_SQL =
+      "SELECT d.trade_id, d.version, d.payload_hash FROM trade_ingest_dedup d JOIN "
+          + KEYS
+          + " AS k (trade_id, version, payload_hash) USING (trade_id, version, payload_hash)";
+  static final String CLAIM_SQL =
+      "INSERT INTO trade_ingest_dedup (trade_id, version, payload_hash) VALUES (?, ?, ?) "
+          + "ON CONFLICT DO NOTHING";
+  static final String CLAIM_ALL_SQL =
+      "INSERT INTO trade_ingest_dedup (trade_id, version, payload_hash) SELECT * FROM "
+          + KEYS
+          + " ON CONFLICT DO NOTHING RETURNING trade_id, version, payload_hash";
+  static final String RELEASE_SQL =
+      "DELETE FROM trade_ingest_dedup WHERE (trade_id, version, payload_hash) IN "
+          + "(SELECT * FROM "
+          + KEYS
+          + ")";
+  static final String PRUNE_SQL =
+      "DELETE FROM trade_ingest_dedup WHERE ctid = ANY(ARRAY("
+          + "SELECT ctid FROM trade_ingest_dedup "
+          + "WHERE created_at < now() - make_interval(hours => ?) LIMIT ?))";
+
+  private static final RowMapper<TradeDedupKey> KEY_MAPPER =
+      (rs, n) -> new TradeDedupKey(rs.getString(1), rs.getInt(2), rs.getLong(3));
+
+  private final JdbcTemplate jdbcTemplate;
+  private final RotatingBloomFilter filter;
+  private final int windowHours;
+  private final int pruneBatchSize;
+  private final Counter duplicates;
+  private final Counter filterPositives;
+  private final Counter falsePositives;
+  private volatile long lastRotationMillis = System.currentTimeMillis();
+
+  public PostgresTradeDedupStore(
+      JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${trade.dedup.window-hours:24}") int windowHours,
+      @Value("${trade.dedup.filter.expected-keys:1000000}") int expectedKeys,
+      @Value("${trade.dedup.filter.fpp:0.01}") double fpp,
+      @Value("${trade.dedup.prune.batch-size:10000}") int pruneBatchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.filter = new RotatingBloomFilter(expectedKeys, fpp);
+    this.windowHours = Math.max(1, windowHours);
+    this.pruneBatchSize = Math.max(1, pruneBatchSize);
+    this.duplicates = meterRegistry.counter("trade_dedup_duplicates_total");
+    this.filterPositives = meterRegistry.counter("trade_dedup_filter_positives_total");
+    this.falsePositives = meterRegistry.counter("trade_dedup_filter_false_positives_total");
+  }
+
+  @Override
+  public boolean isKnownDuplicate(TradeDedupKey key) {
+    if (!filter.mightContain(key.hash64())) {
+      return false;
+    }
+    filterPositives.increment();
+    boolean recorded = exists(key);
+    if (!recorded) {
+      falsePositives.increment();
+    }
+    return recorded;
+  }
+
+  @Override
+  public Set<TradeDedupKey> knownDuplicates(Collection<TradeDedupKey> keys) {
+    List<TradeDedupKey> candidates = new ArrayList<>();
+    for (TradeDedupKey key : keys) {
+      if (filter.mightContain(key.hash64())) candidates.add(key);
+    }
+    if (candidates.isEmpty()) {
+      return Set.of();
+    }
+    filterPositives.increment(candidates.size());
+    Set<TradeDedupKey> found = recorded(candidates);
+    falsePositives.increment(candidates.size() - found.size());
+    return found;
+  }
+
+  @Override
+  public boolean isRecorded(TradeDedupKey key) {
+    return exists(key);
+  }
+
+  @Override
+  public Set<TradeDedupKey> recorded(Collection<TradeDedupKey> keys) {
+    if (keys.isEmpty()) {
+      return Set.of();
+    }
+    Set<TradeDedupKey> found = new HashSet<>(query(RECORDED_SQL, keys));
+    remember(found);
+    duplicates.increment(found.size());
+    return found;
+  }
+
+  @Override
+  public boolean claim(TradeDedupKey key) {
+    boolean claimed =
+        jdbcTemplate.update(CLAIM_SQL, key.tradeId(), key.version(), key.payloadHash()) == 1;
+    filter.put(key.hash64());
+    if (!claimed) {
+      duplicates.increment();
+    }
+    return claimed;
+  }
+
+  @Override
+  public Set<TradeDedupKey> claimAll(Collection<TradeDedupKey> keys) {
+    if (keys.isEmpty()) {
+      return Set.of();
+    }
+    Set<TradeDedupKey> claimed = new HashSet<>(query(CLAIM_ALL_SQL, keys));
+    remember(keys);
+    duplicates.increment(keys.size() - claimed.size());
+    return claimed;
+  }
+
+  @Override
+  public void release(Collection<TradeDedupKey> keys) {
+    // released keys stay in the filter; a later lookup of one is merely a false positive
+    if (!keys.isEmpty()) {
+      jdbcTemplate.update(con -> bindKeys(con.prepareStatement(RELEASE_SQL), con, keys));
+    }
+  }
+
+  /**
+   * Delete keys older than the window in bounded batches, and start a new filter generation once
+   * per window.
+   */
+  @Scheduled(fixedDelayString = "${trade.dedup.prune.fixed-delay-ms:600000}")
+  public void prune() {
+    long now = System.currentTimeMillis();
+    if (now - lastRotationMillis >= windowHours * 3_600_000L) {
+      filter.rotate();
+      lastRotationMillis = now;
+    }
+    try {
+      int deleted;
+      int total = 0;
+      do {
+        deleted = jdbcTemplate.update(PRUNE_SQL, windowHours, pruneBatchSize);
+        total += deleted;
+      } while (deleted == pruneBatchSize);
+      if (total > 0) {
+        LOG.info("Pruned " + total + " ingest dedup keys older than " + windowHours + "h");
+      }
+    } catch (RuntimeException ex) {
+      LOG.warn("Pruning ingest dedup keys failed, will retry: " + ex.getMessage());
+    }
+  }
+
+  private boolean exists(TradeDedupKey key) {
+    Boolean found =
+        jdbcTemplate.queryForObject(
+            EXISTS_SQL, Boolean.class, key.tradeId(), key.version(), key.payloadHash());
+    if (Boolean.TRUE.equals(found)) {
+      filter.put(key.hash64());
+      duplicates.increment();
+      return true;
+    }
+    return false;
+  }
+
+  private List<TradeDedupKey> query(String sql, Collection<TradeDedupKey> keys) {
+    return jdbcTemplate.query(con -> bindKeys(con.prepareStatement(sql), con, keys), KEY_MAPPER);
+  }
+
+  private static PreparedStatement bindKeys(
+      PreparedStatement ps, Connection con, Collection<TradeDedupKey> keys) throws SQLException {
+    String[] tradeIds = new String[keys.size()];
+    Integer[] versions = new Integer[keys.size()];
+    Long[] hashes = new Long[keys.size()];
+    int i = 0;
+    for (TradeDedupKey key : keys) {
+      tradeIds[i] = key.tradeId();
+      versions[i] = key.version();
+      hashes[i] = key.payloadHash();
+      i++;
+    }
+    ps.setArray(1, con.createArrayOf("text", tradeIds));
+    ps.setArray(2, con.createArrayOf("integer", versions));
+    ps.setArray(3, con.createArrayOf("bigint", hashes));
+    return ps;
+  }
+
+  private void remember(Collection<TradeDedupKey> keys) {
+    for (TradeDedupKey key : keys) {
+      filter.put(key.hash64());
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.trademart.tradestore.service.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over 64-bit hashes that forgets old entries by generation. Keys go into
+ * the current generation; {@link #rotate()} drops the previous one and starts a new one, so a key
+ * stays visible for between one and two rotation periods. Two bitsets of {@code expectedKeys} each
+ * bound the memory no matter how long the process runs.
+ *
+ * <p>May report a key that was never added (at roughly {@code fpp} per generation at the expected
+ * load), never the reverse while the key's generation is retained.
+ */
+final class RotatingBloomFilter {
+
+  private final int bits;
+  private final int hashes;
+  private volatile AtomicLongArray current;
+  private volatile AtomicLongArray previous;
+
+  RotatingBloomFilter(int expectedKeys, double fpp) {
+    long n = Math.max(1, expectedKeys);
+    double ln2 = Math.log(2);
+    long m = (long) Math.ceil(-n * Math.log(fpp) / (ln2 * ln2));
+    // whole words, capped at 2^31 bits per generation
+    this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, (m + 63) & ~63L));
+    this.hashes = (int) Math.max(1, Math.min(16, Math.round((double) bits / n * ln2)));
+    this.current = new AtomicLongArray(bits >>> 6);
+    this.previous = new AtomicLongArray(bits >>> 6);
+  }
+
+  void put(long hash) {
+    AtomicLongArray words = current;
+    long h2 = secondHash(hash);
+    for (int i = 0; i < hashes; i++) {
+      int bit = index(hash, h2, i);
+      int word = bit >>> 6;
+      long mask = 1L << bit;
+      long old;
+      do {
+        old = words.get(word);
+        if ((old & mask) != 0) {
+          break;
+        }
+      } while (!words.compareAndSet(word, old, old | mask));
+    }
+  }
+
+  boolean mightContain(long hash) {
+    return contains(current, hash) || contains(previous, hash);
+  }
+
+  /** Start a new generation; keys added before the previous rotation are forgotten. */
+  synchronized void rotate() {
+    previous = current;
+    current = new AtomicLongArray(bits >>> 6);
+  }
+
+  int bitsPerGeneration() {
+    return bits;
+  }
+
+  int hashFunctions() {
+    return hashes;
+  }
+
+  private boolean contains(AtomicLongArray words, long hash) {
+    long h2 = secondHash(hash);
+    for (int i = 0; i < hashes; i++) {
+      int bit = index(hash, h2, i);
+      if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Kirsch-Mitzenmacher: k indexes from two hashes, h1 + i * h2
+  private int index(long h1, long h2, int i) {
+    return (int) Long.remainderUnsigned(h1 + i * h2, bits);
+  }
+
+  private static long secondHash(long hash) {
+    long h = Long.rotateLeft(hash, 32) * 0x9e3779b97f4a7c15L;
+    return (h ^ (h >>> 29)) | 1;
+  }
+}
@@ -22,7 +22,7 @@ public class SimpleTradeVersionValidator implements TradeVersionValidator {
     Integer exVer = existing.getVersion();
     if (inVer == null) return; // accept null incoming version
     if (exVer != null && inVer < exVer) {
-      throw new TradeRejectedException("incoming version is lower than existing");
+      throw TradeRejectedException.staleVersion();
     }
   }
 }
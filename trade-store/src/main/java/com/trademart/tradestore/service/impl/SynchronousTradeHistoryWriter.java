@@ -0,0 +1,30 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.mongo.TradeHistory;
+import com.trademart.tradestore.repository.mongo.TradeHistoryRepository;
+import com.trademart.tradestore.service.TradeHistoryWriter;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/** Writes history documents straight to Mongo on the caller thread. */
+@Component
+@ConditionalOnProperty(name = "trade.history.mode", havingValue = "sync", matchIfMissing = true)
+public class SynchronousTradeHistoryWriter implements TradeHistoryWriter {
+
+  private final TradeHistoryRepository tradeHistoryRepository;
+
+  public SynchronousTradeHistoryWriter(TradeHistoryRepository tradeHistoryRepository) {
+    this.tradeHistoryRepository = tradeHistoryRepository;
+  }
+
+  @Override
+  public void write(TradeHistory history) {
+    tradeHistoryRepository.save(history);
+  }
+
+  @Override
+  public void writeAll(List<TradeHistory> histories) {
+    tradeHistoryRepository.insert(histories);
+  }
+}
@@ -0,0 +1,36 @@
+package com.trademart.tradestore.service.impl;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.trademart.tradestore.mongo.TradeHistory;
+import java.util.List;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Unordered bulk insert into {@code trade_history} that treats duplicate ids as success. Writers
+ * that may deliver a document more than once (journal replay, outbox relay) assign the id up front
+ * and rely on this to stay idempotent.
+ */
+final class TradeHistoryBulkInsert {
+
+  private static final int DUPLICATE_KEY = 11000;
+
+  private TradeHistoryBulkInsert() {}
+
+  static void insertIgnoringDuplicates(MongoTemplate mongoTemplate, List<TradeHistory> docs) {
+    if (docs.isEmpty()) {
+      return;
+    }
+    try {
+      mongoTemplate
+          .bulkOps(BulkOperations.BulkMode.UNORDERED, TradeHistory.class)
+          .insert(docs)
+          .execute();
+    } catch (BulkOperationException ex) {
+      for (BulkWriteError error : ex.getErrors()) {
+        if (error.getCode() != DUPLICATE_KEY) throw ex;
+      }
+    }
+  }
+}
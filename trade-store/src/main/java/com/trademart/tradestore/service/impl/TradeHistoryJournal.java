@@ -0,0 +1,168 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.mongo.TradeHistory;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only NDJSON journal backing {@link AsyncTradeHistoryWriter}. Every history document is
+ * appended here before it is queued, so documents still in memory when the JVM dies are found
+ * again on the next start. Segments roll after {@code segmentEntries} documents and are deleted
+ * once every document in them has been acknowledged as written to Mongo.
+ *
+ * <p>Appends reach the OS page cache before {@link #append} returns, which survives a JVM crash;
+ * set {@code fsync} to also survive a host crash at the cost of one fsync per append.
+ */
+final class TradeHistoryJournal implements Closeable {
+
+  private static final String PREFIX = "history-";
+  private static final String SUFFIX = ".ndjson";
+
+  private final Path dir;
+  private final int segmentEntries;
+  private final boolean fsync;
+  private final List<Path> recovered;
+
+  private long nextSegmentId;
+  private Segment active;
+
+  /** A journal file and how many of its documents were appended and acknowledged. */
+  static final class Segment {
+    private final Path path;
+    private final FileChannel channel;
+    private int written;
+    private int acked;
+    private boolean sealed;
+
+    private Segment(Path path, FileChannel channel) {
+      this.path = path;
+      this.channel = channel;
+    }
+  }
+
+  TradeHistoryJournal(Path dir, int segmentEntries, boolean fsync) throws IOException {
+    this.dir = dir;
+    this.segmentEntries = Math.max(1, segmentEntries);
+    this.fsync = fsync;
+    Files.createDirectories(dir);
+    try (Stream<Path> files = Files.list(dir)) {
+      this.recovered = files.filter(TradeHistoryJournal::isSegment).sorted().toList();
+    }
+    long maxId = 0;
+    for (Path p : recovered) {
+      maxId = Math.max(maxId, segmentId(p));
+    }
+    this.nextSegmentId = maxId + 1;
+  }
+
+  /** Segments left behind by a previous run, oldest first. */
+  List<Path> recoveredSegments() {
+    return recovered;
+  }
+
+  /** Read back the documents of a recovered segment; a torn last line is skipped. */
+  List<TradeHistory> read(Path segment) throws IOException {
+    List<TradeHistory> docs = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) continue;
+        try {
+          docs.add(TradeHistoryJson.read(line));
+        } catch (IOException torn) {
+          // only the tail can be incomplete (crash mid-append); nothing after it was acknowledged
+          break;
+        }
+      }
+    }
+    return docs;
+  }
+
+  void delete(Path segment) throws IOException {
+    Files.deleteIfExists(segment);
+  }
+
+  /** Append {@code docs} to the active segment, rolling it first when it is full. */
+  synchronized Segment append(List<TradeHistory> docs) throws IOException {
+    if (active == null || active.written >= segmentEntries) {
+      roll();
+    }
+    ByteArrayOutputStream buf = new ByteArrayOutputStream(docs.size() * 256);
+    for (TradeHistory doc : docs) {
+      TradeHistoryJson.write(buf, doc);
+      buf.write('\n');
+    }
+    ByteBuffer bytes = ByteBuffer.wrap(buf.toByteArray());
+    while (bytes.hasRemaining()) {
+      active.channel.write(bytes);
+    }
+    if (fsync) {
+      active.channel.force(false);
+    }
+    active.written += docs.size();
+    return active;
+  }
+
+  /** Record that {@code count} documents of {@code segment} are safely in Mongo. */
+  synchronized void ack(Segment segment, int count) {
+    segment.acked += count;
+    deleteIfDone(segment);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (active != null) {
+      active.sealed = true;
+      active.channel.close();
+      deleteIfDone(active);
+      active = null;
+    }
+  }
+
+  private void roll() throws IOException {
+    if (active != null) {
+      active.sealed = true;
+      active.channel.close();
+      deleteIfDone(active);
+    }
+    Path path = dir.resolve(String.format("%s%020d%s", PREFIX, nextSegmentId++, SUFFIX));
+    FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    active = new Segment(path, channel);
+  }
+
+  private void deleteIfDone(Segment segment) {
+    if (segment.sealed && segment.acked >= segment.written) {
+      try {
+        Files.deleteIfExists(segment.path);
+      } catch (IOException ignored) {
+        // a leftover segment is only replayed again; duplicates are ignored on insert
+      }
+    }
+  }
+
+  private static boolean isSegment(Path p) {
+    String name = p.getFileName().toString();
+    return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+  }
+
+  private static long segmentId(Path p) {
+    String name = p.getFileName().toString();
+    try {
+      return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    } catch (NumberFormatException ex) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.trademart.tradestore.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.trademart.tradestore.mongo.TradeHistory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * JSON form of {@link TradeHistory} used wherever a history document is parked outside Mongo (the
+ * async writer's journal, the outbox table). Dates are written as ISO strings and the Java types
+ * of the before/after map values are restored on read so replayed documents match directly
+ * written ones.
+ */
+final class TradeHistoryJson {
+
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper()
+          .findAndRegisterModules()
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+          .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+  private TradeHistoryJson() {}
+
+  static String write(Object value) {
+    try {
+      return MAPPER.writeValueAsString(value);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("cannot serialise trade history", ex);
+    }
+  }
+
+  static void write(OutputStream out, TradeHistory history) throws IOException {
+    MAPPER.writeValue(out, history);
+  }
+
+  static TradeHistory read(String json) throws IOException {
+    TradeHistory doc = MAPPER.readValue(json, TradeHistory.class);
+    restoreTypes(doc.getBefore());
+    restoreTypes(doc.getAfter());
+    return doc;
+  }
+
+  private static void restoreTypes(Map<String, Object> values) {
+    if (values == null) return;
+    if (values.get("maturityDate") instanceof String s) {
+      values.put("maturityDate", LocalDate.parse(s));
+    }
+    if (values.get("price") instanceof Number n && !(n instanceof BigDecimal)) {
+      values.put("price", new BigDecimal(n.toString()));
+    }
+    if (values.get("sequence") instanceof Integer i) {
+      values.put("sequence", i.longValue());
+    }
+  }
+}
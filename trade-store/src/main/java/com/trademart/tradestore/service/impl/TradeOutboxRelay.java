@@ -0,0 +1,172 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.mongo.TradeHistory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Relays {@code trade_outbox} rows to Mongo {@code trade_history} and to the {@code
+ * trade.processed} / {@code trade.audit} topics (see docs/architecture/ADR.md).
+ *
+ * <p>Each poll claims up to {@code trade.outbox.relay.batch-size} unpublished rows with {@code FOR
+ * UPDATE SKIP LOCKED}, so several replicas can relay concurrently without handing out the same
+ * row. The rows are marked published in the same transaction only after Mongo and Kafka have
+ * acknowledged them. A crash in between means the batch is relayed again. Mongo ignores the
+ * repeats because the history ids were fixed when the rows were written. Kafka consumers must
+ * tolerate a repeated event (at-least-once delivery).
+ */
+@Component
+@ConditionalOnProperty(name = "trade.history.mode", havingValue = "outbox")
+public class TradeOutboxRelay {
+
+  private static final Log LOG = LogFactory.getLog(TradeOutboxRelay.class);
+
+  static final String CLAIM_SQL =
+      "SELECT id, payload::text AS payload FROM trade_outbox WHERE published_at IS NULL "
+          + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+  static final String MARK_PUBLISHED_SQL =
+      "UPDATE trade_outbox SET published_at = now() WHERE id = ANY(?)";
+  static final String PURGE_SQL =
+      "DELETE FROM trade_outbox WHERE published_at < now() - make_interval(hours => ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionOperations transactions;
+  private final MongoTemplate mongoTemplate;
+  private final KafkaTemplate<String, String> kafkaTemplate;
+  private final int batchSize;
+  private final String processedTopic;
+  private final String auditTopic;
+  private final long sendTimeoutMs;
+  private final int retentionHours;
+  private final Counter relayed;
+  private final Counter failures;
+
+  private record OutboxRow(long id, TradeHistory history, String payload) {}
+
+  public TradeOutboxRelay(
+      JdbcTemplate jdbcTemplate,
+      TransactionOperations transactions,
+      MongoTemplate mongoTemplate,
+      ObjectProvider<KafkaTemplate<String, String>> kafkaTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${trade.outbox.relay.batch-size:500}") int batchSize,
+      @Value("${trade.outbox.relay.publish-kafka:true}") boolean publishKafka,
+      @Value("${trade.outbox.topics.processed:trade.processed}") String processedTopic,
+      @Value("${trade.outbox.topics.audit:trade.audit}") String auditTopic,
+      @Value("${trade.outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+      @Value("${trade.outbox.retention-hours:24}") int retentionHours) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactions = transactions;
+    this.mongoTemplate = mongoTemplate;
+    this.kafkaTemplate = publishKafka ? kafkaTemplate.getIfAvailable() : null;
+    this.batchSize = Math.max(1, batchSize);
+    this.processedTopic = processedTopic;
+    this.auditTopic = auditTopic;
+    this.sendTimeoutMs = sendTimeoutMs;
+    this.retentionHours = retentionHours;
+    this.relayed = meterRegistry.counter("trade_outbox_relayed_total");
+    this.failures = meterRegistry.counter("trade_outbox_relay_failures_total");
+  }
+
+  @Scheduled(fixedDelayString = "${trade.outbox.relay.fixed-delay-ms:200}")
+  public void poll() {
+    try {
+      // drain while there is a backlog instead of waiting a full delay between batches
+      int relayedRows;
+      do {
+        relayedRows = relayBatch();
+      } while (relayedRows == batchSize);
+    } catch (RuntimeException ex) {
+      failures.increment();
+      LOG.warn("Outbox relay failed, will retry: " + ex.getMessage());
+    }
+  }
+
+  /** Claim, deliver and mark one batch in a single transaction; returns the rows relayed. */
+  int relayBatch() {
+    Integer count =
+        transactions.execute(
+            status -> {
+              List<OutboxRow> rows =
+                  jdbcTemplate.query(
+                      CLAIM_SQL,
+                      (rs, n) -> toRow(rs.getLong("id"), rs.getString("payload")),
+                      batchSize);
+              if (rows.isEmpty()) {
+                return 0;
+              }
+              List<TradeHistory> docs = new ArrayList<>(rows.size());
+              for (OutboxRow row : rows) docs.add(row.history());
+              TradeHistoryBulkInsert.insertIgnoringDuplicates(mongoTemplate, docs);
+              publish(rows);
+
+              Long[] ids = rows.stream().map(OutboxRow::id).toArray(Long[]::new);
+              jdbcTemplate.update(
+                  con -> {
+                    var ps = con.prepareStatement(MARK_PUBLISHED_SQL);
+                    ps.setArray(1, con.createArrayOf("bigint", ids));
+                    return ps;
+                  });
+              return rows.size();
+            });
+    int relayedRows = count == null ? 0 : count;
+    relayed.increment(relayedRows);
+    return relayedRows;
+  }
+
+  @Scheduled(fixedDelayString = "${trade.outbox.purge.fixed-delay-ms:3600000}")
+  public void purgePublished() {
+    int deleted = jdbcTemplate.update(PURGE_SQL, retentionHours);
+    if (deleted > 0) {
+      LOG.info("Purged " + deleted + " published outbox rows");
+    }
+  }
+
+  private void publish(List<OutboxRow> rows) {
+    if (kafkaTemplate == null) {
+      return;
+    }
+    List<CompletableFuture<?>> sends = new ArrayList<>(rows.size() * 2);
+    for (OutboxRow row : rows) {
+      String key = row.history().getTradeId();
+      String processed = TradeHistoryJson.write(row.history().getAfter());
+      sends.add(kafkaTemplate.send(processedTopic, key, processed));
+      sends.add(kafkaTemplate.send(auditTopic, key, row.payload()));
+    }
+    try {
+      CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0]))
+          .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while publishing outbox events", ex);
+    } catch (ExecutionException | TimeoutException ex) {
+      throw new IllegalStateException("publishing outbox events failed", ex);
+    }
+  }
+
+  private static OutboxRow toRow(long id, String payload) {
+    try {
+      return new OutboxRow(id, TradeHistoryJson.read(payload), payload);
+    } catch (IOException ex) {
+      throw new IllegalStateException("unreadable outbox payload for row " + id, ex);
+    }
+  }
+}
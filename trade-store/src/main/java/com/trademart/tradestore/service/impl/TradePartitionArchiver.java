@@ -0,0 +1,188 @@
+package com.trademart.tradestore.service.impl;
+
+import com.trademart.tradestore.service.ClockService;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Keeps the partitioned {@code trades} table (migration V9_1 under db/partitioned) small.
+ *
+ * <p>Every run creates the monthly partitions for the next {@code
+ * trade.partitioning.months-ahead} months and archives cold ones. A month is cold once it ended
+ * more than {@code trade.partitioning.hot-months} months ago and holds no ACTIVE trade. Its
+ * partition is detached from {@code trades}, exported as gzipped CSV to {@code
+ * trade.partitioning.archive.dir} and dropped. Detaching is what keeps expiry scans, lookups,
+ * autovacuum and the per-partition indexes on hot data only.
+ *
+ * <p>A detached partition whose export failed stays in the database as a plain table and is
+ * exported again on the next run.
+ */
+@Component
+@ConditionalOnProperty(name = "trade.storage.layout", havingValue = "partitioned")
+public class TradePartitionArchiver {
+
+  private static final Log LOG = LogFactory.getLog(TradePartitionArchiver.class);
+
+  static final String ENSURE_PARTITIONS_SQL = "SELECT trade_ensure_partitions(?, ?)";
+  static final String LIST_PARTITIONS_SQL =
+      "SELECT c.relname, i.inhrelid IS NOT NULL AS attached FROM pg_class c "
+          + "LEFT JOIN pg_inherits i ON i.inhrelid = c.oid AND i.inhparent = 'trades'::regclass "
+          + "WHERE c.relkind = 'r' AND c.relname ~ '^trades_p[0-9]{6}$' ORDER BY c.relname";
+  static final String EXPORT_COLUMNS =
+      "id, trade_id, version, price, quantity, maturity_date, status, created_at, updated_at, "
+          + "opt_lock, ingest_sequence";
+
+  private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+  private static final int EXPORT_FETCH_SIZE = 5000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionOperations transactions;
+  private final ClockService clockService;
+  private final int hotMonths;
+  private final int monthsAhead;
+  private final Path archiveDir;
+
+  record Partition(String name, boolean attached) {}
+
+  public TradePartitionArchiver(
+      JdbcTemplate jdbcTemplate,
+      TransactionOperations transactions,
+      ClockService clockService,
+      @Value("${trade.partitioning.hot-months:3}") int hotMonths,
+      @Value("${trade.partitioning.months-ahead:12}") int monthsAhead,
+      @Value("${trade.partitioning.archive.dir:archive/trades}") String archiveDir) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactions = transactions;
+    this.clockService = clockService;
+    this.hotMonths = Math.max(1, hotMonths);
+    this.monthsAhead = Math.max(1, monthsAhead);
+    this.archiveDir = Paths.get(archiveDir);
+  }
+
+  @Scheduled(cron = "${trade.partitioning.archive.cron:0 30 2 * * *}", zone = "UTC")
+  public void run() {
+    try {
+      LocalDate today = LocalDate.ofInstant(clockService.nowUtc(), ZoneOffset.UTC);
+      Integer created =
+          jdbcTemplate.queryForObject(ENSURE_PARTITIONS_SQL, Integer.class, today, monthsAhead);
+      if (created != null && created > 0) {
+        LOG.info("Created " + created + " trade partitions");
+      }
+      List<String> archived = archiveColdPartitions(today);
+      if (!archived.isEmpty()) {
+        LOG.info("Archived trade partitions " + archived + " to " + archiveDir);
+      }
+    } catch (RuntimeException ex) {
+      LOG.warn("Trade partition maintenance failed, will retry: " + ex.getMessage());
+    }
+  }
+
+  /** Detach, export and drop every cold partition; returns the names of the archived ones. */
+  List<String> archiveColdPartitions(LocalDate today) {
+    List<Partition> partitions =
+        jdbcTemplate.query(
+            LIST_PARTITIONS_SQL,
+            (rs, n) -> new Partition(rs.getString("relname"), rs.getBoolean("attached")));
+    List<String> archived = new ArrayList<>();
+    for (Partition p : partitions) {
+      if (!isCold(p.name(), today, hotMonths)) continue;
+      if (p.attached()) {
+        Integer active =
+            jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + p.name() + " WHERE status = 'ACTIVE'", Integer.class);
+        if (active != null && active > 0) {
+          LOG.warn(
+              "Not archiving " + p.name() + ": " + active + " trades are still ACTIVE in it");
+          continue;
+        }
+        jdbcTemplate.execute("ALTER TABLE trades DETACH PARTITION " + p.name());
+      }
+      export(p.name());
+      jdbcTemplate.execute("DROP TABLE " + p.name());
+      archived.add(p.name());
+    }
+    return archived;
+  }
+
+  /** A partition is cold once its whole month lies more than {@code hotMonths} months back. */
+  static boolean isCold(String partition, LocalDate today, int hotMonths) {
+    YearMonth month = YearMonth.parse(partition.substring("trades_p".length()), PARTITION_MONTH);
+    return month.isBefore(YearMonth.from(today).minusMonths(hotMonths));
+  }
+
+  // written to a temp file and moved into place, so a file with the final name is always complete
+  private void export(String table) {
+    try {
+      Files.createDirectories(archiveDir);
+      Path target = archiveDir.resolve(table + ".csv.gz");
+      Path tmp = archiveDir.resolve(table + ".csv.gz.tmp");
+      try (Writer out =
+          new BufferedWriter(
+              new OutputStreamWriter(
+                  new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+        out.write(EXPORT_COLUMNS.replace(" ", ""));
+        out.write('\n');
+        // a cursor (fetch size inside a transaction) keeps memory flat for large partitions
+        transactions.executeWithoutResult(
+            s ->
+                jdbcTemplate.query(
+                    con -> {
+                      var ps =
+                          con.prepareStatement(
+                              "SELECT " + EXPORT_COLUMNS + " FROM " + table + " ORDER BY id");
+                      ps.setFetchSize(EXPORT_FETCH_SIZE);
+                      return ps;
+                    },
+                    (RowCallbackHandler) rs -> writeRow(out, rs)));
+      }
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("failed to export " + table, ex);
+    }
+  }
+
+  private static void writeRow(Writer out, ResultSet rs) throws SQLException {
+    try {
+      int columns = rs.getMetaData().getColumnCount();
+      for (int c = 1; c <= columns; c++) {
+        if (c > 1) out.write(',');
+        out.write(csv(rs.getString(c)));
+      }
+      out.write('\n');
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  static String csv(String value) {
+    if (value == null) return "";
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
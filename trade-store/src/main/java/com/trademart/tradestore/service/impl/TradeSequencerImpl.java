@@ -1,10 +1,14 @@
 package com.trademart.tradestore.service.impl;
 
 import com.trademart.tradestore.service.TradeSequencer;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 @Service
+@ConditionalOnProperty(name = "trade.sequence.strategy", havingValue = "db", matchIfMissing = true)
 public class TradeSequencerImpl implements TradeSequencer {
 
   private final JdbcTemplate jdbcTemplate;
@@ -20,4 +24,22 @@ public class TradeSequencerImpl implements TradeSequencer {
     Long v = jdbcTemplate.queryForObject("SELECT nextval('trade_ingest_seq')", Long.class);
     return v == null ? 0L : v.longValue();
   }
+
+  @Override
+  public long[] nextSequences(int count) {
+    if (count <= 0) {
+      return new long[0];
+    }
+    // one round trip for the whole batch; nextval() is evaluated row by row so the values are
+    // increasing within the result
+    List<Long> values =
+        jdbcTemplate.queryForList(
+            "SELECT nextval('trade_ingest_seq') FROM generate_series(1, ?)", Long.class, count);
+    long[] seqs = new long[values.size()];
+    for (int i = 0; i < seqs.length; i++) {
+      seqs[i] = values.get(i);
+    }
+    Arrays.sort(seqs);
+    return seqs;
+  }
 }
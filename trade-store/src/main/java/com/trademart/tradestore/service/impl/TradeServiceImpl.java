@@ -1,54 +1,163 @@
 package com.trademart.tradestore.service.impl;
 
 import com.trademart.tradeexpiry.service.TradeMaturityValidator;
+import com.trademart.tradestore.exception.TradeRejectedException;
+import com.trademart.tradestore.exception.TradeValidationException;
 import com.trademart.tradestore.model.TradeDto;
 import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
 import com.trademart.tradestore.model.TradeStatus;
+import com.trademart.tradestore.mongo.TradeHistory;
 import com.trademart.tradestore.repository.TradeRepository;
+import com.trademart.tradestore.repository.TradeUpsertResult;
 import com.trademart.tradestore.repository.mongo.TradeHistoryRepository;
+import com.trademart.tradestore.service.TradeDedupKey;
+import com.trademart.tradestore.service.TradeDedupStore;
+import com.trademart.tradestore.service.TradeHistoryWriter;
 import com.trademart.tradestore.service.TradeSequencer;
 import com.trademart.tradestore.service.TradeService;
+import com.trademart.tradestore.service.TradeVersionCache;
 import com.trademart.tradestore.service.TradeVersionValidator;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 
 @Service
 public class TradeServiceImpl implements TradeService {
 
   private final TradeRepository tradeRepository;
-  private final TradeHistoryRepository tradeHistoryRepository;
   private final TradeSequencer tradeSequencer;
   private final TradeVersionValidator versionValidator;
   private final TradeMaturityValidator maturityValidator;
+  private final TradeHistoryWriter historyWriter;
+  private final TransactionOperations transactions;
+  private final TradeVersionCache versionCache;
+  private final TradeDedupStore dedupStore;
 
-  // Removed legacy convenience constructor to decouple from relocated lifecycle
-  // code.
-
-  @Autowired
+  /** Writes history synchronously through the given repository. */
   public TradeServiceImpl(
       TradeRepository tradeRepository,
       TradeHistoryRepository tradeHistoryRepository,
       TradeSequencer tradeSequencer,
       TradeVersionValidator versionValidator,
       TradeMaturityValidator maturityValidator) {
+    this(
+        tradeRepository,
+        tradeSequencer,
+        versionValidator,
+        maturityValidator,
+        new SynchronousTradeHistoryWriter(tradeHistoryRepository),
+        TransactionOperations.withoutTransaction(),
+        TradeVersionCache.disabled());
+  }
+
+  public TradeServiceImpl(
+      TradeRepository tradeRepository,
+      TradeSequencer tradeSequencer,
+      TradeVersionValidator versionValidator,
+      TradeMaturityValidator maturityValidator,
+      TradeHistoryWriter historyWriter,
+      TransactionOperations transactions,
+      TradeVersionCache versionCache) {
+    this(
+        tradeRepository,
+        tradeSequencer,
+        versionValidator,
+        maturityValidator,
+        historyWriter,
+        transactions,
+        versionCache,
+        TradeDedupStore.disabled());
+  }
+
+  /** Dedup is optional: without {@code trade.dedup.enabled=true} every request runs in full. */
+  @Autowired
+  public TradeServiceImpl(
+      TradeRepository tradeRepository,
+      TradeSequencer tradeSequencer,
+      TradeVersionValidator versionValidator,
+      TradeMaturityValidator maturityValidator,
+      TradeHistoryWriter historyWriter,
+      TransactionOperations transactions,
+      TradeVersionCache versionCache,
+      ObjectProvider<TradeDedupStore> dedupStore) {
+    this(
+        tradeRepository,
+        tradeSequencer,
+        versionValidator,
+        maturityValidator,
+        historyWriter,
+        transactions,
+        versionCache,
+        dedupStore.getIfAvailable(TradeDedupStore::disabled));
+  }
+
+  public TradeServiceImpl(
+      TradeRepository tradeRepository,
+      TradeSequencer tradeSequencer,
+      TradeVersionValidator versionValidator,
+      TradeMaturityValidator maturityValidator,
+      TradeHistoryWriter historyWriter,
+      TransactionOperations transactions,
+      TradeVersionCache versionCache,
+      TradeDedupStore dedupStore) {
     this.tradeRepository = tradeRepository;
-    this.tradeHistoryRepository = tradeHistoryRepository;
     this.tradeSequencer = tradeSequencer;
     this.versionValidator = versionValidator;
     this.maturityValidator = maturityValidator;
+    this.historyWriter = historyWriter;
+    this.transactions = transactions;
+    this.versionCache = versionCache;
+    this.dedupStore = dedupStore;
   }
 
   @Override
   public TradeEntity createOrUpdateTrade(TradeDto dto) {
+    TradeDedupKey key = dedupStore.isEnabled() ? TradeDedupKey.of(dto) : null;
+    if (key == null) {
+      return ingest(dto, null);
+    }
+    // an exact replay of an applied request is acknowledged without redoing the write or history
+    if (dedupStore.isKnownDuplicate(key)) {
+      return acknowledged(dto);
+    }
+    try {
+      return ingest(dto, key);
+    } catch (TradeRejectedException ex) {
+      // a replay of an older version that was applied at the time is a duplicate, not a conflict
+      if (dedupStore.isRecorded(key)) {
+        return acknowledged(dto);
+      }
+      throw ex;
+    }
+  }
+
+  private TradeEntity ingest(TradeDto dto, TradeDedupKey key) {
+    // a version below one already committed is rejected without touching Postgres
+    if (versionCache.isKnownStale(dto.getTradeId(), dto.getVersion())) {
+      throw TradeRejectedException.staleVersion();
+    }
+
     // Simple version validation and upsert behavior
     var existingOpt = tradeRepository.findByTradeId(dto.getTradeId());
 
     TradeEntity before = null;
     if (existingOpt.isPresent()) {
       before = existingOpt.get();
+      versionCache.recordCommitted(before);
     }
 
     // delegate version validation to the validator component
@@ -71,19 +180,400 @@ public class TradeServiceImpl implements TradeService {
     long seq = tradeSequencer.nextSequence();
     entity.setIngestSequence(seq);
 
-    // Use an atomic DB upsert to avoid concurrent-insert races.
-    TradeEntity saved =
-        tradeRepository.upsertTrade(
-            entity.getTradeId(),
-            entity.getVersion(),
-            entity.getPrice(),
-            entity.getQuantity(),
-            entity.getMaturityDate(),
-            entity.getIngestSequence(),
-            entity.getStatus() == null ? null : entity.getStatus().name());
-
-    // write history doc
-    var hist = new com.trademart.tradestore.mongo.TradeHistory();
+    final TradeEntity previous = before;
+    TradeUpsertResult upsert =
+        inWriteTransaction(
+            () -> {
+              // the key is claimed in the write's transaction; losing the claim means a concurrent
+              // or other-replica copy of this request got there first
+              if (key != null && !dedupStore.claim(key)) {
+                return null;
+              }
+              // Use an atomic DB upsert to avoid concurrent-insert races.
+              TradeUpsertResult r =
+                  tradeRepository.upsertTrade(
+                      entity.getTradeId(),
+                      entity.getVersion(),
+                      entity.getPrice(),
+                      entity.getQuantity(),
+                      entity.getMaturityDate(),
+                      entity.getIngestSequence(),
+                      entity.getStatus() == null ? null : entity.getStatus().name());
+              // when a concurrent writer stored a higher version between our read and the
+              // upsert, the row was left untouched and there is no change to record
+              if (!r.isApplied()) {
+                if (key != null) dedupStore.release(List.of(key));
+              } else if (historyWriter.participatesInTransaction()) {
+                historyWriter.write(buildHistory(previous, r.getTrade(), seq));
+              }
+              return r;
+            });
+    if (upsert == null) {
+      return acknowledged(dto);
+    }
+    // only after commit: a rolled-back version must never make a lower one look stale
+    versionCache.recordCommitted(upsert.getTrade());
+    if (upsert.isApplied() && !historyWriter.participatesInTransaction()) {
+      try {
+        // write history doc
+        historyWriter.write(buildHistory(previous, upsert.getTrade(), seq));
+      } catch (RuntimeException ex) {
+        // the row is committed but its history is not; forget the key so a redelivery redoes it
+        if (key != null) dedupStore.release(List.of(key));
+        throw ex;
+      }
+    }
+    return upsert.getTrade();
+  }
+
+  /** What a duplicate is acknowledged with: the trade as submitted, with nothing written. */
+  private static TradeEntity acknowledged(TradeDto dto) {
+    return new TradeEntity(
+        dto.getTradeId(),
+        dto.getVersion(),
+        dto.getPrice(),
+        null,
+        dto.getMaturityDate(),
+        TradeStatus.ACTIVE);
+  }
+
+  @Override
+  public List<TradeIngestResult> createOrUpdateTrades(List<TradeDto> dtos) {
+    if (dtos == null || dtos.isEmpty()) {
+      return List.of();
+    }
+    TradeIngestResult[] results = new TradeIngestResult[dtos.size()];
+    TradeDedupKey[] keys = dedupKeys(dtos, results);
+
+    // drop provably stale items first, then one lookup for the current state of the rest
+    Set<String> tradeIds = new HashSet<>();
+    for (int i = 0; i < dtos.size(); i++) {
+      TradeDto dto = dtos.get(i);
+      if (dto == null || dto.getTradeId() == null || results[i] != null) continue;
+      if (versionCache.isKnownStale(dto.getTradeId(), dto.getVersion())) {
+        results[i] = TradeIngestResult.fromException(i, dto, TradeRejectedException.staleVersion());
+        continue;
+      }
+      tradeIds.add(dto.getTradeId());
+    }
+    Map<String, TradeEntity> current = new HashMap<>();
+    if (!tradeIds.isEmpty()) {
+      for (TradeEntity e : tradeRepository.findByTradeIdIn(tradeIds)) {
+        current.put(e.getTradeId(), e);
+        versionCache.recordCommitted(e);
+      }
+    }
+
+    // Postgres refuses to update the same row twice in one ON CONFLICT statement, so a batch
+    // with repeated tradeIds is split into waves: the n-th occurrence of a tradeId goes into
+    // wave n. Waves run in order so later versions of a trade see the state left by earlier ones.
+    List<List<Integer>> waves = new ArrayList<>();
+    Map<String, Integer> occurrences = new HashMap<>();
+    for (int i = 0; i < dtos.size(); i++) {
+      TradeDto dto = dtos.get(i);
+      if (results[i] != null) continue;
+      if (dto == null) {
+        results[i] =
+            TradeIngestResult.fromException(
+                i, null, new TradeValidationException("trade payload is required"));
+        continue;
+      }
+      int wave = occurrences.merge(String.valueOf(dto.getTradeId()), 1, Integer::sum) - 1;
+      while (waves.size() <= wave) waves.add(new ArrayList<>());
+      waves.get(wave).add(i);
+    }
+
+    int maxRows = TradeRepository.MAX_ROWS_PER_STATEMENT;
+    for (List<Integer> wave : waves) {
+      for (int from = 0; from < wave.size(); from += maxRows) {
+        List<Integer> slice = wave.subList(from, Math.min(from + maxRows, wave.size()));
+        upsertSlice(dtos, slice, keys, current, results);
+      }
+    }
+    if (keys != null) {
+      acknowledgeStaleReplays(dtos, keys, results);
+    }
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Dedup keys by input index, or null when dedup is off. Items the filter and table already know
+   * are acknowledged as duplicates in {@code results} straight away.
+   */
+  private TradeDedupKey[] dedupKeys(List<TradeDto> dtos, TradeIngestResult[] results) {
+    if (!dedupStore.isEnabled()) {
+      return null;
+    }
+    TradeDedupKey[] keys = new TradeDedupKey[dtos.size()];
+    List<TradeDedupKey> present = new ArrayList<>(dtos.size());
+    for (int i = 0; i < dtos.size(); i++) {
+      keys[i] = TradeDedupKey.of(dtos.get(i));
+      if (keys[i] != null) present.add(keys[i]);
+    }
+    Set<TradeDedupKey> known = dedupStore.knownDuplicates(present);
+    if (!known.isEmpty()) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] != null && known.contains(keys[i])) {
+          results[i] = TradeIngestResult.duplicate(i, acknowledged(dtos.get(i)));
+        }
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Stale-version rejections whose exact request was applied earlier are replays, not conflicts;
+   * one query finds them and turns them into duplicate acknowledgements.
+   */
+  private void acknowledgeStaleReplays(
+      List<TradeDto> dtos, TradeDedupKey[] keys, TradeIngestResult[] results) {
+    List<TradeDedupKey> stale = new ArrayList<>();
+    for (int i = 0; i < results.length; i++) {
+      if (keys[i] != null && isStaleRejection(results[i])) {
+        stale.add(keys[i]);
+      }
+    }
+    if (stale.isEmpty()) {
+      return;
+    }
+    Set<TradeDedupKey> recorded = dedupStore.recorded(stale);
+    for (int i = 0; i < results.length; i++) {
+      if (keys[i] != null && isStaleRejection(results[i]) && recorded.contains(keys[i])) {
+        results[i] = TradeIngestResult.duplicate(i, acknowledged(dtos.get(i)));
+      }
+    }
+  }
+
+  /**
+   * True when a slice write failed because of what one of its rows holds (a payload the repository
+   * refuses, or a constraint, length or numeric-range violation in the database) rather than
+   * because the database is unreachable. Only then does a per-trade replay isolate the bad row.
+   */
+  static boolean isRowSpecific(RuntimeException ex) {
+    if (ex instanceof TradeValidationException || ex instanceof IllegalArgumentException) {
+      return true;
+    }
+    return ex instanceof NonTransientDataAccessException
+        && !(ex instanceof DataAccessResourceFailureException)
+        && !(ex instanceof NonTransientDataAccessResourceException);
+  }
+
+  private static boolean isStaleRejection(TradeIngestResult result) {
+    return result != null && result.getError() instanceof TradeRejectedException;
+  }
+
+  /**
+   * Validate, sequence and upsert one slice of distinct tradeIds with a single statement, then
+   * bulk-insert the history documents. Results are written into {@code results} by input index.
+   */
+  private void upsertSlice(
+      List<TradeDto> dtos,
+      List<Integer> slice,
+      TradeDedupKey[] keys,
+      Map<String, TradeEntity> current,
+      TradeIngestResult[] results) {
+    List<Integer> admitted = new ArrayList<>(slice.size());
+    List<TradeEntity> rows = new ArrayList<>(slice.size());
+    for (int i : slice) {
+      TradeDto dto = dtos.get(i);
+      try {
+        versionValidator.validate(dto, current.get(dto.getTradeId()));
+        maturityValidator.validate(dto.getMaturityDate());
+      } catch (RuntimeException ex) {
+        results[i] = TradeIngestResult.fromException(i, dto, ex);
+        continue;
+      }
+      TradeEntity row = new TradeEntity();
+      row.setTradeId(dto.getTradeId());
+      row.setVersion(dto.getVersion());
+      row.setPrice(dto.getPrice());
+      row.setMaturityDate(dto.getMaturityDate());
+      row.setStatus(TradeStatus.ACTIVE);
+      admitted.add(i);
+      rows.add(row);
+    }
+    if (rows.isEmpty()) {
+      return;
+    }
+
+    long[] seqs = tradeSequencer.nextSequences(rows.size());
+    for (int k = 0; k < rows.size(); k++) {
+      rows.get(k).setIngestSequence(seqs[k]);
+    }
+
+    List<TradeHistory> histories = new ArrayList<>(rows.size());
+    Set<Integer> duplicates = new HashSet<>();
+    List<TradeUpsertResult> saved;
+    try {
+      saved =
+          inWriteTransaction(
+              () -> {
+                List<TradeEntity> writes = rows;
+                duplicates.clear();
+                if (keys != null) {
+                  writes = claimed(rows, admitted, keys, duplicates);
+                }
+                List<TradeUpsertResult> upserted =
+                    writes.isEmpty() ? List.of() : tradeRepository.upsertTrades(writes);
+                if (keys != null) {
+                  releaseNotApplied(upserted, admitted, keys, duplicates);
+                }
+                histories.clear();
+                histories.addAll(historiesFor(writes, upserted, current));
+                if (historyWriter.participatesInTransaction() && !histories.isEmpty()) {
+                  historyWriter.writeAll(histories);
+                }
+                return upserted;
+              });
+    } catch (RuntimeException ex) {
+      if (!isRowSpecific(ex)) {
+        for (int i : admitted) {
+          results[i] = TradeIngestResult.fromException(i, dtos.get(i), ex);
+        }
+        return;
+      }
+      // the repository or the database rejected a row and nothing was written; isolate the
+      // offending trade(s) by replaying this slice through the single-trade path
+      for (int i : admitted) {
+        TradeDto dto = dtos.get(i);
+        try {
+          TradeEntity after = createOrUpdateTrade(dto);
+          current.put(after.getTradeId(), after);
+          results[i] = TradeIngestResult.accepted(i, after);
+        } catch (RuntimeException single) {
+          results[i] = TradeIngestResult.fromException(i, dto, single);
+        }
+      }
+      return;
+    }
+
+    Map<String, TradeUpsertResult> savedById = new HashMap<>();
+    for (TradeUpsertResult r : saved) {
+      savedById.put(r.getTrade().getTradeId(), r);
+    }
+    List<Integer> applied = new ArrayList<>(admitted.size());
+    for (int k = 0; k < admitted.size(); k++) {
+      int i = admitted.get(k);
+      if (duplicates.contains(i)) {
+        results[i] = TradeIngestResult.duplicate(i, acknowledged(dtos.get(i)));
+        continue;
+      }
+      String tradeId = dtos.get(i).getTradeId();
+      TradeUpsertResult upsert = savedById.get(tradeId);
+      TradeEntity after = upsert.getTrade();
+      if (upsert.isApplied()) {
+        applied.add(i);
+        results[i] = TradeIngestResult.accepted(i, after);
+      } else {
+        // a concurrent writer stored a higher version after our lookup
+        results[i] =
+            TradeIngestResult.fromException(i, dtos.get(i), TradeRejectedException.staleVersion());
+      }
+      current.put(tradeId, after);
+      versionCache.recordCommitted(after);
+    }
+    if (histories.isEmpty() || historyWriter.participatesInTransaction()) {
+      return;
+    }
+
+    try {
+      historyWriter.writeAll(histories);
+    } catch (RuntimeException ex) {
+      // rows are committed but their audit trail is not; report them as failed so the caller can
+      // redeliver (re-applying the same version is idempotent for the trades table)
+      List<TradeDedupKey> unrecorded = new ArrayList<>(applied.size());
+      for (int i : applied) {
+        results[i] = TradeIngestResult.fromException(i, dtos.get(i), ex);
+        if (keys != null && keys[i] != null) unrecorded.add(keys[i]);
+      }
+      // a redelivery must not be acknowledged as a duplicate of a write without history
+      if (!unrecorded.isEmpty()) {
+        dedupStore.release(unrecorded);
+      }
+    }
+  }
+
+  /**
+   * Claim the dedup keys of a slice and return the rows whose key was new. Indexes (into {@code
+   * admitted}'s input positions) of rows whose key was already recorded go into {@code duplicates}.
+   */
+  private List<TradeEntity> claimed(
+      List<TradeEntity> rows,
+      List<Integer> admitted,
+      TradeDedupKey[] keys,
+      Set<Integer> duplicates) {
+    List<TradeDedupKey> sliceKeys = new ArrayList<>(rows.size());
+    for (int i : admitted) {
+      if (keys[i] != null) sliceKeys.add(keys[i]);
+    }
+    Set<TradeDedupKey> fresh = dedupStore.claimAll(sliceKeys);
+    List<TradeEntity> writes = new ArrayList<>(rows.size());
+    for (int k = 0; k < rows.size(); k++) {
+      TradeDedupKey key = keys[admitted.get(k)];
+      if (key == null || fresh.contains(key)) {
+        writes.add(rows.get(k));
+      } else {
+        duplicates.add(admitted.get(k));
+      }
+    }
+    return writes;
+  }
+
+  /** Give back the claims of rows a concurrent writer beat, so their keys stay unrecorded. */
+  private void releaseNotApplied(
+      List<TradeUpsertResult> upserted,
+      List<Integer> admitted,
+      TradeDedupKey[] keys,
+      Set<Integer> duplicates) {
+    Set<String> notApplied = new HashSet<>();
+    for (TradeUpsertResult r : upserted) {
+      if (!r.isApplied()) notApplied.add(r.getTrade().getTradeId());
+    }
+    if (notApplied.isEmpty()) {
+      return;
+    }
+    List<TradeDedupKey> release = new ArrayList<>(notApplied.size());
+    for (int i : admitted) {
+      TradeDedupKey key = keys[i];
+      if (key != null && !duplicates.contains(i) && notApplied.contains(key.tradeId())) {
+        release.add(key);
+      }
+    }
+    dedupStore.release(release);
+  }
+
+  /** History documents for the rows whose incoming version won, in row order. */
+  private static List<TradeHistory> historiesFor(
+      List<TradeEntity> rows, List<TradeUpsertResult> upserted, Map<String, TradeEntity> current) {
+    Map<String, TradeUpsertResult> byId = new HashMap<>();
+    for (TradeUpsertResult r : upserted) {
+      byId.put(r.getTrade().getTradeId(), r);
+    }
+    List<TradeHistory> histories = new ArrayList<>(rows.size());
+    for (TradeEntity row : rows) {
+      TradeUpsertResult r = byId.get(row.getTradeId());
+      if (r != null && r.isApplied()) {
+        histories.add(
+            buildHistory(current.get(row.getTradeId()), r.getTrade(), row.getIngestSequence()));
+      }
+    }
+    return histories;
+  }
+
+  /**
+   * Run the upsert and, for a transactional history writer, its history write in one database
+   * transaction. Other writers talk to Mongo and stay outside so the row lock is not held for a
+   * Mongo round trip. With dedup on, the key claim always shares the upsert's transaction.
+   */
+  private <T> T inWriteTransaction(Supplier<T> work) {
+    if (!historyWriter.participatesInTransaction() && !dedupStore.isEnabled()) {
+      return work.get();
+    }
+    return transactions.execute(status -> work.get());
+  }
+
+  static TradeHistory buildHistory(TradeEntity before, TradeEntity saved, long sequence) {
+    var hist = new TradeHistory();
     hist.setTradeId(saved.getTradeId());
     hist.setVersion(saved.getVersion());
     hist.setChangeType(before == null ? "CREATE" : "UPDATE");
@@ -104,12 +594,9 @@ public class TradeServiceImpl implements TradeService {
     hist.setActor("system");
     hist.setTimestamp(Instant.now());
     // include the same sequence in history
-    hist.setSequence(entity.getIngestSequence());
-    afterMap.put("sequence", entity.getIngestSequence());
-
-    tradeHistoryRepository.save(hist);
-
-    return saved;
+    hist.setSequence(sequence);
+    afterMap.put("sequence", sequence);
+    return hist;
   }
 
   // The previous updateAfterConflict fallback has been removed because the
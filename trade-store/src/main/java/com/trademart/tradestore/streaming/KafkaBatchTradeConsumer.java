@@ -0,0 +1,92 @@
+package com.trademart.tradestore.streaming;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.service.TradeService;
+import io.micrometer.observation.annotation.Observed;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Batch variant of {@link KafkaTradeConsumer}, enabled with {@code kafka.consumer.mode=batch}.
+ * Each poll (up to {@code spring.kafka.consumer.max-poll-records}) is deserialized and handed to
+ * {@link TradeService#createOrUpdateTrades} so the whole poll costs one lookup, one sequence fetch,
+ * one multi-row upsert and one history bulk insert instead of one round trip set per message.
+ *
+ * <p>Malformed messages and rejected trades are logged with their topic/partition/offset and
+ * skipped; they never fail the rest of the poll.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "batch")
+public class KafkaBatchTradeConsumer {
+
+  private static final Log LOG = LogFactory.getLog(KafkaBatchTradeConsumer.class);
+
+  private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+  private final TradeService tradeService;
+  private final TradeProcessingState state;
+
+  @Autowired
+  public KafkaBatchTradeConsumer(TradeService tradeService, TradeProcessingState state) {
+    this.tradeService = tradeService;
+    this.state = state;
+  }
+
+  @KafkaListener(
+      topics = "${kafka.topic.trades:trades}",
+      groupId = "${kafka.consumer.group-id:trade-store-group}",
+      batch = "true")
+  @Observed(name = "trade.consumer.process-batch")
+  public void consume(List<ConsumerRecord<String, String>> records) {
+    int size = records.size();
+    state.increment(size);
+    try {
+      List<TradeDto> dtos = new ArrayList<>(size);
+      List<ConsumerRecord<String, String>> parsed = new ArrayList<>(size);
+      for (ConsumerRecord<String, String> record : records) {
+        try {
+          dtos.add(mapper.readValue(record.value(), TradeDto.class));
+          parsed.add(record);
+        } catch (Exception ex) {
+          LOG.error("Failed to deserialize trade message at " + coordinates(record) + ": " + ex);
+        }
+      }
+      if (dtos.isEmpty()) {
+        return;
+      }
+      for (TradeIngestResult result : tradeService.createOrUpdateTrades(dtos)) {
+        if (!result.isAccepted()) {
+          LOG.warn(
+              "Trade "
+                  + result.getTradeId()
+                  + " v"
+                  + result.getVersion()
+                  + " at "
+                  + coordinates(parsed.get(result.getIndex()))
+                  + " "
+                  + result.getStatus()
+                  + ": "
+                  + result.getMessage());
+        }
+      }
+    } catch (Exception ex) {
+      // Swallow exceptions here and let the container/consumer handle retries based
+      // on config.
+      LOG.error("Failed to process trade batch of " + size + " messages: " + ex.getMessage(), ex);
+    } finally {
+      state.decrement(size);
+    }
+  }
+
+  private static String coordinates(ConsumerRecord<String, String> record) {
+    return record.topic() + "-" + record.partition() + "@" + record.offset();
+  }
+}
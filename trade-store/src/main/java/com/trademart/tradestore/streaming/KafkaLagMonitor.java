@@ -0,0 +1,175 @@
+package com.trademart.tradestore.streaming;
+
+import com.trademart.tradestore.metrics.TradeProcessingMetrics;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Measures the backlog of the trade consumer group ({@code kafka.lag.enabled=true}).
+ *
+ * <p>Every {@code kafka.lag.interval-ms} it compares the group's committed offsets with the end
+ * offsets of the trades topic through one cached {@link Admin} client. A partition without a
+ * committed offset counts from its earliest retained offset. The processing rate is the advance of
+ * the committed offsets between samples, smoothed with an exponentially weighted moving average
+ * ({@code kafka.lag.rate-smoothing}). Results go to {@link TradeProcessingState} and are exported
+ * by {@link TradeProcessingMetrics}.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.lag.enabled", havingValue = "true")
+public class KafkaLagMonitor {
+
+  private static final Log LOG = LogFactory.getLog(KafkaLagMonitor.class);
+
+  private final Supplier<Admin> adminFactory;
+  private final TradeProcessingState state;
+  private final TradeProcessingMetrics metrics;
+  private final String topic;
+  private final String groupId;
+  private final long timeoutMs;
+  private final double smoothing;
+
+  private Admin admin;
+  // sample state, only touched by the scheduler thread
+  private long lastCommitted = -1;
+  private long lastSampleMs;
+  private double rate = Double.NaN;
+
+  @Autowired
+  public KafkaLagMonitor(
+      KafkaAdmin kafkaAdmin,
+      TradeProcessingState state,
+      TradeProcessingMetrics metrics,
+      @Value("${kafka.topic.trades:trades}") String topic,
+      @Value("${kafka.consumer.group-id:trade-store-group}") String groupId,
+      @Value("${kafka.lag.timeout-ms:5000}") long timeoutMs,
+      @Value("${kafka.lag.rate-smoothing:0.3}") double smoothing) {
+    this(
+        () -> Admin.create(kafkaAdmin.getConfigurationProperties()),
+        state,
+        metrics,
+        topic,
+        groupId,
+        timeoutMs,
+        smoothing);
+  }
+
+  KafkaLagMonitor(
+      Supplier<Admin> adminFactory,
+      TradeProcessingState state,
+      TradeProcessingMetrics metrics,
+      String topic,
+      String groupId,
+      long timeoutMs,
+      double smoothing) {
+    this.adminFactory = adminFactory;
+    this.state = state;
+    this.metrics = metrics;
+    this.topic = topic;
+    this.groupId = groupId;
+    this.timeoutMs = timeoutMs;
+    this.smoothing = Math.min(1.0, Math.max(0.01, smoothing));
+  }
+
+  @Scheduled(
+      fixedDelayString = "${kafka.lag.interval-ms:15000}",
+      initialDelayString = "${kafka.lag.interval-ms:15000}")
+  public void poll() {
+    try {
+      sample(System.currentTimeMillis());
+    } catch (Exception ex) {
+      if (ex instanceof InterruptedException) Thread.currentThread().interrupt();
+      LOG.warn("Failed to read consumer lag for group " + groupId + ": " + ex.getMessage());
+      // the broker may have moved; reconnect on the next poll
+      close();
+    }
+  }
+
+  void sample(long nowMs) throws Exception {
+    Admin client = admin();
+    Map<TopicPartition, OffsetAndMetadata> committed =
+        client
+            .listConsumerGroupOffsets(groupId)
+            .partitionsToOffsetAndMetadata()
+            .get(timeoutMs, TimeUnit.MILLISECONDS);
+    TopicDescription description =
+        client
+            .describeTopics(List.of(topic))
+            .allTopicNames()
+            .get(timeoutMs, TimeUnit.MILLISECONDS)
+            .get(topic);
+
+    Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+    Map<TopicPartition, OffsetSpec> earliest = new HashMap<>();
+    for (TopicPartitionInfo p : description.partitions()) {
+      TopicPartition tp = new TopicPartition(topic, p.partition());
+      latest.put(tp, OffsetSpec.latest());
+      if (committed.get(tp) == null) earliest.put(tp, OffsetSpec.earliest());
+    }
+    Map<TopicPartition, ListOffsetsResultInfo> ends =
+        client.listOffsets(latest).all().get(timeoutMs, TimeUnit.MILLISECONDS);
+    Map<TopicPartition, ListOffsetsResultInfo> starts =
+        earliest.isEmpty()
+            ? Map.of()
+            : client.listOffsets(earliest).all().get(timeoutMs, TimeUnit.MILLISECONDS);
+
+    Map<Integer, Long> lag = new TreeMap<>();
+    long position = 0;
+    for (TopicPartition tp : latest.keySet()) {
+      OffsetAndMetadata c = committed.get(tp);
+      long from = c != null ? c.offset() : starts.get(tp).offset();
+      lag.put(tp.partition(), Math.max(0, ends.get(tp).offset() - from));
+      position += from;
+    }
+    record(lag, position, nowMs);
+  }
+
+  /**
+   * Publish one lag sample; {@code position} is the sum of the group's offsets over all partitions,
+   * whose advance since the previous sample gives the processing rate.
+   */
+  void record(Map<Integer, Long> lag, long position, long nowMs) {
+    if (lastCommitted >= 0 && nowMs > lastSampleMs) {
+      double seconds = Duration.ofMillis(nowMs - lastSampleMs).toNanos() / 1e9;
+      double current = Math.max(0, position - lastCommitted) / seconds;
+      rate = Double.isNaN(rate) ? current : smoothing * current + (1 - smoothing) * rate;
+    }
+    lastCommitted = position;
+    lastSampleMs = nowMs;
+    state.updateLag(lag, Double.isNaN(rate) ? 0 : rate);
+    metrics.refreshPartitionLag();
+  }
+
+  private synchronized Admin admin() {
+    if (admin == null) admin = adminFactory.get();
+    return admin;
+  }
+
+  @PreDestroy
+  public synchronized void close() {
+    if (admin != null) {
+      admin.close(Duration.ofSeconds(5));
+      admin = null;
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package com.trademart.tradestore.streaming;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.service.TradeService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Parallel variant of {@link KafkaTradeConsumer}, enabled with {@code
+ * kafka.consumer.mode=parallel}.
+ *
+ * <p>The listener thread only deserializes each poll and hands the trades to {@code
+ * kafka.consumer.parallel.workers} worker threads, chosen by hash(tradeId). Every version of a
+ * trade therefore lands on the same worker queue and is applied in offset order, while different
+ * trades are applied concurrently. Each worker drains up to {@code max-batch} queued trades into
+ * one {@link TradeService#createOrUpdateTrades} call. A full worker queue blocks the listener
+ * thread, which is the backpressure towards Kafka.
+ *
+ * <p>Auto-commit is off. An {@link OffsetTracker} commits per partition only up to the lowest
+ * offset still in flight, on the listener thread at the next poll or when the container goes idle.
+ * On revocation the listener waits up to {@code drain-timeout-ms} for the revoked partitions and
+ * commits them synchronously, so a rebalance replays at most the records that had not finished.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "parallel")
+public class KafkaParallelTradeConsumer implements ConsumerAwareRebalanceListener {
+
+  static final String LISTENER_ID = "trade-parallel-consumer";
+
+  private static final Log LOG = LogFactory.getLog(KafkaParallelTradeConsumer.class);
+
+  private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+  private final TradeService tradeService;
+  private final TradeProcessingState state;
+  private final OffsetTracker offsets = new OffsetTracker();
+  private final Worker[] workers;
+  private final int maxBatch;
+  private final long drainTimeoutMs;
+
+  private volatile boolean running;
+
+  private record Task(ConsumerRecord<String, String> record, TradeDto dto) {
+    TopicPartition partition() {
+      return new TopicPartition(record.topic(), record.partition());
+    }
+  }
+
+  @Autowired
+  public KafkaParallelTradeConsumer(
+      TradeService tradeService,
+      TradeProcessingState state,
+      MeterRegistry meterRegistry,
+      @Value("${kafka.consumer.parallel.workers:8}") int workers,
+      @Value("${kafka.consumer.parallel.queue-capacity:1000}") int queueCapacity,
+      @Value("${kafka.consumer.parallel.max-batch:100}") int maxBatch,
+      @Value("${kafka.consumer.parallel.drain-timeout-ms:10000}") long drainTimeoutMs) {
+    this.tradeService = tradeService;
+    this.state = state;
+    this.maxBatch = Math.max(1, maxBatch);
+    this.drainTimeoutMs = drainTimeoutMs;
+    this.workers = new Worker[Math.max(1, workers)];
+    for (int i = 0; i < this.workers.length; i++) {
+      int worker = i;
+      this.workers[i] = new Worker(i, Math.max(1, queueCapacity));
+      Gauge.builder(
+              "trade_processor_worker_queue_depth", state, s -> s.getWorkerQueueDepth(worker))
+          .description("Trade messages queued for one parallel consumer worker")
+          .tag("worker", Integer.toString(i))
+          .register(meterRegistry);
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+    running = true;
+    for (Worker w : workers) {
+      w.thread.start();
+    }
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    // the listener container stops first and drains its partitions in onPartitionsRevoked
+    // workers are not interrupted: that would abort an in-progress JDBC call
+    running = false;
+    for (Worker w : workers) {
+      w.thread.join(drainTimeoutMs);
+    }
+  }
+
+  @KafkaListener(
+      id = LISTENER_ID,
+      topics = "${kafka.topic.trades:trades}",
+      groupId = "${kafka.consumer.group-id:trade-store-group}",
+      containerFactory = "parallelTradeListenerContainerFactory",
+      properties = "enable.auto.commit=false")
+  public void consume(List<ConsumerRecord<String, String>> records, Consumer<?, ?> consumer)
+      throws InterruptedException {
+    commitCompleted(consumer);
+    for (ConsumerRecord<String, String> record : records) {
+      TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+      offsets.dispatched(tp, record.offset());
+      TradeDto dto;
+      try {
+        dto = mapper.readValue(record.value(), TradeDto.class);
+      } catch (Exception ex) {
+        LOG.error("Failed to deserialize trade message at " + coordinates(record) + ": " + ex);
+        offsets.completed(tp, record.offset());
+        continue;
+      }
+      int worker = workerFor(dto.getTradeId());
+      state.incrementWorker(worker);
+      workers[worker].queue.put(new Task(record, dto));
+    }
+  }
+
+  /** Commit progress made by the workers while no new records arrive. */
+  @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+  public void onIdle(ListenerContainerIdleEvent event) {
+    commitCompleted(event.getConsumer());
+  }
+
+  @Override
+  public void onPartitionsRevokedBeforeCommit(
+      Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+    try {
+      if (!offsets.awaitCompletion(partitions, drainTimeoutMs)) {
+        LOG.warn(
+            offsets.inFlight(partitions)
+                + " trade messages still in flight on revoked partitions will be redelivered");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    Map<TopicPartition, OffsetAndMetadata> done = offsets.committable(partitions);
+    try {
+      if (!done.isEmpty()) consumer.commitSync(done);
+    } catch (RuntimeException ex) {
+      LOG.warn("Offset commit on revocation failed: " + ex.getMessage());
+    }
+    offsets.remove(partitions);
+  }
+
+  @Override
+  public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+    offsets.remove(partitions);
+  }
+
+  int workerFor(String tradeId) {
+    return Math.floorMod(tradeId == null ? 0 : tradeId.hashCode(), workers.length);
+  }
+
+  private void commitCompleted(Consumer<?, ?> consumer) {
+    Map<TopicPartition, OffsetAndMetadata> done = offsets.committable();
+    if (done.isEmpty()) {
+      return;
+    }
+    consumer.commitAsync(
+        done,
+        (committed, ex) -> {
+          if (ex == null) {
+            offsets.markCommitted(committed);
+          } else {
+            LOG.warn("Offset commit failed, retrying with the next poll: " + ex.getMessage());
+          }
+        });
+  }
+
+  private void process(int worker, List<Task> batch) {
+    List<TradeDto> dtos = new ArrayList<>(batch.size());
+    for (Task t : batch) dtos.add(t.dto());
+    try {
+      for (TradeIngestResult result : tradeService.createOrUpdateTrades(dtos)) {
+        if (!result.isAccepted()) {
+          LOG.warn(
+              "Trade "
+                  + result.getTradeId()
+                  + " v"
+                  + result.getVersion()
+                  + " at "
+                  + coordinates(batch.get(result.getIndex()).record())
+                  + " "
+                  + result.getStatus()
+                  + ": "
+                  + result.getMessage());
+        }
+      }
+    } catch (Exception ex) {
+      // same policy as the other modes: log and move on rather than stall the partition
+      LOG.error("Failed to process " + batch.size() + " trade messages: " + ex.getMessage(), ex);
+    } finally {
+      for (Task t : batch) {
+        offsets.completed(t.partition(), t.record().offset());
+        state.decrementWorker(worker);
+      }
+    }
+  }
+
+  private static String coordinates(ConsumerRecord<String, String> record) {
+    return record.topic() + "-" + record.partition() + "@" + record.offset();
+  }
+
+  /** One single-threaded lane; all versions of a tradeId go through the same lane. */
+  private final class Worker implements Runnable {
+    private final int index;
+    private final BlockingQueue<Task> queue;
+    private final Thread thread;
+
+    Worker(int index, int capacity) {
+      this.index = index;
+      this.queue = new ArrayBlockingQueue<>(capacity);
+      this.thread = new Thread(this, "trade-consumer-worker-" + index);
+      this.thread.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      List<Task> batch = new ArrayList<>(maxBatch);
+      while (running || !queue.isEmpty()) {
+        try {
+          Task first = queue.poll(100, TimeUnit.MILLISECONDS);
+          if (first == null) continue;
+          batch.add(first);
+          queue.drainTo(batch, maxBatch - 1);
+          process(index, batch);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          return;
+        } finally {
+          batch.clear();
+        }
+      }
+    }
+  }
+}
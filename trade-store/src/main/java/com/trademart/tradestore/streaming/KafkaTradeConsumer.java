@@ -7,14 +7,19 @@ import io.micrometer.observation.annotation.Observed;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 /**
  * Kafka consumer that reads trade messages (JSON) and persists them via TradeService. It
  * increments/decrements an in-memory counter so we can expose the backlog to an autoscaler.
+ *
+ * <p>This record-at-a-time listener is the default ({@code kafka.consumer.mode=single}); see
+ * {@link KafkaBatchTradeConsumer} for the batched path.
  */
 @Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "single", matchIfMissing = true)
 public class KafkaTradeConsumer {
 
   private static final Log LOG = LogFactory.getLog(KafkaTradeConsumer.class);
@@ -0,0 +1,98 @@
+package com.trademart.tradestore.streaming;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Tracks which dispatched offsets are still in flight per partition so that only the contiguous
+ * completed prefix is committed. Records complete out of order across workers; the committable
+ * offset of a partition is its lowest in-flight offset, or one past the highest dispatched offset
+ * when nothing is in flight.
+ *
+ * <p>{@link #dispatched}, {@link #committable} and {@link #markCommitted} must be called from the
+ * consumer thread; {@link #completed} may be called from any thread.
+ */
+final class OffsetTracker {
+
+  private final Map<TopicPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+
+  private static final class PartitionState {
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    private volatile long next = -1;
+    private long committed = -1;
+
+    long committable() {
+      long dispatchedUpTo = next;
+      Long lowest = inFlight.ceiling(Long.MIN_VALUE);
+      return lowest == null ? dispatchedUpTo : lowest;
+    }
+  }
+
+  void dispatched(TopicPartition tp, long offset) {
+    PartitionState state = partitions.computeIfAbsent(tp, k -> new PartitionState());
+    state.inFlight.add(offset);
+    state.next = Math.max(state.next, offset + 1);
+  }
+
+  void completed(TopicPartition tp, long offset) {
+    PartitionState state = partitions.get(tp);
+    if (state != null) {
+      state.inFlight.remove(offset);
+    }
+  }
+
+  /** Offsets that moved past the last commit, ready to hand to {@code commitSync/Async}. */
+  Map<TopicPartition, OffsetAndMetadata> committable() {
+    return committable(partitions.keySet());
+  }
+
+  Map<TopicPartition, OffsetAndMetadata> committable(Collection<TopicPartition> tps) {
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    for (TopicPartition tp : tps) {
+      PartitionState state = partitions.get(tp);
+      if (state == null) continue;
+      long offset = state.committable();
+      if (offset > state.committed) {
+        offsets.put(tp, new OffsetAndMetadata(offset));
+      }
+    }
+    return offsets;
+  }
+
+  void markCommitted(Map<TopicPartition, OffsetAndMetadata> offsets) {
+    offsets.forEach(
+        (tp, om) -> {
+          PartitionState state = partitions.get(tp);
+          if (state != null) state.committed = Math.max(state.committed, om.offset());
+        });
+  }
+
+  /** Wait until nothing is in flight for {@code tps}; returns false on timeout. */
+  boolean awaitCompletion(Collection<TopicPartition> tps, long timeoutMs)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+    while (inFlight(tps) > 0) {
+      if (System.nanoTime() >= deadline) return false;
+      Thread.sleep(5);
+    }
+    return true;
+  }
+
+  void remove(Collection<TopicPartition> tps) {
+    tps.forEach(partitions::remove);
+  }
+
+  int inFlight(Collection<TopicPartition> tps) {
+    int n = 0;
+    for (TopicPartition tp : tps) {
+      PartitionState state = partitions.get(tp);
+      if (state != null) n += state.inFlight.size();
+    }
+    return n;
+  }
+}
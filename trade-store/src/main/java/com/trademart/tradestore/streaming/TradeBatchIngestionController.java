@@ -0,0 +1,172 @@
+package com.trademart.tradestore.streaming;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.trademart.tradestore.exception.TradeValidationException;
+import com.trademart.tradestore.model.TradeBatchSummary;
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.service.TradeService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Bulk ingestion endpoint for end-of-day files. The body is either a JSON array of trades or NDJSON
+ * (one trade object per line) and is read with Jackson's streaming parser, so only one DB batch of
+ * trades ({@code trade.ingest.batch.size}) is held in memory at a time. Each batch goes through
+ * {@link TradeService#createOrUpdateTrades}. The response summarises the whole request and lists
+ * the trades that were not accepted, up to {@code trade.ingest.batch.max-reported-items}.
+ */
+@RestController
+@RequestMapping("/trades")
+public class TradeBatchIngestionController {
+
+  public static final String NDJSON = "application/x-ndjson";
+
+  private final TradeService tradeService;
+  private final ObjectMapper mapper;
+  private final Validator validator;
+  private final MeterRegistry meterRegistry;
+  private final Counter batchRequests;
+  private final Map<TradeIngestResult.Status, Counter> itemsByStatus =
+      new EnumMap<>(TradeIngestResult.Status.class);
+  private final Timer batchTimer;
+  private final int batchSize;
+  private final int maxReportedItems;
+
+  public TradeBatchIngestionController(
+      TradeService tradeService,
+      ObjectMapper mapper,
+      Validator validator,
+      MeterRegistry meterRegistry,
+      @Value("${trade.ingest.batch.size:500}") int batchSize,
+      @Value("${trade.ingest.batch.max-reported-items:1000}") int maxReportedItems) {
+    this.tradeService = tradeService;
+    this.mapper = mapper;
+    this.validator = validator;
+    this.meterRegistry = meterRegistry;
+    this.batchRequests = meterRegistry.counter("trade_ingest_batch_requests_total");
+    for (TradeIngestResult.Status status : TradeIngestResult.Status.values()) {
+      itemsByStatus.put(
+          status, meterRegistry.counter("trade_ingest_batch_items_total", "status", status.name()));
+    }
+    this.batchTimer = meterRegistry.timer("trade_ingest_batch_latency_seconds");
+    this.batchSize = Math.max(1, batchSize);
+    this.maxReportedItems = Math.max(0, maxReportedItems);
+  }
+
+  @PostMapping(
+      path = "/batch",
+      consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+  public ResponseEntity<TradeBatchSummary> ingestBatch(HttpServletRequest request)
+      throws IOException {
+    batchRequests.increment();
+    var sample = Timer.start(meterRegistry);
+    TradeBatchSummary summary = new TradeBatchSummary(maxReportedItems);
+    List<TradeDto> pending = new ArrayList<>(batchSize);
+    // request position of each pending trade so results can be reported against it
+    int[] pendingIndexes = new int[batchSize];
+    int index = 0;
+    try (JsonParser parser = mapper.getFactory().createParser(request.getInputStream())) {
+      JsonToken token = parser.nextToken();
+      // a top-level array is unwrapped; otherwise the body is a sequence of root-level objects
+      // (NDJSON), which the parser reads natively since values may be separated by whitespace
+      boolean array = token == JsonToken.START_ARRAY;
+      if (array) token = parser.nextToken();
+      while (token != null && token != JsonToken.END_ARRAY) {
+        JsonNode node = mapper.readTree(parser);
+        int itemIndex = index++;
+        TradeDto dto = toDto(node, itemIndex, summary);
+        if (dto != null) {
+          pendingIndexes[pending.size()] = itemIndex;
+          pending.add(dto);
+          if (pending.size() >= batchSize) {
+            flush(pending, pendingIndexes, summary);
+          }
+        }
+        token = parser.nextToken();
+      }
+    } catch (JsonProcessingException ex) {
+      // a syntax error means the rest of the body cannot be trusted; keep what was already
+      // persisted and tell the caller where reading stopped
+      flush(pending, pendingIndexes, summary);
+      summary.setError(
+          "malformed request body after item " + index + ": " + ex.getOriginalMessage());
+      sample.stop(batchTimer);
+      return ResponseEntity.badRequest().body(summary);
+    }
+    flush(pending, pendingIndexes, summary);
+    sample.stop(batchTimer);
+    return ResponseEntity.ok(summary);
+  }
+
+  private TradeDto toDto(JsonNode node, int itemIndex, TradeBatchSummary summary) {
+    TradeDto dto;
+    try {
+      dto = mapper.treeToValue(node, TradeDto.class);
+    } catch (JsonProcessingException ex) {
+      var error = new TradeValidationException("malformed trade: " + ex.getOriginalMessage());
+      record(summary, TradeIngestResult.fromException(itemIndex, null, error));
+      return null;
+    }
+    Set<ConstraintViolation<TradeDto>> violations = validator.validate(dto);
+    if (!violations.isEmpty()) {
+      String message =
+          violations.stream()
+              .map(v -> v.getPropertyPath() + " " + v.getMessage())
+              .sorted()
+              .collect(Collectors.joining(", "));
+      record(
+          summary,
+          TradeIngestResult.fromException(
+              itemIndex, dto, new TradeValidationException("Validation failed: " + message)));
+      return null;
+    }
+    return dto;
+  }
+
+  /** Persist the buffered trades and fold their results into the summary. */
+  private void flush(List<TradeDto> pending, int[] pendingIndexes, TradeBatchSummary summary) {
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<TradeIngestResult> results;
+    try {
+      results = tradeService.createOrUpdateTrades(pending);
+    } catch (RuntimeException ex) {
+      results = new ArrayList<>(pending.size());
+      for (int i = 0; i < pending.size(); i++) {
+        results.add(TradeIngestResult.fromException(i, pending.get(i), ex));
+      }
+    }
+    for (TradeIngestResult result : results) {
+      record(summary, result.withIndex(pendingIndexes[result.getIndex()]));
+    }
+    pending.clear();
+  }
+
+  private void record(TradeBatchSummary summary, TradeIngestResult result) {
+    summary.record(result);
+    itemsByStatus.get(result.getStatus()).increment();
+  }
+}
@@ -1,11 +1,14 @@
 package com.trademart.tradestore.streaming;
 
 import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.service.TradeIngestJournal;
 import com.trademart.tradestore.service.TradeService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import jakarta.validation.Valid;
+import java.net.URI;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -18,13 +21,19 @@ import org.springframework.web.bind.annotation.RestController;
 @Validated
 public class TradeIngestionController {
   private final TradeService tradeService;
+  // only present in trade.ingest.mode=journal
+  private final TradeIngestJournal journal;
   private final MeterRegistry meterRegistry;
   private final Counter ingestRequests;
   private final Counter ingestErrors;
   private final Timer ingestTimer;
 
-  public TradeIngestionController(TradeService tradeService, MeterRegistry meterRegistry) {
+  public TradeIngestionController(
+      TradeService tradeService,
+      MeterRegistry meterRegistry,
+      ObjectProvider<TradeIngestJournal> journal) {
     this.tradeService = tradeService;
+    this.journal = journal.getIfAvailable();
     this.meterRegistry = meterRegistry;
     this.ingestRequests = meterRegistry.counter("trade_ingest_requests_total");
     this.ingestErrors = meterRegistry.counter("trade_ingest_errors_total");
@@ -36,19 +45,26 @@ public class TradeIngestionController {
     ingestRequests.increment();
     var sample = Timer.start(meterRegistry);
     try {
+      // journal mode: 202 Accepted once the trade is durable locally; it is applied shortly after
+      if (journal != null && journal.append(trade)) {
+        sample.stop(ingestTimer);
+        return ResponseEntity.accepted().location(location(trade.getTradeId())).body("accepted");
+      }
       // persist trade and write history
       var saved = tradeService.createOrUpdateTrade(trade);
       sample.stop(ingestTimer);
       // return 201 Created with location header pointing to resource
-      return ResponseEntity.created(
-              org.springframework.web.util.UriComponentsBuilder.fromPath("/trades/{id}")
-                  .buildAndExpand(saved.getTradeId())
-                  .toUri())
-          .body("created");
+      return ResponseEntity.created(location(saved.getTradeId())).body("created");
     } catch (RuntimeException ex) {
       ingestErrors.increment();
       sample.stop(ingestTimer);
       throw ex;
     }
   }
+
+  private static URI location(String tradeId) {
+    return org.springframework.web.util.UriComponentsBuilder.fromPath("/trades/{id}")
+        .buildAndExpand(tradeId)
+        .toUri();
+  }
 }
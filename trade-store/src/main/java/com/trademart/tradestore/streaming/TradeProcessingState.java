@@ -1,5 +1,8 @@
 package com.trademart.tradestore.streaming;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.springframework.stereotype.Component;
 
@@ -10,6 +13,10 @@ import org.springframework.stereotype.Component;
 @Component
 public class TradeProcessingState {
   private final AtomicLong pending = new AtomicLong(0);
+  private final Map<Integer, AtomicLong> workerDepths = new ConcurrentHashMap<>();
+  private volatile Map<Integer, Long> partitionLag = Map.of();
+  private volatile long totalLag;
+  private volatile double processingRate;
 
   public void increment() {
     pending.incrementAndGet();
@@ -19,7 +26,78 @@ public class TradeProcessingState {
     pending.updateAndGet(v -> v > 0 ? v - 1 : 0);
   }
 
+  public void increment(int count) {
+    pending.addAndGet(count);
+  }
+
+  public void decrement(int count) {
+    pending.updateAndGet(v -> Math.max(0, v - count));
+  }
+
   public long getPending() {
     return pending.get();
   }
+
+  /** A message was queued for {@code worker} in the parallel consumer; also counts as pending. */
+  public void incrementWorker(int worker) {
+    workerDepths.computeIfAbsent(worker, w -> new AtomicLong()).incrementAndGet();
+    increment();
+  }
+
+  public void decrementWorker(int worker) {
+    AtomicLong depth = workerDepths.get(worker);
+    if (depth != null) depth.updateAndGet(v -> v > 0 ? v - 1 : 0);
+    decrement();
+  }
+
+  public long getWorkerQueueDepth(int worker) {
+    AtomicLong depth = workerDepths.get(worker);
+    return depth == null ? 0 : depth.get();
+  }
+
+  /** Snapshot of queue depth per parallel-consumer worker (empty in other consumer modes). */
+  public Map<Integer, Long> getWorkerQueueDepths() {
+    Map<Integer, Long> snapshot = new TreeMap<>();
+    workerDepths.forEach((w, d) -> snapshot.put(w, d.get()));
+    return snapshot;
+  }
+
+  /**
+   * Latest consumer-group lag snapshot from {@link KafkaLagMonitor}: lag per partition of the
+   * trades topic and the smoothed group-wide processing rate in messages per second.
+   */
+  public void updateLag(Map<Integer, Long> lagByPartition, double processingRate) {
+    long total = 0;
+    for (long lag : lagByPartition.values()) total += lag;
+    this.partitionLag = Map.copyOf(lagByPartition);
+    this.totalLag = total;
+    this.processingRate = processingRate;
+  }
+
+  public long getTotalLag() {
+    return totalLag;
+  }
+
+  public long getPartitionLag(int partition) {
+    return partitionLag.getOrDefault(partition, 0L);
+  }
+
+  public Map<Integer, Long> getPartitionLags() {
+    return new TreeMap<>(partitionLag);
+  }
+
+  public double getProcessingRate() {
+    return processingRate;
+  }
+
+  /**
+   * Seconds until the current lag is consumed at the smoothed processing rate; infinite while
+   * there is lag but nothing is being processed. Arrivals during that time are not included.
+   */
+  public double getTimeToDrainSeconds() {
+    long lag = totalLag;
+    if (lag == 0) return 0;
+    double rate = processingRate;
+    return rate > 0 ? lag / rate : Double.POSITIVE_INFINITY;
+  }
 }
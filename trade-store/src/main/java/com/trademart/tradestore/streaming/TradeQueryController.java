@@ -1,9 +1,18 @@
 package com.trademart.tradestore.streaming;
 
+import com.trademart.tradeexpiry.repository.TradeMaxVersion;
 import com.trademart.tradeexpiry.repository.TradeRepository;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -12,14 +21,19 @@ import org.springframework.web.bind.annotation.RestController;
 public class TradeQueryController {
 
   private final TradeRepository tradeRepository;
+  private final int maxIdsPerLookup;
 
-  public TradeQueryController(TradeRepository tradeRepository) {
+  public TradeQueryController(
+      TradeRepository tradeRepository,
+      @Value("${trade.query.max-versions.max-ids:1000}") int maxIdsPerLookup) {
     this.tradeRepository = tradeRepository;
+    this.maxIdsPerLookup = Math.max(1, maxIdsPerLookup);
   }
 
   /**
    * Return the current max version for a given tradeId. Returns 204 No Content when no versions
-   * exist yet for that tradeId.
+   * exist yet for that tradeId. Always read from Postgres: callers such as trade-repair build the
+   * next version from it, and the trade state store only sees this replica's writes.
    */
   @GetMapping("/{tradeId}/max-version")
   public ResponseEntity<Integer> maxVersion(@PathVariable String tradeId) {
@@ -29,4 +43,27 @@ public class TradeQueryController {
     }
     return ResponseEntity.ok(max);
   }
+
+  /**
+   * Max versions for a JSON array of tradeIds, as a {@code tradeId -> version} object. TradeIds
+   * with no stored version are left out. All ids are resolved with one grouped query, like
+   * {@link #maxVersion}. More than {@code trade.query.max-versions.max-ids} ids is a 400.
+   */
+  @PostMapping("/max-versions")
+  public ResponseEntity<Map<String, Integer>> maxVersions(@RequestBody List<String> tradeIds) {
+    Set<String> ids = new LinkedHashSet<>();
+    for (String tradeId : tradeIds) {
+      if (tradeId != null && !tradeId.isBlank()) ids.add(tradeId);
+    }
+    if (ids.size() > maxIdsPerLookup) {
+      return ResponseEntity.badRequest().build();
+    }
+    Map<String, Integer> versions = new LinkedHashMap<>();
+    if (!ids.isEmpty()) {
+      for (TradeMaxVersion max : tradeRepository.findMaxVersionsByTradeIdIn(List.copyOf(ids))) {
+        if (max.version() != null) versions.put(max.tradeId(), max.version());
+      }
+    }
+    return ResponseEntity.ok(versions);
+  }
 }
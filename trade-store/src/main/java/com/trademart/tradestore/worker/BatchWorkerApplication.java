@@ -2,13 +2,27 @@ package com.trademart.tradestore.worker;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeIngestResult;
 import com.trademart.tradestore.service.TradeService;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -16,16 +30,29 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 
 /**
  * Lightweight batch worker application. Run with `--spring.profiles.active=batch` (or the
  * Dockerfile sets this) to start the worker. It consumes up to `batch.maxMessages` messages and
- * then exits.
+ * then exits, or earlier once no message arrived for `batch.idleTimeoutMs` (0 = keep waiting).
+ *
+ * <p>`batch.concurrency` consumers (capped at the topic's partition count) run in one group. Each
+ * poll of up to `batch.pollRecords` records goes through {@link
+ * TradeService#createOrUpdateTrades} as one batch, and its offsets are committed only after the
+ * batch is persisted. Trades that fail (not rejected) are retried `batch.maxRetries` times; if they
+ * still fail the poll is left uncommitted, the worker stops and exits with status 1, and the next
+ * run resumes from the last commit. Malformed and rejected messages are logged and committed.
+ *
+ * <p>With {@code spring.threads.virtual.enabled=true} (the {@code virtual} profile, Java 21) the
+ * consumers run on virtual threads.
  */
 @SpringBootApplication
 @Profile("batch")
 public class BatchWorkerApplication implements CommandLineRunner {
 
+  private static final Log LOG = LogFactory.getLog(BatchWorkerApplication.class);
+
   @Value("${batch.bootstrapServers:}")
   private String bootstrapServers;
 
@@ -36,13 +63,57 @@ public class BatchWorkerApplication implements CommandLineRunner {
   private String groupId;
 
   @Value("${batch.maxMessages:100}")
-  private int maxMessages;
+  private long maxMessages;
+
+  @Value("${batch.concurrency:1}")
+  private int concurrency;
+
+  @Value("${batch.pollRecords:500}")
+  private int pollRecords;
+
+  @Value("${batch.idleTimeoutMs:0}")
+  private long idleTimeoutMs;
+
+  @Value("${batch.maxRetries:3}")
+  private int maxRetries;
+
+  @Value("${batch.retryBackoffMs:1000}")
+  private long retryBackoffMs;
 
   @Value("${batch.exitOnComplete:true}")
   private boolean exitOnComplete;
 
+  @Value("${spring.threads.virtual.enabled:false}")
+  private boolean virtualThreads;
+
   private final TradeService tradeService;
-  private final ObjectMapper mapper = new ObjectMapper();
+  // maturityDate is a LocalDate
+  private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+  /** Counters shared by the consumer threads; {@code claimed} enforces batch.maxMessages. */
+  static final class Stats {
+    final AtomicLong claimed = new AtomicLong();
+    final AtomicLong accepted = new AtomicLong();
+    final AtomicLong rejected = new AtomicLong();
+    final AtomicLong malformed = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong polls = new AtomicLong();
+    final AtomicBoolean aborted = new AtomicBoolean();
+
+    /** Reserve up to {@code wanted} messages of the budget; returns how many may be processed. */
+    int claim(int wanted, long max) {
+      while (true) {
+        long current = claimed.get();
+        long take = Math.min(wanted, max - current);
+        if (take <= 0) return 0;
+        if (claimed.compareAndSet(current, current + take)) return (int) take;
+      }
+    }
+
+    long processed() {
+      return accepted.get() + rejected.get() + malformed.get() + failed.get();
+    }
+  }
 
   @Autowired
   public BatchWorkerApplication(TradeService tradeService) {
@@ -60,44 +131,205 @@ public class BatchWorkerApplication implements CommandLineRunner {
       bootstrapServers = System.getenv("KAFKA_BOOTSTRAP_SERVERS");
     }
     if (bootstrapServers == null || bootstrapServers.isBlank()) {
-      System.err.println(
+      LOG.error(
           "No Kafka bootstrap servers configured. Set batch.bootstrapServers or KAFKA_BOOTSTRAP_SERVERS.");
       System.exit(2);
     }
 
-    Properties props = new Properties();
-    props.put("bootstrap.servers", bootstrapServers);
-    props.put("group.id", groupId);
-    props.put("key.deserializer", StringDeserializer.class.getName());
-    props.put("value.deserializer", StringDeserializer.class.getName());
-    props.put("auto.offset.reset", "earliest");
-    props.put("enable.auto.commit", "true");
+    Stats stats = new Stats();
+    long started = System.nanoTime();
+    long lag;
+    // a consumer that never subscribes, used for metadata and the final lag
+    try (KafkaConsumer<String, String> meta = new KafkaConsumer<>(consumerProperties())) {
+      List<PartitionInfo> partitions = meta.partitionsFor(topic);
+      int partitionCount = partitions == null ? 0 : partitions.size();
+      int threads = Math.max(1, Math.min(concurrency, Math.max(1, partitionCount)));
+      LOG.info(
+          "Batch worker starting "
+              + threads
+              + " consumer(s) on "
+              + topic
+              + " ("
+              + partitionCount
+              + " partitions), up to "
+              + maxMessages
+              + " messages");
+
+      SimpleAsyncTaskExecutor executor = consumerExecutor();
+      List<CompletableFuture<Void>> consumers = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        consumers.add(CompletableFuture.runAsync(() -> consumeLoop(stats), executor));
+      }
+      CompletableFuture.allOf(consumers.toArray(new CompletableFuture<?>[0])).join();
+      lag = remainingLag(meta);
+    }
+
+    double seconds = Math.max(1e-3, (System.nanoTime() - started) / 1e9);
+    LOG.info(
+        String.format(
+            "Batch worker processed %d messages in %.1fs (%.0f msg/s, %d polls): accepted=%d"
+                + " rejected=%d malformed=%d failed=%d, remaining lag=%d%s",
+            stats.processed(),
+            seconds,
+            stats.processed() / seconds,
+            stats.polls.get(),
+            stats.accepted.get(),
+            stats.rejected.get(),
+            stats.malformed.get(),
+            stats.failed.get(),
+            lag,
+            stats.aborted.get() ? ", aborted" : ""));
+    // In production we may want the process to exit so a Kubernetes Job completes.
+    // Tests set batch.exitOnComplete=false so the JVM is not terminated during test
+    // runs.
+    if (exitOnComplete) {
+      System.exit(stats.aborted.get() ? 1 : 0);
+    }
+  }
 
-    int consumed = 0;
-    try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
+  private void consumeLoop(Stats stats) {
+    try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProperties())) {
       consumer.subscribe(List.of(topic));
-      while (consumed < maxMessages) {
+      long idleSince = System.currentTimeMillis();
+      while (!stats.aborted.get() && stats.claimed.get() < maxMessages) {
         ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(1));
+        long now = System.currentTimeMillis();
+        if (records.isEmpty()) {
+          if (idleTimeoutMs > 0 && now - idleSince >= idleTimeoutMs) break;
+          continue;
+        }
+        idleSince = now;
+        int take = stats.claim(records.count(), maxMessages);
+        if (take == 0) break;
+        List<ConsumerRecord<String, String>> batch = new ArrayList<>(take);
         for (ConsumerRecord<String, String> record : records) {
-          try {
-            TradeDto dto = mapper.readValue(record.value(), TradeDto.class);
-            tradeService.createOrUpdateTrade(dto);
-            consumed++;
-            if (consumed >= maxMessages) break;
-          } catch (Exception ex) {
-            System.err.println("Worker failed to process message: " + ex.getMessage());
-            // continue processing other messages
+          if (batch.size() == take) break;
+          batch.add(record);
+        }
+        stats.polls.incrementAndGet();
+        if (!persist(batch, stats)) {
+          stats.aborted.set(true);
+          break;
+        }
+        consumer.commitSync(nextOffsets(batch));
+      }
+    } catch (RuntimeException ex) {
+      LOG.error("Batch worker consumer failed: " + ex.getMessage(), ex);
+      stats.aborted.set(true);
+    }
+  }
+
+  /** Persist one poll; false if some trades still failed after all retries. */
+  boolean persist(List<ConsumerRecord<String, String>> batch, Stats stats) {
+    List<TradeDto> pending = new ArrayList<>(batch.size());
+    for (ConsumerRecord<String, String> record : batch) {
+      try {
+        pending.add(mapper.readValue(record.value(), TradeDto.class));
+      } catch (Exception ex) {
+        stats.malformed.incrementAndGet();
+        LOG.warn("Skipping malformed message at " + coordinates(record) + ": " + ex.getMessage());
+      }
+    }
+    for (int attempt = 0; !pending.isEmpty(); attempt++) {
+      List<TradeDto> retry = new ArrayList<>();
+      try {
+        List<TradeIngestResult> results = tradeService.createOrUpdateTrades(pending);
+        for (int i = 0; i < pending.size(); i++) {
+          TradeIngestResult r = i < results.size() ? results.get(i) : null;
+          if (r != null && r.isAccepted()) {
+            stats.accepted.incrementAndGet();
+          } else if (r != null && r.getStatus() == TradeIngestResult.Status.REJECTED) {
+            stats.rejected.incrementAndGet();
+            LOG.warn(
+                "Trade " + r.getTradeId() + " v" + r.getVersion() + " rejected: " + r.getMessage());
+          } else {
+            retry.add(pending.get(i));
           }
         }
+      } catch (RuntimeException ex) {
+        LOG.warn("Batch of " + pending.size() + " trades failed: " + ex.getMessage());
+        retry = pending;
+      }
+      if (retry.isEmpty()) return true;
+      if (attempt >= maxRetries) {
+        stats.failed.addAndGet(retry.size());
+        LOG.error(
+            retry.size() + " trades still failing after " + maxRetries + " retries; stopping");
+        return false;
       }
+      try {
+        Thread.sleep(retryBackoffMs * (attempt + 1));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      pending = retry;
     }
+    return true;
+  }
 
-    System.out.println("Batch worker processed " + consumed + " messages.");
-    // In production we may want the process to exit so a Kubernetes Job completes.
-    // Tests set batch.exitOnComplete=false so the JVM is not terminated during test
-    // runs.
-    if (exitOnComplete) {
-      System.exit(0);
+  private static Map<TopicPartition, OffsetAndMetadata> nextOffsets(
+      List<ConsumerRecord<String, String>> batch) {
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    for (ConsumerRecord<String, String> record : batch) {
+      TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+      OffsetAndMetadata next = new OffsetAndMetadata(record.offset() + 1);
+      offsets.merge(tp, next, (a, b) -> a.offset() >= b.offset() ? a : b);
+    }
+    return offsets;
+  }
+
+  /** Messages on the topic not yet committed by the group. */
+  private long remainingLag(KafkaConsumer<String, String> meta) {
+    try {
+      List<PartitionInfo> partitions = meta.partitionsFor(topic);
+      if (partitions == null) return 0;
+      Set<TopicPartition> tps = new HashSet<>();
+      for (PartitionInfo p : partitions) tps.add(new TopicPartition(topic, p.partition()));
+      Map<TopicPartition, OffsetAndMetadata> committed = meta.committed(tps);
+      Map<TopicPartition, Long> start = meta.beginningOffsets(tps);
+      long lag = 0;
+      for (Map.Entry<TopicPartition, Long> end : meta.endOffsets(tps).entrySet()) {
+        OffsetAndMetadata c = committed.get(end.getKey());
+        lag += Math.max(0, end.getValue() - (c != null ? c.offset() : start.get(end.getKey())));
+      }
+      return lag;
+    } catch (RuntimeException ex) {
+      LOG.warn("Could not read remaining lag: " + ex.getMessage());
+      return -1;
+    }
+  }
+
+  private Properties consumerProperties() {
+    Properties props = new Properties();
+    props.put("bootstrap.servers", bootstrapServers);
+    props.put("group.id", groupId);
+    props.put("key.deserializer", StringDeserializer.class.getName());
+    props.put("value.deserializer", StringDeserializer.class.getName());
+    props.put("auto.offset.reset", "earliest");
+    // offsets are committed after each poll is persisted
+    props.put("enable.auto.commit", "false");
+    props.put("max.poll.records", String.valueOf(Math.max(1, pollRecords)));
+    return props;
+  }
+
+  private static String coordinates(ConsumerRecord<?, ?> record) {
+    return record.topic() + "-" + record.partition() + "@" + record.offset();
+  }
+
+  private SimpleAsyncTaskExecutor consumerExecutor() {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("batch-worker-");
+    if (!virtualThreads) {
+      return executor;
+    }
+    if (Runtime.version().feature() < 21) {
+      LOG.warn(
+          "spring.threads.virtual.enabled is set but Java "
+              + Runtime.version().feature()
+              + " has no virtual threads; using platform threads.");
+      return executor;
     }
+    executor.setVirtualThreads(true);
+    return executor;
   }
 }
@@ -0,0 +1,14 @@
+-- Idempotency keys of applied ingest requests: (trade_id, version, hash of the payload). An exact
+-- replay (Kafka redelivery, a trade-repair resubmit) finds its key here and is acknowledged
+-- without touching trades or writing history again. The key is inserted in the same transaction
+-- as the trades upsert, so it exists exactly when the write committed. Rows older than
+-- trade.dedup.window-hours are pruned by PostgresTradeDedupStore.
+CREATE TABLE IF NOT EXISTS trade_ingest_dedup (
+    trade_id VARCHAR(255) NOT NULL,
+    version INTEGER NOT NULL,
+    payload_hash BIGINT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (trade_id, version, payload_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_trade_ingest_dedup_created_at ON trade_ingest_dedup (created_at);
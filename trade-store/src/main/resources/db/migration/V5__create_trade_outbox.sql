@@ -0,0 +1,16 @@
+-- Transactional outbox: history/events written in the same transaction as the trade upsert and
+-- relayed to Mongo trade_history and Kafka by TradeOutboxRelay
+CREATE TABLE IF NOT EXISTS trade_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    trade_id VARCHAR(255) NOT NULL,
+    version INTEGER,
+    ingest_sequence BIGINT,
+    event_type VARCHAR(32) NOT NULL,
+    payload JSONB NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    published_at TIMESTAMPTZ
+);
+
+-- The relay only ever scans unpublished rows in id order
+CREATE INDEX IF NOT EXISTS idx_trade_outbox_unpublished
+    ON trade_outbox (id) WHERE published_at IS NULL;
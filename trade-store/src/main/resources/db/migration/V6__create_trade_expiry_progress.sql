@@ -0,0 +1,11 @@
+-- Checkpoint of the chunked expiry job (trade-expiry), one row per UTC run date.
+-- (last_maturity_date, last_id) is the keyset cursor of the last committed chunk. Expiry replicas
+-- share the row and only move the cursor forward; rows of past run dates are deleted by the job.
+CREATE TABLE IF NOT EXISTS trade_expiry_progress (
+    run_date DATE PRIMARY KEY,
+    last_maturity_date DATE,
+    last_id BIGINT NOT NULL DEFAULT 0,
+    expired_count BIGINT NOT NULL DEFAULT 0,
+    completed_at TIMESTAMPTZ,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
@@ -0,0 +1,12 @@
+-- Expiry scans only touch ACTIVE trades in (maturity_date, id) order: findByStatusAndMaturityDateBefore
+-- and the keyset chunk query of trade-expiry. A partial index keeps expired trades out of it, and
+-- (maturity_date, id) gives the keyset query its order without a sort. The chunk query locks the
+-- rows it returns (FOR UPDATE SKIP LOCKED), so it reads them through an Index Scan under LockRows,
+-- not an index-only scan.
+--
+-- Built CONCURRENTLY so ingestion is not blocked (runs outside a transaction, see the .conf file).
+-- A failed concurrent build leaves an INVALID index behind, which IF NOT EXISTS would then skip;
+-- dropping first makes a re-run after `flyway repair` rebuild it instead.
+DROP INDEX CONCURRENTLY IF EXISTS idx_trades_active_maturity;
+CREATE INDEX CONCURRENTLY idx_trades_active_maturity
+    ON trades (maturity_date, id) WHERE status = 'ACTIVE';
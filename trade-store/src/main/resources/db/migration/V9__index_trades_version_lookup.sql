@@ -0,0 +1,7 @@
+-- Covering index for findMaxVersionByTradeId (SELECT max(version) ... WHERE trade_id = ?), so the
+-- version lookup is answered from the index without visiting the heap.
+--
+-- Same CONCURRENTLY handling as V8: no transaction, and an INVALID leftover is dropped and rebuilt.
+DROP INDEX CONCURRENTLY IF EXISTS idx_trades_trade_id_version;
+CREATE INDEX CONCURRENTLY idx_trades_trade_id_version
+    ON trades (trade_id) INCLUDE (version);
@@ -0,0 +1,85 @@
+-- Range-partitions trades by month of maturity_date (trades_pYYYYMM, plus trades_default for
+-- anything outside the created months). Only applied when classpath:db/partitioned is on
+-- spring.flyway.locations, which the `partitioned` profile does.
+--
+-- A partitioned table cannot have a unique index that leaves out the partition key, so trade_id is
+-- only unique per maturity month here; TradeRepositoryImpl serializes writers per trade_id with an
+-- advisory lock instead (trade.storage.layout=partitioned). maturity_date becomes NOT NULL, as it
+-- is part of the primary key.
+
+-- Creates the monthly partitions [from_month, from_month + months) that do not exist yet. Rows of
+-- a new month that already landed in trades_default are moved into the new partition.
+CREATE OR REPLACE FUNCTION trade_ensure_partitions(from_month DATE, months INTEGER)
+RETURNS INTEGER AS $$
+DECLARE
+    m DATE := date_trunc('month', from_month)::date;
+    next_m DATE;
+    part TEXT;
+    created INTEGER := 0;
+BEGIN
+    FOR i IN 1..months LOOP
+        next_m := (m + interval '1 month')::date;
+        part := 'trades_p' || to_char(m, 'YYYYMM');
+        IF to_regclass(part) IS NULL THEN
+            IF to_regclass('trades_default') IS NOT NULL AND EXISTS (
+                SELECT 1 FROM trades_default WHERE maturity_date >= m AND maturity_date < next_m
+            ) THEN
+                EXECUTE format('CREATE TABLE %I (LIKE trades INCLUDING DEFAULTS)', part);
+                EXECUTE format('WITH moved AS (DELETE FROM trades_default WHERE maturity_date >= %L '
+                    || 'AND maturity_date < %L RETURNING *) INSERT INTO %I SELECT * FROM moved', m, next_m, part);
+                EXECUTE format('ALTER TABLE trades ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', part, m, next_m);
+            ELSE
+                EXECUTE format('CREATE TABLE %I PARTITION OF trades FOR VALUES FROM (%L) TO (%L)', part, m, next_m);
+            END IF;
+            created := created + 1;
+        END IF;
+        m := next_m;
+    END LOOP;
+    RETURN created;
+END $$ LANGUAGE plpgsql;
+
+ALTER TABLE trades RENAME TO trades_flat;
+ALTER SEQUENCE trades_id_seq OWNED BY NONE;
+
+CREATE TABLE trades (
+    id BIGINT NOT NULL DEFAULT nextval('trades_id_seq'),
+    trade_id VARCHAR(255) NOT NULL,
+    version INTEGER NOT NULL,
+    price NUMERIC(19,4),
+    quantity INTEGER,
+    maturity_date DATE NOT NULL,
+    status VARCHAR(64),
+    created_at TIMESTAMPTZ DEFAULT now(),
+    updated_at TIMESTAMPTZ DEFAULT now(),
+    opt_lock INTEGER DEFAULT 0,
+    ingest_sequence BIGINT,
+    CONSTRAINT trades_partitioned_pkey PRIMARY KEY (id, maturity_date),
+    CONSTRAINT uc_trade_tradeid_maturity UNIQUE (trade_id, maturity_date)
+) PARTITION BY RANGE (maturity_date);
+
+CREATE TABLE trades_default PARTITION OF trades DEFAULT;
+
+-- monthly partitions from the oldest stored maturity through a year ahead; later maturities go
+-- to trades_default until TradePartitionArchiver creates their month
+DO $$
+DECLARE
+    first_month DATE;
+BEGIN
+    SELECT LEAST(COALESCE(min(maturity_date), current_date), current_date) INTO first_month FROM trades_flat;
+    PERFORM trade_ensure_partitions(first_month,
+        ((extract(year FROM current_date) - extract(year FROM first_month)) * 12
+            + extract(month FROM current_date) - extract(month FROM first_month))::int + 13);
+END $$;
+
+INSERT INTO trades (id, trade_id, version, price, quantity, maturity_date, status, created_at,
+                    updated_at, opt_lock, ingest_sequence)
+SELECT id, trade_id, version, price, quantity, maturity_date, status, created_at, updated_at,
+       opt_lock, ingest_sequence
+FROM trades_flat;
+
+DROP TABLE trades_flat;
+ALTER SEQUENCE trades_id_seq OWNED BY trades.id;
+
+-- same read paths as V8/V9, created on the parent so every partition gets them
+CREATE INDEX idx_trades_active_maturity ON trades (maturity_date, id) WHERE status = 'ACTIVE';
+CREATE INDEX idx_trades_trade_id_version ON trades (trade_id) INCLUDE (version);
@@ -0,0 +1,89 @@
+package com.trademart.tradestore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.trademart.tradestore.service.impl.BlockTradeSequencer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class BlockTradeSequencerTest {
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicLong dbSequence = new AtomicLong();
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    // emulate nextval() over generate_series(1, n)
+    when(jdbcTemplate.queryForList(anyString(), eq(Long.class), anyInt()))
+        .thenAnswer(
+            inv -> {
+              int n = inv.getArgument(2);
+              List<Long> ids = new ArrayList<>(n);
+              for (int i = 0; i < n; i++) ids.add(dbSequence.incrementAndGet());
+              return ids;
+            });
+  }
+
+  @Test
+  void handsOutReservedBlockBeforeRefilling() {
+    BlockTradeSequencer sequencer = new BlockTradeSequencer(jdbcTemplate, registry, 3);
+
+    assertThat(sequencer.nextSequence()).isEqualTo(1L);
+    assertThat(sequencer.nextSequence()).isEqualTo(2L);
+    assertThat(sequencer.nextSequence()).isEqualTo(3L);
+    assertThat(registry.counter("trade_sequence_block_refills_total").count()).isEqualTo(1.0);
+
+    assertThat(sequencer.nextSequence()).isEqualTo(4L);
+    assertThat(registry.counter("trade_sequence_block_refills_total").count()).isEqualTo(2.0);
+  }
+
+  @Test
+  void concurrentCallersGetUniqueIds() throws Exception {
+    BlockTradeSequencer sequencer = new BlockTradeSequencer(jdbcTemplate, registry, 50);
+    int threads = 8;
+    int perThread = 1000;
+    Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+    ExecutorService ex = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          ex.submit(
+              () -> {
+                long last = 0;
+                for (int i = 0; i < perThread; i++) {
+                  long v = sequencer.nextSequence();
+                  // each caller observes increasing ids
+                  assertThat(v).isGreaterThan(last);
+                  last = v;
+                  seen.add(v);
+                }
+              }));
+    }
+    for (Future<?> f : futures) f.get();
+    ex.shutdownNow();
+
+    assertThat(seen).hasSize(threads * perThread);
+    assertThat(registry.counter("trade_sequence_block_refills_total").count())
+        .isEqualTo((double) (threads * perThread) / 50);
+  }
+}
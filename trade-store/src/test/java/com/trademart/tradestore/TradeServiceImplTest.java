@@ -3,27 +3,49 @@ package com.trademart.tradestore;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.trademart.tradestore.exception.TradeRejectedException;
 import com.trademart.tradestore.model.TradeDto;
 import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.model.TradeStatus;
 import com.trademart.tradestore.mongo.TradeHistory;
 import com.trademart.tradestore.repository.TradeRepository;
+import com.trademart.tradestore.repository.TradeUpsertResult;
 import com.trademart.tradestore.repository.mongo.TradeHistoryRepository;
+import com.trademart.tradestore.service.TradeDedupKey;
+import com.trademart.tradestore.service.TradeDedupStore;
+import com.trademart.tradestore.service.TradeHistoryWriter;
+import com.trademart.tradestore.service.TradeVersionCache;
+import com.trademart.tradestore.service.impl.ClockTradeVersionCache;
+import com.trademart.tradestore.service.impl.SynchronousTradeHistoryWriter;
 import com.trademart.tradestore.service.impl.TradeServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 
 public class TradeServiceImplTest {
 
@@ -117,7 +139,7 @@ public class TradeServiceImplTest {
     saved.setPrice(new BigDecimal("9.99"));
 
     when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
-        .thenReturn(saved);
+        .thenReturn(new TradeUpsertResult(saved, true, false));
 
     TradeDto dto = new TradeDto();
     dto.setTradeId("NEW");
@@ -156,7 +178,7 @@ public class TradeServiceImplTest {
     saved.setVersion(2);
     saved.setPrice(new BigDecimal("7.00"));
     when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
-        .thenReturn(saved);
+        .thenReturn(new TradeUpsertResult(saved, true, false));
 
     TradeDto dto = new TradeDto();
     dto.setTradeId("T-2");
@@ -186,7 +208,7 @@ public class TradeServiceImplTest {
     saved.setTradeId("T-3");
     saved.setVersion(3);
     when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
-        .thenReturn(saved);
+        .thenReturn(new TradeUpsertResult(saved, true, false));
 
     TradeDto dto = new TradeDto();
     dto.setTradeId("T-3");
@@ -230,7 +252,7 @@ public class TradeServiceImplTest {
     saved.setTradeId("HISTERR");
     saved.setVersion(1);
     when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
-        .thenReturn(saved);
+        .thenReturn(new TradeUpsertResult(saved, true, false));
 
     // make history save fail
     when(tradeHistoryRepository.save(any(TradeHistory.class)))
@@ -262,7 +284,7 @@ public class TradeServiceImplTest {
     saved.setVersion(2);
     saved.setPrice(new BigDecimal("2.00"));
     when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
-        .thenReturn(saved);
+        .thenReturn(new TradeUpsertResult(saved, true, false));
 
     TradeDto dto = new TradeDto();
     dto.setTradeId("T-4");
@@ -309,7 +331,7 @@ public class TradeServiceImplTest {
               e.setPrice(price);
               e.setMaturityDate(md);
               e.setIngestSequence(seq);
-              return e;
+              return new TradeUpsertResult(e, true, true);
             });
 
     AtomicInteger histCount = new AtomicInteger(0);
@@ -354,7 +376,7 @@ public class TradeServiceImplTest {
     saved.setVersion(1);
     saved.setPrice(big);
     when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
-        .thenReturn(saved);
+        .thenReturn(new TradeUpsertResult(saved, true, false));
 
     TradeDto dto = new TradeDto();
     dto.setTradeId("BIG");
@@ -380,7 +402,7 @@ public class TradeServiceImplTest {
     savedNull.setTradeId(null);
     savedNull.setVersion(1);
     when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
-        .thenReturn(savedNull);
+        .thenReturn(new TradeUpsertResult(savedNull, true, false));
 
     TradeDto dtoNull = new TradeDto();
     dtoNull.setTradeId(null);
@@ -397,7 +419,7 @@ public class TradeServiceImplTest {
     savedBlank.setTradeId(" ");
     savedBlank.setVersion(1);
     when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
-        .thenReturn(savedBlank);
+        .thenReturn(new TradeUpsertResult(savedBlank, true, false));
 
     TradeDto dtoBlank = new TradeDto();
     dtoBlank.setTradeId(" ");
@@ -408,4 +430,385 @@ public class TradeServiceImplTest {
     TradeEntity resBlank = service.createOrUpdateTrade(dtoBlank);
     assertThat(resBlank.getTradeId()).isEqualTo(" ");
   }
+
+  @Test
+  void whenConcurrentHigherVersionWins_thenNoHistoryWritten() {
+    when(tradeRepository.findByTradeId("RACE")).thenReturn(Optional.empty());
+
+    TradeEntity winner = new TradeEntity();
+    winner.setTradeId("RACE");
+    winner.setVersion(7);
+    when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
+        .thenReturn(new TradeUpsertResult(winner, false, false));
+
+    TradeDto dto = new TradeDto();
+    dto.setTradeId("RACE");
+    dto.setVersion(3);
+    dto.setPrice(new BigDecimal("1.00"));
+    dto.setMaturityDate(LocalDate.now().plusDays(1));
+
+    TradeEntity result = service.createOrUpdateTrade(dto);
+
+    assertThat(result.getVersion()).isEqualTo(7);
+    org.mockito.Mockito.verifyNoInteractions(tradeHistoryRepository);
+  }
+
+  @Test
+  void shouldRejectLowerVersion() {
+    TradeEntity existing =
+        new TradeEntity(
+            "T1",
+            5,
+            new BigDecimal("100.00"),
+            1,
+            LocalDate.parse("2025-12-31"),
+            TradeStatus.ACTIVE);
+
+    when(tradeRepository.findByTradeId("T1")).thenReturn(Optional.of(existing));
+
+    TradeDto dto = new TradeDto();
+    dto.setTradeId("T1");
+    dto.setVersion(4);
+    dto.setPrice(new BigDecimal("200.00"));
+    dto.setMaturityDate(LocalDate.parse("2025-12-31"));
+
+    // stub the version validator to throw for the lower-version incoming trade
+    org.mockito.Mockito.doThrow(
+            new TradeRejectedException("incoming version is lower than existing"))
+        .when(versionValidator)
+        .validate(any(), any());
+
+    assertThatThrownBy(() -> service.createOrUpdateTrade(dto))
+        .isInstanceOf(TradeRejectedException.class);
+
+    // ensure no DB upsert or history writes were attempted for rejected trades
+    verify(tradeRepository, never()).upsertTrade(any(), any(), any(), any(), any(), any(), any());
+    verifyNoInteractions(tradeHistoryRepository);
+  }
+
+  @Test
+  void batchShouldSplitRepeatedTradeIdsIntoWaves() {
+    when(tradeRepository.findByTradeIdIn(any())).thenReturn(List.of());
+    when(tradeSequencer.nextSequences(2)).thenReturn(new long[] {10L, 11L});
+    when(tradeSequencer.nextSequences(1)).thenReturn(new long[] {12L});
+    when(tradeRepository.upsertTrades(any())).thenAnswer(inv -> applied(inv.getArgument(0)));
+
+    List<TradeIngestResult> results =
+        service.createOrUpdateTrades(List.of(dto("T1", 1), dto("T2", 1), dto("T1", 2)));
+
+    assertThat(results).hasSize(3);
+    assertThat(results).allMatch(TradeIngestResult::isAccepted);
+    assertThat(results.get(0).getIngestSequence()).isEqualTo(10L);
+    assertThat(results.get(2).getIngestSequence()).isEqualTo(12L);
+    // first wave carries T1 v1 and T2 v1, second wave carries T1 v2
+    verify(tradeRepository, times(2)).upsertTrades(any());
+    verify(tradeHistoryRepository, times(2)).insert(anyList());
+  }
+
+  @Test
+  void batchShouldReportRejectedTradeWithoutFailingOthers() {
+    when(tradeRepository.findByTradeIdIn(any())).thenReturn(List.of());
+    when(tradeSequencer.nextSequences(1)).thenReturn(new long[] {20L});
+    when(tradeRepository.upsertTrades(any())).thenAnswer(inv -> applied(inv.getArgument(0)));
+    org.mockito.Mockito.doThrow(new TradeRejectedException("maturity date is in the past"))
+        .when(maturityValidator)
+        .validate(LocalDate.parse("2000-01-01"));
+
+    TradeDto past = dto("T9", 1);
+    past.setMaturityDate(LocalDate.parse("2000-01-01"));
+    List<TradeIngestResult> results = service.createOrUpdateTrades(List.of(past, dto("T1", 1)));
+
+    assertThat(results.get(0).getStatus()).isEqualTo(TradeIngestResult.Status.REJECTED);
+    assertThat(results.get(1).getStatus()).isEqualTo(TradeIngestResult.Status.ACCEPTED);
+    verify(tradeRepository, times(1)).upsertTrades(any());
+  }
+
+  @Test
+  void batchIsolatesARowTheDatabaseRejects() {
+    String longId = "T".repeat(300);
+    when(tradeRepository.findByTradeIdIn(any())).thenReturn(List.of());
+    when(tradeSequencer.nextSequences(3)).thenReturn(new long[] {40L, 41L, 42L});
+    when(tradeRepository.upsertTrades(any()))
+        .thenThrow(new DataIntegrityViolationException("value too long for type varying(255)"));
+    when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
+        .thenAnswer(
+            inv -> {
+              String tradeId = inv.getArgument(0);
+              if (tradeId.length() > 255) {
+                throw new DataIntegrityViolationException("value too long for type varying(255)");
+              }
+              return new TradeUpsertResult(row(tradeId, 1), true, true);
+            });
+
+    List<TradeIngestResult> results =
+        service.createOrUpdateTrades(List.of(dto("T1", 1), dto(longId, 1), dto("T2", 1)));
+
+    assertThat(results.get(0).getStatus()).isEqualTo(TradeIngestResult.Status.ACCEPTED);
+    assertThat(results.get(1).getStatus()).isEqualTo(TradeIngestResult.Status.FAILED);
+    assertThat(results.get(2).getStatus()).isEqualTo(TradeIngestResult.Status.ACCEPTED);
+    verify(tradeRepository, times(3)).upsertTrade(any(), any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void batchDoesNotReplayWhenTheDatabaseIsUnavailable() {
+    when(tradeRepository.findByTradeIdIn(any())).thenReturn(List.of());
+    when(tradeSequencer.nextSequences(2)).thenReturn(new long[] {50L, 51L});
+    when(tradeRepository.upsertTrades(any()))
+        .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+    List<TradeIngestResult> results =
+        service.createOrUpdateTrades(List.of(dto("T1", 1), dto("T2", 1)));
+
+    assertThat(results).allMatch(r -> r.getStatus() == TradeIngestResult.Status.FAILED);
+    verify(tradeRepository, never()).upsertTrade(any(), any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void transactionalHistoryWriterRunsInsideUpsertTransaction() {
+    AtomicBoolean inTransaction = new AtomicBoolean();
+    List<Boolean> writesInTransaction = new ArrayList<>();
+    TradeHistoryWriter outbox =
+        new TradeHistoryWriter() {
+          @Override
+          public void write(TradeHistory history) {
+            writesInTransaction.add(inTransaction.get());
+          }
+
+          @Override
+          public void writeAll(List<TradeHistory> histories) {
+            histories.forEach(this::write);
+          }
+
+          @Override
+          public boolean participatesInTransaction() {
+            return true;
+          }
+        };
+    TransactionOperations transactions =
+        new TransactionOperations() {
+          @Override
+          public <T> T execute(TransactionCallback<T> action) {
+            inTransaction.set(true);
+            try {
+              return action.doInTransaction(null);
+            } finally {
+              inTransaction.set(false);
+            }
+          }
+        };
+    TradeServiceImpl outboxSubject =
+        new TradeServiceImpl(
+            tradeRepository,
+            tradeSequencer,
+            versionValidator,
+            maturityValidator,
+            outbox,
+            transactions,
+            TradeVersionCache.disabled());
+    when(tradeRepository.findByTradeId("T1")).thenReturn(Optional.empty());
+    when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
+        .thenAnswer(
+            inv -> {
+              assertThat(inTransaction.get()).isTrue();
+              TradeEntity row = new TradeEntity();
+              row.setTradeId("T1");
+              row.setVersion(1);
+              return new TradeUpsertResult(row, true, true);
+            });
+
+    outboxSubject.createOrUpdateTrade(dto("T1", 1));
+
+    assertThat(writesInTransaction).containsExactly(true);
+    verifyNoInteractions(tradeHistoryRepository);
+  }
+
+  @Test
+  void knownStaleVersionIsRejectedWithoutDatabaseLookup() {
+    TradeVersionCache cache = new ClockTradeVersionCache(new SimpleMeterRegistry(), 1 << 20);
+    TradeServiceImpl cached =
+        new TradeServiceImpl(
+            tradeRepository,
+            tradeSequencer,
+            versionValidator,
+            maturityValidator,
+            new SynchronousTradeHistoryWriter(tradeHistoryRepository),
+            TransactionOperations.withoutTransaction(),
+            cache);
+    when(tradeRepository.findByTradeId("T1")).thenReturn(Optional.empty());
+    when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
+        .thenAnswer(
+            inv -> {
+              TradeEntity row = new TradeEntity();
+              row.setTradeId("T1");
+              row.setVersion(5);
+              return new TradeUpsertResult(row, true, true);
+            });
+    cached.createOrUpdateTrade(dto("T1", 5));
+
+    assertThatThrownBy(() -> cached.createOrUpdateTrade(dto("T1", 4)))
+        .isInstanceOf(TradeRejectedException.class);
+    List<TradeIngestResult> batch = cached.createOrUpdateTrades(List.of(dto("T1", 3)));
+
+    assertThat(batch.get(0).getStatus()).isEqualTo(TradeIngestResult.Status.REJECTED);
+    verify(tradeRepository, times(1)).findByTradeId("T1");
+    verify(tradeRepository, never()).findByTradeIdIn(any());
+  }
+
+  @Test
+  void replayOfAppliedRequestIsAcknowledgedWithoutWritingAgain() {
+    TradeServiceImpl deduped = dedupSubject(new InMemoryDedupStore());
+    when(tradeRepository.findByTradeId("T1")).thenReturn(Optional.empty());
+    when(tradeRepository.upsertTrade(any(), any(), any(), any(), any(), any(), any()))
+        .thenAnswer(inv -> new TradeUpsertResult(row("T1", 1), true, true));
+
+    deduped.createOrUpdateTrade(dto("T1", 1));
+    TradeEntity replay = deduped.createOrUpdateTrade(dto("T1", 1));
+
+    assertThat(replay.getTradeId()).isEqualTo("T1");
+    assertThat(replay.getVersion()).isEqualTo(1);
+    verify(tradeRepository, times(1)).upsertTrade(any(), any(), any(), any(), any(), any(), any());
+    verify(tradeHistoryRepository, times(1)).save(any());
+  }
+
+  @Test
+  void staleReplayIsAcknowledgedButStaleChangeIsStillRejected() {
+    InMemoryDedupStore store = new InMemoryDedupStore();
+    store.keys.add(TradeDedupKey.of(dto("T1", 4)));
+    TradeServiceImpl deduped = dedupSubject(store);
+    when(tradeRepository.findByTradeId("T1"))
+        .thenReturn(
+            Optional.of(
+                new TradeEntity(
+                    "T1",
+                    5,
+                    new BigDecimal("100.00"),
+                    null,
+                    LocalDate.parse("2099-12-31"),
+                    TradeStatus.ACTIVE)));
+    org.mockito.Mockito.doThrow(TradeRejectedException.staleVersion())
+        .when(versionValidator)
+        .validate(any(), any());
+    // the filter has forgotten the key, so the replay reaches the version check
+    store.filterEnabled = false;
+
+    assertThat(deduped.createOrUpdateTrade(dto("T1", 4)).getVersion()).isEqualTo(4);
+    TradeDto changed = dto("T1", 4);
+    changed.setPrice(new BigDecimal("101.00"));
+    assertThatThrownBy(() -> deduped.createOrUpdateTrade(changed))
+        .isInstanceOf(TradeRejectedException.class);
+    verify(tradeRepository, never()).upsertTrade(any(), any(), any(), any(), any(), any(), any());
+  }
+
+  @Test
+  void batchWritesOnlyTradesWhoseKeyIsNew() {
+    InMemoryDedupStore store = new InMemoryDedupStore();
+    store.keys.add(TradeDedupKey.of(dto("T1", 1)));
+    TradeServiceImpl deduped = dedupSubject(store);
+    when(tradeRepository.findByTradeIdIn(any())).thenReturn(List.of());
+    when(tradeSequencer.nextSequences(2)).thenReturn(new long[] {30L, 31L});
+    when(tradeRepository.upsertTrades(any())).thenAnswer(inv -> applied(inv.getArgument(0)));
+    // another replica recorded T3 v1; only the claim can tell
+    store.keys.add(TradeDedupKey.of(dto("T3", 1)));
+    store.hidden.add(TradeDedupKey.of(dto("T3", 1)));
+
+    List<TradeIngestResult> results =
+        deduped.createOrUpdateTrades(List.of(dto("T1", 1), dto("T2", 1), dto("T3", 1)));
+
+    assertThat(results).allMatch(TradeIngestResult::isAccepted);
+    assertThat(results.get(0).isDuplicate()).isTrue();
+    assertThat(results.get(1).isDuplicate()).isFalse();
+    assertThat(results.get(2).isDuplicate()).isTrue();
+    verify(tradeRepository)
+        .upsertTrades(
+            org.mockito.ArgumentMatchers.argThat(
+                rows -> rows.size() == 1 && rows.get(0).getTradeId().equals("T2")));
+    verify(tradeHistoryRepository, times(1)).insert(anyList());
+  }
+
+  private TradeServiceImpl dedupSubject(TradeDedupStore store) {
+    return new TradeServiceImpl(
+        tradeRepository,
+        tradeSequencer,
+        versionValidator,
+        maturityValidator,
+        new SynchronousTradeHistoryWriter(tradeHistoryRepository),
+        TransactionOperations.withoutTransaction(),
+        TradeVersionCache.disabled(),
+        store);
+  }
+
+  /**
+   * Dedup store over a set. Keys in {@code hidden} are missing from the "filter" (as if recorded
+   * by another replica); {@code filterEnabled=false} hides every key from it.
+   */
+  private static final class InMemoryDedupStore implements TradeDedupStore {
+    final Set<TradeDedupKey> keys = new HashSet<>();
+    final Set<TradeDedupKey> hidden = new HashSet<>();
+    boolean filterEnabled = true;
+
+    @Override
+    public boolean isKnownDuplicate(TradeDedupKey key) {
+      return filterEnabled && !hidden.contains(key) && keys.contains(key);
+    }
+
+    @Override
+    public Set<TradeDedupKey> knownDuplicates(Collection<TradeDedupKey> candidates) {
+      Set<TradeDedupKey> found = new HashSet<>();
+      for (TradeDedupKey key : candidates) {
+        if (isKnownDuplicate(key)) found.add(key);
+      }
+      return found;
+    }
+
+    @Override
+    public boolean isRecorded(TradeDedupKey key) {
+      return keys.contains(key);
+    }
+
+    @Override
+    public Set<TradeDedupKey> recorded(Collection<TradeDedupKey> candidates) {
+      Set<TradeDedupKey> found = new HashSet<>(candidates);
+      found.retainAll(keys);
+      return found;
+    }
+
+    @Override
+    public boolean claim(TradeDedupKey key) {
+      return keys.add(key);
+    }
+
+    @Override
+    public Set<TradeDedupKey> claimAll(Collection<TradeDedupKey> candidates) {
+      Set<TradeDedupKey> claimed = new HashSet<>();
+      for (TradeDedupKey key : candidates) {
+        if (keys.add(key)) claimed.add(key);
+      }
+      return claimed;
+    }
+
+    @Override
+    public void release(Collection<TradeDedupKey> released) {
+      keys.removeAll(released);
+    }
+  }
+
+  private static TradeEntity row(String tradeId, int version) {
+    TradeEntity row = new TradeEntity();
+    row.setTradeId(tradeId);
+    row.setVersion(version);
+    return row;
+  }
+
+  private static List<TradeUpsertResult> applied(List<TradeEntity> rows) {
+    return rows.stream().map(r -> new TradeUpsertResult(r, true, true)).toList();
+  }
+
+  private static TradeDto dto(String tradeId, int version) {
+    TradeDto dto = new TradeDto();
+    dto.setTradeId(tradeId);
+    dto.setVersion(version);
+    dto.setPrice(new BigDecimal("100.00"));
+    dto.setMaturityDate(LocalDate.parse("2099-12-31"));
+    return dto;
+  }
 }
@@ -3,15 +3,19 @@ package com.trademart.tradestore.config;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.trademart.tradestore.exception.TradeErrorCode;
 import com.trademart.tradestore.exception.TradeRejectedException;
 import com.trademart.tradestore.exception.TradeValidationException;
+import com.trademart.tradestore.model.TradeErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
-import java.util.Map;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import org.junit.jupiter.api.Test;
 import org.slf4j.MDC;
 import org.springframework.http.HttpStatus;
@@ -33,13 +37,12 @@ public class ExceptionConfigTest {
     var resp = cfg.handleRejected(ex, req);
 
     assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
-    assertTrue(resp.getBody() instanceof Map);
-    @SuppressWarnings("unchecked")
-    Map<String, Object> body = (Map<String, Object>) resp.getBody();
+    assertTrue(resp.getBody() instanceof TradeErrorResponse);
+    TradeErrorResponse body = (TradeErrorResponse) resp.getBody();
 
-    assertEquals("VERSION_TOO_LOW", body.get("errorCode"));
-    assertEquals("incoming version is lower than existing", body.get("message"));
-    assertEquals("/trades", body.get("path"));
+    assertEquals(TradeErrorCode.VERSION_TOO_LOW, body.errorCode());
+    assertEquals("incoming version is lower than existing", body.message());
+    assertEquals("/trades", body.path());
   }
 
   @Test
@@ -52,13 +55,12 @@ public class ExceptionConfigTest {
     var resp = cfg.handleRejected(ex, req);
 
     assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
-    assertTrue(resp.getBody() instanceof Map);
-    @SuppressWarnings("unchecked")
-    Map<String, Object> body = (Map<String, Object>) resp.getBody();
+    assertTrue(resp.getBody() instanceof TradeErrorResponse);
+    TradeErrorResponse body = (TradeErrorResponse) resp.getBody();
 
-    assertEquals("MATURITY_PAST", body.get("errorCode"));
-    assertEquals("maturity date is in the past", body.get("message"));
-    assertEquals("/trades", body.get("path"));
+    assertEquals(TradeErrorCode.MATURITY_PAST, body.errorCode());
+    assertEquals("maturity date is in the past", body.message());
+    assertEquals("/trades", body.path());
   }
 
   @Test
@@ -85,20 +87,19 @@ public class ExceptionConfigTest {
     assertEquals(400, resp.getStatusCodeValue());
 
     Object body = resp.getBody();
-    assertTrue(body instanceof Map, "response body should be a Map");
-    @SuppressWarnings("unchecked")
-    Map<String, Object> map = (Map<String, Object>) body;
-
-    assertTrue(map.containsKey("traceId"), "traceId should be present in the error body");
-    Object tid = map.get("traceId");
-    assertNotNull(tid, "traceId should not be null");
-    assertTrue(tid instanceof String, "traceId should be a string");
-    String traceId = ((String) tid).trim();
+    assertTrue(body instanceof TradeErrorResponse, "response body should be a TradeErrorResponse");
+    TradeErrorResponse error = (TradeErrorResponse) body;
+
+    assertNotNull(error.traceId(), "traceId should not be null");
+    String traceId = error.traceId().trim();
     assertFalse(traceId.isEmpty(), "traceId should not be empty");
 
     // ensure it's a valid UUID string
     UUID parsed = UUID.fromString(traceId);
     assertNotNull(parsed);
+    assertEquals(4, parsed.version());
+    assertEquals(2, parsed.variant());
+    assertEquals(1, error.errors().size());
   }
 
   @Test
@@ -112,13 +113,12 @@ public class ExceptionConfigTest {
     var resp = cfg.handleValidation(ex, req);
 
     assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
-    assertTrue(resp.getBody() instanceof Map);
-    @SuppressWarnings("unchecked")
-    Map<String, Object> body = (Map<String, Object>) resp.getBody();
+    assertTrue(resp.getBody() instanceof TradeErrorResponse);
+    TradeErrorResponse body = (TradeErrorResponse) resp.getBody();
 
-    assertEquals("VERSION_TOO_LOW", body.get("errorCode"));
-    assertEquals("incoming version is lower than existing", body.get("message"));
-    assertEquals("/trades", body.get("path"));
+    assertEquals(TradeErrorCode.VERSION_TOO_LOW, body.errorCode());
+    assertEquals("incoming version is lower than existing", body.message());
+    assertEquals("/trades", body.path());
   }
 
   @Test
@@ -131,12 +131,35 @@ public class ExceptionConfigTest {
     var resp = cfg.handleGeneric(ex, req);
 
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, resp.getStatusCode());
-    assertTrue(resp.getBody() instanceof Map);
-    @SuppressWarnings("unchecked")
-    Map<String, Object> body = (Map<String, Object>) resp.getBody();
+    assertTrue(resp.getBody() instanceof TradeErrorResponse);
+    TradeErrorResponse body = (TradeErrorResponse) resp.getBody();
+
+    assertEquals(TradeErrorCode.INTERNAL_ERROR, body.errorCode());
+    assertEquals("Internal server error", body.message());
+    assertEquals("/internal", body.path());
+  }
+
+  @Test
+  void staleVersionRejection_isSharedStacklessAndTyped() {
+    ExceptionConfig cfg = new ExceptionConfig();
+    MockHttpServletRequest req = new MockHttpServletRequest();
+    req.setRequestURI("/trades");
+
+    TradeRejectedException ex = TradeRejectedException.staleVersion();
+    assertSame(ex, TradeRejectedException.staleVersion());
+    assertEquals(0, ex.getStackTrace().length);
 
-    assertEquals("INTERNAL_ERROR", body.get("errorCode"));
-    assertEquals("Internal server error", body.get("message"));
-    assertEquals("/internal", body.get("path"));
+    TradeErrorResponse body = (TradeErrorResponse) cfg.handleRejected(ex, req).getBody();
+    assertEquals(TradeErrorCode.VERSION_TOO_LOW, body.errorCode());
+    assertEquals("incoming version is lower than existing", body.message());
+    assertEquals(400, body.status());
+    assertEquals("Bad Request", body.error());
+    assertNull(body.errors());
+  }
+
+  @Test
+  void timestamp_hasMillisecondPrecisionInUtc() {
+    Pattern iso = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z$");
+    assertTrue(iso.matcher(ExceptionConfig.timestamp()).matches());
   }
 }
@@ -0,0 +1,127 @@
+package com.trademart.tradestore.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.trademart.tradestore.mongo.TradeHistory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+public class AsyncTradeHistoryWriterTest {
+
+  @TempDir Path journalDir;
+
+  private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+  private final BulkOperations bulkOps = mock(BulkOperations.class);
+  private final List<TradeHistory> inserted = new CopyOnWriteArrayList<>();
+  private AsyncTradeHistoryWriter writer;
+
+  @BeforeEach
+  void setUp() {
+    when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(TradeHistory.class)))
+        .thenReturn(bulkOps);
+    when(bulkOps.insert(anyList()))
+        .thenAnswer(
+            inv -> {
+              inserted.addAll(inv.getArgument(0));
+              return bulkOps;
+            });
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (writer != null) writer.stop();
+  }
+
+  @Test
+  void drainsQueuedDocumentsAndClearsJournal() throws Exception {
+    writer = newWriter();
+    writer.start();
+
+    writer.writeAll(List.of(history("T1", 1L), history("T2", 2L)));
+    writer.write(history("T3", 3L));
+    writer.stop();
+
+    assertThat(inserted).extracting(TradeHistory::getTradeId).containsExactly("T1", "T2", "T3");
+    assertThat(inserted).allMatch(h -> h.getId() != null);
+    writer = null;
+    assertThat(journalFiles()).isEmpty();
+  }
+
+  @Test
+  void replaysJournalLeftByPreviousRun() throws Exception {
+    // simulate a crash: documents are journaled but never acknowledged
+    TradeHistoryJournal crashed = new TradeHistoryJournal(journalDir, 100, false);
+    TradeHistory lost = history("LOST", 7L);
+    lost.setId("65f0c0ffee0000000000beef");
+    crashed.append(List.of(lost));
+
+    writer = newWriter();
+    writer.start();
+    writer.stop();
+    writer = null;
+
+    assertThat(inserted).hasSize(1);
+    TradeHistory replayed = inserted.get(0);
+    assertThat(replayed.getId()).isEqualTo("65f0c0ffee0000000000beef");
+    assertThat(replayed.getSequence()).isEqualTo(7L);
+    assertThat(replayed.getAfter()).containsEntry("price", new BigDecimal("12.50"));
+    assertThat(replayed.getAfter()).containsEntry("maturityDate", LocalDate.parse("2030-01-01"));
+  }
+
+  private AsyncTradeHistoryWriter newWriter() {
+    return new AsyncTradeHistoryWriter(
+        mongoTemplate,
+        new SimpleMeterRegistry(),
+        100,
+        10,
+        5,
+        100,
+        5_000,
+        journalDir.toString(),
+        100,
+        false);
+  }
+
+  private List<Path> journalFiles() throws Exception {
+    try (Stream<Path> files = Files.list(journalDir)) {
+      return files.toList();
+    }
+  }
+
+  private static TradeHistory history(String tradeId, long sequence) {
+    TradeHistory h = new TradeHistory();
+    h.setTradeId(tradeId);
+    h.setVersion(1);
+    h.setChangeType("CREATE");
+    h.setBefore(new HashMap<>());
+    Map<String, Object> after = new HashMap<>();
+    after.put("tradeId", tradeId);
+    after.put("price", new BigDecimal("12.50"));
+    after.put("maturityDate", LocalDate.parse("2030-01-01"));
+    h.setAfter(after);
+    h.setActor("system");
+    h.setTimestamp(Instant.now());
+    h.setSequence(sequence);
+    return h;
+  }
+}
@@ -0,0 +1,70 @@
+package com.trademart.tradestore.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+public class ClockTradeVersionCacheTest {
+
+  @Test
+  void onlyVersionsBelowTheCommittedOneAreStale() {
+    ClockTradeVersionCache cache = new ClockTradeVersionCache(new SimpleMeterRegistry(), 1 << 20);
+
+    assertFalse(cache.isKnownStale("T1", 1));
+    cache.recordCommitted("T1", 3);
+
+    assertTrue(cache.isKnownStale("T1", 2));
+    assertFalse(cache.isKnownStale("T1", 3));
+    assertFalse(cache.isKnownStale("T1", 4));
+    assertFalse(cache.isKnownStale("T1", null));
+    assertFalse(cache.isKnownStale("T2", 1));
+  }
+
+  @Test
+  void recordedVersionNeverGoesBackwards() {
+    ClockTradeVersionCache cache = new ClockTradeVersionCache(new SimpleMeterRegistry(), 1 << 20);
+
+    cache.recordCommitted("T1", 5);
+    cache.recordCommitted("T1", 2);
+
+    assertTrue(cache.isKnownStale("T1", 4));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void staysWithinByteBudgetAndKeepsRecentlyUsedEntries() {
+    long maxBytes = 64 * 1024;
+    ClockTradeVersionCache cache = new ClockTradeVersionCache(new SimpleMeterRegistry(), maxBytes);
+
+    cache.recordCommitted("HOT", 10);
+    for (int i = 0; i < 20_000; i++) {
+      cache.recordCommitted("T" + i, 1);
+      // keep touching the hot entry so CLOCK gives it a second chance
+      assertTrue(cache.isKnownStale("HOT", 9));
+    }
+
+    assertTrue(cache.estimatedBytes() <= maxBytes);
+    assertTrue(cache.size() < 20_000);
+    assertTrue(cache.isKnownStale("T19999", 0));
+    for (int i = 0; i < 20_000; i += 7) {
+      // whatever survived eviction must still be found after the backward-shift deletes
+      String id = "T" + i;
+      if (cache.isKnownStale(id, 0)) {
+        assertFalse(cache.isKnownStale(id, 1));
+      }
+    }
+  }
+
+  @Test
+  void zeroBytesDisablesTheCache() {
+    ClockTradeVersionCache cache = new ClockTradeVersionCache(new SimpleMeterRegistry(), 0);
+
+    cache.recordCommitted("T1", 3);
+
+    assertFalse(cache.isKnownStale("T1", 1));
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,204 @@
+package com.trademart.tradestore.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.trademart.tradestore.exception.TradeRejectedException;
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class GroupCommitTradeServiceTest {
+
+  private final TradeServiceImpl delegate = mock(TradeServiceImpl.class);
+  private final List<Integer> groupSizes = new CopyOnWriteArrayList<>();
+  private final ExecutorService callers = Executors.newFixedThreadPool(4);
+  private GroupCommitTradeService service;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    callers.shutdownNow();
+    if (service != null) service.stop();
+  }
+
+  @Test
+  void concurrentCallersShareOneBatchAndGetTheirOwnOutcome() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    when(delegate.createOrUpdateTrades(anyList()))
+        .thenAnswer(
+            inv -> {
+              List<TradeDto> dtos = inv.getArgument(0);
+              groupSizes.add(dtos.size());
+              // hold the committer on the first group so the next callers queue up behind it
+              release.await(5, TimeUnit.SECONDS);
+              List<TradeIngestResult> results = new ArrayList<>();
+              for (int i = 0; i < dtos.size(); i++) {
+                TradeDto dto = dtos.get(i);
+                results.add(
+                    dto.getVersion() == 0
+                        ? TradeIngestResult.fromException(
+                            i, dto, TradeRejectedException.staleVersion())
+                        : TradeIngestResult.accepted(i, entity(dto)));
+              }
+              return results;
+            });
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // a long window, closed early by max-batch
+    service = new GroupCommitTradeService(delegate, registry, 5_000_000, 3, 1, 16, 1000);
+    service.start();
+
+    Future<TradeEntity> first = callers.submit(() -> service.createOrUpdateTrade(dto("T0", 1)));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (groupSizes.isEmpty() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    Future<TradeEntity> t1 = callers.submit(() -> service.createOrUpdateTrade(dto("T1", 1)));
+    Future<TradeEntity> t2 = callers.submit(() -> service.createOrUpdateTrade(dto("T2", 2)));
+    Future<TradeEntity> stale = callers.submit(() -> service.createOrUpdateTrade(dto("T3", 0)));
+    while (registry.get("trade_group_commit_queue_depth").gauge().value() < 3
+        && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+
+    assertThat(first.get(5, TimeUnit.SECONDS).getTradeId()).isEqualTo("T0");
+    assertThat(t1.get(5, TimeUnit.SECONDS).getTradeId()).isEqualTo("T1");
+    assertThat(t2.get(5, TimeUnit.SECONDS).getVersion()).isEqualTo(2);
+    assertThatThrownBy(() -> stale.get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(TradeRejectedException.class);
+    assertThat(groupSizes).containsExactly(1, 3);
+    verify(delegate, never()).createOrUpdateTrade(any());
+  }
+
+  @Test
+  void oneBadTradeInAFailedGroupOnlyFailsItsOwnCaller() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    when(delegate.createOrUpdateTrades(anyList()))
+        .thenAnswer(
+            inv -> {
+              List<TradeDto> dtos = inv.getArgument(0);
+              groupSizes.add(dtos.size());
+              release.await(5, TimeUnit.SECONDS);
+              // the database refused the multi-row write because of BAD; every row fails with it
+              IllegalStateException error = new IllegalStateException("value too long");
+              List<TradeIngestResult> results = new ArrayList<>();
+              for (int i = 0; i < dtos.size(); i++) {
+                results.add(
+                    dtos.size() == 1
+                        ? TradeIngestResult.accepted(i, entity(dtos.get(i)))
+                        : TradeIngestResult.fromException(i, dtos.get(i), error));
+              }
+              return results;
+            });
+    IllegalStateException badRow = new IllegalStateException("value too long");
+    when(delegate.createOrUpdateTrade(any()))
+        .thenAnswer(
+            inv -> {
+              TradeDto dto = inv.getArgument(0);
+              if (dto.getTradeId().equals("BAD")) throw badRow;
+              return entity(dto);
+            });
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    service = new GroupCommitTradeService(delegate, registry, 5_000_000, 3, 1, 16, 1000);
+    service.start();
+
+    Future<TradeEntity> first = callers.submit(() -> service.createOrUpdateTrade(dto("T0", 1)));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (groupSizes.isEmpty() && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    Future<TradeEntity> t1 = callers.submit(() -> service.createOrUpdateTrade(dto("T1", 1)));
+    Future<TradeEntity> bad = callers.submit(() -> service.createOrUpdateTrade(dto("BAD", 1)));
+    Future<TradeEntity> t2 = callers.submit(() -> service.createOrUpdateTrade(dto("T2", 1)));
+    while (registry.get("trade_group_commit_queue_depth").gauge().value() < 3
+        && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    release.countDown();
+
+    assertThat(first.get(5, TimeUnit.SECONDS).getTradeId()).isEqualTo("T0");
+    assertThat(t1.get(5, TimeUnit.SECONDS).getTradeId()).isEqualTo("T1");
+    assertThat(t2.get(5, TimeUnit.SECONDS).getTradeId()).isEqualTo("T2");
+    assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS)).hasCause(badRow);
+    assertThat(groupSizes).containsExactly(1, 3);
+  }
+
+  @Test
+  void loneCallerIsCommittedWithoutWaitingForTheWindow() {
+    when(delegate.createOrUpdateTrades(anyList()))
+        .thenAnswer(
+            inv -> {
+              List<TradeDto> dtos = inv.getArgument(0);
+              groupSizes.add(dtos.size());
+              return List.of(TradeIngestResult.accepted(0, entity(dtos.get(0))));
+            });
+    service = newService(5_000_000);
+    service.start();
+
+    long start = System.nanoTime();
+    service.createOrUpdateTrade(dto("T1", 1));
+
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2_000);
+    assertThat(groupSizes).containsExactly(1);
+  }
+
+  @Test
+  void batchFailureIsRethrownToEveryCaller() {
+    IllegalStateException down = new IllegalStateException("db down");
+    when(delegate.createOrUpdateTrades(anyList())).thenThrow(down);
+    service = newService(1000);
+    service.start();
+
+    assertThatThrownBy(() -> service.createOrUpdateTrade(dto("T1", 1))).isSameAs(down);
+  }
+
+  @Test
+  void callerIngestsDirectlyWhenNotRunning() {
+    TradeDto dto = dto("T1", 1);
+    when(delegate.createOrUpdateTrade(dto)).thenReturn(entity(dto));
+    service = newService(1000);
+
+    assertThat(service.createOrUpdateTrade(dto).getTradeId()).isEqualTo("T1");
+    verify(delegate, never()).createOrUpdateTrades(anyList());
+  }
+
+  private GroupCommitTradeService newService(long windowMicros) {
+    return new GroupCommitTradeService(
+        delegate, new SimpleMeterRegistry(), windowMicros, 64, 1, 16, 1000);
+  }
+
+  private static TradeEntity entity(TradeDto dto) {
+    TradeEntity e = new TradeEntity();
+    e.setTradeId(dto.getTradeId());
+    e.setVersion(dto.getVersion());
+    return e;
+  }
+
+  private static TradeDto dto(String tradeId, int version) {
+    TradeDto dto = new TradeDto();
+    dto.setTradeId(tradeId);
+    dto.setVersion(version);
+    dto.setPrice(new BigDecimal("100.00"));
+    dto.setMaturityDate(LocalDate.parse("2099-12-31"));
+    return dto;
+  }
+}
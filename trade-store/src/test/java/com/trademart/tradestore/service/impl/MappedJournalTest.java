@@ -0,0 +1,89 @@
+package com.trademart.tradestore.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedJournalTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void readsAcrossSegmentsAndDropsConsumedOnes() throws Exception {
+    try (MappedJournal journal = new MappedJournal(dir, 64)) {
+      for (int i = 0; i < 10; i++) {
+        journal.append(bytes("rec-" + i));
+      }
+      assertThat(segmentFiles()).hasSizeGreaterThan(1);
+
+      List<MappedJournal.Entry> all = journal.read(100);
+      assertThat(all)
+          .extracting(e -> text(e.payload()))
+          .containsExactly(
+              "rec-0", "rec-1", "rec-2", "rec-3", "rec-4", "rec-5", "rec-6", "rec-7", "rec-8",
+              "rec-9");
+
+      journal.consumed(all.get(all.size() - 1).end());
+      assertThat(journal.read(100)).isEmpty();
+      assertThat(journal.backlogBytes()).isZero();
+      assertThat(segmentFiles()).hasSize(1);
+    }
+  }
+
+  @Test
+  void restartReplaysOnlyRecordsAfterTheCheckpoint() throws Exception {
+    try (MappedJournal journal = new MappedJournal(dir, 1024)) {
+      for (int i = 0; i < 5; i++) {
+        journal.append(bytes("rec-" + i));
+      }
+      journal.consumed(journal.read(2).get(1).end());
+    }
+
+    try (MappedJournal reopened = new MappedJournal(dir, 1024)) {
+      assertThat(reopened.read(100))
+          .extracting(e -> text(e.payload()))
+          .containsExactly("rec-2", "rec-3", "rec-4");
+      reopened.append(bytes("rec-5"));
+      assertThat(reopened.read(100)).extracting(e -> text(e.payload())).endsWith("rec-5");
+    }
+  }
+
+  @Test
+  void recoveryStopsAtATornRecord() throws Exception {
+    try (MappedJournal journal = new MappedJournal(dir, 1024)) {
+      journal.append(bytes("aaaa"));
+      journal.append(bytes("bbbb"));
+      journal.append(bytes("cccc"));
+    }
+    // damage the payload of the second record: header (8) + "aaaa" (4) + header (8)
+    try (RandomAccessFile file = new RandomAccessFile(segmentFiles().get(0).toFile(), "rw")) {
+      file.seek(8 + 4 + 8 + 1);
+      file.write('X');
+    }
+
+    try (MappedJournal reopened = new MappedJournal(dir, 1024)) {
+      assertThat(reopened.read(100)).extracting(e -> text(e.payload())).containsExactly("aaaa");
+    }
+  }
+
+  private List<Path> segmentFiles() throws Exception {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(p -> p.getFileName().toString().endsWith(".journal")).sorted().toList();
+    }
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String text(byte[] b) {
+    return new String(b, StandardCharsets.UTF_8);
+  }
+}
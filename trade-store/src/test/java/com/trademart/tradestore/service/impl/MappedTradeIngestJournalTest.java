@@ -0,0 +1,259 @@
+package com.trademart.tradestore.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.trademart.tradeexpiry.service.TradeMaturityValidator;
+import com.trademart.tradestore.exception.TradeRejectedException;
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.service.TradeDeadLetterStore;
+import com.trademart.tradestore.service.TradeService;
+import com.trademart.tradestore.service.TradeVersionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+
+public class MappedTradeIngestJournalTest {
+
+  @TempDir Path dir;
+
+  private final TradeService tradeService = mock(TradeService.class);
+  private final TradeVersionCache versionCache = mock(TradeVersionCache.class);
+  private final TradeMaturityValidator maturityValidator = mock(TradeMaturityValidator.class);
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final List<String> deadLettered = new CopyOnWriteArrayList<>();
+  private final TradeDeadLetterStore deadLetters =
+      new TradeDeadLetterStore() {
+        @Override
+        public void deadLetter(TradeDto trade, String reason) {
+          deadLettered.add(trade.getTradeId());
+        }
+
+        @Override
+        public void deadLetterUnreadable(byte[] record, String reason) {
+          deadLettered.add("<unreadable>");
+        }
+      };
+  private MappedTradeIngestJournal journal;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (journal != null) journal.stop();
+  }
+
+  @Test
+  void codecRoundTripsEveryField() throws Exception {
+    TradeDto dto = dto("T-\u00e9", 7);
+    dto.setPrice(new BigDecimal("-12345678901234567890.000123"));
+
+    TradeDto decoded = MappedTradeIngestJournal.decode(MappedTradeIngestJournal.encode(dto));
+
+    assertThat(decoded.getTradeId()).isEqualTo("T-\u00e9");
+    assertThat(decoded.getVersion()).isEqualTo(7);
+    assertThat(decoded.getPrice()).isEqualTo(dto.getPrice());
+    assertThat(decoded.getMaturityDate()).isEqualTo(dto.getMaturityDate());
+
+    TradeDto sparse = new TradeDto();
+    sparse.setTradeId("T2");
+    TradeDto decodedSparse =
+        MappedTradeIngestJournal.decode(MappedTradeIngestJournal.encode(sparse));
+    assertThat(decodedSparse.getVersion()).isNull();
+    assertThat(decodedSparse.getPrice()).isNull();
+    assertThat(decodedSparse.getMaturityDate()).isNull();
+  }
+
+  @Test
+  void knownStaleVersionIsRejectedBeforeJournaling() throws Exception {
+    when(versionCache.isKnownStale("T1", 1)).thenReturn(true);
+    journal = newJournal(1 << 20);
+    journal.start();
+
+    assertThatThrownBy(() -> journal.append(dto("T1", 1)))
+        .isInstanceOf(TradeRejectedException.class);
+    assertThat(journal.backlogBytes()).isZero();
+  }
+
+  @Test
+  void journaledTradesAreAppliedAndFailedOnesRetried() throws Exception {
+    List<String> applied = new CopyOnWriteArrayList<>();
+    when(tradeService.createOrUpdateTrades(anyList()))
+        .thenAnswer(
+            inv -> {
+              List<TradeDto> dtos = inv.getArgument(0);
+              List<TradeIngestResult> results = new ArrayList<>();
+              for (int i = 0; i < dtos.size(); i++) {
+                TradeDto dto = dtos.get(i);
+                // T2 fails once, then goes through on the retry
+                if (dto.getTradeId().equals("T2") && !applied.contains("T2-failed")) {
+                  applied.add("T2-failed");
+                  results.add(
+                      TradeIngestResult.fromException(i, dto, new IllegalStateException("down")));
+                } else {
+                  applied.add(dto.getTradeId());
+                  results.add(TradeIngestResult.accepted(i, entity(dto)));
+                }
+              }
+              return results;
+            });
+    journal = newJournal(1 << 20);
+    journal.start();
+
+    assertThat(journal.append(dto("T1", 1))).isTrue();
+    assertThat(journal.append(dto("T2", 1))).isTrue();
+    assertThat(journal.append(dto("T3", 1))).isTrue();
+
+    await(() -> registry.get("trade_ingest_journal_applied_total").counter().count() == 3);
+    assertThat(applied).contains("T1", "T2", "T3");
+    await(() -> journal.backlogBytes() == 0);
+  }
+
+  @Test
+  void tradeThatNeverAppliesIsDeadLetteredAndTheRestGoThrough() throws Exception {
+    List<String> applied = new CopyOnWriteArrayList<>();
+    when(tradeService.createOrUpdateTrades(anyList()))
+        .thenAnswer(
+            inv -> {
+              List<TradeDto> dtos = inv.getArgument(0);
+              List<TradeIngestResult> results = new ArrayList<>();
+              for (int i = 0; i < dtos.size(); i++) {
+                TradeDto dto = dtos.get(i);
+                if (dto.getTradeId().equals("POISON")) {
+                  // not classified as a bad row, so it is retried up to max-attempts
+                  results.add(
+                      TradeIngestResult.fromException(i, dto, new IllegalStateException("bug")));
+                } else if (dto.getTradeId().equals("TOO-LONG")) {
+                  results.add(
+                      TradeIngestResult.fromException(
+                          i, dto, new DataIntegrityViolationException("value too long")));
+                } else {
+                  applied.add(dto.getTradeId());
+                  results.add(TradeIngestResult.accepted(i, entity(dto)));
+                }
+              }
+              return results;
+            });
+    journal = newJournal(1 << 20);
+    journal.start();
+
+    journal.append(dto("T1", 1));
+    journal.append(dto("POISON", 1));
+    journal.append(dto("TOO-LONG", 1));
+    journal.append(dto("T2", 1));
+    await(() -> journal.backlogBytes() == 0);
+    journal.append(dto("T3", 1));
+
+    await(() -> applied.contains("T3"));
+    assertThat(applied).containsExactly("T1", "T2", "T3");
+    assertThat(deadLettered).containsExactlyInAnyOrder("POISON", "TOO-LONG");
+    assertThat(registry.get("trade_ingest_journal_dead_lettered_total").counter().count())
+        .isEqualTo(2.0);
+  }
+
+  @Test
+  void unappliedTradesAreReplayedAfterRestart() throws Exception {
+    when(tradeService.createOrUpdateTrades(anyList()))
+        .thenThrow(new IllegalStateException("db down"));
+    journal = newJournal(1 << 20);
+    journal.start();
+    journal.append(dto("T1", 1));
+    journal.stop();
+    journal = null;
+
+    List<String> replayed = new CopyOnWriteArrayList<>();
+    TradeService recovered = mock(TradeService.class);
+    when(recovered.createOrUpdateTrades(anyList()))
+        .thenAnswer(
+            inv -> {
+              List<TradeDto> dtos = inv.getArgument(0);
+              List<TradeIngestResult> results = new ArrayList<>();
+              for (int i = 0; i < dtos.size(); i++) {
+                replayed.add(dtos.get(i).getTradeId());
+                results.add(TradeIngestResult.accepted(i, entity(dtos.get(i))));
+              }
+              return results;
+            });
+    journal = newJournal(recovered, 1 << 20);
+    journal.start();
+
+    await(() -> replayed.contains("T1"));
+  }
+
+  @Test
+  void fullBacklogSendsCallersToDirectIngest() throws Exception {
+    journal = newJournal(1);
+    journal.start();
+    when(tradeService.createOrUpdateTrades(anyList()))
+        .thenThrow(new IllegalStateException("db down"));
+
+    assertThat(journal.append(dto("T1", 1))).isTrue();
+    await(() -> journal.backlogBytes() > 0);
+    assertThat(journal.append(dto("T2", 1))).isFalse();
+    assertThat(registry.get("trade_ingest_journal_direct_total").counter().count())
+        .isEqualTo(1.0);
+    verify(tradeService, never()).createOrUpdateTrade(any());
+  }
+
+  private MappedTradeIngestJournal newJournal(long maxBacklogBytes) {
+    return newJournal(tradeService, maxBacklogBytes);
+  }
+
+  private MappedTradeIngestJournal newJournal(TradeService service, long maxBacklogBytes) {
+    return new MappedTradeIngestJournal(
+        service,
+        versionCache,
+        maturityValidator,
+        deadLetters,
+        registry,
+        dir.toString(),
+        4096,
+        maxBacklogBytes,
+        "always",
+        10,
+        100,
+        1,
+        3,
+        200);
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("timed out waiting").isLessThan(deadline);
+      Thread.sleep(5);
+    }
+  }
+
+  private static TradeEntity entity(TradeDto dto) {
+    TradeEntity e = new TradeEntity();
+    e.setTradeId(dto.getTradeId());
+    e.setVersion(dto.getVersion());
+    return e;
+  }
+
+  private static TradeDto dto(String tradeId, int version) {
+    TradeDto dto = new TradeDto();
+    dto.setTradeId(tradeId);
+    dto.setVersion(version);
+    dto.setPrice(new BigDecimal("100.00"));
+    dto.setMaturityDate(LocalDate.parse("2099-12-31"));
+    return dto;
+  }
+}
@@ -0,0 +1,173 @@
+package com.trademart.tradestore.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeStatus;
+import com.trademart.tradestore.service.ClockService;
+import com.trademart.tradestore.service.TradeStateStore.TradeState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OffHeapTradeStateStoreTest {
+
+  private static final LocalDate TODAY = LocalDate.parse("2030-06-15");
+
+  @TempDir Path dir;
+
+  private OffHeapTradeStateStore store;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (store != null) store.stop();
+  }
+
+  @Test
+  void returnsTheRecordedRow() throws Exception {
+    store = open(1024);
+    store.recordCommitted(trade("T1", 3, 42L, "101.5", TODAY.plusDays(10)));
+
+    TradeState state = store.get("T1");
+
+    assertThat(state.version()).isEqualTo(3);
+    assertThat(state.ingestSequence()).isEqualTo(42L);
+    assertThat(state.status()).isEqualTo(TradeStatus.ACTIVE);
+    assertThat(state.maturityDate()).isEqualTo(TODAY.plusDays(10));
+    assertThat(state.price()).isEqualByComparingTo("101.5");
+    assertThat(store.get("T2")).isNull();
+  }
+
+  @Test
+  void onlyANewerVersionOrSequenceReplacesTheRow() throws Exception {
+    store = open(1024);
+    store.recordCommitted(trade("T1", 5, 10L, "1", TODAY.plusDays(1)));
+
+    store.recordCommitted(trade("T1", 4, 99L, "2", TODAY.plusDays(1)));
+    assertThat(store.get("T1").version()).isEqualTo(5);
+
+    store.recordCommitted(trade("T1", 5, 9L, "3", TODAY.plusDays(1)));
+    assertThat(store.get("T1").price()).isEqualByComparingTo("1");
+
+    store.recordCommitted(trade("T1", 5, 11L, "4", TODAY.plusDays(1)));
+    assertThat(store.get("T1").price()).isEqualByComparingTo("4");
+
+    store.recordCommitted(trade("T1", 6, 1L, "5", TODAY.plusDays(1)));
+    assertThat(store.get("T1").version()).isEqualTo(6);
+    assertThat(store.size()).isEqualTo(1);
+  }
+
+  @Test
+  void answersVersionChecks() throws Exception {
+    store = open(1024);
+    store.recordCommitted(trade("T1", 3, 1L, "1", TODAY));
+
+    assertThat(store.isKnownStale("T1", 2)).isTrue();
+    assertThat(store.isKnownStale("T1", 3)).isFalse();
+    assertThat(store.isKnownStale("T1", 4)).isFalse();
+    assertThat(store.isKnownStale("UNKNOWN", 1)).isFalse();
+  }
+
+  @Test
+  void activeTradePastMaturityReadsAsExpired() throws Exception {
+    store = open(1024);
+    store.recordCommitted(trade("OLD", 1, 1L, "1", TODAY.minusDays(1)));
+    store.recordCommitted(trade("DUE", 1, 2L, "1", TODAY));
+
+    assertThat(store.get("OLD").status()).isEqualTo(TradeStatus.EXPIRED);
+    assertThat(store.get("DUE").status()).isEqualTo(TradeStatus.ACTIVE);
+  }
+
+  @Test
+  void tradesThatDoNotFitAreLeftToTheDatabase() throws Exception {
+    store = open(2);
+    store.recordCommitted(trade("T1", 1, 1L, "1", TODAY));
+    store.recordCommitted(trade("T2", 1, 2L, "1", TODAY));
+    store.recordCommitted(trade("T3", 1, 3L, "1", TODAY));
+    String longId = "X".repeat(OffHeapTradeStateStore.KEY_BYTES + 1);
+    store.recordCommitted(trade(longId, 1, 4L, "1", TODAY));
+
+    assertThat(store.get("T3")).isNull();
+    assertThat(store.get(longId)).isNull();
+    // a full table still keeps the trades it holds current
+    store.recordCommitted(trade("T2", 2, 6L, "1", TODAY));
+    assertThat(store.get("T2").version()).isEqualTo(2);
+    assertThat(store.size()).isEqualTo(2);
+  }
+
+  @Test
+  void priceOutsideTheScaledRangeFallsBackButStillAnswersVersionChecks() throws Exception {
+    store = open(1024);
+    store.recordCommitted(trade("BIG", 2, 1L, "1000000000000000", TODAY));
+
+    assertThat(store.get("BIG")).isNull();
+    assertThat(store.isKnownStale("BIG", 1)).isTrue();
+  }
+
+  @Test
+  void readersNeverSeeAVersionGoBackwardsWhileWritesRace() throws Exception {
+    store = open(1 << 12);
+    int writes = 20_000;
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread reader =
+        new Thread(
+            () -> {
+              int last = 0;
+              try {
+                while (last < writes) {
+                  TradeState state = store.get("HOT");
+                  if (state == null) continue;
+                  assertThat(state.version()).isGreaterThanOrEqualTo(last);
+                  assertThat(state.ingestSequence()).isEqualTo(state.version());
+                  last = state.version();
+                }
+              } catch (Throwable t) {
+                failure.set(t);
+              }
+            });
+    reader.start();
+    for (int v = 1; v <= writes; v++) {
+      store.recordCommitted(trade("HOT", v, v, "1", TODAY));
+      store.recordCommitted(trade("COLD-" + (v % 1000), v, v, "1", TODAY));
+    }
+    reader.join(10_000);
+
+    assertThat(failure.get()).isNull();
+    assertThat(reader.isAlive()).isFalse();
+  }
+
+  private OffHeapTradeStateStore open(int capacity) throws Exception {
+    Clock clock = Clock.fixed(Instant.parse("2030-06-15T12:00:00Z"), ZoneOffset.UTC);
+    OffHeapTradeStateStore s =
+        new OffHeapTradeStateStore(
+            null,
+            null,
+            new ClockService(clock),
+            new SimpleMeterRegistry(),
+            dir.resolve("state.bin").toString(),
+            capacity,
+            100);
+    s.open();
+    return s;
+  }
+
+  private static TradeEntity trade(
+      String tradeId, int version, long seq, String price, LocalDate maturity) {
+    TradeEntity e = new TradeEntity();
+    e.setTradeId(tradeId);
+    e.setVersion(version);
+    e.setIngestSequence(seq);
+    e.setPrice(new BigDecimal(price));
+    e.setMaturityDate(maturity);
+    e.setStatus(TradeStatus.ACTIVE);
+    return e;
+  }
+}
@@ -0,0 +1,65 @@
+package com.trademart.tradestore.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.service.TradeDedupKey;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+public class RotatingBloomFilterTest {
+
+  @Test
+  void addedKeysAreAlwaysReportedAndOthersRarely() {
+    RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.01);
+    for (int i = 0; i < 10_000; i++) {
+      filter.put(key("T" + i, 1).hash64());
+    }
+
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(filter.mightContain(key("T" + i, 1).hash64()));
+      if (filter.mightContain(key("T" + i, 2).hash64())) falsePositives++;
+    }
+    // 1% expected; allow for variance
+    assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+  }
+
+  @Test
+  void keysSurviveOneRotationAndAreForgottenAfterTwo() {
+    RotatingBloomFilter filter = new RotatingBloomFilter(1_000, 0.01);
+    long hash = key("T1", 1).hash64();
+    filter.put(hash);
+
+    filter.rotate();
+    assertTrue(filter.mightContain(hash));
+    filter.rotate();
+    assertFalse(filter.mightContain(hash));
+  }
+
+  @Test
+  void keyIgnoresPriceScaleButNotPriceOrMaturity() {
+    TradeDto dto = dto("T1", 1, "100.50", "2099-12-31");
+
+    assertEquals(TradeDedupKey.of(dto), TradeDedupKey.of(dto("T1", 1, "100.5000", "2099-12-31")));
+    assertNotEquals(TradeDedupKey.of(dto), TradeDedupKey.of(dto("T1", 1, "100.51", "2099-12-31")));
+    assertNotEquals(TradeDedupKey.of(dto), TradeDedupKey.of(dto("T1", 1, "100.50", "2099-12-30")));
+  }
+
+  private static TradeDedupKey key(String tradeId, int version) {
+    return TradeDedupKey.of(dto(tradeId, version, "100.00", "2099-12-31"));
+  }
+
+  private static TradeDto dto(String tradeId, int version, String price, String maturity) {
+    TradeDto dto = new TradeDto();
+    dto.setTradeId(tradeId);
+    dto.setVersion(version);
+    dto.setPrice(new BigDecimal(price));
+    dto.setMaturityDate(LocalDate.parse(maturity));
+    return dto;
+  }
+}
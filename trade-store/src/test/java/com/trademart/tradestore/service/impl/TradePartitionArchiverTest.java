@@ -0,0 +1,87 @@
+package com.trademart.tradestore.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.trademart.tradestore.service.ClockService;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionOperations;
+
+public class TradePartitionArchiverTest {
+
+  private static final LocalDate TODAY = LocalDate.parse("2025-10-27");
+
+  @TempDir Path archiveDir;
+
+  @Test
+  void monthsOlderThanTheHotWindowAreCold() {
+    assertTrue(TradePartitionArchiver.isCold("trades_p202506", TODAY, 3));
+    assertFalse(TradePartitionArchiver.isCold("trades_p202507", TODAY, 3));
+    assertFalse(TradePartitionArchiver.isCold("trades_p202510", TODAY, 3));
+    assertFalse(TradePartitionArchiver.isCold("trades_p202611", TODAY, 3));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void archivesColdExpiredPartitionsOnly() throws Exception {
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    when(jdbc.query(eq(TradePartitionArchiver.LIST_PARTITIONS_SQL), any(RowMapper.class)))
+        .thenReturn(
+            List.of(
+                new TradePartitionArchiver.Partition("trades_p202401", true),
+                new TradePartitionArchiver.Partition("trades_p202402", true),
+                new TradePartitionArchiver.Partition("trades_p202403", false),
+                new TradePartitionArchiver.Partition("trades_p202509", true)));
+    when(jdbc.queryForObject(
+            "SELECT count(*) FROM trades_p202401 WHERE status = 'ACTIVE'", Integer.class))
+        .thenReturn(0);
+    when(jdbc.queryForObject(
+            "SELECT count(*) FROM trades_p202402 WHERE status = 'ACTIVE'", Integer.class))
+        .thenReturn(2);
+    TradePartitionArchiver archiver =
+        new TradePartitionArchiver(
+            jdbc,
+            TransactionOperations.withoutTransaction(),
+            new ClockService(Clock.fixed(Instant.parse("2025-10-27T00:00:00Z"), ZoneOffset.UTC)),
+            3,
+            12,
+            archiveDir.toString());
+
+    List<String> archived = archiver.archiveColdPartitions(TODAY);
+
+    // p202402 still has ACTIVE trades; p202403 was detached by an earlier, failed run
+    assertEquals(List.of("trades_p202401", "trades_p202403"), archived);
+    verify(jdbc).execute("ALTER TABLE trades DETACH PARTITION trades_p202401");
+    verify(jdbc).execute("DROP TABLE trades_p202401");
+    verify(jdbc, never()).execute("ALTER TABLE trades DETACH PARTITION trades_p202402");
+    verify(jdbc, never()).execute("ALTER TABLE trades DETACH PARTITION trades_p202403");
+    verify(jdbc).execute("DROP TABLE trades_p202403");
+    verify(jdbc, never()).execute("ALTER TABLE trades DETACH PARTITION trades_p202509");
+    assertTrue(Files.exists(archiveDir.resolve("trades_p202401.csv.gz")));
+    assertTrue(Files.exists(archiveDir.resolve("trades_p202403.csv.gz")));
+  }
+
+  @Test
+  void csvQuotesOnlyWhenNeeded() {
+    assertEquals("", TradePartitionArchiver.csv(null));
+    assertEquals("T-1", TradePartitionArchiver.csv("T-1"));
+    assertEquals("\"a,\"\"b\"\"\"", TradePartitionArchiver.csv("a,\"b\""));
+  }
+}
@@ -0,0 +1,51 @@
+package com.trademart.tradestore.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import com.trademart.tradestore.metrics.TradeProcessingMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import org.apache.kafka.clients.admin.Admin;
+import org.junit.jupiter.api.Test;
+
+public class KafkaLagMonitorTest {
+
+  private final TradeProcessingState state = new TradeProcessingState();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final TradeProcessingMetrics metrics = new TradeProcessingMetrics(state);
+  private final KafkaLagMonitor monitor =
+      new KafkaLagMonitor(
+          () -> mock(Admin.class), state, metrics, "trades", "trade-store-group", 1000, 0.5);
+
+  @Test
+  void exportsLagAndSmoothedTimeToDrain() {
+    metrics.bindTo(registry);
+
+    monitor.record(Map.of(0, 400L, 1, 600L), 0, 0);
+    // no rate yet after the first sample
+    assertEquals(1000, state.getTotalLag());
+    assertEquals(Double.POSITIVE_INFINITY, state.getTimeToDrainSeconds());
+
+    // 200 msg/s, then 100 msg/s: smoothed to 150 msg/s with a factor of 0.5
+    monitor.record(Map.of(0, 300L, 1, 500L), 2000, 10_000);
+    assertEquals(200.0, state.getProcessingRate(), 1e-9);
+    monitor.record(Map.of(0, 150L, 1, 450L), 3000, 20_000);
+    assertEquals(150.0, state.getProcessingRate(), 1e-9);
+    assertEquals(600 / 150.0, state.getTimeToDrainSeconds(), 1e-9);
+
+    assertEquals(600.0, registry.get("trade_consumer_lag_total").gauge().value());
+    assertEquals(
+        150.0, registry.get("trade_consumer_lag").tag("partition", "0").gauge().value());
+    assertEquals(
+        450.0, registry.get("trade_consumer_lag").tag("partition", "1").gauge().value());
+    assertEquals(
+        4.0, registry.get("trade_consumer_time_to_drain_seconds").gauge().value(), 1e-9);
+  }
+
+  @Test
+  void drainedTopicHasZeroTimeToDrain() {
+    monitor.record(Map.of(0, 0L), 0, 0);
+    assertEquals(0.0, state.getTimeToDrainSeconds());
+  }
+}
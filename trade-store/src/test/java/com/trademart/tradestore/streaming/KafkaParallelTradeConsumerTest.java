@@ -0,0 +1,106 @@
+package com.trademart.tradestore.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.service.TradeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class KafkaParallelTradeConsumerTest {
+
+  private final TradeService tradeService = mock(TradeService.class);
+  private final TradeProcessingState state = new TradeProcessingState();
+  private final Map<String, List<Integer>> applied = new ConcurrentHashMap<>();
+  private KafkaParallelTradeConsumer consumer;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    if (consumer != null) consumer.stop();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void keepsPerTradeOrderAndCommitsCompletedPrefix() throws Exception {
+    when(tradeService.createOrUpdateTrades(anyList()))
+        .thenAnswer(
+            inv -> {
+              List<TradeDto> dtos = inv.getArgument(0);
+              List<TradeIngestResult> results = new ArrayList<>();
+              for (int i = 0; i < dtos.size(); i++) {
+                TradeDto dto = dtos.get(i);
+                applied
+                    .computeIfAbsent(
+                        dto.getTradeId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(dto.getVersion());
+                TradeEntity e = new TradeEntity();
+                e.setTradeId(dto.getTradeId());
+                e.setVersion(dto.getVersion());
+                results.add(TradeIngestResult.accepted(i, e));
+              }
+              return results;
+            });
+    consumer =
+        new KafkaParallelTradeConsumer(
+            tradeService, state, new SimpleMeterRegistry(), 4, 16, 8, 5000);
+    consumer.start();
+
+    List<ConsumerRecord<String, String>> records = new ArrayList<>();
+    long offset = 0;
+    for (int v = 1; v <= 20; v++) {
+      for (String id : List.of("T1", "T2", "T3")) {
+        records.add(record(offset++, id, v));
+      }
+    }
+    records.add(new ConsumerRecord<>("trades", 0, offset++, null, "not json"));
+    Consumer<String, String> kafka = mock(Consumer.class);
+    consumer.consume(records, kafka);
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (state.getPending() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+    assertEquals(0, state.getPending());
+    for (String id : List.of("T1", "T2", "T3")) {
+      List<Integer> expected = new ArrayList<>();
+      for (int v = 1; v <= 20; v++) expected.add(v);
+      assertEquals(expected, applied.get(id));
+      assertEquals(0, state.getWorkerQueueDepth(consumer.workerFor(id)));
+    }
+
+    ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> committed =
+        ArgumentCaptor.forClass(Map.class);
+    consumer.consume(List.of(), kafka);
+    verify(kafka).commitAsync(committed.capture(), any(OffsetCommitCallback.class));
+    assertEquals(offset, committed.getValue().get(new TopicPartition("trades", 0)).offset());
+    assertTrue(state.getWorkerQueueDepths().values().stream().allMatch(d -> d == 0));
+  }
+
+  private static ConsumerRecord<String, String> record(long offset, String tradeId, int version) {
+    String json =
+        "{\"tradeId\":\""
+            + tradeId
+            + "\",\"version\":"
+            + version
+            + ",\"price\":1.0,\"maturityDate\":\"2099-12-31\"}";
+    return new ConsumerRecord<>("trades", 0, offset, tradeId, json);
+  }
+}
@@ -0,0 +1,64 @@
+package com.trademart.tradestore.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+public class OffsetTrackerTest {
+
+  private final TopicPartition p0 = new TopicPartition("trades", 0);
+  private final TopicPartition p1 = new TopicPartition("trades", 1);
+
+  @Test
+  void commitsOnlyUpToLowestInFlightOffset() {
+    OffsetTracker tracker = new OffsetTracker();
+    for (long o = 10; o < 15; o++) tracker.dispatched(p0, o);
+
+    tracker.completed(p0, 11);
+    tracker.completed(p0, 12);
+    assertEquals(10, tracker.committable().get(p0).offset());
+
+    tracker.completed(p0, 10);
+    assertEquals(13, tracker.committable().get(p0).offset());
+
+    tracker.completed(p0, 13);
+    tracker.completed(p0, 14);
+    assertEquals(15, tracker.committable().get(p0).offset());
+  }
+
+  @Test
+  void returnsOnlyPartitionsThatMovedSinceLastCommit() {
+    OffsetTracker tracker = new OffsetTracker();
+    tracker.dispatched(p0, 0);
+    tracker.dispatched(p1, 0);
+    tracker.completed(p0, 0);
+
+    Map<TopicPartition, OffsetAndMetadata> first = tracker.committable();
+    tracker.markCommitted(first);
+
+    assertEquals(1, first.get(p0).offset());
+    assertEquals(0, first.get(p1).offset());
+    assertTrue(tracker.committable().isEmpty());
+
+    tracker.completed(p1, 0);
+    assertEquals(Map.of(p1, new OffsetAndMetadata(1)), tracker.committable());
+  }
+
+  @Test
+  void awaitCompletionTimesOutWhileRecordsAreInFlight() throws InterruptedException {
+    OffsetTracker tracker = new OffsetTracker();
+    tracker.dispatched(p0, 5);
+
+    assertFalse(tracker.awaitCompletion(List.of(p0), 20));
+    assertTrue(tracker.awaitCompletion(List.of(p1), 20));
+
+    tracker.completed(p0, 5);
+    assertTrue(tracker.awaitCompletion(List.of(p0), 20));
+  }
+}
@@ -0,0 +1,117 @@
+package com.trademart.tradestore.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.trademart.tradestore.config.ExceptionConfig;
+import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
+import com.trademart.tradestore.service.TradeService;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+@WebMvcTest(
+    controllers = TradeBatchIngestionController.class,
+    properties = "trade.ingest.batch.size=2")
+@AutoConfigureMockMvc(addFilters = false)
+@Import({ExceptionConfig.class, TradeBatchIngestionControllerTest.TestConfig.class})
+public class TradeBatchIngestionControllerTest {
+
+  @Autowired private MockMvc mvc;
+
+  @MockBean private TradeService tradeService;
+
+  @BeforeEach
+  void acceptEverything() {
+    given(tradeService.createOrUpdateTrades(anyList()))
+        .willAnswer(
+            inv -> {
+              List<TradeDto> dtos = inv.getArgument(0);
+              List<TradeIngestResult> results = new ArrayList<>();
+              for (int i = 0; i < dtos.size(); i++) {
+                TradeEntity saved = new TradeEntity();
+                saved.setTradeId(dtos.get(i).getTradeId());
+                saved.setVersion(dtos.get(i).getVersion());
+                results.add(TradeIngestResult.accepted(i, saved));
+              }
+              return results;
+            });
+  }
+
+  @Test
+  void ndjsonBodyReportsInvalidLinesAndPersistsTheRest() throws Exception {
+    String body =
+        "{\"tradeId\":\"T1\",\"version\":1,\"price\":1.5,\"maturityDate\":\"2099-01-01\"}\n"
+            + "{\"tradeId\":\"T2\",\"version\":1,\"maturityDate\":\"2099-01-01\"}\n"
+            + "{\"tradeId\":\"T3\",\"version\":1,\"price\":2.5,\"maturityDate\":\"2099-01-01\"}\n";
+
+    mvc.perform(
+            post("/trades/batch")
+                .contentType(MediaType.parseMediaType(TradeBatchIngestionController.NDJSON))
+                .content(body))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.received").value(3))
+        .andExpect(jsonPath("$.accepted").value(2))
+        .andExpect(jsonPath("$.rejected").value(1))
+        .andExpect(jsonPath("$.items[0].index").value(1))
+        .andExpect(jsonPath("$.items[0].tradeId").value("T2"))
+        .andExpect(jsonPath("$.items[0].status").value("REJECTED"));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  void jsonArrayIsPersistedInBatchesOfConfiguredSize() throws Exception {
+    String body =
+        "[{\"tradeId\":\"A\",\"version\":1,\"price\":1,\"maturityDate\":\"2099-01-01\"},"
+            + "{\"tradeId\":\"B\",\"version\":1,\"price\":1,\"maturityDate\":\"2099-01-01\"},"
+            + "{\"tradeId\":\"C\",\"version\":1,\"price\":1,\"maturityDate\":\"2099-01-01\"}]";
+
+    mvc.perform(post("/trades/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.received").value(3))
+        .andExpect(jsonPath("$.accepted").value(3))
+        .andExpect(jsonPath("$.items").isEmpty());
+
+    ArgumentCaptor<List<TradeDto>> captor = ArgumentCaptor.forClass(List.class);
+    verify(tradeService, times(2)).createOrUpdateTrades(captor.capture());
+    assertEquals(2, captor.getAllValues().get(0).size());
+    assertEquals(1, captor.getAllValues().get(1).size());
+  }
+
+  @Test
+  void truncatedBodyReturns400WithWhatWasPersisted() throws Exception {
+    String body =
+        "[{\"tradeId\":\"A\",\"version\":1,\"price\":1,\"maturityDate\":\"2099-01-01\"},"
+            + "{\"tradeId\":\"B\",\"vers";
+
+    mvc.perform(post("/trades/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.accepted").value(1))
+        .andExpect(jsonPath("$.error").isNotEmpty());
+  }
+
+  @org.springframework.boot.test.context.TestConfiguration
+  static class TestConfig {
+    @org.springframework.context.annotation.Bean
+    public io.micrometer.core.instrument.MeterRegistry meterRegistry() {
+      return new io.micrometer.core.instrument.simple.SimpleMeterRegistry();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.trademart.tradestore.streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.trademart.tradeexpiry.repository.TradeMaxVersion;
+import com.trademart.tradeexpiry.repository.TradeRepository;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public class TradeQueryControllerTest {
+
+  private final TradeRepository repository = mock(TradeRepository.class);
+
+  @Test
+  void resolvesAllIdsWithOneQueryAndOmitsUnknownOnes() {
+    when(repository.findMaxVersionsByTradeIdIn(List.of("T1", "T2", "T3")))
+        .thenReturn(List.of(new TradeMaxVersion("T1", 4), new TradeMaxVersion("T3", 1)));
+
+    ResponseEntity<Map<String, Integer>> resp =
+        controller(10).maxVersions(List.of("T1", "T2", "T1", "T3"));
+
+    assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(resp.getBody()).containsExactlyInAnyOrderEntriesOf(Map.of("T1", 4, "T3", 1));
+  }
+
+  @Test
+  void singleLookupReadsThePostgresMax() {
+    when(repository.findMaxVersionByTradeId("T1")).thenReturn(7);
+
+    assertThat(controller(10).maxVersion("T1").getBody()).isEqualTo(7);
+    assertThat(controller(10).maxVersion("T2").getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+  }
+
+  @Test
+  void tooManyIdsIsABadRequest() {
+    ResponseEntity<Map<String, Integer>> resp =
+        controller(2).maxVersions(List.of("T1", "T2", "T3"));
+
+    assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    verify(repository, never()).findMaxVersionsByTradeIdIn(any());
+  }
+
+  private TradeQueryController controller(int maxIds) {
+    return new TradeQueryController(repository, maxIds);
+  }
+}
@@ -1,19 +1,32 @@
 package com.trademart.tradestore.worker;
 
-import static org.mockito.Mockito.timeout;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.trademart.tradestore.model.TradeDto;
+import com.trademart.tradestore.model.TradeEntity;
+import com.trademart.tradestore.model.TradeIngestResult;
 import com.trademart.tradestore.service.TradeService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.KafkaContainer;
@@ -29,8 +42,10 @@ import org.testcontainers.utility.DockerImageName;
     properties = {
       "spring.main.web-application-type=none",
       "spring.profiles.active=batch",
-      "batch.exitOnComplete=false"
+      "batch.exitOnComplete=false",
+      "batch.concurrency=2"
     })
+@Import(TradeWorkerIntegrationTest.RecordingTradeServiceConfig.class)
 class TradeWorkerIntegrationTest {
 
   @Container
@@ -67,19 +82,59 @@ class TradeWorkerIntegrationTest {
     }
   }
 
-  @MockBean TradeService tradeService;
+  /** Accepts every trade and records what the worker submitted, in submission order. */
+  static class RecordingTradeService implements TradeService {
+    final List<TradeDto> submitted = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public TradeEntity createOrUpdateTrade(TradeDto dto) {
+      throw new UnsupportedOperationException("the worker uses the batch path");
+    }
+
+    @Override
+    public List<TradeIngestResult> createOrUpdateTrades(List<TradeDto> dtos) {
+      submitted.addAll(dtos);
+      List<TradeIngestResult> results = new ArrayList<>(dtos.size());
+      for (int i = 0; i < dtos.size(); i++) {
+        TradeEntity e = new TradeEntity();
+        e.setTradeId(dtos.get(i).getTradeId());
+        e.setVersion(dtos.get(i).getVersion());
+        results.add(TradeIngestResult.accepted(i, e));
+      }
+      return results;
+    }
+  }
+
+  @TestConfiguration
+  static class RecordingTradeServiceConfig {
+    @Bean
+    RecordingTradeService tradeService() {
+      return new RecordingTradeService();
+    }
+  }
+
+  @Autowired RecordingTradeService tradeService;
 
   // context started by @SpringBootTest
 
   @Test
   void workerProcessesMessagesFromKafka() throws Exception {
-    // messages are produced before the context starts in @BeforeAll
-
-    // the BatchWorker CommandLineRunner runs during context initialization and will
-    // process messages.
-    // Verify the TradeService#createOrUpdateTrade was called 3 times within a
-    // timeout.
-    Mockito.verify(tradeService, timeout(10_000).times(3))
-        .createOrUpdateTrade(Mockito.any(TradeDto.class));
+    // messages are produced before the context starts in @BeforeAll; the BatchWorker
+    // CommandLineRunner has processed them by the time the context is up
+    assertEquals(
+        List.of("T-1", "T-2", "T-3"),
+        tradeService.submitted.stream().map(TradeDto::getTradeId).toList());
+
+    // offsets were committed manually once the batch was persisted
+    Properties props = new Properties();
+    props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+    props.put(ConsumerConfig.GROUP_ID_CONFIG, "trade-store-batch-group");
+    props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+    props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+    TopicPartition tp = new TopicPartition("test-trades-topic", 0);
+    try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
+      OffsetAndMetadata committed = consumer.committed(Set.of(tp)).get(tp);
+      assertEquals(3, committed.offset());
+    }
   }
 }